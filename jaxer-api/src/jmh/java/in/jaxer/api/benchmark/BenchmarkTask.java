@@ -0,0 +1,22 @@
+package in.jaxer.api.benchmark;
+
+import in.jaxer.api.annotations.RestTask;
+import in.jaxer.api.core.tasks.AbstractApiTask;
+
+import java.sql.Connection;
+
+/**
+ * Trivial public task, keeps the benchmark focused on the dispatch path
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@RestTask(isPublicApi = true)
+public class BenchmarkTask extends AbstractApiTask
+{
+	@Override
+	public void doApiTask(Connection connection)
+	{
+		setParameter("echo", getParameter("echo"));
+	}
+}
@@ -0,0 +1,100 @@
+package in.jaxer.api.benchmark;
+
+import in.jaxer.api.annotations.RestTask;
+import in.jaxer.api.core.request.RestRequestHandler;
+import in.jaxer.api.dtos.ApiResponseDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and allocation rate of {@link RestRequestHandler#processRequest}, run with
+ * <pre>
+ * mvn -P benchmark -pl jaxer-api verify
+ * </pre>
+ * allocations per request are reported by the gc profiler as <code>gc.alloc.rate.norm</code>
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessRequestBenchmark
+{
+	private static final String REQUEST_BODY = "{\"API_REQUEST_SOURCE\":\"WEB\",\"API_VERSION\":\"1\",\"API_TASK_NAME\":\"BenchmarkTask\",\"echo\":\"hello\"}";
+
+	private HttpServletResponse response;
+
+	@Setup
+	public void setup()
+	{
+		response = (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{HttpServletResponse.class},
+				(proxy, method, args) -> defaultValue(method.getReturnType()));
+	}
+
+	@Benchmark
+	public ApiResponseDto processRequest() throws Exception
+	{
+		RestRequestHandler requestHandler = new RestRequestHandler("in.jaxer.api.benchmark", RestTask.class);
+		return requestHandler.processRequest(null, newRequest(), response, null);
+	}
+
+	private static HttpServletRequest newRequest()
+	{
+		return (HttpServletRequest) Proxy.newProxyInstance(ProcessRequestBenchmark.class.getClassLoader(), new Class[]{HttpServletRequest.class},
+				(proxy, method, args) ->
+				{
+					switch (method.getName())
+					{
+						case "getReader":
+							return new BufferedReader(new StringReader(REQUEST_BODY));
+						case "getContentType":
+							return "application/json";
+						case "getMethod":
+							return "POST";
+						case "getRemoteAddr":
+							return "127.0.0.1";
+						default:
+							return defaultValue(method.getReturnType());
+					}
+				});
+	}
+
+	private static Object defaultValue(Class<?> returnType)
+	{
+		if (returnType == boolean.class)
+		{
+			return false;
+		}
+
+		if (returnType == int.class)
+		{
+			return 0;
+		}
+
+		if (returnType == long.class)
+		{
+			return 0L;
+		}
+
+		return null;
+	}
+}
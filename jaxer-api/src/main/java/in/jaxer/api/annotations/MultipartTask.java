@@ -14,4 +14,56 @@ import java.lang.annotation.Target;
 public @interface MultipartTask
 {
 	boolean isPublicTask() default false;
+
+	/**
+	 * Only specific role will be allowed to access this task
+	 * empty means anyone
+	 * <br>
+	 * Checked against the roles of the {@link in.jaxer.api.dtos.PrincipalDto} set by the authentication
+	 *
+	 * @since 2.0.0
+	 */
+	String[] allowedRole() default {};
+
+	/**
+	 * Sustained requests per second allowed, 0 means unlimited
+	 *
+	 * @since 2.0.0
+	 */
+	double rateLimit() default 0;
+
+	/**
+	 * Maximum requests allowed in a burst (bucket capacity), 0 means one second worth of {@link #rateLimit()}
+	 *
+	 * @since 2.0.0
+	 */
+	int rateLimitBurst() default 0;
+
+	/**
+	 * Maximum requests of this task executing at the same time, 0 means unlimited
+	 *
+	 * @since 2.0.0
+	 */
+	int maxConcurrency() default 0;
+
+	/**
+	 * @since 2.0.0
+	 */
+	ThrottleKey throttleKey() default ThrottleKey.GLOBAL;
+
+	/**
+	 * Integrated mode borrows a connection from the {@link in.jaxer.api.core.database.TaskDataSource} for this task only,
+	 * executed in a transaction committed on success
+	 *
+	 * @since 2.0.0
+	 */
+	boolean requiresConnection() default false;
+
+	/**
+	 * Borrowed connection comes from the replica when one is configured and is marked read-only
+	 *
+	 * @since 2.0.0
+	 */
+	boolean readOnly() default false;
 }
+
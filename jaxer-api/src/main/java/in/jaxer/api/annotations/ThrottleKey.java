@@ -0,0 +1,26 @@
+package in.jaxer.api.annotations;
+
+/**
+ * What the rate and concurrency limits of a task are counted against
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public enum ThrottleKey
+{
+	/**
+	 * One limit shared by every caller of the task
+	 */
+	GLOBAL,
+
+	/**
+	 * Separate limit for every authenticated caller, applied after the authentication,
+	 * unauthenticated requests are counted by remote address
+	 */
+	ACCESS_TOKEN,
+
+	/**
+	 * Separate limit for every client address, as resolved by the container ({@link javax.servlet.ServletRequest#getRemoteAddr()})
+	 */
+	IP_ADDRESS
+}
@@ -1,8 +1,7 @@
 package in.jaxer.api.constants;
 
-import lombok.AllArgsConstructor;
+import in.jaxer.api.dtos.ErrorDto;
 import lombok.Getter;
-import lombok.Setter;
 import lombok.ToString;
 
 /**
@@ -10,15 +9,97 @@ import lombok.ToString;
  * @since 0.0.1
  */
 @Getter
-@Setter
 @ToString
-@AllArgsConstructor
 public class ApiStatus
 {
+	/**
+	 * @since 2.0.0
+	 */
+	public static final ApiStatus TASK_TIMEOUT = new Constant(504, "Task timed out");
+
+	/**
+	 * @since 2.0.0
+	 */
+	public static final ApiStatus FORBIDDEN = new Constant(403, "You are not allowed to access this task");
+
+	/**
+	 * @since 2.0.0
+	 */
+	public static final ApiStatus TOO_MANY_REQUESTS = new Constant(429, "Too many requests, please retry later");
+
+	/**
+	 * @since 2.0.0
+	 */
+	public static final ApiStatus TOO_MANY_CONCURRENT_REQUESTS = new Constant(429, "Too many concurrent requests, please retry later");
+
+	/**
+	 * @since 2.0.0
+	 */
+	public static final ApiStatus IDEMPOTENCY_KEY_IN_PROGRESS = new Constant(409, "A request with the same idempotency key is still in progress, please retry later");
+
+	/**
+	 * @since 2.0.0
+	 */
+	public static final ApiStatus IDEMPOTENCY_KEY_REUSED = new Constant(422, "The idempotency key was already used for a different request");
+
 	private int code;
 	private String message;
+
 	public ApiStatus(int code)
 	{
 		this.code = code;
 	}
+
+	public ApiStatus(int code, String message)
+	{
+		this.code = code;
+		this.message = message;
+	}
+
+	public void setCode(int code)
+	{
+		this.code = code;
+	}
+
+	public void setMessage(String message)
+	{
+		this.message = message;
+	}
+
+	/**
+	 * Renders the {@link ErrorDto} of this status, a new instance every time as its fields are public,
+	 * without the stack trace an expected failure does not need
+	 *
+	 * @since 2.0.0
+	 */
+	public ErrorDto getErrorDto()
+	{
+		ErrorDto errorDto = new ErrorDto();
+		errorDto.errorCode = code;
+		errorDto.errorMessage = message;
+		return errorDto;
+	}
+
+	/**
+	 * The constants above are shared by every request, they cannot be changed
+	 */
+	private static final class Constant extends ApiStatus
+	{
+		private Constant(int code, String message)
+		{
+			super(code, message);
+		}
+
+		@Override
+		public void setCode(int code)
+		{
+			throw new UnsupportedOperationException("ApiStatus constants cannot be changed, create a new ApiStatus");
+		}
+
+		@Override
+		public void setMessage(String message)
+		{
+			throw new UnsupportedOperationException("ApiStatus constants cannot be changed, create a new ApiStatus");
+		}
+	}
 }
@@ -17,4 +17,11 @@ public class RequestConstant
 	public static final String API_REQUEST_SOURCE_ANDROID = "ANDROID";
 	public static final String API_CLIENT_MILLISECONDS = "API_CLIENT_MILLISECONDS";
 	public static final String MULTIPART_TASK_NAME = "MULTIPART_TASK_NAME";
+	public static final String API_BATCH = "API_BATCH";
+	public static final String API_BATCH_MODE = "API_BATCH_MODE";
+	public static final String API_BATCH_MODE_SEQUENTIAL = "SEQUENTIAL";
+	public static final String API_BATCH_MODE_PARALLEL = "PARALLEL";
+	public static final String API_BATCH_CONCURRENCY = "API_BATCH_CONCURRENCY";
+	public static final String API_IDEMPOTENCY_KEY = "API_IDEMPOTENCY_KEY";
+	public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
 }
@@ -0,0 +1,18 @@
+package in.jaxer.api.core.background;
+
+import java.sql.Connection;
+
+/**
+ * Unit of work executed by {@link BackgroundTaskExecutor} after the response has been produced.
+ * <br>
+ * The connection is borrowed by the executor for this task only, it is <b>never</b> the request connection
+ * and will be <code>null</code> when the executor has no {@link javax.sql.DataSource}.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@FunctionalInterface
+public interface BackgroundTask
+{
+	void run(Connection connection) throws Exception;
+}
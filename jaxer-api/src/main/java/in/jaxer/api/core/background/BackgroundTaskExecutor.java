@@ -0,0 +1,379 @@
+package in.jaxer.api.core.background;
+
+import in.jaxer.api.exceptions.JaxerApiException;
+import in.jaxer.core.utilities.JValidator;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Managed executor for work which should not delay the api response, like notifications and audit writes.
+ * <br>
+ * Tasks are queued in a bounded queue and executed by a fixed size worker pool,
+ * each task gets its own connection from the configured {@link DataSource} and is interrupted
+ * once it runs longer than the configured timeout.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Log4j2
+public class BackgroundTaskExecutor
+{
+	public static final int DEFAULT_POOL_SIZE = 2;
+	public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+	public static final long DEFAULT_TASK_TIMEOUT_MILLIS = 30 * 1000L;
+	public static final long DEFAULT_DRAIN_TIMEOUT_MILLIS = 10 * 1000L;
+
+	private static final AtomicInteger executorSequence = new AtomicInteger();
+
+	private final ThreadPoolExecutor threadPoolExecutor;
+	private final ScheduledExecutorService watchdog;
+
+	@Getter
+	private final DataSource dataSource;
+
+	@Getter
+	private final int queueCapacity;
+
+	@Getter
+	private final long taskTimeoutMillis;
+
+	@Getter
+	private final long drainTimeoutMillis;
+
+	@Getter
+	private final RejectionPolicy rejectionPolicy;
+
+	private final LongAdder submittedCount = new LongAdder();
+	private final LongAdder completedCount = new LongAdder();
+	private final LongAdder failedCount = new LongAdder();
+	private final LongAdder rejectedCount = new LongAdder();
+	private final LongAdder timedOutCount = new LongAdder();
+	private final LongAdder totalQueueNanos = new LongAdder();
+	private final LongAdder totalExecutionNanos = new LongAdder();
+	private final AtomicLong maxExecutionNanos = new AtomicLong();
+
+	@Builder(setterPrefix = "with")
+	private BackgroundTaskExecutor(DataSource dataSource, Integer poolSize, Integer queueCapacity,
+								   Long taskTimeoutMillis, Long drainTimeoutMillis, RejectionPolicy rejectionPolicy)
+	{
+		this.dataSource = dataSource;
+		this.queueCapacity = queueCapacity == null ? DEFAULT_QUEUE_CAPACITY : queueCapacity;
+		this.taskTimeoutMillis = taskTimeoutMillis == null ? DEFAULT_TASK_TIMEOUT_MILLIS : taskTimeoutMillis;
+		this.drainTimeoutMillis = drainTimeoutMillis == null ? DEFAULT_DRAIN_TIMEOUT_MILLIS : drainTimeoutMillis;
+		this.rejectionPolicy = rejectionPolicy == null ? RejectionPolicy.ABORT : rejectionPolicy;
+
+		int workers = poolSize == null ? DEFAULT_POOL_SIZE : poolSize;
+		JValidator.throwWhenTrue(workers < 1, "poolSize must be greater than zero");
+		JValidator.throwWhenTrue(this.queueCapacity < 1, "queueCapacity must be greater than zero");
+
+		String prefix = "jaxer-bg-" + executorSequence.incrementAndGet();
+
+		this.threadPoolExecutor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(this.queueCapacity), new NamedThreadFactory(prefix), new RejectionHandler());
+		this.watchdog = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory(prefix + "-watchdog"));
+
+		log.info("{} started with poolSize: {}, queueCapacity: {}, taskTimeoutMillis: {}, rejectionPolicy: {}",
+				prefix, workers, this.queueCapacity, this.taskTimeoutMillis, this.rejectionPolicy);
+	}
+
+	/**
+	 * Queues the task for execution
+	 *
+	 * @throws JaxerApiException when queue is full and {@link RejectionPolicy#ABORT} is configured or executor is shutdown
+	 */
+	public void submit(BackgroundTask backgroundTask)
+	{
+		JValidator.throwWhenNull(backgroundTask, "backgroundTask cannot be null");
+
+		submittedCount.increment();
+		try
+		{
+			threadPoolExecutor.execute(new TimedTask(backgroundTask));
+		} catch (RejectedExecutionException exception)
+		{
+			throw new JaxerApiException("Background task rejected, queueDepth: " + getQueueDepth(), exception);
+		}
+	}
+
+	/**
+	 * Stops accepting new tasks and waits up to {@link #getDrainTimeoutMillis()} for queued tasks to finish,
+	 * remaining tasks are interrupted and dropped.
+	 * <br>
+	 * Meant to be called from {@link javax.servlet.Servlet#destroy()}
+	 */
+	public void shutdown()
+	{
+		log.info("draining background tasks, queueDepth: {}, activeCount: {}", getQueueDepth(), getActiveCount());
+		threadPoolExecutor.shutdown();
+
+		try
+		{
+			if (!threadPoolExecutor.awaitTermination(drainTimeoutMillis, TimeUnit.MILLISECONDS))
+			{
+				log.warn("drain timeout exceeded, dropping {} background tasks", threadPoolExecutor.shutdownNow().size());
+			}
+		} catch (InterruptedException exception)
+		{
+			threadPoolExecutor.shutdownNow();
+			Thread.currentThread().interrupt();
+		} finally
+		{
+			watchdog.shutdownNow();
+		}
+	}
+
+	public boolean isShutdown()
+	{
+		return threadPoolExecutor.isShutdown();
+	}
+
+	public int getQueueDepth()
+	{
+		return threadPoolExecutor.getQueue().size();
+	}
+
+	public int getActiveCount()
+	{
+		return threadPoolExecutor.getActiveCount();
+	}
+
+	public int getPoolSize()
+	{
+		return threadPoolExecutor.getMaximumPoolSize();
+	}
+
+	public long getSubmittedCount()
+	{
+		return submittedCount.sum();
+	}
+
+	public long getCompletedCount()
+	{
+		return completedCount.sum();
+	}
+
+	public long getFailedCount()
+	{
+		return failedCount.sum();
+	}
+
+	public long getRejectedCount()
+	{
+		return rejectedCount.sum();
+	}
+
+	public long getTimedOutCount()
+	{
+		return timedOutCount.sum();
+	}
+
+	/**
+	 * Average time spent by a task in queue before a worker picked it up
+	 */
+	public double getAverageQueueMillis()
+	{
+		long executed = completedCount.sum() + failedCount.sum();
+		return executed == 0 ? 0 : totalQueueNanos.sum() / 1_000_000d / executed;
+	}
+
+	/**
+	 * Average time spent by a task in execution, including borrowing and releasing the connection
+	 */
+	public double getAverageExecutionMillis()
+	{
+		long executed = completedCount.sum() + failedCount.sum();
+		return executed == 0 ? 0 : totalExecutionNanos.sum() / 1_000_000d / executed;
+	}
+
+	public double getMaxExecutionMillis()
+	{
+		return maxExecutionNanos.get() / 1_000_000d;
+	}
+
+	private void execute(BackgroundTask backgroundTask) throws Exception
+	{
+		if (dataSource == null)
+		{
+			backgroundTask.run(null);
+			return;
+		}
+
+		try (Connection connection = dataSource.getConnection())
+		{
+			try
+			{
+				backgroundTask.run(connection);
+
+				if (!connection.getAutoCommit())
+				{
+					connection.commit();
+				}
+			} catch (Exception exception)
+			{
+				if (!connection.getAutoCommit())
+				{
+					connection.rollback();
+				}
+				throw exception;
+			}
+		}
+	}
+
+	private void record(long queuedAt, long startedAt, boolean failed)
+	{
+		long executionNanos = System.nanoTime() - startedAt;
+
+		totalQueueNanos.add(startedAt - queuedAt);
+		totalExecutionNanos.add(executionNanos);
+		maxExecutionNanos.accumulateAndGet(executionNanos, Math::max);
+
+		if (failed)
+		{
+			failedCount.increment();
+		} else
+		{
+			completedCount.increment();
+		}
+	}
+
+	/**
+	 * What to do when the queue is full
+	 */
+	public enum RejectionPolicy
+	{
+		/**
+		 * Throws {@link JaxerApiException} to the submitter
+		 */
+		ABORT,
+
+		/**
+		 * Runs the task on the submitting (request) thread
+		 */
+		CALLER_RUNS,
+
+		/**
+		 * Silently drops the task, only counted in {@link #getRejectedCount()}
+		 */
+		DISCARD
+	}
+
+	private class TimedTask implements Runnable
+	{
+		private final BackgroundTask backgroundTask;
+		private final long queuedAt = System.nanoTime();
+
+		private TimedTask(BackgroundTask backgroundTask)
+		{
+			this.backgroundTask = backgroundTask;
+		}
+
+		@Override
+		public void run()
+		{
+			long startedAt = System.nanoTime();
+
+			FutureTask<Void> futureTask = new FutureTask<>(() -> {
+				execute(backgroundTask);
+				return null;
+			});
+
+			ScheduledFuture<?> timeout = null;
+			if (taskTimeoutMillis > 0 && !watchdog.isShutdown())
+			{
+				timeout = watchdog.schedule(() -> {
+					if (futureTask.cancel(true))
+					{
+						timedOutCount.increment();
+						log.warn("background task timed out after {} ms: {}", taskTimeoutMillis, backgroundTask);
+					}
+				}, taskTimeoutMillis, TimeUnit.MILLISECONDS);
+			}
+
+			boolean failed = false;
+			try
+			{
+				futureTask.run();
+				futureTask.get();
+			} catch (Exception exception)
+			{
+				failed = true;
+				log.error("background task failed: {}", backgroundTask, exception);
+			} finally
+			{
+				if (timeout != null)
+				{
+					timeout.cancel(false);
+				}
+
+				// do not leak the timeout interrupt to the next task of this worker
+				Thread.interrupted();
+
+				record(queuedAt, startedAt, failed);
+			}
+		}
+	}
+
+	private class RejectionHandler implements RejectedExecutionHandler
+	{
+		@Override
+		public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor)
+		{
+			rejectedCount.increment();
+
+			if (executor.isShutdown())
+			{
+				throw new RejectedExecutionException("Executor is shutdown");
+			}
+
+			switch (rejectionPolicy)
+			{
+				case CALLER_RUNS:
+					runnable.run();
+					break;
+
+				case DISCARD:
+					log.warn("queue is full, discarding background task");
+					break;
+
+				default:
+					throw new RejectedExecutionException("Queue is full");
+			}
+		}
+	}
+
+	private static class NamedThreadFactory implements ThreadFactory
+	{
+		private final AtomicInteger threadSequence = new AtomicInteger();
+		private final String prefix;
+
+		private NamedThreadFactory(String prefix)
+		{
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, prefix + "-" + threadSequence.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package in.jaxer.api.core.codec;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * Wire format of the api, reads the request parameters and writes the response of a task.
+ * <br>
+ * The codec of the request is picked by its {@code Content-Type}, the codec of the response by {@code Accept},
+ * see {@link ApiCodecs}. Implementations are shared by all requests and must be thread safe.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public interface ApiCodec
+{
+	/**
+	 * Media type without parameters, e.g. <code>application/json</code>
+	 */
+	String getContentType();
+
+	/**
+	 * @return request parameters, null for an empty body
+	 */
+	HashMap<String, Object> readRequest(HttpServletRequest request) throws IOException;
+
+	void writeResponse(HttpServletRequest request, HttpServletResponse response, Object object) throws IOException;
+}
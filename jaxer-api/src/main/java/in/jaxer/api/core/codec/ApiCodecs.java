@@ -0,0 +1,139 @@
+package in.jaxer.api.core.codec;
+
+import in.jaxer.core.HttpUtils;
+import in.jaxer.core.utilities.JValidator;
+import lombok.extern.log4j.Log4j2;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ServiceLoader;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of the {@link ApiCodec}s, {@link JsonApiCodec} (the default) and {@link CborApiCodec} are built in.
+ * <br>
+ * More codecs are picked up with {@link ServiceLoader} from
+ * <code>META-INF/services/in.jaxer.api.core.codec.ApiCodec</code> or added with {@link #register(ApiCodec)},
+ * a codec registered later replaces the one with the same content type.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Log4j2
+public class ApiCodecs
+{
+	private static final ApiCodec DEFAULT = new JsonApiCodec();
+
+	private static final CopyOnWriteArrayList<ApiCodec> apiCodecList = new CopyOnWriteArrayList<>();
+
+	static
+	{
+		register(DEFAULT);
+		register(new CborApiCodec());
+
+		for (ApiCodec apiCodec : ServiceLoader.load(ApiCodec.class))
+		{
+			log.info("registering apiCodec: {}, contentType: {}", apiCodec.getClass().getName(), apiCodec.getContentType());
+			register(apiCodec);
+		}
+	}
+
+	public static ApiCodec getDefault()
+	{
+		return DEFAULT;
+	}
+
+	public static synchronized void register(ApiCodec apiCodec)
+	{
+		JValidator.throwWhenNull(apiCodec, "apiCodec cannot be null");
+		JValidator.throwWhenBlank(apiCodec.getContentType(), "contentType of apiCodec cannot be empty");
+
+		apiCodecList.removeIf(registered -> registered.getContentType().equalsIgnoreCase(apiCodec.getContentType()));
+		apiCodecList.add(apiCodec);
+	}
+
+	/**
+	 * Codec of the request body, the default one when the content type is unknown
+	 */
+	public static ApiCodec forRequest(HttpServletRequest request)
+	{
+		ApiCodec apiCodec = find(request.getContentType());
+		return apiCodec == null ? DEFAULT : apiCodec;
+	}
+
+	/**
+	 * Codec preferred by {@code Accept}, the codec of the request when nothing in it is registered
+	 */
+	public static ApiCodec forResponse(HttpServletRequest request)
+	{
+		String accept = request.getHeader(HttpUtils.Header.ACCEPT);
+		if (JValidator.isBlank(accept))
+		{
+			return forRequest(request);
+		}
+
+		ApiCodec preferred = null;
+		double preferredQuality = 0;
+
+		for (String mediaRange : accept.split(","))
+		{
+			double quality = 1;
+
+			int semicolon = mediaRange.indexOf(';');
+			if (semicolon != -1)
+			{
+				quality = getQuality(mediaRange.substring(semicolon + 1));
+			}
+
+			ApiCodec apiCodec = find(mediaRange);
+			if (apiCodec != null && quality > preferredQuality)
+			{
+				preferred = apiCodec;
+				preferredQuality = quality;
+			}
+		}
+
+		return preferred == null ? forRequest(request) : preferred;
+	}
+
+	/**
+	 * @param mediaType content type, parameters are ignored
+	 */
+	public static ApiCodec find(String mediaType)
+	{
+		if (JValidator.isBlank(mediaType))
+		{
+			return null;
+		}
+
+		int semicolon = mediaType.indexOf(';');
+		String type = (semicolon == -1 ? mediaType : mediaType.substring(0, semicolon)).trim();
+
+		for (ApiCodec apiCodec : apiCodecList)
+		{
+			if (apiCodec.getContentType().equalsIgnoreCase(type))
+			{
+				return apiCodec;
+			}
+		}
+		return null;
+	}
+
+	private static double getQuality(String parameters)
+	{
+		for (String parameter : parameters.split(";"))
+		{
+			parameter = parameter.trim();
+			if (parameter.startsWith("q="))
+			{
+				try
+				{
+					return Double.parseDouble(parameter.substring(2));
+				} catch (NumberFormatException exception)
+				{
+					return 0;
+				}
+			}
+		}
+		return 1;
+	}
+}
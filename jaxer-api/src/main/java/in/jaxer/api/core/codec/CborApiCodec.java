@@ -0,0 +1,67 @@
+package in.jaxer.api.core.codec;
+
+import in.jaxer.api.exceptions.ApiException;
+import in.jaxer.core.net.CompressingResponseWriter;
+import lombok.Getter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact binary codec (CBOR, RFC 8949) meant for service to service calls,
+ * selected with <code>Content-Type: application/cbor</code> and <code>Accept: application/cbor</code>
+ * <br>
+ * Numbers of the request parameters are {@link Long} or {@link Double} as sent, unlike json where every number is a Double.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class CborApiCodec implements ApiCodec
+{
+	public static final String APPLICATION_CBOR = "application/cbor";
+
+	@Getter
+	private final CborEncoder cborEncoder = new CborEncoder();
+
+	@Getter
+	private final CborDecoder cborDecoder = new CborDecoder();
+
+	@Override
+	public String getContentType()
+	{
+		return APPLICATION_CBOR;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public HashMap<String, Object> readRequest(HttpServletRequest request) throws IOException
+	{
+		Object value = cborDecoder.decode(request.getInputStream());
+		if (value == null || value instanceof HashMap)
+		{
+			return (HashMap<String, Object>) value;
+		}
+
+		if (value instanceof Map)
+		{
+			return new HashMap<>((Map<String, Object>) value);
+		}
+
+		throw new ApiException("Request body must be a cbor map");
+	}
+
+	@Override
+	public void writeResponse(HttpServletRequest request, HttpServletResponse response, Object object) throws IOException
+	{
+		response.setContentType(APPLICATION_CBOR);
+
+		try (OutputStream outputStream = CompressingResponseWriter.getDefault().openStream(request, response))
+		{
+			cborEncoder.encode(object, outputStream);
+		}
+	}
+}
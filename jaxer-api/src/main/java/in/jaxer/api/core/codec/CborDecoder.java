@@ -0,0 +1,370 @@
+package in.jaxer.api.core.codec;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Decodes CBOR into plain java values
+ * <ul>
+ *     <li>integers to {@link Long} ({@link BigInteger} beyond its range), floats to {@link Double}</li>
+ *     <li>text to {@link String}, byte strings to <code>byte[]</code></li>
+ *     <li>arrays to {@link ArrayList}, maps to {@link LinkedHashMap} with {@link String} keys</li>
+ *     <li>epoch based date/time (tag 1) to {@link Date}, other tags are ignored</li>
+ * </ul>
+ * Input is untrusted, nesting depth and declared lengths are capped.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class CborDecoder
+{
+	public static final int DEFAULT_MAX_DEPTH = 128;
+	public static final int DEFAULT_MAX_LENGTH = 16 * 1024 * 1024;
+
+	private static final Object BREAK = new Object();
+
+	// collections are grown as items arrive, a forged length cannot make us preallocate
+	private static final int MAX_INITIAL_CAPACITY = 1024;
+
+	// strings longer than this are read chunk by chunk into a growing buffer, for the same reason
+	private static final int READ_CHUNK_SIZE = 64 * 1024;
+
+	private final int maxDepth;
+	private final int maxLength;
+
+	public CborDecoder()
+	{
+		this(DEFAULT_MAX_DEPTH, DEFAULT_MAX_LENGTH);
+	}
+
+	public CborDecoder(int maxDepth, int maxLength)
+	{
+		this.maxDepth = maxDepth;
+		this.maxLength = maxLength;
+	}
+
+	/**
+	 * @return decoded data item, null for an empty stream
+	 */
+	public Object decode(InputStream inputStream) throws IOException
+	{
+		InputStream bufferedInputStream = inputStream instanceof BufferedInputStream || inputStream instanceof ByteArrayInputStream
+				? inputStream
+				: new BufferedInputStream(inputStream);
+
+		int initialByte = bufferedInputStream.read();
+		if (initialByte == -1)
+		{
+			return null;
+		}
+
+		Object value = read(bufferedInputStream, initialByte, 0);
+		if (value == BREAK)
+		{
+			throw new IOException("Unexpected break");
+		}
+		return value;
+	}
+
+	public Object decode(byte[] bytes) throws IOException
+	{
+		return decode(new ByteArrayInputStream(bytes));
+	}
+
+	private Object read(InputStream inputStream, int depth) throws IOException
+	{
+		int initialByte = inputStream.read();
+		if (initialByte == -1)
+		{
+			throw new EOFException("Unexpected end of cbor data");
+		}
+		return read(inputStream, initialByte, depth);
+	}
+
+	private Object read(InputStream inputStream, int initialByte, int depth) throws IOException
+	{
+		if (depth > maxDepth)
+		{
+			throw new IOException("Cbor data nested deeper than " + maxDepth);
+		}
+
+		int majorType = initialByte >>> 5;
+		int additionalInfo = initialByte & 0x1f;
+
+		switch (majorType)
+		{
+			case CborWriter.MAJOR_UNSIGNED:
+				return toInteger(readArgument(inputStream, additionalInfo), false);
+
+			case CborWriter.MAJOR_NEGATIVE:
+				return toInteger(readArgument(inputStream, additionalInfo), true);
+
+			case CborWriter.MAJOR_BYTES:
+				return readBytes(inputStream, majorType, additionalInfo);
+
+			case CborWriter.MAJOR_TEXT:
+				return new String(readBytes(inputStream, majorType, additionalInfo), StandardCharsets.UTF_8);
+
+			case CborWriter.MAJOR_ARRAY:
+				return readArray(inputStream, additionalInfo, depth);
+
+			case CborWriter.MAJOR_MAP:
+				return readMap(inputStream, additionalInfo, depth);
+
+			case CborWriter.MAJOR_TAG:
+				long tag = readArgument(inputStream, additionalInfo);
+				Object tagged = readItem(inputStream, depth + 1);
+				if (tag == 1 && tagged instanceof Number)
+				{
+					return new Date((long) (((Number) tagged).doubleValue() * 1000));
+				}
+				return tagged;
+
+			default:
+				return readSimple(inputStream, initialByte, additionalInfo);
+		}
+	}
+
+	private Object readSimple(InputStream inputStream, int initialByte, int additionalInfo) throws IOException
+	{
+		switch (initialByte)
+		{
+			case CborWriter.FALSE:
+				return Boolean.FALSE;
+			case CborWriter.TRUE:
+				return Boolean.TRUE;
+			case CborWriter.NULL:
+			case 0xf7: // undefined
+				return null;
+			case 0xf9:
+				return (double) halfToFloat((int) readUnsigned(inputStream, 2));
+			case CborWriter.FLOAT32:
+				return (double) Float.intBitsToFloat((int) readUnsigned(inputStream, 4));
+			case CborWriter.FLOAT64:
+				return Double.longBitsToDouble(readUnsigned(inputStream, 8));
+			case CborWriter.BREAK:
+				return BREAK;
+			default:
+				if (additionalInfo == 24)
+				{
+					inputStream.read();
+				}
+				// unassigned simple values carry no meaning for us
+				return null;
+		}
+	}
+
+	private List<Object> readArray(InputStream inputStream, int additionalInfo, int depth) throws IOException
+	{
+		if (additionalInfo == CborWriter.INDEFINITE)
+		{
+			List<Object> list = new ArrayList<>();
+			for (Object item = read(inputStream, depth + 1); item != BREAK; item = read(inputStream, depth + 1))
+			{
+				list.add(item);
+			}
+			return list;
+		}
+
+		int size = checkLength(readArgument(inputStream, additionalInfo));
+		List<Object> list = new ArrayList<>(Math.min(size, MAX_INITIAL_CAPACITY));
+		for (int i = 0; i < size; i++)
+		{
+			list.add(readItem(inputStream, depth + 1));
+		}
+		return list;
+	}
+
+	private LinkedHashMap<String, Object> readMap(InputStream inputStream, int additionalInfo, int depth) throws IOException
+	{
+		if (additionalInfo == CborWriter.INDEFINITE)
+		{
+			LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+			for (Object key = read(inputStream, depth + 1); key != BREAK; key = read(inputStream, depth + 1))
+			{
+				map.put(String.valueOf(key), readItem(inputStream, depth + 1));
+			}
+			return map;
+		}
+
+		int size = checkLength(readArgument(inputStream, additionalInfo));
+		LinkedHashMap<String, Object> map = new LinkedHashMap<>(Math.min(size, MAX_INITIAL_CAPACITY) * 2);
+		for (int i = 0; i < size; i++)
+		{
+			String key = String.valueOf(readItem(inputStream, depth + 1));
+			map.put(key, readItem(inputStream, depth + 1));
+		}
+		return map;
+	}
+
+	private Object readItem(InputStream inputStream, int depth) throws IOException
+	{
+		Object item = read(inputStream, depth);
+		if (item == BREAK)
+		{
+			throw new IOException("Unexpected break");
+		}
+		return item;
+	}
+
+	private byte[] readBytes(InputStream inputStream, int majorType, int additionalInfo) throws IOException
+	{
+		if (additionalInfo != CborWriter.INDEFINITE)
+		{
+			return readFully(inputStream, checkLength(readArgument(inputStream, additionalInfo)));
+		}
+
+		// indefinite length string, a sequence of definite chunks of the same major type
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		for (int initialByte = inputStream.read(); initialByte != CborWriter.BREAK; initialByte = inputStream.read())
+		{
+			if (initialByte == -1)
+			{
+				throw new EOFException("Unexpected end of cbor data");
+			}
+
+			if (initialByte >>> 5 != majorType || (initialByte & 0x1f) == CborWriter.INDEFINITE)
+			{
+				throw new IOException("Invalid chunk in indefinite length string");
+			}
+
+			int length = checkLength(readArgument(inputStream, initialByte & 0x1f));
+			if (byteArrayOutputStream.size() + (long) length > maxLength)
+			{
+				throw new IOException("Cbor string longer than " + maxLength + " bytes");
+			}
+			readFully(inputStream, length, byteArrayOutputStream);
+		}
+		return byteArrayOutputStream.toByteArray();
+	}
+
+	private byte[] readFully(InputStream inputStream, int length) throws IOException
+	{
+		if (length > READ_CHUNK_SIZE)
+		{
+			ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(READ_CHUNK_SIZE);
+			readFully(inputStream, length, byteArrayOutputStream);
+			return byteArrayOutputStream.toByteArray();
+		}
+
+		byte[] bytes = new byte[length];
+		int offset = 0;
+		while (offset < length)
+		{
+			int read = inputStream.read(bytes, offset, length - offset);
+			if (read == -1)
+			{
+				throw new EOFException("Unexpected end of cbor data");
+			}
+			offset += read;
+		}
+		return bytes;
+	}
+
+	/**
+	 * The buffer only grows with the bytes actually received, a truncated stream fails before the declared length is allocated
+	 */
+	private void readFully(InputStream inputStream, int length, ByteArrayOutputStream byteArrayOutputStream) throws IOException
+	{
+		byte[] chunk = new byte[Math.min(length, READ_CHUNK_SIZE)];
+		int remaining = length;
+		while (remaining > 0)
+		{
+			int read = inputStream.read(chunk, 0, Math.min(chunk.length, remaining));
+			if (read == -1)
+			{
+				throw new EOFException("Unexpected end of cbor data");
+			}
+			byteArrayOutputStream.write(chunk, 0, read);
+			remaining -= read;
+		}
+	}
+
+	private int checkLength(long length) throws IOException
+	{
+		if (length < 0 || length > maxLength)
+		{
+			throw new IOException("Cbor length " + Long.toUnsignedString(length) + " exceeds " + maxLength);
+		}
+		return (int) length;
+	}
+
+	/**
+	 * @return argument of the data item, negative when it does not fit in a signed long
+	 */
+	private static long readArgument(InputStream inputStream, int additionalInfo) throws IOException
+	{
+		if (additionalInfo < 24)
+		{
+			return additionalInfo;
+		}
+
+		switch (additionalInfo)
+		{
+			case 24:
+				return readUnsigned(inputStream, 1);
+			case 25:
+				return readUnsigned(inputStream, 2);
+			case 26:
+				return readUnsigned(inputStream, 4);
+			case 27:
+				return readUnsigned(inputStream, 8);
+			default:
+				throw new IOException("Invalid cbor additional information " + additionalInfo);
+		}
+	}
+
+	private static long readUnsigned(InputStream inputStream, int length) throws IOException
+	{
+		long value = 0;
+		for (int i = 0; i < length; i++)
+		{
+			int b = inputStream.read();
+			if (b == -1)
+			{
+				throw new EOFException("Unexpected end of cbor data");
+			}
+			value = (value << 8) | b;
+		}
+		return value;
+	}
+
+	private static Object toInteger(long argument, boolean negative)
+	{
+		if (argument >= 0)
+		{
+			return negative ? -1 - argument : argument;
+		}
+
+		BigInteger unsigned = new BigInteger(Long.toUnsignedString(argument));
+		return negative ? BigInteger.ONE.negate().subtract(unsigned) : unsigned;
+	}
+
+	private static float halfToFloat(int half)
+	{
+		int exponent = (half >> 10) & 0x1f;
+		int mantissa = half & 0x3ff;
+		float value;
+		if (exponent == 0)
+		{
+			value = mantissa * 0x1p-24f;
+		} else if (exponent == 31)
+		{
+			value = mantissa == 0 ? Float.POSITIVE_INFINITY : Float.NaN;
+		} else
+		{
+			value = (mantissa + 1024) * (float) Math.pow(2, exponent - 25);
+		}
+		return (half & 0x8000) == 0 ? value : -value;
+	}
+}
@@ -0,0 +1,331 @@
+package in.jaxer.api.core.codec;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.annotations.SerializedName;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Encodes objects to CBOR following the field rules of Gson, so both codecs produce the same document
+ * <ul>
+ *     <li>static, transient and synthetic fields are skipped, {@link SerializedName} renames a field</li>
+ *     <li>null fields are omitted, null map values and array elements are kept</li>
+ *     <li>{@link Date} is written as an epoch based date/time (tag 1)</li>
+ * </ul>
+ * The encoder of a class is resolved once and cached, for DTOs that means the accessible fields
+ * and their keys already encoded as CBOR text.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class CborEncoder
+{
+	private static final long TAG_EPOCH_DATE_TIME = 1;
+
+	private final ConcurrentHashMap<Class<?>, ValueEncoder> valueEncoderMap = new ConcurrentHashMap<>();
+
+	public void encode(Object object, OutputStream outputStream) throws IOException
+	{
+		CborWriter cborWriter = new CborWriter(outputStream);
+		write(cborWriter, object);
+		cborWriter.flush();
+	}
+
+	public byte[] encode(Object object) throws IOException
+	{
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		encode(object, byteArrayOutputStream);
+		return byteArrayOutputStream.toByteArray();
+	}
+
+	void write(CborWriter cborWriter, Object value) throws IOException
+	{
+		if (value == null)
+		{
+			cborWriter.writeNull();
+			return;
+		}
+
+		getValueEncoder(value.getClass()).encode(this, cborWriter, value);
+	}
+
+	private ValueEncoder getValueEncoder(Class<?> clazz)
+	{
+		ValueEncoder valueEncoder = valueEncoderMap.get(clazz);
+		return valueEncoder != null ? valueEncoder : valueEncoderMap.computeIfAbsent(clazz, CborEncoder::createValueEncoder);
+	}
+
+	private static ValueEncoder createValueEncoder(Class<?> clazz)
+	{
+		if (clazz == String.class || clazz == Character.class || CharSequence.class.isAssignableFrom(clazz))
+		{
+			return (encoder, writer, value) -> writer.writeString(value.toString());
+		}
+
+		if (clazz == Boolean.class)
+		{
+			return (encoder, writer, value) -> writer.writeBoolean((Boolean) value);
+		}
+
+		if (clazz == Integer.class || clazz == Long.class || clazz == Short.class || clazz == Byte.class
+				|| clazz == AtomicInteger.class || clazz == AtomicLong.class)
+		{
+			return (encoder, writer, value) -> writer.writeLong(((Number) value).longValue());
+		}
+
+		if (clazz == BigInteger.class)
+		{
+			return (encoder, writer, value) ->
+			{
+				BigInteger bigInteger = (BigInteger) value;
+				if (bigInteger.bitLength() < 64)
+				{
+					writer.writeLong(bigInteger.longValue());
+				} else
+				{
+					writer.writeDouble(bigInteger.doubleValue());
+				}
+			};
+		}
+
+		if (Number.class.isAssignableFrom(clazz))
+		{
+			// Double, Float, BigDecimal and Gson's LazilyParsedNumber
+			return (encoder, writer, value) -> writeNumber(writer, (Number) value);
+		}
+
+		if (clazz.isEnum() || (clazz.getSuperclass() != null && clazz.getSuperclass().isEnum()))
+		{
+			return (encoder, writer, value) -> writer.writeString(((Enum<?>) value).name());
+		}
+
+		if (clazz == byte[].class)
+		{
+			return (encoder, writer, value) -> writer.writeBytes((byte[]) value);
+		}
+
+		if (clazz.isArray())
+		{
+			return CborEncoder::writeArray;
+		}
+
+		if (Map.class.isAssignableFrom(clazz))
+		{
+			return CborEncoder::writeMap;
+		}
+
+		if (Collection.class.isAssignableFrom(clazz))
+		{
+			return CborEncoder::writeCollection;
+		}
+
+		if (Date.class.isAssignableFrom(clazz))
+		{
+			return (encoder, writer, value) ->
+			{
+				writer.writeTag(TAG_EPOCH_DATE_TIME);
+				writer.writeDouble(((Date) value).getTime() / 1000.0);
+			};
+		}
+
+		if (JsonElement.class.isAssignableFrom(clazz))
+		{
+			return CborEncoder::writeJsonElement;
+		}
+
+		return new ObjectEncoder(clazz);
+	}
+
+	private static void writeNumber(CborWriter writer, Number number) throws IOException
+	{
+		if (number instanceof BigDecimal)
+		{
+			BigDecimal bigDecimal = (BigDecimal) number;
+			if (bigDecimal.scale() <= 0 && bigDecimal.precision() - bigDecimal.scale() < 19)
+			{
+				writer.writeLong(bigDecimal.longValueExact());
+				return;
+			}
+		}
+
+		double value = number.doubleValue();
+		if (value == Math.rint(value) && Math.abs(value) < 0x1p53 && !(number instanceof Double) && !(number instanceof Float))
+		{
+			writer.writeLong((long) value);
+			return;
+		}
+
+		writer.writeDouble(value);
+	}
+
+	private static void writeArray(CborEncoder encoder, CborWriter writer, Object array) throws IOException
+	{
+		int length = Array.getLength(array);
+		writer.startArray(length);
+		for (int i = 0; i < length; i++)
+		{
+			encoder.write(writer, Array.get(array, i));
+		}
+	}
+
+	private static void writeCollection(CborEncoder encoder, CborWriter writer, Object value) throws IOException
+	{
+		Collection<?> collection = (Collection<?>) value;
+		writer.startArray(collection.size());
+		for (Object element : collection)
+		{
+			encoder.write(writer, element);
+		}
+	}
+
+	private static void writeMap(CborEncoder encoder, CborWriter writer, Object value) throws IOException
+	{
+		Map<?, ?> map = (Map<?, ?>) value;
+		writer.startMap(map.size());
+		for (Map.Entry<?, ?> entry : map.entrySet())
+		{
+			writer.writeString(String.valueOf(entry.getKey()));
+			encoder.write(writer, entry.getValue());
+		}
+	}
+
+	private static void writeJsonElement(CborEncoder encoder, CborWriter writer, Object value) throws IOException
+	{
+		JsonElement jsonElement = (JsonElement) value;
+		if (jsonElement.isJsonNull())
+		{
+			writer.writeNull();
+		} else if (jsonElement.isJsonPrimitive())
+		{
+			JsonPrimitive jsonPrimitive = jsonElement.getAsJsonPrimitive();
+			if (jsonPrimitive.isBoolean())
+			{
+				writer.writeBoolean(jsonPrimitive.getAsBoolean());
+			} else if (jsonPrimitive.isNumber())
+			{
+				writeNumber(writer, jsonPrimitive.getAsNumber());
+			} else
+			{
+				writer.writeString(jsonPrimitive.getAsString());
+			}
+		} else if (jsonElement.isJsonArray())
+		{
+			JsonArray jsonArray = jsonElement.getAsJsonArray();
+			writer.startArray(jsonArray.size());
+			for (JsonElement element : jsonArray)
+			{
+				writeJsonElement(encoder, writer, element);
+			}
+		} else
+		{
+			JsonObject jsonObject = jsonElement.getAsJsonObject();
+			writer.startMap(jsonObject.size());
+			for (Map.Entry<String, JsonElement> entry : jsonObject.entrySet())
+			{
+				writer.writeString(entry.getKey());
+				writeJsonElement(encoder, writer, entry.getValue());
+			}
+		}
+	}
+
+	private interface ValueEncoder
+	{
+		void encode(CborEncoder encoder, CborWriter writer, Object value) throws IOException;
+	}
+
+	/**
+	 * Fields of a DTO, written as an indefinite length map since null fields are left out
+	 */
+	private static class ObjectEncoder implements ValueEncoder
+	{
+		private final Field[] fields;
+		private final byte[][] keys;
+
+		private ObjectEncoder(Class<?> clazz)
+		{
+			List<Field> fieldList = new ArrayList<>();
+			List<byte[]> keyList = new ArrayList<>();
+
+			for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass())
+			{
+				for (Field field : current.getDeclaredFields())
+				{
+					if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers()) || field.isSynthetic())
+					{
+						continue;
+					}
+
+					field.setAccessible(true);
+					fieldList.add(field);
+					keyList.add(encodeKey(getName(field)));
+				}
+			}
+
+			this.fields = fieldList.toArray(new Field[0]);
+			this.keys = keyList.toArray(new byte[0][]);
+		}
+
+		private static String getName(Field field)
+		{
+			SerializedName serializedName = field.getAnnotation(SerializedName.class);
+			return serializedName == null ? field.getName() : serializedName.value();
+		}
+
+		private static byte[] encodeKey(String key)
+		{
+			try
+			{
+				ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+				CborWriter cborWriter = new CborWriter(byteArrayOutputStream);
+				cborWriter.writeString(key);
+				cborWriter.flush();
+				return byteArrayOutputStream.toByteArray();
+			} catch (IOException exception)
+			{
+				throw new IllegalStateException(exception);
+			}
+		}
+
+		@Override
+		public void encode(CborEncoder encoder, CborWriter writer, Object value) throws IOException
+		{
+			writer.startIndefiniteMap();
+			for (int i = 0; i < fields.length; i++)
+			{
+				Object fieldValue;
+				try
+				{
+					fieldValue = fields[i].get(value);
+				} catch (IllegalAccessException exception)
+				{
+					throw new IllegalStateException(exception);
+				}
+
+				if (fieldValue != null)
+				{
+					writer.writeRaw(keys[i]);
+					encoder.write(writer, fieldValue);
+				}
+			}
+			writer.writeBreak();
+		}
+	}
+}
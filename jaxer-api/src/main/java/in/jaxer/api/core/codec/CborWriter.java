@@ -0,0 +1,282 @@
+package in.jaxer.api.core.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Buffered writer of CBOR (RFC 8949) data items, strings are encoded to UTF-8 straight into the buffer
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class CborWriter
+{
+	static final int MAJOR_UNSIGNED = 0;
+	static final int MAJOR_NEGATIVE = 1;
+	static final int MAJOR_BYTES = 2;
+	static final int MAJOR_TEXT = 3;
+	static final int MAJOR_ARRAY = 4;
+	static final int MAJOR_MAP = 5;
+	static final int MAJOR_TAG = 6;
+	static final int MAJOR_SIMPLE = 7;
+
+	static final int FALSE = 0xf4;
+	static final int TRUE = 0xf5;
+	static final int NULL = 0xf6;
+	static final int FLOAT32 = 0xfa;
+	static final int FLOAT64 = 0xfb;
+	static final int BREAK = 0xff;
+	static final int INDEFINITE = 31;
+
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	private final OutputStream outputStream;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int count;
+
+	public CborWriter(OutputStream outputStream)
+	{
+		this.outputStream = outputStream;
+	}
+
+	public void writeNull() throws IOException
+	{
+		write(NULL);
+	}
+
+	public void writeBoolean(boolean value) throws IOException
+	{
+		write(value ? TRUE : FALSE);
+	}
+
+	public void writeLong(long value) throws IOException
+	{
+		if (value < 0)
+		{
+			// -1 - n, one's complement keeps Long.MIN_VALUE in range
+			writeHead(MAJOR_NEGATIVE, ~value);
+		} else
+		{
+			writeHead(MAJOR_UNSIGNED, value);
+		}
+	}
+
+	/**
+	 * Written as single precision when no precision is lost
+	 */
+	public void writeDouble(double value) throws IOException
+	{
+		float floatValue = (float) value;
+		if (floatValue == value || Double.isNaN(value))
+		{
+			ensureCapacity(5);
+			buffer[count++] = (byte) FLOAT32;
+			putInt(Float.floatToIntBits(floatValue));
+			return;
+		}
+
+		ensureCapacity(9);
+		buffer[count++] = (byte) FLOAT64;
+		long bits = Double.doubleToLongBits(value);
+		putInt((int) (bits >>> 32));
+		putInt((int) bits);
+	}
+
+	public void writeString(String value) throws IOException
+	{
+		int length = value.length();
+		int utf8Length = length;
+		for (int i = 0; i < length; i++)
+		{
+			char c = value.charAt(i);
+			if (c >= 0x80)
+			{
+				utf8Length = utf8Length(value, i, utf8Length);
+				break;
+			}
+		}
+
+		writeHead(MAJOR_TEXT, utf8Length);
+
+		for (int i = 0; i < length; i++)
+		{
+			if (count + 4 > buffer.length)
+			{
+				flushBuffer();
+			}
+
+			char c = value.charAt(i);
+			if (c < 0x80)
+			{
+				buffer[count++] = (byte) c;
+			} else if (c < 0x800)
+			{
+				buffer[count++] = (byte) (0xc0 | (c >> 6));
+				buffer[count++] = (byte) (0x80 | (c & 0x3f));
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1)))
+			{
+				int codePoint = Character.toCodePoint(c, value.charAt(++i));
+				buffer[count++] = (byte) (0xf0 | (codePoint >> 18));
+				buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+				buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+				buffer[count++] = (byte) (0x80 | (codePoint & 0x3f));
+			} else if (Character.isSurrogate(c))
+			{
+				// lone surrogates become '?', same as String#getBytes
+				buffer[count++] = (byte) '?';
+			} else
+			{
+				buffer[count++] = (byte) (0xe0 | (c >> 12));
+				buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+				buffer[count++] = (byte) (0x80 | (c & 0x3f));
+			}
+		}
+	}
+
+	public void writeBytes(byte[] value) throws IOException
+	{
+		writeHead(MAJOR_BYTES, value.length);
+		writeRaw(value);
+	}
+
+	public void startArray(int size) throws IOException
+	{
+		writeHead(MAJOR_ARRAY, size);
+	}
+
+	public void startIndefiniteArray() throws IOException
+	{
+		write((MAJOR_ARRAY << 5) | INDEFINITE);
+	}
+
+	public void startMap(int size) throws IOException
+	{
+		writeHead(MAJOR_MAP, size);
+	}
+
+	public void startIndefiniteMap() throws IOException
+	{
+		write((MAJOR_MAP << 5) | INDEFINITE);
+	}
+
+	public void writeBreak() throws IOException
+	{
+		write(BREAK);
+	}
+
+	public void writeTag(long tag) throws IOException
+	{
+		writeHead(MAJOR_TAG, tag);
+	}
+
+	/**
+	 * Already encoded data items, e.g. the keys prepared by {@link CborEncoder}
+	 */
+	public void writeRaw(byte[] bytes) throws IOException
+	{
+		if (bytes.length > buffer.length - count)
+		{
+			flushBuffer();
+			if (bytes.length > buffer.length)
+			{
+				outputStream.write(bytes);
+				return;
+			}
+		}
+
+		System.arraycopy(bytes, 0, buffer, count, bytes.length);
+		count += bytes.length;
+	}
+
+	public void flush() throws IOException
+	{
+		flushBuffer();
+		outputStream.flush();
+	}
+
+	void writeHead(int majorType, long value) throws IOException
+	{
+		ensureCapacity(9);
+
+		int major = majorType << 5;
+		if (value < 24)
+		{
+			buffer[count++] = (byte) (major | value);
+		} else if (value <= 0xffL)
+		{
+			buffer[count++] = (byte) (major | 24);
+			buffer[count++] = (byte) value;
+		} else if (value <= 0xffffL)
+		{
+			buffer[count++] = (byte) (major | 25);
+			buffer[count++] = (byte) (value >> 8);
+			buffer[count++] = (byte) value;
+		} else if (value <= 0xffffffffL)
+		{
+			buffer[count++] = (byte) (major | 26);
+			putInt((int) value);
+		} else
+		{
+			buffer[count++] = (byte) (major | 27);
+			putInt((int) (value >>> 32));
+			putInt((int) value);
+		}
+	}
+
+	private static int utf8Length(String value, int from, int utf8Length)
+	{
+		for (int i = from; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			if (c < 0x80)
+			{
+				continue;
+			}
+
+			if (c < 0x800)
+			{
+				utf8Length += 1;
+			} else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1)))
+			{
+				// 4 bytes for 2 chars
+				utf8Length += 2;
+				i++;
+			} else if (!Character.isSurrogate(c))
+			{
+				utf8Length += 2;
+			}
+		}
+		return utf8Length;
+	}
+
+	private void write(int b) throws IOException
+	{
+		ensureCapacity(1);
+		buffer[count++] = (byte) b;
+	}
+
+	private void putInt(int value)
+	{
+		buffer[count++] = (byte) (value >> 24);
+		buffer[count++] = (byte) (value >> 16);
+		buffer[count++] = (byte) (value >> 8);
+		buffer[count++] = (byte) value;
+	}
+
+	private void ensureCapacity(int length) throws IOException
+	{
+		if (count + length > buffer.length)
+		{
+			flushBuffer();
+		}
+	}
+
+	private void flushBuffer() throws IOException
+	{
+		if (count > 0)
+		{
+			outputStream.write(buffer, 0, count);
+			count = 0;
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package in.jaxer.api.core.codec;
+
+import com.google.gson.Gson;
+import in.jaxer.core.constants.ContentType;
+import in.jaxer.core.net.CompressingResponseWriter;
+import in.jaxer.core.utilities.JValidator;
+import in.jaxer.core.utilities.JsonHandler;
+import lombok.extern.log4j.Log4j2;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Gson codec, the default one
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Log4j2
+public class JsonApiCodec implements ApiCodec
+{
+	@Override
+	public String getContentType()
+	{
+		return ContentType.APPLICATION_JSON;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public HashMap<String, Object> readRequest(HttpServletRequest request) throws IOException
+	{
+		if (log.isDebugEnabled())
+		{
+			String requestBody = request.getReader().lines().collect(Collectors.joining(System.lineSeparator()));
+			log.debug("requestBody: {}", requestBody);
+
+			return JValidator.isNotBlank(requestBody) ? JsonHandler.getGson().fromJson(requestBody, HashMap.class) : null;
+		}
+
+		// parsed straight from the reader, the body is never materialized as a string
+		return JsonHandler.getGson().fromJson(request.getReader(), HashMap.class);
+	}
+
+	/**
+	 * Pretty printed with request parameter <code>isPrettyPrint=true</code>, compressed when the client accepts it
+	 */
+	@Override
+	public void writeResponse(HttpServletRequest request, HttpServletResponse response, Object object) throws IOException
+	{
+		response.setContentType(ContentType.APPLICATION_JSON);
+		response.setCharacterEncoding(ContentType.UTF_8);
+
+		Gson gson = "true".equalsIgnoreCase(request.getParameter("isPrettyPrint")) ? JsonHandler.getGsonPrettyPrinting() : JsonHandler.getGson();
+		CompressingResponseWriter.getDefault().writeJson(request, response, object, gson);
+	}
+}
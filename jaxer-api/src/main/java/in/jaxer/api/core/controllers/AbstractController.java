@@ -1,11 +1,23 @@
 package in.jaxer.api.core.controllers;
 
+import com.google.common.util.concurrent.ForwardingExecutorService;
+import in.jaxer.api.core.background.BackgroundTaskExecutor;
+import in.jaxer.api.core.database.TaskDataSource;
+import in.jaxer.api.core.metrics.ApiMetrics;
+import in.jaxer.api.core.metrics.ApiMetricsRegistry;
 import in.jaxer.api.dtos.ApiResponseDto;
+import in.jaxer.core.ExecutorUtils;
+import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
 
+import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
 /**
  * @author Shakir
@@ -15,8 +27,146 @@ import java.io.IOException;
 @Log4j2
 public abstract class AbstractController extends HttpServlet
 {
+	@Getter
+	private transient BackgroundTaskExecutor backgroundTaskExecutor = null;
+
+	@Getter
+	private transient TaskDataSource taskDataSource = null;
+
+	/**
+	 * Created by {@link #createForkExecutor()} on the first fork, requests not forking do not start it
+	 */
+	@Getter
+	private transient ExecutorService forkExecutor = null;
+
 	abstract protected String getBasePackage();
 
+	/**
+	 * Override to run {@link in.jaxer.api.core.tasks.AbstractTask#addBgTask(java.sql.Connection)}
+	 * off the request thread, <code>null</code> keeps the synchronous behaviour
+	 *
+	 * @since 2.0.0
+	 */
+	protected BackgroundTaskExecutor createBackgroundTaskExecutor()
+	{
+		return null;
+	}
+
+	/**
+	 * Override to enable the integrated mode, requests processed without a connection borrow one from the pool
+	 * for the tasks declaring <code>requiresConnection</code>, <code>null</code> keeps passing the caller connection
+	 *
+	 * @since 2.0.0
+	 */
+	protected TaskDataSource createTaskDataSource()
+	{
+		return null;
+	}
+
+	/**
+	 * Executor of the operations forked by tasks, see {@link in.jaxer.api.core.tasks.AbstractTask#fork(java.util.concurrent.Callable)},
+	 * virtual threads when the JVM supports them
+	 *
+	 * @since 2.0.0
+	 */
+	protected ExecutorService createForkExecutor()
+	{
+		return ExecutorUtils.newVirtualThreadExecutor("jaxer-fork", Runtime.getRuntime().availableProcessors() * 8);
+	}
+
+	/**
+	 * Registry every processed request is published to, <code>null</code> disables the metrics
+	 *
+	 * @since 2.0.0
+	 */
+	protected ApiMetricsRegistry getMetricsRegistry()
+	{
+		return ApiMetrics.getRegistry();
+	}
+
+	@Override
+	public void init() throws ServletException
+	{
+		super.init();
+
+		this.backgroundTaskExecutor = createBackgroundTaskExecutor();
+		this.taskDataSource = createTaskDataSource();
+		this.forkExecutor = new LazyExecutorService(this::createForkExecutor);
+	}
+
+	@Override
+	public void destroy()
+	{
+		if (backgroundTaskExecutor != null)
+		{
+			backgroundTaskExecutor.shutdown();
+		}
+
+		if (forkExecutor != null)
+		{
+			forkExecutor.shutdownNow();
+		}
+
+		super.destroy();
+	}
+
+	/**
+	 * Executor creating its delegate on first use, shutting it down is a no-op until then
+	 */
+	private static class LazyExecutorService extends ForwardingExecutorService
+	{
+		private final Supplier<ExecutorService> executorServiceSupplier;
+
+		private volatile ExecutorService executorService = null;
+
+		private volatile boolean shutdown = false;
+
+		private LazyExecutorService(Supplier<ExecutorService> executorServiceSupplier)
+		{
+			this.executorServiceSupplier = executorServiceSupplier;
+		}
+
+		@Override
+		protected ExecutorService delegate()
+		{
+			ExecutorService executorService = this.executorService;
+			if (executorService == null)
+			{
+				synchronized (this)
+				{
+					executorService = this.executorService;
+					if (executorService == null)
+					{
+						executorService = executorServiceSupplier.get();
+						if (shutdown)
+						{
+							executorService.shutdown();
+						}
+						this.executorService = executorService;
+					}
+				}
+			}
+			return executorService;
+		}
+
+		@Override
+		public synchronized void shutdown()
+		{
+			shutdown = true;
+			if (executorService != null)
+			{
+				executorService.shutdown();
+			}
+		}
+
+		@Override
+		public synchronized List<Runnable> shutdownNow()
+		{
+			shutdown = true;
+			return executorService == null ? Collections.emptyList() : executorService.shutdownNow();
+		}
+	}
+
 	protected ApiResponseDto doProcessException(HttpServletResponse response, Exception throwable) throws IOException
 	{
 		ApiResponseDto apiResponseDto = new ApiResponseDto();
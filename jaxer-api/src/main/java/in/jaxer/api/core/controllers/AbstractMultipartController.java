@@ -1,13 +1,18 @@
 package in.jaxer.api.core.controllers;
 
 import in.jaxer.api.annotations.MultipartTask;
+import in.jaxer.api.core.metrics.RequestMetrics;
+import in.jaxer.api.core.multipart.ContentStore;
 import in.jaxer.api.core.request.MultipartRequestHandler;
 import in.jaxer.api.dtos.ApiResponseDto;
 import in.jaxer.api.listners.Authentication;
+import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
 
+import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.sql.Connection;
 
 /**
@@ -17,6 +22,34 @@ import java.sql.Connection;
 @Log4j2
 public abstract class AbstractMultipartController extends AbstractController
 {
+	@Getter
+	private transient ContentStore contentStore = null;
+
+	/**
+	 * Store used by {@link in.jaxer.api.core.tasks.AbstractMultipartTask#storeParts()},
+	 * e.g. a {@link in.jaxer.api.core.multipart.FileSystemContentStore}
+	 *
+	 * @since 2.0.0
+	 */
+	protected ContentStore createContentStore() throws IOException
+	{
+		return null;
+	}
+
+	@Override
+	public void init() throws ServletException
+	{
+		super.init();
+
+		try
+		{
+			this.contentStore = createContentStore();
+		} catch (IOException exception)
+		{
+			throw new ServletException("Unable to create content store", exception);
+		}
+	}
+
 	protected ApiResponseDto doProcess(HttpServletRequest request, HttpServletResponse response)
 	{
 		return this.doProcess(request, response, null, null);
@@ -25,10 +58,16 @@ public abstract class AbstractMultipartController extends AbstractController
 	protected ApiResponseDto doProcess(HttpServletRequest request, HttpServletResponse response, Connection connection, Authentication authentication)
 	{
 		ApiResponseDto apiResponseDto = null;
+		RequestMetrics requestMetrics = new RequestMetrics();
 
 		try
 		{
 			MultipartRequestHandler multipartRequestHandler = new MultipartRequestHandler(getBasePackage(), MultipartTask.class);
+			multipartRequestHandler.setBackgroundTaskExecutor(getBackgroundTaskExecutor());
+			multipartRequestHandler.setRequestMetrics(requestMetrics);
+			multipartRequestHandler.setContentStore(contentStore);
+			multipartRequestHandler.setTaskDataSource(getTaskDataSource());
+			multipartRequestHandler.setForkExecutor(getForkExecutor());
 			apiResponseDto = multipartRequestHandler.processRequest(connection, request, response, authentication);
 		} catch (Exception exception)
 		{
@@ -45,6 +84,8 @@ public abstract class AbstractMultipartController extends AbstractController
 //			response.setStatus(apiResponseDto.errorDto.httpStatus);
 		}
 
+		requestMetrics.finish(apiResponseDto.errorDto, getMetricsRegistry());
+
 		return apiResponseDto;
 	}
 }
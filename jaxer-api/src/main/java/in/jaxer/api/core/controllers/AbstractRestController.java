@@ -1,14 +1,34 @@
 package in.jaxer.api.core.controllers;
 
 import in.jaxer.api.annotations.RestTask;
+import in.jaxer.api.constants.ApiStatus;
+import in.jaxer.api.constants.RequestConstant;
+import in.jaxer.api.core.codec.ApiCodec;
+import in.jaxer.api.core.codec.ApiCodecs;
+import in.jaxer.api.core.idempotency.IdempotencyStore;
+import in.jaxer.api.core.metrics.ApiPhase;
+import in.jaxer.api.core.metrics.RequestMetrics;
+import in.jaxer.api.core.request.BatchRequestHandler;
 import in.jaxer.api.core.request.RestRequestHandler;
 import in.jaxer.api.dtos.ApiResponseDto;
+import in.jaxer.api.exceptions.ApiException;
 import in.jaxer.api.listners.Authentication;
+import in.jaxer.core.ExecutorUtils;
+import in.jaxer.core.HttpUtils;
 import lombok.extern.log4j.Log4j2;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * @author Shakir
@@ -17,19 +37,197 @@ import java.sql.Connection;
 @Log4j2
 public abstract class AbstractRestController extends AbstractController
 {
+	public static final long DEFAULT_ASYNC_TIMEOUT_MILLIS = 30 * 1000L;
+
+	private static final String PENDING_IDEMPOTENCY_ATTRIBUTE = AbstractRestController.class.getName() + ".pendingIdempotency";
+
+	private transient ExecutorService taskExecutor = null;
+
+	private transient ExecutorService batchExecutor = null;
+
+	private transient IdempotencyStore idempotencyStore = null;
+
+	/**
+	 * Opt-in async mode, when true and the servlet is declared with <code>asyncSupported = true</code>
+	 * {@link #doProcessAndRespond(HttpServletRequest, HttpServletResponse, Connection, Authentication)}
+	 * releases the container thread and executes the task on {@link #createTaskExecutor()},
+	 * requests processed on a connection of the caller stay synchronous
+	 *
+	 * @since 2.0.0
+	 */
+	protected boolean isAsyncEnabled()
+	{
+		return false;
+	}
+
+	/**
+	 * Maximum time a task can take in async mode before a {@link ApiStatus#TASK_TIMEOUT} error is sent
+	 *
+	 * @since 2.0.0
+	 */
+	protected long getAsyncTimeoutMillis()
+	{
+		return DEFAULT_ASYNC_TIMEOUT_MILLIS;
+	}
+
+	/**
+	 * Executor used by async mode, virtual threads when the JVM supports them
+	 *
+	 * @since 2.0.0
+	 */
+	protected ExecutorService createTaskExecutor()
+	{
+		return ExecutorUtils.newVirtualThreadExecutor("jaxer-rest", Runtime.getRuntime().availableProcessors() * 8);
+	}
+
+	/**
+	 * Executor used by {@link RequestConstant#API_BATCH_MODE_PARALLEL} batches
+	 *
+	 * @since 2.0.0
+	 */
+	protected ExecutorService createBatchExecutor()
+	{
+		return ExecutorUtils.newVirtualThreadExecutor("jaxer-batch", Runtime.getRuntime().availableProcessors() * 4);
+	}
+
+	/**
+	 * Store of the responses of requests carrying an idempotency key, <code>null</code> (the default) disables the
+	 * idempotency handling, e.g. return <code>InMemoryIdempotencyStore.builder().build()</code> to opt in.
+	 * <br>
+	 * A task running on a connection passed to {@link #doProcess(HttpServletRequest, HttpServletResponse, Connection, Authentication)}
+	 * outside auto-commit only has its response stored once the connection is committed through
+	 * {@link #commit(HttpServletRequest, Connection)}, until then or {@link #rollback(HttpServletRequest, Connection)}
+	 * its retries wait.
+	 *
+	 * @since 2.0.0
+	 */
+	protected IdempotencyStore createIdempotencyStore()
+	{
+		return null;
+	}
+
+	/**
+	 * Commits the connection passed to the request and stores the response of its idempotency key
+	 *
+	 * @since 2.0.0
+	 */
+	protected void commit(HttpServletRequest request, Connection connection) throws SQLException
+	{
+		RestRequestHandler requestHandler = (RestRequestHandler) request.getAttribute(PENDING_IDEMPOTENCY_ATTRIBUTE);
+		request.removeAttribute(PENDING_IDEMPOTENCY_ATTRIBUTE);
+
+		try
+		{
+			connection.commit();
+		} catch (SQLException exception)
+		{
+			if (requestHandler != null)
+			{
+				requestHandler.releaseIdempotency();
+			}
+			throw exception;
+		}
+
+		if (requestHandler != null)
+		{
+			requestHandler.completeIdempotency();
+		}
+	}
+
+	/**
+	 * Rolls back the connection passed to the request and gives up its idempotency key, so its retries execute again
+	 *
+	 * @since 2.0.0
+	 */
+	protected void rollback(HttpServletRequest request, Connection connection) throws SQLException
+	{
+		RestRequestHandler requestHandler = (RestRequestHandler) request.getAttribute(PENDING_IDEMPOTENCY_ATTRIBUTE);
+		request.removeAttribute(PENDING_IDEMPOTENCY_ATTRIBUTE);
+
+		try
+		{
+			connection.rollback();
+		} finally
+		{
+			if (requestHandler != null)
+			{
+				requestHandler.releaseIdempotency();
+			}
+		}
+	}
+
+	/**
+	 * Writes the response of the task with the {@link ApiCodec} negotiated from {@code Accept},
+	 * override to change the output format
+	 *
+	 * @since 2.0.0
+	 */
+	protected void writeResponse(HttpServletRequest request, HttpServletResponse response, ApiResponseDto apiResponseDto) throws IOException
+	{
+		response.addHeader(HttpUtils.Header.VARY, HttpUtils.Header.ACCEPT);
+		ApiCodecs.forResponse(request).writeResponse(request, response, apiResponseDto);
+	}
+
+	@Override
+	public void init() throws ServletException
+	{
+		super.init();
+
+		this.idempotencyStore = createIdempotencyStore();
+
+		if (isAsyncEnabled())
+		{
+			this.taskExecutor = createTaskExecutor();
+		}
+	}
+
+	@Override
+	public void destroy()
+	{
+		if (taskExecutor != null)
+		{
+			taskExecutor.shutdown();
+		}
+
+		if (batchExecutor != null)
+		{
+			batchExecutor.shutdown();
+		}
+
+		super.destroy();
+	}
+
 	protected ApiResponseDto doProcess(HttpServletRequest request, HttpServletResponse response)
 	{
 		return this.doProcess(request, response, null, null);
 	}
 
 	protected ApiResponseDto doProcess(HttpServletRequest request, HttpServletResponse response, Connection connection, Authentication authentication)
+	{
+		RequestMetrics requestMetrics = new RequestMetrics();
+		ApiResponseDto apiResponseDto = doProcess(request, response, connection, authentication, requestMetrics);
+		requestMetrics.finish(apiResponseDto.errorDto, getMetricsRegistry());
+		return apiResponseDto;
+	}
+
+	private ApiResponseDto doProcess(HttpServletRequest request, HttpServletResponse response, Connection connection, Authentication authentication, RequestMetrics requestMetrics)
 	{
 		ApiResponseDto apiResponseDto = null;
 
 		try
 		{
 			RestRequestHandler requestHandler = new RestRequestHandler(getBasePackage(), RestTask.class);
+			requestHandler.setBackgroundTaskExecutor(getBackgroundTaskExecutor());
+			requestHandler.setRequestMetrics(requestMetrics);
+			requestHandler.setIdempotencyStore(idempotencyStore);
+			requestHandler.setTaskDataSource(getTaskDataSource());
+			requestHandler.setForkExecutor(getForkExecutor());
 			apiResponseDto = requestHandler.processRequest(connection, request, response, authentication);
+
+			if (requestHandler.isIdempotencyPending())
+			{
+				request.setAttribute(PENDING_IDEMPOTENCY_ATTRIBUTE, requestHandler);
+			}
 		} catch (Exception exception)
 		{
 			log.error("Exception", exception);
@@ -49,4 +247,175 @@ public abstract class AbstractRestController extends AbstractController
 
 		return apiResponseDto;
 	}
+
+	/**
+	 * Processes the task and writes the response,
+	 * asynchronously when {@link #isAsyncEnabled()} and the container supports it, otherwise on the calling thread.
+	 * <br>
+	 * A connection passed by the caller is not thread-safe and belongs to the transaction of the calling thread,
+	 * the task then always runs on the calling thread, only tasks borrowing their own connection go async.
+	 *
+	 * @since 2.0.0
+	 */
+	protected void doProcessAndRespond(HttpServletRequest request, HttpServletResponse response, Connection connection, Authentication authentication) throws IOException
+	{
+		if (taskExecutor == null || connection != null || !request.isAsyncSupported())
+		{
+			RequestMetrics requestMetrics = new RequestMetrics();
+			respond(request, response, doProcess(request, response, connection, authentication, requestMetrics), requestMetrics);
+			return;
+		}
+
+		AsyncContext asyncContext = request.startAsync(request, response);
+		asyncContext.setTimeout(getAsyncTimeoutMillis());
+
+		AsyncTask asyncTask = new AsyncTask(asyncContext, request, response, authentication);
+		asyncContext.addListener(asyncTask);
+
+		try
+		{
+			asyncTask.future = taskExecutor.submit(asyncTask);
+		} catch (RejectedExecutionException exception)
+		{
+			log.error("Unable to submit async task", exception);
+			asyncTask.complete(doProcessException(response, exception));
+		}
+	}
+
+	/**
+	 * Executes a batch envelope and streams a json array of {@link ApiResponseDto}, see {@link BatchRequestHandler}
+	 *
+	 * @since 2.0.0
+	 */
+	protected void doProcessBatch(HttpServletRequest request, HttpServletResponse response, Connection connection, Authentication authentication) throws IOException
+	{
+		BatchRequestHandler batchRequestHandler = new BatchRequestHandler(getBasePackage(), RestTask.class, getBatchExecutor());
+		batchRequestHandler.setBackgroundTaskExecutor(getBackgroundTaskExecutor());
+		batchRequestHandler.setMetricsRegistry(getMetricsRegistry());
+		batchRequestHandler.setTaskDataSource(getTaskDataSource());
+		batchRequestHandler.setForkExecutor(getForkExecutor());
+		batchRequestHandler.processRequest(connection, request, response, authentication);
+	}
+
+	/**
+	 * Writes the response as {@link ApiPhase#SERIALIZATION} and publishes the metrics of the request
+	 */
+	private void respond(HttpServletRequest request, HttpServletResponse response, ApiResponseDto apiResponseDto, RequestMetrics requestMetrics) throws IOException
+	{
+		long startedAt = System.nanoTime();
+		try
+		{
+			// streaming tasks have written their response already
+			if (!response.isCommitted())
+			{
+				writeResponse(request, response, apiResponseDto);
+			}
+		} finally
+		{
+			requestMetrics.record(ApiPhase.SERIALIZATION, startedAt);
+			requestMetrics.finish(apiResponseDto.errorDto, getMetricsRegistry());
+		}
+	}
+
+	private synchronized ExecutorService getBatchExecutor()
+	{
+		if (batchExecutor == null)
+		{
+			batchExecutor = createBatchExecutor();
+		}
+		return batchExecutor;
+	}
+
+	private class AsyncTask implements Runnable, AsyncListener
+	{
+		private final AsyncContext asyncContext;
+		private final HttpServletRequest request;
+		private final HttpServletResponse response;
+		private final Authentication authentication;
+		private final RequestMetrics requestMetrics = new RequestMetrics();
+		private volatile Future<?> future;
+
+		private AsyncTask(AsyncContext asyncContext, HttpServletRequest request, HttpServletResponse response, Authentication authentication)
+		{
+			this.asyncContext = asyncContext;
+			this.request = request;
+			this.response = response;
+			this.authentication = authentication;
+		}
+
+		@Override
+		public void run()
+		{
+			// timed out while queued, the request may already be recycled
+			if (requestMetrics.isResponded())
+			{
+				return;
+			}
+
+			// no caller connection, the request handler borrows one when the task requires it
+			complete(doProcess(request, response, null, authentication, requestMetrics));
+		}
+
+		/**
+		 * Only the first of task completion, timeout or error gets to write the response,
+		 * a worker still running afterwards fails on its next access to the request, see {@link RequestMetrics#markResponded()}
+		 */
+		private void complete(ApiResponseDto apiResponseDto)
+		{
+			if (!requestMetrics.markResponded())
+			{
+				return;
+			}
+
+			try
+			{
+				respond(request, response, apiResponseDto, requestMetrics);
+			} catch (Exception exception)
+			{
+				log.error("Unable to write async response", exception);
+			} finally
+			{
+				asyncContext.complete();
+			}
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent asyncEvent) throws IOException
+		{
+			log.warn("async task timed out after {} ms", getAsyncTimeoutMillis());
+
+			if (future != null)
+			{
+				future.cancel(true);
+			}
+
+			complete(doProcessException(response, new ApiException(ApiStatus.TASK_TIMEOUT)));
+		}
+
+		@Override
+		public void onError(AsyncEvent asyncEvent) throws IOException
+		{
+			log.error("async task error", asyncEvent.getThrowable());
+
+			if (future != null)
+			{
+				future.cancel(true);
+			}
+
+			if (requestMetrics.markResponded())
+			{
+				asyncContext.complete();
+			}
+		}
+
+		@Override
+		public void onComplete(AsyncEvent asyncEvent)
+		{
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent asyncEvent)
+		{
+		}
+	}
 }
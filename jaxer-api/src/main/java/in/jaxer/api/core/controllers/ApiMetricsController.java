@@ -0,0 +1,67 @@
+package in.jaxer.api.core.controllers;
+
+import in.jaxer.api.core.metrics.ApiMetrics;
+import in.jaxer.api.core.metrics.ApiMetricsRegistry;
+import in.jaxer.api.core.metrics.InMemoryApiMetricsRegistry;
+import in.jaxer.core.net.Ajaxer;
+import lombok.extern.log4j.Log4j2;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Exposes the {@link InMemoryApiMetricsRegistry} counters,
+ * prometheus text format when <code>format=prometheus</code> or <code>Accept: text/plain</code>, json otherwise
+ * <br>
+ * Extend it and map it with <code>@WebServlet</code>, restrict access the same way as any other admin endpoint
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Log4j2
+public class ApiMetricsController extends HttpServlet
+{
+	public static final String FORMAT = "format";
+	public static final String FORMAT_PROMETHEUS = "prometheus";
+
+	protected ApiMetricsRegistry getMetricsRegistry()
+	{
+		return ApiMetrics.getRegistry();
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException
+	{
+		ApiMetricsRegistry apiMetricsRegistry = getMetricsRegistry();
+		if (!(apiMetricsRegistry instanceof InMemoryApiMetricsRegistry))
+		{
+			log.warn("metrics registry [{}] cannot be exposed", apiMetricsRegistry);
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+
+		InMemoryApiMetricsRegistry inMemoryApiMetricsRegistry = (InMemoryApiMetricsRegistry) apiMetricsRegistry;
+
+		if (isPrometheus(request))
+		{
+			response.setContentType("text/plain; version=0.0.4; charset=utf-8");
+			inMemoryApiMetricsRegistry.writePrometheus(response.getWriter());
+			return;
+		}
+
+		Ajaxer.sendJsonOutput(request, response, inMemoryApiMetricsRegistry.getSnapshot());
+	}
+
+	private boolean isPrometheus(HttpServletRequest request)
+	{
+		if (FORMAT_PROMETHEUS.equalsIgnoreCase(request.getParameter(FORMAT)))
+		{
+			return true;
+		}
+
+		String accept = request.getHeader("Accept");
+		return accept != null && accept.startsWith("text/plain");
+	}
+}
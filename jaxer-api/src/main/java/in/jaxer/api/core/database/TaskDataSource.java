@@ -0,0 +1,134 @@
+package in.jaxer.api.core.database;
+
+import in.jaxer.core.utilities.JValidator;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Pooled {@link DataSource} of the integrated mode, a task declaring
+ * {@link in.jaxer.api.annotations.RestTask#requiresConnection()} borrows a connection only for its own execution,
+ * inside a transaction, and hands it back before the response is written.
+ * <br>
+ * Tasks declaring {@link in.jaxer.api.annotations.RestTask#readOnly()} are routed to the replica
+ * when one is configured, their connection is marked read-only either way.
+ *
+ * <pre>
+ * TaskDataSource taskDataSource = TaskDataSource.builder()
+ *     .withDataSource(primaryPool)
+ *     .withReadOnlyDataSource(replicaPool)
+ *     .build();
+ * </pre>
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Log4j2
+public class TaskDataSource
+{
+	@Getter
+	private final DataSource dataSource;
+
+	@Getter
+	private final DataSource readOnlyDataSource;
+
+	@Builder(setterPrefix = "with")
+	private TaskDataSource(DataSource dataSource, DataSource readOnlyDataSource)
+	{
+		JValidator.throwWhenNull(dataSource, "dataSource cannot be null");
+
+		this.dataSource = dataSource;
+		this.readOnlyDataSource = readOnlyDataSource;
+	}
+
+	/**
+	 * Borrows a connection with a transaction started, the lease must be closed on every path
+	 *
+	 * @param readOnly routes to the replica when configured
+	 */
+	public Lease borrow(boolean readOnly) throws SQLException
+	{
+		DataSource source = readOnly && readOnlyDataSource != null ? readOnlyDataSource : dataSource;
+		return new Lease(source.getConnection(), readOnly);
+	}
+
+	/**
+	 * Connection borrowed for one task, closing it rolls back whatever was not committed,
+	 * restores the connection settings and returns it to the pool
+	 */
+	public static class Lease implements AutoCloseable
+	{
+		@Getter
+		private final Connection connection;
+
+		@Getter
+		private final boolean readOnly;
+
+		private final boolean autoCommit;
+		private boolean pending;
+
+		private Lease(Connection connection, boolean readOnly) throws SQLException
+		{
+			this.connection = connection;
+			this.readOnly = readOnly;
+
+			try
+			{
+				this.autoCommit = connection.getAutoCommit();
+				if (readOnly)
+				{
+					connection.setReadOnly(true);
+				}
+				connection.setAutoCommit(false);
+				this.pending = true;
+			} catch (SQLException exception)
+			{
+				connection.close();
+				throw exception;
+			}
+		}
+
+		public void commit() throws SQLException
+		{
+			if (pending)
+			{
+				connection.commit();
+				pending = false;
+			}
+		}
+
+		@Override
+		public void close() throws SQLException
+		{
+			try
+			{
+				if (pending)
+				{
+					pending = false;
+					connection.rollback();
+				}
+			} finally
+			{
+				try
+				{
+					// pools hand the connection out again as it is returned
+					connection.setAutoCommit(autoCommit);
+					if (readOnly)
+					{
+						connection.setReadOnly(false);
+					}
+				} catch (SQLException exception)
+				{
+					log.warn("Unable to restore connection settings", exception);
+				} finally
+				{
+					connection.close();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package in.jaxer.api.core.idempotency;
+
+import in.jaxer.api.constants.ApiStatus;
+import in.jaxer.api.dtos.ApiResponseDto;
+
+/**
+ * Remembers the response of the first execution of an idempotency key, so retries of the same request
+ * get that response instead of executing the task again.
+ * <br>
+ * Keys handed to the store are already scoped to the task and the caller, the fingerprint is a hash of
+ * the request payload kept with the key, so a key reused for a different request is refused instead of replayed.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public interface IdempotencyStore
+{
+	/**
+	 * Reserves the key for the caller, when another execution holds it the call waits for its response
+	 *
+	 * @return null when the key is reserved for the caller, stored response otherwise
+	 * @throws in.jaxer.api.exceptions.ApiException {@link ApiStatus#IDEMPOTENCY_KEY_IN_PROGRESS} when the wait times out,
+	 *                                              {@link ApiStatus#IDEMPOTENCY_KEY_REUSED} when the key belongs to another fingerprint
+	 */
+	ApiResponseDto acquire(String key, String fingerprint) throws Exception;
+
+	/**
+	 * Stores the response of the reserved key
+	 */
+	void complete(String key, String fingerprint, ApiResponseDto apiResponseDto) throws Exception;
+
+	/**
+	 * Gives up the reservation after a failed execution, the next retry executes the task again
+	 */
+	void release(String key) throws Exception;
+}
@@ -0,0 +1,175 @@
+package in.jaxer.api.core.idempotency;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import in.jaxer.api.constants.ApiStatus;
+import in.jaxer.api.dtos.ApiResponseDto;
+import in.jaxer.api.dtos.ErrorDto;
+import in.jaxer.api.exceptions.ApiException;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Bounded in-memory {@link IdempotencyStore}, only deduplicates retries reaching the same instance.
+ * <br>
+ * Concurrent duplicates wait on the future of the in-flight execution, every replay gets a copy of the stored response
+ * so callers adding to it do not change what the next retry receives.
+ * A reservation evicted by the size bound while its execution is in flight fails its waiters with
+ * {@link ApiStatus#IDEMPOTENCY_KEY_IN_PROGRESS} instead of leaving them to the wait timeout.
+ *
+ * <pre>
+ * IdempotencyStore idempotencyStore = InMemoryIdempotencyStore.builder()
+ *     .withTtlMillis(60 * 60 * 1000L)
+ *     .build();
+ * </pre>
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore
+{
+	public static final long DEFAULT_TTL_MILLIS = 24 * 60 * 60 * 1000L;
+	public static final long DEFAULT_MAXIMUM_SIZE = 10_000L;
+	public static final long DEFAULT_WAIT_MILLIS = 10 * 1000L;
+
+	@Getter
+	private final long waitMillis;
+
+	private final ConcurrentMap<String, Reservation> reservationMap;
+
+	@Builder(setterPrefix = "with")
+	private InMemoryIdempotencyStore(Long ttlMillis, Long maximumSize, Long waitMillis)
+	{
+		this.waitMillis = waitMillis == null ? DEFAULT_WAIT_MILLIS : waitMillis;
+
+		Cache<String, Reservation> reservationCache = CacheBuilder.newBuilder()
+				.expireAfterWrite(ttlMillis == null ? DEFAULT_TTL_MILLIS : ttlMillis, TimeUnit.MILLISECONDS)
+				.maximumSize(maximumSize == null ? DEFAULT_MAXIMUM_SIZE : maximumSize)
+				.removalListener((RemovalListener<String, Reservation>) notification ->
+				{
+					// completed reservations ignore it, waiters of an in-flight one stop waiting
+					if (notification.wasEvicted())
+					{
+						notification.getValue().future.completeExceptionally(new ApiException(ApiStatus.IDEMPOTENCY_KEY_IN_PROGRESS));
+					}
+				})
+				.build();
+		this.reservationMap = reservationCache.asMap();
+	}
+
+	@Override
+	public ApiResponseDto acquire(String key, String fingerprint) throws Exception
+	{
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+
+		while (true)
+		{
+			Reservation existing = reservationMap.putIfAbsent(key, new Reservation(fingerprint));
+			if (existing == null)
+			{
+				return null;
+			}
+
+			if (!existing.fingerprint.equals(fingerprint))
+			{
+				throw new ApiException(ApiStatus.IDEMPOTENCY_KEY_REUSED);
+			}
+
+			ApiResponseDto apiResponseDto;
+			try
+			{
+				apiResponseDto = existing.future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+			} catch (TimeoutException exception)
+			{
+				throw new ApiException(ApiStatus.IDEMPOTENCY_KEY_IN_PROGRESS);
+			} catch (ExecutionException exception)
+			{
+				// evicted while in flight, the execution holding it may still be running
+				throw new ApiException(ApiStatus.IDEMPOTENCY_KEY_IN_PROGRESS);
+			}
+
+			if (apiResponseDto != null)
+			{
+				return copy(apiResponseDto);
+			}
+
+			// released by a failed execution, compete for the key again
+		}
+	}
+
+	@Override
+	public void complete(String key, String fingerprint, ApiResponseDto apiResponseDto)
+	{
+		apiResponseDto = copy(apiResponseDto);
+
+		Reservation reservation = reservationMap.get(key);
+		if (reservation == null || !reservation.future.complete(apiResponseDto))
+		{
+			// evicted in the meantime, stored again for the retries to come
+			reservation = new Reservation(fingerprint);
+			reservation.future.complete(apiResponseDto);
+		}
+
+		// written again so the ttl counts from the completion
+		reservationMap.put(key, reservation);
+	}
+
+	@Override
+	public void release(String key)
+	{
+		Reservation reservation = reservationMap.remove(key);
+		if (reservation != null)
+		{
+			reservation.future.complete(null);
+		}
+	}
+
+	public long size()
+	{
+		return reservationMap.size();
+	}
+
+	/**
+	 * Copies the containers of the response, the task response values themselves are shared
+	 */
+	private static ApiResponseDto copy(ApiResponseDto apiResponseDto)
+	{
+		ApiResponseDto copy = new ApiResponseDto();
+		copy.taskResponseValue = apiResponseDto.taskResponseValue == null ? null : new HashMap<>(apiResponseDto.taskResponseValue);
+		copy.userMessageList = apiResponseDto.userMessageList == null ? null : new ArrayList<>(apiResponseDto.userMessageList);
+
+		ErrorDto errorDto = apiResponseDto.errorDto;
+		if (errorDto != null)
+		{
+			ErrorDto errorCopy = new ErrorDto();
+			errorCopy.error = errorDto.error;
+			errorCopy.errorCode = errorDto.errorCode;
+			errorCopy.errorMessage = errorDto.errorMessage;
+			errorCopy.stacktraceList = errorDto.stacktraceList == null ? null : new ArrayList<>(errorDto.stacktraceList);
+			errorCopy.httpStatus = errorDto.httpStatus;
+			errorDto = errorCopy;
+		}
+		copy.errorDto = errorDto;
+		return copy;
+	}
+
+	private static class Reservation
+	{
+		private final String fingerprint;
+		private final CompletableFuture<ApiResponseDto> future = new CompletableFuture<>();
+
+		private Reservation(String fingerprint)
+		{
+			this.fingerprint = fingerprint;
+		}
+	}
+}
@@ -0,0 +1,265 @@
+package in.jaxer.api.core.idempotency;
+
+import in.jaxer.api.constants.ApiStatus;
+import in.jaxer.api.dtos.ApiResponseDto;
+import in.jaxer.api.exceptions.ApiException;
+import in.jaxer.core.utilities.JValidator;
+import in.jaxer.core.utilities.JsonHandler;
+import lombok.Builder;
+import lombok.Getter;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link IdempotencyStore} on a database table, deduplicates retries across every instance sharing the database
+ * <pre>
+ * CREATE TABLE jaxer_idempotency
+ * (
+ *     idempotency_key VARCHAR(64) NOT NULL PRIMARY KEY,
+ *     request_hash    VARCHAR(64) NOT NULL,
+ *     response_json   TEXT,
+ *     expires_at      BIGINT      NOT NULL
+ * );
+ * </pre>
+ * The primary key decides which execution owns a key, duplicates poll the row until its response is stored,
+ * a duplicate with another request hash is refused right away.
+ * An execution that dies without completing holds its key for {@link #getInFlightTtlMillis()} at most.
+ * <br>
+ * Responses are stored as json, replays carry the task response values as plain maps and lists.
+ * Every write commits by itself, whether or not the connections of the {@link DataSource} are in auto-commit mode.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class JdbcIdempotencyStore implements IdempotencyStore
+{
+	public static final String DEFAULT_TABLE_NAME = "jaxer_idempotency";
+	public static final long DEFAULT_IN_FLIGHT_TTL_MILLIS = 60 * 1000L;
+
+	private static final long MIN_POLL_MILLIS = 25;
+	private static final long MAX_POLL_MILLIS = 500;
+
+	private final DataSource dataSource;
+
+	@Getter
+	private final long ttlMillis;
+
+	@Getter
+	private final long inFlightTtlMillis;
+
+	@Getter
+	private final long waitMillis;
+
+	private final String insertSql;
+	private final String selectSql;
+	private final String completeSql;
+	private final String deleteExpiredSql;
+	private final String releaseSql;
+	private final String purgeSql;
+
+	@Builder(setterPrefix = "with")
+	private JdbcIdempotencyStore(DataSource dataSource, String tableName, Long ttlMillis, Long inFlightTtlMillis, Long waitMillis)
+	{
+		JValidator.throwWhenNull(dataSource, "dataSource cannot be null");
+
+		String table = tableName == null ? DEFAULT_TABLE_NAME : tableName;
+		JValidator.throwWhenFalse(table.matches("[A-Za-z_][A-Za-z0-9_.]*"), "invalid tableName: " + table);
+
+		this.dataSource = dataSource;
+		this.ttlMillis = ttlMillis == null ? InMemoryIdempotencyStore.DEFAULT_TTL_MILLIS : ttlMillis;
+		this.inFlightTtlMillis = inFlightTtlMillis == null ? DEFAULT_IN_FLIGHT_TTL_MILLIS : inFlightTtlMillis;
+		this.waitMillis = waitMillis == null ? InMemoryIdempotencyStore.DEFAULT_WAIT_MILLIS : waitMillis;
+
+		this.insertSql = "INSERT INTO " + table + " (idempotency_key, request_hash, expires_at) VALUES (?, ?, ?)";
+		this.selectSql = "SELECT response_json, expires_at, request_hash FROM " + table + " WHERE idempotency_key = ?";
+		this.completeSql = "UPDATE " + table + " SET response_json = ?, expires_at = ? WHERE idempotency_key = ? AND request_hash = ?";
+		this.deleteExpiredSql = "DELETE FROM " + table + " WHERE idempotency_key = ? AND expires_at = ?";
+		this.releaseSql = "DELETE FROM " + table + " WHERE idempotency_key = ? AND response_json IS NULL";
+		this.purgeSql = "DELETE FROM " + table + " WHERE expires_at <= ?";
+	}
+
+	@Override
+	public ApiResponseDto acquire(String key, String fingerprint) throws SQLException
+	{
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+		long pollMillis = MIN_POLL_MILLIS;
+
+		while (true)
+		{
+			if (tryInsert(key, fingerprint))
+			{
+				return null;
+			}
+
+			try (Connection connection = dataSource.getConnection();
+				 PreparedStatement preparedStatement = connection.prepareStatement(selectSql))
+			{
+				preparedStatement.setString(1, key);
+				try (ResultSet resultSet = preparedStatement.executeQuery())
+				{
+					if (resultSet.next())
+					{
+						String responseJson = resultSet.getString(1);
+						long expiresAt = resultSet.getLong(2);
+
+						if (expiresAt <= System.currentTimeMillis())
+						{
+							deleteExpired(connection, key, expiresAt);
+							continue;
+						}
+
+						if (!fingerprint.equals(resultSet.getString(3)))
+						{
+							throw new ApiException(ApiStatus.IDEMPOTENCY_KEY_REUSED);
+						}
+
+						if (responseJson != null)
+						{
+							return JsonHandler.getGson().fromJson(responseJson, ApiResponseDto.class);
+						}
+					} else
+					{
+						// released or expired in between, compete for the key again
+						continue;
+					}
+				}
+			}
+
+			long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			if (remainingMillis <= 0)
+			{
+				throw new ApiException(ApiStatus.IDEMPOTENCY_KEY_IN_PROGRESS);
+			}
+
+			sleep(Math.min(pollMillis, remainingMillis));
+			pollMillis = Math.min(pollMillis * 2, MAX_POLL_MILLIS);
+		}
+	}
+
+	@Override
+	public void complete(String key, String fingerprint, ApiResponseDto apiResponseDto) throws SQLException
+	{
+		try (Connection connection = dataSource.getConnection();
+			 PreparedStatement preparedStatement = connection.prepareStatement(completeSql))
+		{
+			preparedStatement.setString(1, JsonHandler.getGson().toJson(apiResponseDto));
+			preparedStatement.setLong(2, System.currentTimeMillis() + ttlMillis);
+			preparedStatement.setString(3, key);
+			preparedStatement.setString(4, fingerprint);
+			executeUpdate(connection, preparedStatement);
+		}
+	}
+
+	@Override
+	public void release(String key) throws SQLException
+	{
+		try (Connection connection = dataSource.getConnection();
+			 PreparedStatement preparedStatement = connection.prepareStatement(releaseSql))
+		{
+			preparedStatement.setString(1, key);
+			executeUpdate(connection, preparedStatement);
+		}
+	}
+
+	/**
+	 * Deletes every expired row, stored responses are otherwise only removed when their key is used again
+	 *
+	 * @return number of deleted rows
+	 */
+	public int purgeExpired() throws SQLException
+	{
+		try (Connection connection = dataSource.getConnection();
+			 PreparedStatement preparedStatement = connection.prepareStatement(purgeSql))
+		{
+			preparedStatement.setLong(1, System.currentTimeMillis());
+			return executeUpdate(connection, preparedStatement);
+		}
+	}
+
+	private boolean tryInsert(String key, String fingerprint) throws SQLException
+	{
+		try (Connection connection = dataSource.getConnection();
+			 PreparedStatement preparedStatement = connection.prepareStatement(insertSql))
+		{
+			preparedStatement.setString(1, key);
+			preparedStatement.setString(2, fingerprint);
+			preparedStatement.setLong(3, System.currentTimeMillis() + inFlightTtlMillis);
+			executeUpdate(connection, preparedStatement);
+			return true;
+		} catch (SQLException exception)
+		{
+			if (isDuplicateKey(exception))
+			{
+				return false;
+			}
+			throw exception;
+		}
+	}
+
+	private void deleteExpired(Connection connection, String key, long expiresAt) throws SQLException
+	{
+		try (PreparedStatement preparedStatement = connection.prepareStatement(deleteExpiredSql))
+		{
+			preparedStatement.setString(1, key);
+			preparedStatement.setLong(2, expiresAt);
+			executeUpdate(connection, preparedStatement);
+		}
+	}
+
+	/**
+	 * Pools may hand out connections with auto-commit off, every write is then committed on its own
+	 * and rolled back when it fails, a duplicate key aborts the whole transaction on some databases
+	 */
+	private static int executeUpdate(Connection connection, PreparedStatement preparedStatement) throws SQLException
+	{
+		boolean autoCommit = connection.getAutoCommit();
+		try
+		{
+			int count = preparedStatement.executeUpdate();
+			if (!autoCommit)
+			{
+				connection.commit();
+			}
+			return count;
+		} catch (SQLException exception)
+		{
+			if (!autoCommit)
+			{
+				try
+				{
+					connection.rollback();
+				} catch (SQLException rollbackException)
+				{
+					exception.addSuppressed(rollbackException);
+				}
+			}
+			throw exception;
+		}
+	}
+
+	/**
+	 * SQLState class 23 is an integrity constraint violation on every mainstream database
+	 */
+	private static boolean isDuplicateKey(SQLException exception)
+	{
+		String sqlState = exception.getSQLState();
+		return sqlState != null && sqlState.startsWith("23");
+	}
+
+	private static void sleep(long millis)
+	{
+		try
+		{
+			Thread.sleep(millis);
+		} catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+			throw new ApiException(ApiStatus.IDEMPOTENCY_KEY_IN_PROGRESS);
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package in.jaxer.api.core.metrics;
+
+import in.jaxer.core.utilities.JValidator;
+
+/**
+ * Holder of the application wide {@link ApiMetricsRegistry}, an {@link InMemoryApiMetricsRegistry} by default
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class ApiMetrics
+{
+	private static volatile ApiMetricsRegistry registry = new InMemoryApiMetricsRegistry();
+
+	public static ApiMetricsRegistry getRegistry()
+	{
+		return registry;
+	}
+
+	public static void setRegistry(ApiMetricsRegistry registry)
+	{
+		JValidator.throwWhenNull(registry, "registry cannot be null");
+		ApiMetrics.registry = registry;
+	}
+}
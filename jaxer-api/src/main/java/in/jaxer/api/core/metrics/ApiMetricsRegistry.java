@@ -0,0 +1,13 @@
+package in.jaxer.api.core.metrics;
+
+/**
+ * Receives the measurements of every finished api request,
+ * implement it to forward the numbers to an external monitoring system.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public interface ApiMetricsRegistry
+{
+	void record(RequestMetrics requestMetrics);
+}
@@ -0,0 +1,38 @@
+package in.jaxer.api.core.metrics;
+
+/**
+ * Phases of an api request measured by {@link RequestMetrics}
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public enum ApiPhase
+{
+	/**
+	 * Reading and parsing the request body
+	 */
+	PARSE,
+
+	/**
+	 * {@link in.jaxer.api.listners.Authentication#doAuthentication}
+	 */
+	AUTHENTICATION,
+
+	/**
+	 * Borrowing, committing and returning the connection of the integrated mode
+	 */
+	CONNECTION,
+
+	BEFORE_TASK,
+
+	TASK,
+
+	AFTER_TASK,
+
+	/**
+	 * Writing the {@link in.jaxer.api.dtos.ApiResponseDto} to the response
+	 */
+	SERIALIZATION;
+
+	static final ApiPhase[] PHASES = values();
+}
@@ -0,0 +1,289 @@
+package in.jaxer.api.core.metrics;
+
+import in.jaxer.core.net.LatencyHistogram;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps counters and latency histograms per task name and api version in memory
+ * <br>
+ * Number of task/version combinations is capped by {@link #getMaxSeries()},
+ * requests beyond the cap are accounted under {@link #OVERFLOW}
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Log4j2
+public class InMemoryApiMetricsRegistry implements ApiMetricsRegistry
+{
+	public static final int DEFAULT_MAX_SERIES = 1000;
+	public static final String OVERFLOW = "OVERFLOW";
+
+	private final ConcurrentHashMap<String, TaskMetrics> taskMetricsMap = new ConcurrentHashMap<>();
+
+	@Getter
+	private final int maxSeries;
+
+	public InMemoryApiMetricsRegistry()
+	{
+		this(DEFAULT_MAX_SERIES);
+	}
+
+	public InMemoryApiMetricsRegistry(int maxSeries)
+	{
+		this.maxSeries = maxSeries;
+	}
+
+	@Override
+	public void record(RequestMetrics requestMetrics)
+	{
+		getTaskMetrics(requestMetrics.getTaskName(), requestMetrics.getApiVersion()).record(requestMetrics);
+	}
+
+	private TaskMetrics getTaskMetrics(String taskName, String apiVersion)
+	{
+		String key = taskName + '\u0000' + apiVersion;
+
+		TaskMetrics taskMetrics = taskMetricsMap.get(key);
+		if (taskMetrics != null)
+		{
+			return taskMetrics;
+		}
+
+		if (taskMetricsMap.size() >= maxSeries)
+		{
+			return taskMetricsMap.computeIfAbsent(OVERFLOW, k -> new TaskMetrics(OVERFLOW, OVERFLOW));
+		}
+
+		return taskMetricsMap.computeIfAbsent(key, k -> new TaskMetrics(taskName, apiVersion));
+	}
+
+	public List<TaskMetrics> getTaskMetricsList()
+	{
+		return new ArrayList<>(taskMetricsMap.values());
+	}
+
+	public void reset()
+	{
+		taskMetricsMap.clear();
+	}
+
+	/**
+	 * Json friendly view of all the counters
+	 */
+	public List<Map<String, Object>> getSnapshot()
+	{
+		List<Map<String, Object>> snapshot = new ArrayList<>();
+
+		for (TaskMetrics taskMetrics : taskMetricsMap.values())
+		{
+			Map<String, Object> task = new LinkedHashMap<>();
+			task.put("task", taskMetrics.getTaskName());
+			task.put("version", taskMetrics.getApiVersion());
+			task.put("requestCount", taskMetrics.getRequestCount());
+			task.put("errorCount", taskMetrics.getErrorCount());
+			task.put("cpuMillis", taskMetrics.getCpuMillis());
+
+			Map<String, Long> errors = new LinkedHashMap<>();
+			taskMetrics.errorCountMap.forEach((code, count) -> errors.put(String.valueOf(code), count.sum()));
+			task.put("errorsByCode", errors);
+
+			Map<String, Object> latencies = new LinkedHashMap<>();
+			latencies.put("TOTAL", toSnapshot(taskMetrics.getTotalLatency()));
+			taskMetrics.phaseLatencyMap.forEach((phase, histogram) ->
+			{
+				if (histogram.getCount() > 0)
+				{
+					latencies.put(phase.name(), toSnapshot(histogram));
+				}
+			});
+			task.put("latency", latencies);
+
+			snapshot.add(task);
+		}
+
+		return snapshot;
+	}
+
+	private Map<String, Object> toSnapshot(LatencyHistogram histogram)
+	{
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("count", histogram.getCount());
+		map.put("avgMillis", histogram.getMeanMillis());
+		map.put("p50Millis", histogram.getPercentileMillis(50));
+		map.put("p95Millis", histogram.getPercentileMillis(95));
+		map.put("p99Millis", histogram.getPercentileMillis(99));
+		map.put("maxMillis", histogram.getMaxMillis());
+		return map;
+	}
+
+	/**
+	 * Writes all the counters in prometheus text exposition format
+	 */
+	public void writePrometheus(Writer writer) throws IOException
+	{
+		List<TaskMetrics> taskMetricsList = getTaskMetricsList();
+
+		writer.write("# TYPE jaxer_api_requests_total counter\n");
+		for (TaskMetrics taskMetrics : taskMetricsList)
+		{
+			writer.write("jaxer_api_requests_total" + taskMetrics.labels() + " " + taskMetrics.getRequestCount() + "\n");
+		}
+
+		writer.write("# TYPE jaxer_api_errors_total counter\n");
+		for (TaskMetrics taskMetrics : taskMetricsList)
+		{
+			for (Map.Entry<Integer, LongAdder> entry : taskMetrics.errorCountMap.entrySet())
+			{
+				writer.write("jaxer_api_errors_total" + taskMetrics.labels("code", String.valueOf(entry.getKey())) + " " + entry.getValue().sum() + "\n");
+			}
+		}
+
+		writer.write("# TYPE jaxer_api_cpu_seconds_total counter\n");
+		for (TaskMetrics taskMetrics : taskMetricsList)
+		{
+			writer.write("jaxer_api_cpu_seconds_total" + taskMetrics.labels() + " " + taskMetrics.getCpuMillis() / 1000d + "\n");
+		}
+
+		writer.write("# TYPE jaxer_api_request_seconds histogram\n");
+		for (TaskMetrics taskMetrics : taskMetricsList)
+		{
+			writeHistogram(writer, "jaxer_api_request_seconds", taskMetrics, null, taskMetrics.getTotalLatency());
+		}
+
+		writer.write("# TYPE jaxer_api_phase_seconds histogram\n");
+		for (TaskMetrics taskMetrics : taskMetricsList)
+		{
+			for (Map.Entry<ApiPhase, LatencyHistogram> entry : taskMetrics.phaseLatencyMap.entrySet())
+			{
+				writeHistogram(writer, "jaxer_api_phase_seconds", taskMetrics, entry.getKey(), entry.getValue());
+			}
+		}
+
+		writer.flush();
+	}
+
+	private void writeHistogram(Writer writer, String name, TaskMetrics taskMetrics, ApiPhase phase, LatencyHistogram histogram) throws IOException
+	{
+		String phaseName = phase == null ? null : phase.name();
+		double[] boundsMillis = LatencyHistogram.getBucketBoundsMillis();
+		long[] counts = histogram.getBucketCounts();
+
+		long cumulative = 0;
+		for (int i = 0; i < counts.length; i++)
+		{
+			cumulative += counts[i];
+			String le = i < boundsMillis.length ? String.valueOf(boundsMillis[i] / 1000d) : "+Inf";
+			writer.write(name + "_bucket" + taskMetrics.labels("phase", phaseName, "le", le) + " " + cumulative + "\n");
+		}
+
+		writer.write(name + "_sum" + taskMetrics.labels("phase", phaseName) + " " + histogram.getSumMillis() / 1000d + "\n");
+		writer.write(name + "_count" + taskMetrics.labels("phase", phaseName) + " " + histogram.getCount() + "\n");
+	}
+
+	/**
+	 * Counters of a single task name and api version
+	 */
+	public static class TaskMetrics
+	{
+		@Getter
+		private final String taskName;
+
+		@Getter
+		private final String apiVersion;
+
+		@Getter
+		private final LatencyHistogram totalLatency = new LatencyHistogram();
+
+		private final LongAdder requestCount = new LongAdder();
+		private final LongAdder errorCount = new LongAdder();
+		private final LongAdder cpuNanos = new LongAdder();
+		private final ConcurrentHashMap<Integer, LongAdder> errorCountMap = new ConcurrentHashMap<>();
+		private final EnumMap<ApiPhase, LatencyHistogram> phaseLatencyMap = new EnumMap<>(ApiPhase.class);
+
+		private TaskMetrics(String taskName, String apiVersion)
+		{
+			this.taskName = taskName;
+			this.apiVersion = apiVersion;
+
+			// populated once, read only afterwards
+			for (ApiPhase apiPhase : ApiPhase.PHASES)
+			{
+				phaseLatencyMap.put(apiPhase, new LatencyHistogram());
+			}
+		}
+
+		private void record(RequestMetrics requestMetrics)
+		{
+			requestCount.increment();
+			cpuNanos.add(requestMetrics.getCpuNanos());
+			totalLatency.record(requestMetrics.getTotalNanos());
+
+			if (requestMetrics.isError())
+			{
+				errorCount.increment();
+				errorCountMap.computeIfAbsent(requestMetrics.getErrorCode(), code -> new LongAdder()).increment();
+			}
+
+			for (ApiPhase apiPhase : ApiPhase.PHASES)
+			{
+				long nanos = requestMetrics.getPhaseNanos(apiPhase);
+				if (nanos > 0)
+				{
+					phaseLatencyMap.get(apiPhase).record(nanos);
+				}
+			}
+		}
+
+		public long getRequestCount()
+		{
+			return requestCount.sum();
+		}
+
+		public long getErrorCount()
+		{
+			return errorCount.sum();
+		}
+
+		public double getCpuMillis()
+		{
+			return cpuNanos.sum() / 1_000_000d;
+		}
+
+		public LatencyHistogram getPhaseLatency(ApiPhase apiPhase)
+		{
+			return phaseLatencyMap.get(apiPhase);
+		}
+
+		private String labels(String... extra)
+		{
+			StringBuilder builder = new StringBuilder("{task=\"").append(escape(taskName))
+					.append("\",version=\"").append(escape(apiVersion)).append('"');
+
+			for (int i = 0; i + 1 < extra.length; i += 2)
+			{
+				if (extra[i + 1] != null)
+				{
+					builder.append(',').append(extra[i]).append("=\"").append(escape(extra[i + 1])).append('"');
+				}
+			}
+
+			return builder.append('}').toString();
+		}
+
+		private static String escape(String value)
+		{
+			return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package in.jaxer.api.core.metrics;
+
+import in.jaxer.api.dtos.ErrorDto;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Measurements of a single api request, filled while the request is processed
+ * and handed over to {@link ApiMetricsRegistry#record(RequestMetrics)} once it is finished.
+ * <br>
+ * Every phase of a request is measured by one thread at a time, but an async timeout may answer and finish the request
+ * while its worker is still running, see {@link #markResponded()}. Phases recorded after {@link #finish} are ignored.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class RequestMetrics
+{
+	public static final String UNKNOWN = "UNKNOWN";
+
+	private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+	private static final boolean cpuTimeSupported = threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+
+	private final long startedAt = System.nanoTime();
+	private final AtomicLongArray phaseNanos = new AtomicLongArray(ApiPhase.PHASES.length);
+	private final AtomicBoolean responded = new AtomicBoolean(false);
+	private final AtomicBoolean finished = new AtomicBoolean(false);
+
+	@Getter
+	@Setter
+	private String taskName = UNKNOWN;
+
+	@Getter
+	@Setter
+	private String apiVersion = UNKNOWN;
+
+	@Getter
+	private volatile long totalNanos = 0;
+
+	@Getter
+	private volatile long cpuNanos = 0;
+
+	/**
+	 * <code>null</code> for successful requests, {@link ErrorDto#errorCode} otherwise
+	 */
+	@Getter
+	private volatile Integer errorCode = null;
+
+	public static long getCurrentThreadCpuTime()
+	{
+		return cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : 0;
+	}
+
+	/**
+	 * Adds the time elapsed since <code>phaseStartedAt</code> ({@link System#nanoTime()}) to the phase
+	 */
+	public void record(ApiPhase apiPhase, long phaseStartedAt)
+	{
+		if (!finished.get())
+		{
+			phaseNanos.addAndGet(apiPhase.ordinal(), System.nanoTime() - phaseStartedAt);
+		}
+	}
+
+	/**
+	 * Adds the cpu time consumed by current thread since <code>cpuStartedAt</code> ({@link #getCurrentThreadCpuTime()})
+	 */
+	public void recordCpu(long cpuStartedAt)
+	{
+		if (cpuTimeSupported && !finished.get())
+		{
+			cpuNanos += getCurrentThreadCpuTime() - cpuStartedAt;
+		}
+	}
+
+	public long getPhaseNanos(ApiPhase apiPhase)
+	{
+		return phaseNanos.get(apiPhase.ordinal());
+	}
+
+	public boolean isError()
+	{
+		return errorCode != null;
+	}
+
+	/**
+	 * Claims the response of the request, only the first caller gets true and may write it.
+	 * <br>
+	 * The request and response are recycled once the response is completed, the worker of an async request
+	 * checks {@link #isResponded()} before touching them.
+	 *
+	 * @since 2.0.0
+	 */
+	public boolean markResponded()
+	{
+		return responded.compareAndSet(false, true);
+	}
+
+	/**
+	 * @since 2.0.0
+	 */
+	public boolean isResponded()
+	{
+		return responded.get();
+	}
+
+	/**
+	 * Stops the clock and publishes the request to the registry, <code>null</code> registry disables publishing,
+	 * only the first call counts
+	 */
+	public void finish(ErrorDto errorDto, ApiMetricsRegistry apiMetricsRegistry)
+	{
+		if (!finished.compareAndSet(false, true))
+		{
+			return;
+		}
+
+		this.totalNanos = System.nanoTime() - startedAt;
+		this.errorCode = errorDto == null ? null : errorDto.errorCode;
+
+		if (apiMetricsRegistry != null)
+		{
+			apiMetricsRegistry.record(this);
+		}
+	}
+}
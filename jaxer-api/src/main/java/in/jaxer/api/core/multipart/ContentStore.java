@@ -0,0 +1,35 @@
+package in.jaxer.api.core.multipart;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Content addressed storage of uploaded media, every content is stored once under its hash
+ * <br>
+ * Uploads are written to a staging file first and committed once the hash is known
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public interface ContentStore
+{
+	/**
+	 * New empty file on the same storage as the committed contents, so commit can be a rename
+	 */
+	Path createStagingFile() throws IOException;
+
+	/**
+	 * Moves the staging file under its hash
+	 *
+	 * @return <code>true</code> when the content is new,
+	 * <code>false</code> when it was already stored, the staging file is deleted in that case
+	 */
+	boolean commit(Path stagingFile, String contentHash) throws IOException;
+
+	boolean contains(String contentHash) throws IOException;
+
+	/**
+	 * Location of a committed content, the file does not exist when the hash is unknown
+	 */
+	Path getPath(String contentHash);
+}
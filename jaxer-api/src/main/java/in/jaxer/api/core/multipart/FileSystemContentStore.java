@@ -0,0 +1,98 @@
+package in.jaxer.api.core.multipart;
+
+import in.jaxer.core.utilities.JValidator;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * {@link ContentStore} on the local file system,
+ * content <code>abcdef...</code> is stored at <code>root/ab/cd/abcdef...</code>
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Log4j2
+public class FileSystemContentStore implements ContentStore
+{
+	private static final String STAGING_DIRECTORY = ".staging";
+
+	@Getter
+	private final Path root;
+
+	private final Path stagingDirectory;
+
+	public FileSystemContentStore(Path root) throws IOException
+	{
+		JValidator.throwWhenNull(root, "root cannot be null");
+
+		this.root = root;
+		this.stagingDirectory = root.resolve(STAGING_DIRECTORY);
+
+		Files.createDirectories(stagingDirectory);
+	}
+
+	@Override
+	public Path createStagingFile() throws IOException
+	{
+		return Files.createTempFile(stagingDirectory, "upload-", ".tmp");
+	}
+
+	@Override
+	public boolean commit(Path stagingFile, String contentHash) throws IOException
+	{
+		Path path = getPath(contentHash);
+
+		if (Files.exists(path))
+		{
+			Files.deleteIfExists(stagingFile);
+			return false;
+		}
+
+		Files.createDirectories(path.getParent());
+
+		try
+		{
+			Files.move(stagingFile, path, StandardCopyOption.ATOMIC_MOVE);
+		} catch (FileAlreadyExistsException exception)
+		{
+			// same content committed concurrently
+			Files.deleteIfExists(stagingFile);
+			return false;
+		} catch (AtomicMoveNotSupportedException exception)
+		{
+			log.debug("atomic move not supported, falling back to plain move");
+			try
+			{
+				Files.move(stagingFile, path);
+			} catch (FileAlreadyExistsException alreadyExistsException)
+			{
+				Files.deleteIfExists(stagingFile);
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public boolean contains(String contentHash)
+	{
+		return Files.exists(getPath(contentHash));
+	}
+
+	@Override
+	public Path getPath(String contentHash)
+	{
+		JValidator.throwWhenTrue(JValidator.isBlank(contentHash) || contentHash.length() < 4 || !contentHash.matches("[0-9a-fA-F]+"),
+				() -> new IllegalArgumentException("invalid content hash [" + contentHash + "]"));
+
+		return root.resolve(contentHash.substring(0, 2)).resolve(contentHash.substring(2, 4)).resolve(contentHash);
+	}
+}
@@ -0,0 +1,158 @@
+package in.jaxer.api.core.multipart;
+
+import in.jaxer.api.dtos.UploadedMediaDto;
+import in.jaxer.core.utilities.ImageHandler;
+import in.jaxer.core.utilities.JValidator;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import javax.servlet.http.Part;
+import java.awt.*;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Stores multipart uploads in a single pass over each {@link Part}
+ * <ul>
+ *     <li>part is copied to a staging file of the {@link ContentStore} while the content hash is computed</li>
+ *     <li>first {@link #getHeaderCaptureSize()} bytes are kept in memory, image dimensions are read from them</li>
+ *     <li>staging file is committed under its hash, duplicates are discarded</li>
+ * </ul>
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Log4j2
+public class MultipartUploadPipeline
+{
+	public static final String DEFAULT_ALGORITHM = "SHA-256";
+	public static final int DEFAULT_HEADER_CAPTURE_SIZE = 64 * 1024;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	@Getter
+	private final ContentStore contentStore;
+
+	@Getter
+	private final String algorithm;
+
+	@Getter
+	private final int headerCaptureSize;
+
+	public MultipartUploadPipeline(ContentStore contentStore)
+	{
+		this(contentStore, DEFAULT_ALGORITHM, DEFAULT_HEADER_CAPTURE_SIZE);
+	}
+
+	public MultipartUploadPipeline(ContentStore contentStore, String algorithm, int headerCaptureSize)
+	{
+		JValidator.throwWhenNull(contentStore, "contentStore cannot be null");
+		JValidator.throwWhenBlank(algorithm, "algorithm cannot be empty");
+
+		this.contentStore = contentStore;
+		this.algorithm = algorithm;
+		this.headerCaptureSize = headerCaptureSize;
+	}
+
+	public UploadedMediaDto store(Part part) throws IOException
+	{
+		UploadedMediaDto uploadedMediaDto = new UploadedMediaDto();
+		uploadedMediaDto.fieldName = part.getName();
+		uploadedMediaDto.fileName = part.getSubmittedFileName();
+		uploadedMediaDto.contentType = part.getContentType();
+
+		boolean isImage = uploadedMediaDto.contentType != null && uploadedMediaDto.contentType.startsWith("image/");
+		byte[] header = new byte[isImage ? headerCaptureSize : 0];
+		int headerLength = 0;
+
+		Path stagingFile = contentStore.createStagingFile();
+		try
+		{
+			MessageDigest messageDigest = newMessageDigest();
+
+			try (InputStream inputStream = new DigestInputStream(part.getInputStream(), messageDigest);
+				 OutputStream outputStream = Files.newOutputStream(stagingFile))
+			{
+				byte[] buffer = new byte[BUFFER_SIZE];
+				int read;
+				while ((read = inputStream.read(buffer)) != -1)
+				{
+					if (headerLength < header.length)
+					{
+						int captured = Math.min(read, header.length - headerLength);
+						System.arraycopy(buffer, 0, header, headerLength, captured);
+						headerLength += captured;
+					}
+
+					outputStream.write(buffer, 0, read);
+					uploadedMediaDto.size += read;
+				}
+			}
+
+			uploadedMediaDto.contentHash = toHex(messageDigest.digest());
+			uploadedMediaDto.duplicate = !contentStore.commit(stagingFile, uploadedMediaDto.contentHash);
+			uploadedMediaDto.path = contentStore.getPath(uploadedMediaDto.contentHash).toString();
+		} finally
+		{
+			Files.deleteIfExists(stagingFile);
+			deleteQuietly(part);
+		}
+
+		if (headerLength > 0)
+		{
+			Dimension dimension = ImageHandler.readDimension(new ByteArrayInputStream(header, 0, headerLength));
+			if (dimension != null)
+			{
+				uploadedMediaDto.width = dimension.width;
+				uploadedMediaDto.height = dimension.height;
+			}
+		}
+
+		log.debug("uploadedMediaDto: {}", uploadedMediaDto);
+		return uploadedMediaDto;
+	}
+
+	private MessageDigest newMessageDigest()
+	{
+		try
+		{
+			return MessageDigest.getInstance(algorithm);
+		} catch (NoSuchAlgorithmException exception)
+		{
+			throw new IllegalStateException("Unsupported hash algorithm [" + algorithm + "]", exception);
+		}
+	}
+
+	/**
+	 * Container keeps large parts in temporary files, they are released as soon as the part is stored
+	 */
+	private void deleteQuietly(Part part)
+	{
+		try
+		{
+			part.delete();
+		} catch (Exception exception)
+		{
+			log.debug("unable to delete part", exception);
+		}
+	}
+
+	private static String toHex(byte[] bytes)
+	{
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++)
+		{
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0x0f];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0x0f];
+		}
+		return new String(chars);
+	}
+}
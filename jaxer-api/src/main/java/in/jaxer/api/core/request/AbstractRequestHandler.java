@@ -1,14 +1,25 @@
 package in.jaxer.api.core.request;
 
+import com.google.common.hash.Hashing;
+import in.jaxer.api.annotations.ThrottleKey;
+import in.jaxer.api.constants.ApiStatus;
 import in.jaxer.api.constants.RequestConstant;
+import in.jaxer.api.core.background.BackgroundTaskExecutor;
+import in.jaxer.api.core.codec.ApiCodecs;
+import in.jaxer.api.core.database.TaskDataSource;
+import in.jaxer.api.core.idempotency.IdempotencyStore;
+import in.jaxer.api.core.metrics.ApiPhase;
+import in.jaxer.api.core.metrics.RequestMetrics;
 import in.jaxer.api.core.tasks.AbstractTask;
+import in.jaxer.api.core.throttle.TaskThrottle;
 import in.jaxer.api.dtos.ApiResponseDto;
+import in.jaxer.api.dtos.PrincipalDto;
 import in.jaxer.api.dtos.RequestResponseDto;
+import in.jaxer.api.exceptions.ApiException;
 import in.jaxer.api.listners.Authentication;
 import in.jaxer.core.net.Servlets;
 import in.jaxer.core.utilities.JValidator;
 import in.jaxer.core.utilities.JsonHandler;
-import in.jaxer.core.utilities.PackageScanner;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
@@ -16,9 +27,17 @@ import lombok.extern.log4j.Log4j2;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
 
 /**
  * @author Shakir
@@ -36,7 +55,48 @@ public abstract class AbstractRequestHandler
 	@Setter
 	private boolean isMultipartRequest = false;
 
-	private Set<Class<? extends Annotation>> taskList = null;
+	@Getter
+	@Setter
+	private BackgroundTaskExecutor backgroundTaskExecutor = null;
+
+	@Getter
+	@Setter
+	private RequestMetrics requestMetrics = new RequestMetrics();
+
+	@Getter
+	@Setter
+	private IdempotencyStore idempotencyStore = null;
+
+	/**
+	 * Integrated mode, tasks declaring that they require a connection borrow one when the caller passed none
+	 *
+	 * @since 2.0.0
+	 */
+	@Getter
+	@Setter
+	private TaskDataSource taskDataSource = null;
+
+	private TaskDataSource.Lease lease = null;
+
+	/**
+	 * Executor of the operations forked by the task, see {@link AbstractTask#fork(java.util.concurrent.Callable)}
+	 *
+	 * @since 2.0.0
+	 */
+	@Getter
+	@Setter
+	private ExecutorService forkExecutor = null;
+
+	private TaskThrottle taskThrottle = null;
+	private String throttlePermit = null;
+	private boolean authenticated = false;
+
+	private String idempotencyKey = null;
+	private String idempotencyFingerprint = null;
+	private boolean idempotencyPending = false;
+	private ApiResponseDto replayedApiResponseDto = null;
+
+	private TaskRegistry taskRegistry = null;
 	private final String basePackage;
 	private final Class<? extends Annotation> taskClass;
 
@@ -50,69 +110,563 @@ public abstract class AbstractRequestHandler
 		this.taskClass = taskClass;
 	}
 
-	@SuppressWarnings("unchecked")
 	private void init(HttpServletRequest request, HttpServletResponse response) throws Exception
 	{
 		this.isMultipartRequest = Servlets.isMultipartRequest(request);
-		log.debug("isMultipartRequest: {}, taskList{}", isMultipartRequest, taskList);
+		log.debug("isMultipartRequest: {}", isMultipartRequest);
 
-		if (JValidator.isBlank(taskList))
-		{
-			log.debug("initializing taskList");
-			taskList = PackageScanner.getClasses(basePackage, this.taskClass);
-			log.debug("taskList: {}", taskList);
-		}
+		loadTaskList();
 
-		HashMap<String, Object> requestMap = new HashMap<>();
+		HashMap<String, Object> requestMap = null;
 
 		if (!isMultipartRequest)
 		{
-			String requestBody = Servlets.getRequestBody(request);
-			log.debug("requestBody: {}", requestBody);
+			requestMap = ApiCodecs.forRequest(request).readRequest(request);
+		}
 
-			if (JValidator.isNotBlank(requestBody))
-			{
-				requestMap = JsonHandler.getGson().fromJson(requestBody, HashMap.class);
-			}
+		if (requestMap == null)
+		{
+			requestMap = new HashMap<>();
 		}
 
 		requestResponseDto = new RequestResponseDto(requestMap, request, response, isMultipartRequest);
 	}
 
+	Set<Class<? extends Annotation>> loadTaskList()
+	{
+		if (taskRegistry == null)
+		{
+			taskRegistry = TaskRegistry.of(basePackage, taskClass);
+		}
+
+		return taskRegistry.getTaskList();
+	}
+
 	protected Class<? extends Annotation> getRequestedTask(String requestedTaskName)
 	{
-		for (Class<? extends Annotation> clazz : taskList)
+		Class<? extends Annotation> clazz = taskRegistry.getTask(requestedTaskName);
+		if (clazz != null)
 		{
-			if (requestedTaskName.equals(clazz.getSimpleName()))
-			{
-				return clazz;
-			}
+			requestMetrics.setTaskName(clazz.getSimpleName());
 		}
-		return null;
+		return clazz;
+	}
+
+	/**
+	 * Creates the task through the constructor cached by {@link TaskRegistry}
+	 *
+	 * @since 2.0.0
+	 */
+	protected <T extends AbstractTask> T newTask(Class<?> clazz) throws ReflectiveOperationException
+	{
+		return taskRegistry.newInstance(clazz);
 	}
 
 	public ApiResponseDto processRequest(Connection connection, HttpServletRequest request, HttpServletResponse response, Authentication authentication) throws Exception
 	{
-		init(request, response);
+		long cpuStartedAt = RequestMetrics.getCurrentThreadCpuTime();
+		try
+		{
+			long startedAt = System.nanoTime();
+			init(request, response);
+			requestMetrics.record(ApiPhase.PARSE, startedAt);
+
+			return processRequest(connection, authentication);
+		} finally
+		{
+			requestMetrics.recordCpu(cpuStartedAt);
+		}
+	}
+
+	/**
+	 * Processes an already parsed request, used when one http request carries more than one task
+	 *
+	 * @since 2.0.0
+	 */
+	public ApiResponseDto processRequest(Connection connection, HashMap<String, Object> requestMap, HttpServletRequest request, HttpServletResponse response, Authentication authentication) throws Exception
+	{
+		long cpuStartedAt = RequestMetrics.getCurrentThreadCpuTime();
+		try
+		{
+			loadTaskList();
+
+			requestResponseDto = new RequestResponseDto(requestMap, request, response, false);
+
+			return processRequest(connection, authentication);
+		} finally
+		{
+			requestMetrics.recordCpu(cpuStartedAt);
+		}
+	}
+
+	private ApiResponseDto processRequest(Connection connection, Authentication authentication) throws Exception
+	{
+		getRequestResponseDto().setRequestMetrics(requestMetrics);
 
 		validateRequestParameters();
+		Object apiVersion = getRequestResponseDto().getRequestObject(RequestConstant.API_VERSION);
+		if (apiVersion != null)
+		{
+			requestMetrics.setApiVersion(String.valueOf(apiVersion));
+		}
 
-		AbstractTask abstractHttpRequestTask = handleRequest(connection, authentication);
+		try
+		{
+			AbstractTask abstractHttpRequestTask = handleRequest(connection, authentication);
+			if (replayedApiResponseDto != null)
+			{
+				return replayedApiResponseDto;
+			}
 
-		processTask(abstractHttpRequestTask, connection);
+			processTask(abstractHttpRequestTask, lease == null ? connection : lease.getConnection());
+			commitConnection();
 
-		getRequestResponseDto().setParameter(RequestConstant.MESSAGE, RequestConstant.SUCCESS);
+			getRequestResponseDto().setParameter(RequestConstant.MESSAGE, RequestConstant.SUCCESS);
+
+			// work done in the transaction of the caller is not durable before the caller commits
+			if (idempotencyKey != null && connection != null && !connection.getAutoCommit())
+			{
+				idempotencyPending = true;
+			} else
+			{
+				completeIdempotency();
+			}
+		} catch (Exception exception)
+		{
+			releaseConnection();
+			releaseIdempotency();
+			throw exception;
+		} finally
+		{
+			releaseConnection();
+			releaseThrottle();
+		}
 
 		return getRequestResponseDto().getApiResponseDto();
 	}
 
+	/**
+	 * Deduplicates requests carrying an idempotency key ({@value RequestConstant#IDEMPOTENCY_KEY_HEADER} header or
+	 * {@link RequestConstant#API_IDEMPOTENCY_KEY} parameter), call it after authentication and before the task is executed.
+	 * <br>
+	 * Keys are scoped to the task and the caller, see {@link #getIdempotencyScope()}, and remember a fingerprint of the
+	 * request parameters, a key reused for different parameters fails with {@link ApiStatus#IDEMPOTENCY_KEY_REUSED}.
+	 * Failed executions are not stored so their retries execute again.
+	 * <br>
+	 * When the task runs on a connection passed by the caller outside auto-commit, the response is only stored
+	 * once the caller reports the commit through {@link #completeIdempotency()}, see {@link #isIdempotencyPending()}.
+	 *
+	 * @return true when the response of an earlier execution is replayed and the task must not be executed
+	 * @since 2.0.0
+	 */
+	protected boolean replayIdempotentResponse(Class<?> clazz) throws Exception
+	{
+		if (idempotencyStore == null)
+		{
+			return false;
+		}
+
+		String requestedKey = getRequestResponseDto().getHttpServletRequest().getHeader(RequestConstant.IDEMPOTENCY_KEY_HEADER);
+		if (JValidator.isBlank(requestedKey))
+		{
+			requestedKey = getRequestResponseDto().getParameter(RequestConstant.API_IDEMPOTENCY_KEY);
+		}
+
+		if (JValidator.isBlank(requestedKey))
+		{
+			return false;
+		}
+
+		String scopedKey = Hashing.sha256()
+				.hashString(clazz.getName() + '\n' + getIdempotencyScope() + '\n' + requestedKey, StandardCharsets.UTF_8)
+				.toString();
+		String fingerprint = getIdempotencyFingerprint();
+
+		ApiResponseDto apiResponseDto = idempotencyStore.acquire(scopedKey, fingerprint);
+		if (apiResponseDto == null)
+		{
+			this.idempotencyKey = scopedKey;
+			this.idempotencyFingerprint = fingerprint;
+			return false;
+		}
+
+		log.debug("replaying response of idempotency key: {}", requestedKey);
+		getRequestResponseDto().getHttpServletResponse().setHeader("Idempotent-Replayed", "true");
+		this.replayedApiResponseDto = apiResponseDto;
+		return true;
+	}
+
+	/**
+	 * Caller whose retries share an idempotency key: the {@link PrincipalDto} set by the authentication,
+	 * {@link HttpServletRequest#getRemoteAddr()} for public tasks and authentications setting none.
+	 * Headers the client controls, like <code>X-Forwarded-For</code>, are never part of it.
+	 *
+	 * @since 2.0.0
+	 */
+	protected String getIdempotencyScope()
+	{
+		PrincipalDto principalDto = getRequestResponseDto().getPrincipalDto();
+		if (principalDto != null && principalDto.principal != null)
+		{
+			return "principal:" + principalDto.principal;
+		}
+		return "ip:" + getRequestResponseDto().getHttpServletRequest().getRemoteAddr();
+	}
+
+	/**
+	 * Hash of the request parameters, keys sorted and the access token and idempotency key left out
+	 * since a retry may carry a refreshed token
+	 */
+	private String getIdempotencyFingerprint()
+	{
+		Map<String, Object> parameterMap = new TreeMap<>();
+		if (getRequestResponseDto().isIsMultipartRequest())
+		{
+			parameterMap.putAll(getRequestResponseDto().getHttpServletRequest().getParameterMap());
+		} else
+		{
+			parameterMap.putAll(getRequestResponseDto().getRequestMap());
+		}
+		parameterMap.remove(RequestConstant.API_ACCESS_TOKEN);
+		parameterMap.remove(RequestConstant.API_IDEMPOTENCY_KEY);
+
+		return Hashing.sha256()
+				.hashString(JsonHandler.getGson().toJson(sortKeys(parameterMap)), StandardCharsets.UTF_8)
+				.toString();
+	}
+
+	private static Object sortKeys(Object value)
+	{
+		if (value instanceof Map)
+		{
+			Map<String, Object> sortedMap = new TreeMap<>();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet())
+			{
+				sortedMap.put(String.valueOf(entry.getKey()), sortKeys(entry.getValue()));
+			}
+			return sortedMap;
+		}
+
+		if (value instanceof Collection)
+		{
+			List<Object> sortedList = new ArrayList<>();
+			for (Object element : (Collection<?>) value)
+			{
+				sortedList.add(sortKeys(element));
+			}
+			return sortedList;
+		}
+
+		return value;
+	}
+
+	/**
+	 * True when the task succeeded on the transaction of a connection passed by the caller and the response waits
+	 * for {@link #completeIdempotency()} once the caller committed, or {@link #releaseIdempotency()} when it did not
+	 *
+	 * @since 2.0.0
+	 */
+	public boolean isIdempotencyPending()
+	{
+		return idempotencyPending;
+	}
+
+	/**
+	 * Stores the response for the idempotency key of the request, retries replay it from now on
+	 *
+	 * @since 2.0.0
+	 */
+	public void completeIdempotency()
+	{
+		idempotencyPending = false;
+		if (idempotencyKey == null)
+		{
+			return;
+		}
+
+		try
+		{
+			idempotencyStore.complete(idempotencyKey, idempotencyFingerprint, getRequestResponseDto().getApiResponseDto());
+			idempotencyKey = null;
+		} catch (Exception exception)
+		{
+			log.error("Unable to store idempotent response", exception);
+			releaseIdempotency();
+		}
+	}
+
+	/**
+	 * Gives up the idempotency key of the request without storing a response, retries execute the task again
+	 *
+	 * @since 2.0.0
+	 */
+	public void releaseIdempotency()
+	{
+		idempotencyPending = false;
+		if (idempotencyKey == null)
+		{
+			return;
+		}
+
+		try
+		{
+			idempotencyStore.release(idempotencyKey);
+		} catch (Exception exception)
+		{
+			log.error("Unable to release idempotency key", exception);
+		} finally
+		{
+			idempotencyKey = null;
+		}
+	}
+
+	/**
+	 * Applies the rate and concurrency limits declared on the task annotation, the limits are released once the task is processed.
+	 * <br>
+	 * Call it twice, before any expensive work with <code>afterAuthentication</code> false and once the caller is
+	 * authenticated (or would have been, for public tasks) with true. Limits keyed by {@link ThrottleKey#ACCESS_TOKEN}
+	 * count the authenticated caller and are applied by the second call, the others by the first one.
+	 *
+	 * @since 2.0.0
+	 */
+	protected void throttle(Class<?> clazz, boolean afterAuthentication)
+	{
+		TaskThrottle taskThrottle = TaskThrottle.of(clazz);
+		if (taskThrottle.isUnlimited() || this.taskThrottle != null
+				|| (taskThrottle.getThrottleKey() == ThrottleKey.ACCESS_TOKEN) != afterAuthentication)
+		{
+			return;
+		}
+
+		this.throttlePermit = taskThrottle.acquire(getThrottleKey(taskThrottle.getThrottleKey()));
+		this.taskThrottle = taskThrottle;
+	}
+
+	/**
+	 * Identity of the caller the limits are counted against, never taken from data the client controls unverified:
+	 * <ul>
+	 *     <li>{@link ThrottleKey#ACCESS_TOKEN} - the {@link PrincipalDto} set by the authentication, the access token
+	 *     it verified when it set none, the remote address of unauthenticated requests</li>
+	 *     <li>{@link ThrottleKey#IP_ADDRESS} - {@link HttpServletRequest#getRemoteAddr()}, behind a proxy configure
+	 *     the container to resolve the client address (e.g. the RemoteIpValve of Tomcat) instead of trusting
+	 *     <code>X-Forwarded-For</code></li>
+	 * </ul>
+	 *
+	 * @since 2.0.0
+	 */
+	protected String getThrottleKey(ThrottleKey throttleKey)
+	{
+		switch (throttleKey)
+		{
+			case ACCESS_TOKEN:
+				PrincipalDto principalDto = getRequestResponseDto().getPrincipalDto();
+				if (principalDto != null && principalDto.principal != null)
+				{
+					return "principal:" + principalDto.principal;
+				}
+
+				String accessToken = getRequestResponseDto().getAccessToken();
+				if (authenticated && JValidator.isNotBlank(accessToken))
+				{
+					return "token:" + accessToken;
+				}
+				return "ip:" + getRequestResponseDto().getHttpServletRequest().getRemoteAddr();
+
+			case IP_ADDRESS:
+				return "ip:" + getRequestResponseDto().getHttpServletRequest().getRemoteAddr();
+
+			default:
+				return "";
+		}
+	}
+
+	private void releaseThrottle()
+	{
+		if (taskThrottle != null)
+		{
+			taskThrottle.release(throttlePermit);
+			taskThrottle = null;
+			throttlePermit = null;
+		}
+	}
+
+	/**
+	 * Executes the {@link Authentication}, time spent is recorded as {@link ApiPhase#AUTHENTICATION}.
+	 * <br>
+	 * In integrated mode without a caller connection the authentication gets a connection of its own,
+	 * borrowed only when it asks for one through {@link Authentication#doAuthenticationLazily} and
+	 * returned right after so the task does not hold one while it is authorized.
+	 *
+	 * @since 2.0.0
+	 */
+	protected void authenticate(Connection connection, Authentication authentication) throws Exception
+	{
+		if (authentication == null)
+		{
+			throw new NullPointerException("Please implement [" + Authentication.class.getName() + "]");
+		}
+
+		if (connection != null || taskDataSource == null)
+		{
+			doAuthentication(() -> connection, authentication);
+			return;
+		}
+
+		try (AuthenticationConnection authenticationConnection = new AuthenticationConnection(taskDataSource))
+		{
+			doAuthentication(authenticationConnection, authentication);
+			authenticationConnection.commit();
+		}
+	}
+
+	private void doAuthentication(Authentication.ConnectionSupplier connectionSupplier, Authentication authentication) throws Exception
+	{
+		long startedAt = System.nanoTime();
+		try
+		{
+			authentication.doAuthenticationLazily(connectionSupplier, getRequestResponseDto());
+			authenticated = true;
+		} finally
+		{
+			requestMetrics.record(ApiPhase.AUTHENTICATION, startedAt);
+		}
+	}
+
+	/**
+	 * Borrows the connection of the task in integrated mode, call it as late as possible, after authorization
+	 * and before the task is created. Nothing is borrowed when the caller passed a connection,
+	 * when no {@link TaskDataSource} is configured or when the task does not require one.
+	 * <br>
+	 * The task runs in a transaction, committed once it completes and rolled back when it fails,
+	 * the connection is returned before the response is written.
+	 *
+	 * @since 2.0.0
+	 */
+	protected void borrowConnection(Connection connection, boolean requiresConnection, boolean readOnly) throws Exception
+	{
+		if (connection != null || taskDataSource == null || !requiresConnection || lease != null)
+		{
+			return;
+		}
+
+		long startedAt = System.nanoTime();
+		try
+		{
+			this.lease = taskDataSource.borrow(readOnly);
+		} finally
+		{
+			requestMetrics.record(ApiPhase.CONNECTION, startedAt);
+		}
+	}
+
+	private void commitConnection() throws Exception
+	{
+		if (lease == null)
+		{
+			return;
+		}
+
+		long startedAt = System.nanoTime();
+		try
+		{
+			lease.commit();
+		} finally
+		{
+			requestMetrics.record(ApiPhase.CONNECTION, startedAt);
+		}
+		releaseConnection();
+	}
+
+	private void releaseConnection()
+	{
+		if (lease == null)
+		{
+			return;
+		}
+
+		try
+		{
+			lease.close();
+		} catch (Exception exception)
+		{
+			log.error("Unable to release connection", exception);
+		} finally
+		{
+			lease = null;
+		}
+	}
+
+	/**
+	 * Checks the {@link PrincipalDto} set by the {@link Authentication} against the allowed roles of the task,
+	 * empty allowed roles means anyone
+	 *
+	 * @since 2.0.0
+	 */
+	protected void authorize(String[] allowedRoles)
+	{
+		if (allowedRoles == null || allowedRoles.length == 0)
+		{
+			return;
+		}
+
+		PrincipalDto principalDto = getRequestResponseDto().getPrincipalDto();
+		if (principalDto == null || !principalDto.hasAnyRole(allowedRoles))
+		{
+			throw new ApiException(ApiStatus.FORBIDDEN);
+		}
+	}
+
 	private void processTask(AbstractTask abstractHttpRequestTask, Connection connection) throws Exception
 	{
 		abstractHttpRequestTask.setRequestResponseDto(getRequestResponseDto());
+		abstractHttpRequestTask.setBackgroundTaskExecutor(backgroundTaskExecutor);
+		abstractHttpRequestTask.setForkExecutor(forkExecutor);
+		abstractHttpRequestTask.setTaskDataSource(taskDataSource);
 		abstractHttpRequestTask.processAbstractTask(connection);
 	}
 
 	protected void preRequest() {}
 
 	protected void postRequest() {}
+
+	/**
+	 * Borrows the lease of the authentication on first use, commit and close do nothing when it was never borrowed
+	 */
+	private static class AuthenticationConnection implements Authentication.ConnectionSupplier, AutoCloseable
+	{
+		private final TaskDataSource taskDataSource;
+		private TaskDataSource.Lease lease;
+
+		private AuthenticationConnection(TaskDataSource taskDataSource)
+		{
+			this.taskDataSource = taskDataSource;
+		}
+
+		@Override
+		public Connection get() throws SQLException
+		{
+			if (lease == null)
+			{
+				lease = taskDataSource.borrow(false);
+			}
+			return lease.getConnection();
+		}
+
+		private void commit() throws SQLException
+		{
+			if (lease != null)
+			{
+				lease.commit();
+			}
+		}
+
+		@Override
+		public void close() throws SQLException
+		{
+			if (lease != null)
+			{
+				lease.close();
+			}
+		}
+	}
 }
@@ -0,0 +1,487 @@
+package in.jaxer.api.core.request;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpUpgradeHandler;
+import javax.servlet.http.Part;
+import java.io.BufferedReader;
+import java.security.Principal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Request seen by an invocation of a parallel batch, a copy of the http request taken on the container thread before
+ * the invocations are forked, so the invocations never share the container request across threads.
+ * <br>
+ * The body was consumed by the batch envelope, reading it, multipart, async and upgrades are not supported.
+ * Attributes start as a copy of the request attributes and are private to the invocation.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+class BatchInvocationRequest extends HttpServletRequestWrapper
+{
+	private final Map<String, List<String>> headerMap = new LinkedHashMap<>();
+	private final Map<String, Object> attributeMap = new ConcurrentHashMap<>();
+	private final Map<String, String[]> parameterMap;
+	private final Cookie[] cookies;
+	private final String method;
+	private final String requestURI;
+	private final StringBuffer requestURL;
+	private final String contextPath;
+	private final String servletPath;
+	private final String pathInfo;
+	private final String queryString;
+	private final String protocol;
+	private final String scheme;
+	private final String serverName;
+	private final int serverPort;
+	private final boolean secure;
+	private final String remoteAddr;
+	private final String remoteHost;
+	private final int remotePort;
+	private final String localAddr;
+	private final int localPort;
+	private final String characterEncoding;
+	private final String contentType;
+	private final Locale locale;
+	private final String authType;
+	private final String remoteUser;
+	private final Principal userPrincipal;
+	private final HttpSession session;
+
+	BatchInvocationRequest(HttpServletRequest request)
+	{
+		super(request);
+
+		for (Enumeration<String> headerNames = request.getHeaderNames(); headerNames != null && headerNames.hasMoreElements(); )
+		{
+			String headerName = headerNames.nextElement();
+			headerMap.put(headerName, Collections.list(request.getHeaders(headerName)));
+		}
+
+		for (Enumeration<String> attributeNames = request.getAttributeNames(); attributeNames != null && attributeNames.hasMoreElements(); )
+		{
+			String attributeName = attributeNames.nextElement();
+			Object value = request.getAttribute(attributeName);
+			if (value != null)
+			{
+				attributeMap.put(attributeName, value);
+			}
+		}
+
+		this.parameterMap = Collections.unmodifiableMap(new HashMap<>(request.getParameterMap()));
+		this.cookies = request.getCookies();
+		this.method = request.getMethod();
+		this.requestURI = request.getRequestURI();
+		this.requestURL = request.getRequestURL();
+		this.contextPath = request.getContextPath();
+		this.servletPath = request.getServletPath();
+		this.pathInfo = request.getPathInfo();
+		this.queryString = request.getQueryString();
+		this.protocol = request.getProtocol();
+		this.scheme = request.getScheme();
+		this.serverName = request.getServerName();
+		this.serverPort = request.getServerPort();
+		this.secure = request.isSecure();
+		this.remoteAddr = request.getRemoteAddr();
+		this.remoteHost = request.getRemoteHost();
+		this.remotePort = request.getRemotePort();
+		this.localAddr = request.getLocalAddr();
+		this.localPort = request.getLocalPort();
+		this.characterEncoding = request.getCharacterEncoding();
+		this.contentType = request.getContentType();
+		this.locale = request.getLocale();
+		this.authType = request.getAuthType();
+		this.remoteUser = request.getRemoteUser();
+		this.userPrincipal = request.getUserPrincipal();
+		this.session = request.getSession(false);
+	}
+
+	@Override
+	public String getHeader(String name)
+	{
+		List<String> valueList = getHeaderList(name);
+		return valueList.isEmpty() ? null : valueList.get(0);
+	}
+
+	@Override
+	public Enumeration<String> getHeaders(String name)
+	{
+		return Collections.enumeration(getHeaderList(name));
+	}
+
+	@Override
+	public Enumeration<String> getHeaderNames()
+	{
+		return Collections.enumeration(headerMap.keySet());
+	}
+
+	@Override
+	public int getIntHeader(String name)
+	{
+		String value = getHeader(name);
+		return value == null ? -1 : Integer.parseInt(value);
+	}
+
+	@Override
+	public long getDateHeader(String name)
+	{
+		String value = getHeader(name);
+		if (value == null)
+		{
+			return -1;
+		}
+
+		SimpleDateFormat simpleDateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+		simpleDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+		try
+		{
+			return simpleDateFormat.parse(value).getTime();
+		} catch (ParseException exception)
+		{
+			throw new IllegalArgumentException("Invalid date header " + name + ": " + value);
+		}
+	}
+
+	private List<String> getHeaderList(String name)
+	{
+		for (Map.Entry<String, List<String>> entry : headerMap.entrySet())
+		{
+			if (entry.getKey().equalsIgnoreCase(name))
+			{
+				return entry.getValue();
+			}
+		}
+		return Collections.emptyList();
+	}
+
+	@Override
+	public Object getAttribute(String name)
+	{
+		return attributeMap.get(name);
+	}
+
+	@Override
+	public Enumeration<String> getAttributeNames()
+	{
+		return Collections.enumeration(new ArrayList<>(attributeMap.keySet()));
+	}
+
+	@Override
+	public void setAttribute(String name, Object value)
+	{
+		if (value == null)
+		{
+			attributeMap.remove(name);
+		} else
+		{
+			attributeMap.put(name, value);
+		}
+	}
+
+	@Override
+	public void removeAttribute(String name)
+	{
+		attributeMap.remove(name);
+	}
+
+	@Override
+	public String getParameter(String name)
+	{
+		String[] values = parameterMap.get(name);
+		return values == null || values.length == 0 ? null : values[0];
+	}
+
+	@Override
+	public Map<String, String[]> getParameterMap()
+	{
+		return parameterMap;
+	}
+
+	@Override
+	public Enumeration<String> getParameterNames()
+	{
+		return Collections.enumeration(parameterMap.keySet());
+	}
+
+	@Override
+	public String[] getParameterValues(String name)
+	{
+		return parameterMap.get(name);
+	}
+
+	@Override
+	public Cookie[] getCookies()
+	{
+		return cookies;
+	}
+
+	@Override
+	public String getMethod()
+	{
+		return method;
+	}
+
+	@Override
+	public String getRequestURI()
+	{
+		return requestURI;
+	}
+
+	@Override
+	public StringBuffer getRequestURL()
+	{
+		return requestURL == null ? null : new StringBuffer(requestURL);
+	}
+
+	@Override
+	public String getContextPath()
+	{
+		return contextPath;
+	}
+
+	@Override
+	public String getServletPath()
+	{
+		return servletPath;
+	}
+
+	@Override
+	public String getPathInfo()
+	{
+		return pathInfo;
+	}
+
+	@Override
+	public String getQueryString()
+	{
+		return queryString;
+	}
+
+	@Override
+	public String getProtocol()
+	{
+		return protocol;
+	}
+
+	@Override
+	public String getScheme()
+	{
+		return scheme;
+	}
+
+	@Override
+	public String getServerName()
+	{
+		return serverName;
+	}
+
+	@Override
+	public int getServerPort()
+	{
+		return serverPort;
+	}
+
+	@Override
+	public boolean isSecure()
+	{
+		return secure;
+	}
+
+	@Override
+	public String getRemoteAddr()
+	{
+		return remoteAddr;
+	}
+
+	@Override
+	public String getRemoteHost()
+	{
+		return remoteHost;
+	}
+
+	@Override
+	public int getRemotePort()
+	{
+		return remotePort;
+	}
+
+	@Override
+	public String getLocalAddr()
+	{
+		return localAddr;
+	}
+
+	@Override
+	public int getLocalPort()
+	{
+		return localPort;
+	}
+
+	@Override
+	public String getCharacterEncoding()
+	{
+		return characterEncoding;
+	}
+
+	@Override
+	public String getContentType()
+	{
+		return contentType;
+	}
+
+	@Override
+	public Locale getLocale()
+	{
+		return locale;
+	}
+
+	@Override
+	public Enumeration<Locale> getLocales()
+	{
+		return Collections.enumeration(Collections.singletonList(locale));
+	}
+
+	@Override
+	public String getAuthType()
+	{
+		return authType;
+	}
+
+	@Override
+	public String getRemoteUser()
+	{
+		return remoteUser;
+	}
+
+	@Override
+	public Principal getUserPrincipal()
+	{
+		return userPrincipal;
+	}
+
+	@Override
+	public HttpSession getSession()
+	{
+		return getSession(true);
+	}
+
+	@Override
+	public HttpSession getSession(boolean create)
+	{
+		if (session == null && create)
+		{
+			throw unsupported("creating a session");
+		}
+		return session;
+	}
+
+	@Override
+	public DispatcherType getDispatcherType()
+	{
+		return DispatcherType.REQUEST;
+	}
+
+	@Override
+	public ServletInputStream getInputStream()
+	{
+		throw unsupported("reading the body");
+	}
+
+	@Override
+	public BufferedReader getReader()
+	{
+		throw unsupported("reading the body");
+	}
+
+	@Override
+	public Collection<Part> getParts()
+	{
+		throw unsupported("multipart");
+	}
+
+	@Override
+	public Part getPart(String name)
+	{
+		throw unsupported("multipart");
+	}
+
+	@Override
+	public boolean isAsyncStarted()
+	{
+		return false;
+	}
+
+	@Override
+	public boolean isAsyncSupported()
+	{
+		return false;
+	}
+
+	@Override
+	public AsyncContext startAsync()
+	{
+		throw unsupported("async");
+	}
+
+	@Override
+	public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse)
+	{
+		throw unsupported("async");
+	}
+
+	@Override
+	public AsyncContext getAsyncContext()
+	{
+		throw unsupported("async");
+	}
+
+	@Override
+	public boolean authenticate(HttpServletResponse response)
+	{
+		throw unsupported("container authentication");
+	}
+
+	@Override
+	public void login(String username, String password)
+	{
+		throw unsupported("container authentication");
+	}
+
+	@Override
+	public void logout()
+	{
+		throw unsupported("container authentication");
+	}
+
+	@Override
+	public <T extends HttpUpgradeHandler> T upgrade(Class<T> handlerClass)
+	{
+		throw unsupported("upgrade");
+	}
+
+	private static IllegalStateException unsupported(String feature)
+	{
+		return new IllegalStateException("Tasks of a parallel batch do not support " + feature);
+	}
+}
@@ -0,0 +1,273 @@
+package in.jaxer.api.core.request;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Response seen by an invocation of a parallel batch, detached from the http response which is only written
+ * by the container thread, status and headers set by the task are kept here and not sent.
+ * Only URL encoding reaches the wrapped response, every method changing it is overridden.
+ * <br>
+ * The body of a batch is the json array of the invocation responses, a task writing to the body itself
+ * (e.g. a streaming task) fails.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+class BatchInvocationResponse extends HttpServletResponseWrapper
+{
+	private final Map<String, List<String>> headerMap = new LinkedHashMap<>();
+	private final List<Cookie> cookieList = new ArrayList<>();
+	private int status = SC_OK;
+	private String characterEncoding = "UTF-8";
+	private String contentType = null;
+	private Locale locale = Locale.getDefault();
+
+	BatchInvocationResponse(HttpServletResponse response)
+	{
+		super(response);
+	}
+
+	@Override
+	public synchronized void addCookie(Cookie cookie)
+	{
+		cookieList.add(cookie);
+	}
+
+	synchronized List<Cookie> getCookieList()
+	{
+		return new ArrayList<>(cookieList);
+	}
+
+	@Override
+	public synchronized boolean containsHeader(String name)
+	{
+		return findKey(name) != null;
+	}
+
+	@Override
+	public synchronized void sendError(int statusCode, String message)
+	{
+		this.status = statusCode;
+	}
+
+	@Override
+	public synchronized void sendError(int statusCode)
+	{
+		this.status = statusCode;
+	}
+
+	@Override
+	public void sendRedirect(String location)
+	{
+		throw unsupported("redirects");
+	}
+
+	@Override
+	public void setDateHeader(String name, long date)
+	{
+		setHeader(name, String.valueOf(date));
+	}
+
+	@Override
+	public void addDateHeader(String name, long date)
+	{
+		addHeader(name, String.valueOf(date));
+	}
+
+	@Override
+	public synchronized void setHeader(String name, String value)
+	{
+		String key = findKey(name);
+		if (key != null)
+		{
+			headerMap.remove(key);
+		}
+
+		if (value != null)
+		{
+			addHeader(name, value);
+		}
+	}
+
+	@Override
+	public synchronized void addHeader(String name, String value)
+	{
+		String key = findKey(name);
+		headerMap.computeIfAbsent(key == null ? name : key, k -> new ArrayList<>()).add(value);
+	}
+
+	@Override
+	public void setIntHeader(String name, int value)
+	{
+		setHeader(name, String.valueOf(value));
+	}
+
+	@Override
+	public void addIntHeader(String name, int value)
+	{
+		addHeader(name, String.valueOf(value));
+	}
+
+	@Override
+	public synchronized void setStatus(int statusCode)
+	{
+		this.status = statusCode;
+	}
+
+	/**
+	 * Overridden so the deprecated variant does not reach the wrapped response either
+	 */
+	@Override
+	@Deprecated
+	public synchronized void setStatus(int statusCode, String message)
+	{
+		this.status = statusCode;
+	}
+
+	@Override
+	public synchronized int getStatus()
+	{
+		return status;
+	}
+
+	@Override
+	public synchronized String getHeader(String name)
+	{
+		String key = findKey(name);
+		return key == null ? null : headerMap.get(key).get(0);
+	}
+
+	@Override
+	public synchronized Collection<String> getHeaders(String name)
+	{
+		String key = findKey(name);
+		return key == null ? Collections.emptyList() : new ArrayList<>(headerMap.get(key));
+	}
+
+	@Override
+	public synchronized Collection<String> getHeaderNames()
+	{
+		return new ArrayList<>(headerMap.keySet());
+	}
+
+	private String findKey(String name)
+	{
+		for (String key : headerMap.keySet())
+		{
+			if (key.equalsIgnoreCase(name))
+			{
+				return key;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public synchronized String getCharacterEncoding()
+	{
+		return characterEncoding;
+	}
+
+	@Override
+	public synchronized String getContentType()
+	{
+		return contentType;
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream()
+	{
+		throw unsupported("writing the body");
+	}
+
+	@Override
+	public PrintWriter getWriter()
+	{
+		throw unsupported("writing the body");
+	}
+
+	@Override
+	public synchronized void setCharacterEncoding(String characterEncoding)
+	{
+		this.characterEncoding = characterEncoding;
+	}
+
+	@Override
+	public void setContentLength(int length)
+	{
+	}
+
+	@Override
+	public void setContentLengthLong(long length)
+	{
+	}
+
+	@Override
+	public synchronized void setContentType(String contentType)
+	{
+		this.contentType = contentType;
+	}
+
+	@Override
+	public void setBufferSize(int size)
+	{
+	}
+
+	@Override
+	public int getBufferSize()
+	{
+		return 0;
+	}
+
+	@Override
+	public void flushBuffer()
+	{
+	}
+
+	@Override
+	public void resetBuffer()
+	{
+	}
+
+	@Override
+	public boolean isCommitted()
+	{
+		return false;
+	}
+
+	@Override
+	public synchronized void reset()
+	{
+		headerMap.clear();
+		cookieList.clear();
+		status = SC_OK;
+	}
+
+	@Override
+	public synchronized void setLocale(Locale locale)
+	{
+		this.locale = locale;
+	}
+
+	@Override
+	public synchronized Locale getLocale()
+	{
+		return locale;
+	}
+
+	private static IllegalStateException unsupported(String feature)
+	{
+		return new IllegalStateException("Tasks of a parallel batch do not support " + feature);
+	}
+}
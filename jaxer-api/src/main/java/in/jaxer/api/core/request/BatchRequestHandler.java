@@ -0,0 +1,424 @@
+package in.jaxer.api.core.request;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import in.jaxer.api.annotations.RestTask;
+import in.jaxer.api.constants.RequestConstant;
+import in.jaxer.api.core.background.BackgroundTaskExecutor;
+import in.jaxer.api.core.database.TaskDataSource;
+import in.jaxer.api.core.metrics.ApiMetricsRegistry;
+import in.jaxer.api.core.metrics.RequestMetrics;
+import in.jaxer.api.dtos.ApiResponseDto;
+import in.jaxer.api.exceptions.ApiException;
+import in.jaxer.api.listners.Authentication;
+import in.jaxer.core.constants.ContentType;
+import in.jaxer.core.utilities.JValidator;
+import in.jaxer.core.utilities.JsonHandler;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.log4j.Log4j2;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/**
+ * Executes more than one rest task in a single http request.
+ * <br>
+ * Request body is an envelope carrying the common parameters and a list of task invocations
+ * <pre>
+ * {
+ *   "API_REQUEST_SOURCE": "ANDROID",
+ *   "API_VERSION": "1",
+ *   "API_ACCESS_TOKEN": "...",
+ *   "API_BATCH_MODE": "PARALLEL",
+ *   "API_BATCH_CONCURRENCY": 4,
+ *   "API_BATCH": [
+ *     {"API_TASK_NAME": "Profile"},
+ *     {"API_TASK_NAME": "Notifications", "page": "1"}
+ *   ]
+ * }
+ * </pre>
+ * Response is a json array of {@link ApiResponseDto}, one per invocation in request order.
+ * <ul>
+ *     <li>{@link RequestConstant#API_BATCH_MODE_SEQUENTIAL} (default) - tasks run one after another using the request
+ *     connection, or a connection borrowed from the {@link TaskDataSource} for the whole batch, in a single transaction,
+ *     the first failure rolls back the batch and skips the remaining tasks. Without either the tasks run without
+ *     a connection and each one runs regardless of the others</li>
+ *     <li>{@link RequestConstant#API_BATCH_MODE_PARALLEL} - tasks run independently on the executor, at most
+ *     {@link RequestConstant#API_BATCH_CONCURRENCY} at a time, each borrowing its own connection from the {@link TaskDataSource}
+ *     (<code>null</code> connection when none is configured), responses are streamed as soon as they are ready.
+ *     Each task sees a copy of the http request and a response of its own, headers and status it sets are not sent
+ *     and it cannot read the body or write to the response</li>
+ * </ul>
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Log4j2
+public class BatchRequestHandler
+{
+	public static final int DEFAULT_MAX_BATCH_SIZE = 25;
+	public static final int DEFAULT_MAX_CONCURRENCY = 4;
+
+	private final String basePackage;
+	private final Class<? extends Annotation> taskClass;
+	private final ExecutorService executorService;
+
+	@Getter
+	@Setter
+	private BackgroundTaskExecutor backgroundTaskExecutor = null;
+
+	/**
+	 * Integrated mode of the batches executed without a connection, see {@link AbstractRequestHandler#getTaskDataSource()}
+	 */
+	@Getter
+	@Setter
+	private TaskDataSource taskDataSource = null;
+
+	@Getter
+	@Setter
+	private ExecutorService forkExecutor = null;
+
+	/**
+	 * Every invocation is published as its own request, <code>null</code> disables the metrics
+	 */
+	@Getter
+	@Setter
+	private ApiMetricsRegistry metricsRegistry = null;
+
+	@Getter
+	@Setter
+	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+	@Getter
+	@Setter
+	private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+	public BatchRequestHandler(String basePackage, ExecutorService executorService)
+	{
+		this(basePackage, RestTask.class, executorService);
+	}
+
+	public BatchRequestHandler(String basePackage, Class<? extends Annotation> taskClass, ExecutorService executorService)
+	{
+		this.basePackage = basePackage;
+		this.taskClass = taskClass;
+		this.executorService = executorService;
+	}
+
+	@SuppressWarnings("unchecked")
+	public void processRequest(Connection connection, HttpServletRequest request, HttpServletResponse response, Authentication authentication) throws IOException
+	{
+		response.setContentType(ContentType.APPLICATION_JSON);
+		response.setCharacterEncoding(ContentType.UTF_8);
+
+		Gson gson = JsonHandler.getGson();
+		try (JsonWriter jsonWriter = gson.newJsonWriter(response.getWriter()))
+		{
+			jsonWriter.beginArray();
+
+			List<HashMap<String, Object>> invocationList;
+			try
+			{
+				String requestBody = request.getReader().lines().collect(Collectors.joining(System.lineSeparator()));
+				log.debug("requestBody: {}", requestBody);
+				JValidator.throwWhenBlank(requestBody, () -> new ApiException("Batch request body is missing"));
+
+				invocationList = getInvocationList(gson.fromJson(requestBody, HashMap.class));
+			} catch (Exception exception)
+			{
+				log.error("Exception", exception);
+				write(gson, jsonWriter, toErrorResponse(exception));
+				jsonWriter.endArray();
+				return;
+			}
+
+			if (RequestConstant.API_BATCH_MODE_PARALLEL.equalsIgnoreCase(getBatchMode(invocationList)))
+			{
+				processParallel(invocationList, request, response, authentication, gson, jsonWriter);
+			} else
+			{
+				processSequential(connection, invocationList, request, response, authentication, gson, jsonWriter);
+			}
+
+			jsonWriter.endArray();
+		}
+	}
+
+	private String getBatchMode(List<HashMap<String, Object>> invocationList)
+	{
+		Object batchMode = invocationList.get(0).get(RequestConstant.API_BATCH_MODE);
+		return batchMode == null ? RequestConstant.API_BATCH_MODE_SEQUENTIAL : batchMode.toString();
+	}
+
+	/**
+	 * Merges envelope parameters into every invocation, invocation parameters take precedence
+	 */
+	@SuppressWarnings("unchecked")
+	private List<HashMap<String, Object>> getInvocationList(HashMap<String, Object> envelope)
+	{
+		Object batch = envelope.remove(RequestConstant.API_BATCH);
+		if (!(batch instanceof List) || JValidator.isBlank((List<?>) batch))
+		{
+			throw new ApiException(RequestConstant.API_BATCH + " is missing");
+		}
+
+		List<?> batchList = (List<?>) batch;
+		if (batchList.size() > maxBatchSize)
+		{
+			throw new ApiException(RequestConstant.API_BATCH + " cannot have more than " + maxBatchSize + " tasks");
+		}
+
+		List<HashMap<String, Object>> invocationList = new ArrayList<>(batchList.size());
+		for (Object invocation : batchList)
+		{
+			if (!(invocation instanceof Map))
+			{
+				throw new ApiException(RequestConstant.API_BATCH + " must contain json objects");
+			}
+
+			HashMap<String, Object> requestMap = new HashMap<>(envelope);
+			requestMap.putAll((Map<String, Object>) invocation);
+			invocationList.add(requestMap);
+		}
+
+		return invocationList;
+	}
+
+	private int getConcurrency(HashMap<String, Object> envelope)
+	{
+		Object concurrency = envelope.get(RequestConstant.API_BATCH_CONCURRENCY);
+		if (concurrency == null)
+		{
+			return maxConcurrency;
+		}
+
+		int requested = concurrency instanceof Number ? ((Number) concurrency).intValue() : Integer.parseInt(concurrency.toString());
+		return Math.max(1, Math.min(requested, maxConcurrency));
+	}
+
+	private void processSequential(Connection connection, List<HashMap<String, Object>> invocationList,
+								   HttpServletRequest request, HttpServletResponse response, Authentication authentication,
+								   Gson gson, JsonWriter jsonWriter) throws IOException
+	{
+		if (connection != null)
+		{
+			write(gson, jsonWriter, processInTransaction(connection, null, invocationList, request, response, authentication));
+			return;
+		}
+
+		if (taskDataSource == null)
+		{
+			for (HashMap<String, Object> requestMap : invocationList)
+			{
+				write(gson, jsonWriter, execute(null, requestMap, request, response, authentication));
+			}
+			return;
+		}
+
+		// one writable connection for the whole batch, so it commits or rolls back as a whole
+		List<ApiResponseDto> responseList;
+		try (TaskDataSource.Lease lease = taskDataSource.borrow(false))
+		{
+			responseList = processInTransaction(lease.getConnection(), lease, invocationList, request, response, authentication);
+		} catch (Exception exception)
+		{
+			log.error("Exception", exception);
+			responseList = Collections.singletonList(toErrorResponse(exception));
+		}
+		write(gson, jsonWriter, responseList);
+	}
+
+	/**
+	 * Runs the invocations one after another in a transaction of the connection, the first failure rolls back the batch
+	 *
+	 * @param lease commits the connection when it was borrowed, null for the request connection
+	 * @return responses in request order, buffered because a later failure rolls back earlier tasks
+	 */
+	private List<ApiResponseDto> processInTransaction(Connection connection, TaskDataSource.Lease lease, List<HashMap<String, Object>> invocationList,
+													  HttpServletRequest request, HttpServletResponse response, Authentication authentication)
+	{
+		List<ApiResponseDto> responseList = new ArrayList<>(invocationList.size());
+		int failureIndex = -1;
+
+		try
+		{
+			boolean autoCommit = connection.getAutoCommit();
+			if (autoCommit)
+			{
+				connection.setAutoCommit(false);
+			}
+
+			try
+			{
+				for (HashMap<String, Object> requestMap : invocationList)
+				{
+					if (failureIndex != -1)
+					{
+						responseList.add(toErrorResponse(new ApiException("Skipped, batch rolled back")));
+						continue;
+					}
+
+					RequestMetrics requestMetrics = new RequestMetrics();
+					try
+					{
+						responseList.add(newRequestHandler(requestMetrics).processRequest(connection, requestMap, request, response, authentication));
+					} catch (Exception exception)
+					{
+						log.error("Exception", exception);
+						failureIndex = responseList.size();
+						responseList.add(toErrorResponse(exception));
+					}
+					requestMetrics.finish(responseList.get(responseList.size() - 1).errorDto, metricsRegistry);
+				}
+
+				if (failureIndex == -1)
+				{
+					if (lease != null)
+					{
+						lease.commit();
+					} else
+					{
+						connection.commit();
+					}
+				} else
+				{
+					// a borrowed connection is rolled back by closing its lease
+					if (lease == null)
+					{
+						connection.rollback();
+					}
+
+					// work of the tasks before the failure is rolled back too
+					for (int i = 0; i < failureIndex; i++)
+					{
+						responseList.set(i, toErrorResponse(new ApiException("Rolled back, batch failed")));
+					}
+				}
+			} finally
+			{
+				if (autoCommit)
+				{
+					connection.setAutoCommit(true);
+				}
+			}
+		} catch (Exception exception)
+		{
+			log.error("Exception", exception);
+			responseList.clear();
+			responseList.add(toErrorResponse(exception));
+		}
+		return responseList;
+	}
+
+	private void processParallel(List<HashMap<String, Object>> invocationList,
+								 HttpServletRequest request, HttpServletResponse response, Authentication authentication,
+								 Gson gson, JsonWriter jsonWriter) throws IOException
+	{
+		Semaphore semaphore = new Semaphore(getConcurrency(invocationList.get(0)));
+		List<CompletableFuture<ApiResponseDto>> futureList = new ArrayList<>(invocationList.size());
+
+		for (HashMap<String, Object> requestMap : invocationList)
+		{
+			try
+			{
+				semaphore.acquire();
+			} catch (InterruptedException exception)
+			{
+				Thread.currentThread().interrupt();
+				futureList.add(CompletableFuture.completedFuture(toErrorResponse(exception)));
+				continue;
+			}
+
+			try
+			{
+				// taken on this thread, the invocations never touch the container request and response
+				BatchInvocationRequest invocationRequest = new BatchInvocationRequest(request);
+				BatchInvocationResponse invocationResponse = new BatchInvocationResponse(response);
+
+				futureList.add(CompletableFuture
+						// the handler borrows the connection of the invocation when a task data source is configured
+						.supplyAsync(() -> execute(null, requestMap, invocationRequest, invocationResponse, authentication), executorService)
+						.whenComplete((apiResponseDto, throwable) -> semaphore.release()));
+			} catch (Exception exception)
+			{
+				semaphore.release();
+				futureList.add(CompletableFuture.completedFuture(toErrorResponse(exception)));
+			}
+		}
+
+		// written in request order, each one as soon as it and its predecessors are done
+		for (CompletableFuture<ApiResponseDto> future : futureList)
+		{
+			ApiResponseDto apiResponseDto;
+			try
+			{
+				apiResponseDto = future.get();
+			} catch (Exception exception)
+			{
+				apiResponseDto = toErrorResponse(exception);
+			}
+			write(gson, jsonWriter, apiResponseDto);
+		}
+	}
+
+	private ApiResponseDto execute(Connection connection, HashMap<String, Object> requestMap, HttpServletRequest request, HttpServletResponse response, Authentication authentication)
+	{
+		RequestMetrics requestMetrics = new RequestMetrics();
+		ApiResponseDto apiResponseDto;
+		try
+		{
+			apiResponseDto = newRequestHandler(requestMetrics).processRequest(connection, requestMap, request, response, authentication);
+		} catch (Exception exception)
+		{
+			log.error("Exception", exception);
+			apiResponseDto = toErrorResponse(exception);
+		}
+
+		requestMetrics.finish(apiResponseDto.errorDto, metricsRegistry);
+		return apiResponseDto;
+	}
+
+	private RestRequestHandler newRequestHandler(RequestMetrics requestMetrics)
+	{
+		RestRequestHandler requestHandler = new RestRequestHandler(basePackage, taskClass);
+		requestHandler.setBackgroundTaskExecutor(backgroundTaskExecutor);
+		requestHandler.setRequestMetrics(requestMetrics);
+		requestHandler.setTaskDataSource(taskDataSource);
+		requestHandler.setForkExecutor(forkExecutor);
+		return requestHandler;
+	}
+
+	private ApiResponseDto toErrorResponse(Exception exception)
+	{
+		ApiResponseDto apiResponseDto = new ApiResponseDto();
+		apiResponseDto.addErrorDto(exception);
+		return apiResponseDto;
+	}
+
+	private void write(Gson gson, JsonWriter jsonWriter, ApiResponseDto apiResponseDto) throws IOException
+	{
+		gson.toJson(apiResponseDto, ApiResponseDto.class, jsonWriter);
+		jsonWriter.flush();
+	}
+
+	private void write(Gson gson, JsonWriter jsonWriter, List<ApiResponseDto> responseList) throws IOException
+	{
+		for (ApiResponseDto apiResponseDto : responseList)
+		{
+			write(gson, jsonWriter, apiResponseDto);
+		}
+	}
+}
@@ -2,11 +2,14 @@ package in.jaxer.api.core.request;
 
 import in.jaxer.api.annotations.MultipartTask;
 import in.jaxer.api.constants.RequestConstant;
+import in.jaxer.api.core.multipart.ContentStore;
 import in.jaxer.api.core.tasks.AbstractMultipartTask;
 import in.jaxer.api.core.tasks.AbstractTask;
 import in.jaxer.api.exceptions.ApiException;
 import in.jaxer.api.listners.Authentication;
 import in.jaxer.core.utilities.JValidator;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
 
 import java.lang.annotation.Annotation;
@@ -20,6 +23,10 @@ import java.sql.Connection;
 @Log4j2
 public class MultipartRequestHandler extends AbstractRequestHandler
 {
+	@Getter
+	@Setter
+	private ContentStore contentStore = null;
+
 	public MultipartRequestHandler(String basePackage, Class<? extends Annotation> taskClass)
 	{
 		super(basePackage, taskClass);
@@ -30,23 +37,28 @@ public class MultipartRequestHandler extends AbstractRequestHandler
 	{
 		final String requestedMultipartTaskName = getRequestResponseDto().getTaskName();
 		log.debug("requestedMultipartTaskName: {}", requestedMultipartTaskName);
-		JValidator.throwWhenBlank(requestedMultipartTaskName, "Multipart task name cannot be empty");
+		JValidator.throwWhenBlank(requestedMultipartTaskName, () -> new ApiException("Multipart task name cannot be empty"));
 
 		Class<? extends Annotation> clazz = getRequestedTask(requestedMultipartTaskName);
-		JValidator.throwWhenNull(clazz, "Request Multipart task [" + requestedMultipartTaskName + "] not found");
+		JValidator.throwWhenNull(clazz, () -> new ApiException("Request Multipart task [" + requestedMultipartTaskName + "] not found"));
 
 		MultipartTask multipartTask = clazz.getAnnotation(MultipartTask.class);
 
+		throttle(clazz, false);
+
 		if (!multipartTask.isPublicTask())
 		{
-			if (authentication == null)
-			{
-				throw new NullPointerException("Please implement [" + Authentication.class.getName() + "]");
-			}
-			authentication.doAuthentication(connection, getRequestResponseDto());
+			authenticate(connection, authentication);
+			authorize(multipartTask.allowedRole());
 		}
 
-		return (AbstractMultipartTask) clazz.newInstance();
+		throttle(clazz, true);
+
+		borrowConnection(connection, multipartTask.requiresConnection(), multipartTask.readOnly());
+
+		AbstractMultipartTask abstractMultipartTask = newTask(clazz);
+		abstractMultipartTask.setContentStore(contentStore);
+		return abstractMultipartTask;
 	}
 
 	@Override
@@ -2,7 +2,7 @@ package in.jaxer.api.core.request;
 
 import in.jaxer.api.annotations.RestTask;
 import in.jaxer.api.constants.RequestConstant;
-import in.jaxer.api.core.tasks.AbstractApiTask;
+import in.jaxer.api.core.tasks.AbstractStreamingTask;
 import in.jaxer.api.core.tasks.AbstractTask;
 import in.jaxer.api.exceptions.ApiException;
 import in.jaxer.api.listners.Authentication;
@@ -29,23 +29,34 @@ public class RestRequestHandler extends AbstractRequestHandler
 	{
 		final String requestedApiTaskName = getRequestResponseDto().getTaskName();
 		log.debug("requestedApiTaskName: {}", requestedApiTaskName);
-		JValidator.throwWhenBlank(requestedApiTaskName, "Api task name cannot be empty");
+		JValidator.throwWhenBlank(requestedApiTaskName, () -> new ApiException("Api task name cannot be empty"));
 
 		Class<? extends Annotation> clazz = getRequestedTask(requestedApiTaskName);
-		JValidator.throwWhenNull(clazz, "Request ApiTask [" + requestedApiTaskName + "] not found");
+		JValidator.throwWhenNull(clazz, () -> new ApiException("Request ApiTask [" + requestedApiTaskName + "] not found"));
 
 		RestTask apiTask = clazz.getAnnotation(RestTask.class);
 
+		throttle(clazz, false);
+
 		if (!apiTask.isPublicApi())
 		{
-			if (authentication == null)
-			{
-				throw new NullPointerException("Please implement [" + Authentication.class.getName() + "]");
-			}
-			authentication.doAuthentication(connection, getRequestResponseDto());
+			authenticate(connection, authentication);
+			authorize(apiTask.allowedRole());
+		}
+
+		throttle(clazz, true);
+
+		// streamed responses cannot be stored, replayed responses skip the task
+		if (!AbstractStreamingTask.class.isAssignableFrom(clazz) && replayIdempotentResponse(clazz))
+		{
+			return null;
 		}
 
-		return (AbstractApiTask) clazz.newInstance();
+		borrowConnection(connection, apiTask.requiresConnection(), apiTask.readOnly());
+
+		// AbstractApiTask or AbstractStreamingTask
+		AbstractTask abstractTask = newTask(clazz);
+		return abstractTask;
 	}
 
 	@Override
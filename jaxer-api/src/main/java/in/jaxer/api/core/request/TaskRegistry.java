@@ -0,0 +1,106 @@
+package in.jaxer.api.core.request;
+
+import in.jaxer.core.utilities.PackageScanner;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Task classes of a base package, scanned once per package and annotation for the lifetime of the class loader,
+ * with their names and no-arg constructors resolved up front so dispatching a request is a map lookup
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Log4j2
+public final class TaskRegistry
+{
+	private static final ConcurrentHashMap<String, TaskRegistry> taskRegistryMap = new ConcurrentHashMap<>();
+
+	@Getter
+	private final Set<Class<? extends Annotation>> taskList;
+
+	private final Map<String, Class<? extends Annotation>> taskByName;
+	private final Map<Class<?>, Constructor<?>> constructorMap;
+
+	private TaskRegistry(Set<Class<? extends Annotation>> taskList)
+	{
+		Map<String, Class<? extends Annotation>> taskByName = new HashMap<>(taskList.size() * 2);
+		Map<Class<?>, Constructor<?>> constructorMap = new HashMap<>(taskList.size() * 2);
+
+		for (Class<? extends Annotation> clazz : taskList)
+		{
+			Class<? extends Annotation> existing = taskByName.putIfAbsent(clazz.getSimpleName(), clazz);
+			if (existing != null)
+			{
+				log.warn("duplicate task name [{}], [{}] is ignored in favour of [{}]", clazz.getSimpleName(), clazz.getName(), existing.getName());
+			}
+
+			try
+			{
+				Constructor<?> constructor = clazz.getDeclaredConstructor();
+				constructor.setAccessible(true);
+				constructorMap.put(clazz, constructor);
+			} catch (NoSuchMethodException exception)
+			{
+				log.warn("task [{}] has no no-arg constructor", clazz.getName());
+			}
+		}
+
+		this.taskList = Collections.unmodifiableSet(taskList);
+		this.taskByName = taskByName;
+		this.constructorMap = constructorMap;
+	}
+
+	public static TaskRegistry of(String basePackage, Class<? extends Annotation> taskClass)
+	{
+		return taskRegistryMap.computeIfAbsent(basePackage + '|' + taskClass.getName(), key ->
+		{
+			log.debug("initializing taskList, basePackage: {}, taskClass: {}", basePackage, taskClass);
+			return new TaskRegistry(PackageScanner.getClasses(basePackage, taskClass));
+		});
+	}
+
+	/**
+	 * Forgets every scanned package, next request scans again
+	 */
+	public static void clear()
+	{
+		taskRegistryMap.clear();
+	}
+
+	public Class<? extends Annotation> getTask(String taskName)
+	{
+		return taskByName.get(taskName);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T newInstance(Class<?> clazz) throws ReflectiveOperationException
+	{
+		Constructor<?> constructor = constructorMap.get(clazz);
+		if (constructor == null)
+		{
+			throw new InstantiationException("Unable to create task [" + clazz.getName() + "], no-arg constructor is required");
+		}
+
+		try
+		{
+			return (T) constructor.newInstance();
+		} catch (InvocationTargetException exception)
+		{
+			if (exception.getCause() instanceof RuntimeException)
+			{
+				throw (RuntimeException) exception.getCause();
+			}
+			throw exception;
+		}
+	}
+}
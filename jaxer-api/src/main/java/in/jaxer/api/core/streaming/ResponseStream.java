@@ -0,0 +1,305 @@
+package in.jaxer.api.core.streaming;
+
+import com.google.gson.Gson;
+import in.jaxer.core.HttpUtils;
+import in.jaxer.core.constants.ContentType;
+import in.jaxer.core.utilities.JValidator;
+import in.jaxer.core.utilities.JsonHandler;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Incremental response of an {@link AbstractStreamingTask}, every {@link #send(Object)} is written and flushed
+ * as one json line or server-sent event, so the client and the proxies in between see bytes right away.
+ * <br>
+ * When the request is in async mode the writes are non-blocking, driven by a {@link WriteListener},
+ * items are queued up to {@link #getMaxBufferedBytes()} and the task is held in {@link #send(Object)}
+ * until the client catches up, or fails after {@link #getWriteTimeoutMillis()}.
+ * Otherwise every item is written with a blocking write on the calling thread.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Log4j2
+public class ResponseStream implements Closeable
+{
+	public static final long DEFAULT_MAX_BUFFERED_BYTES = 1024 * 1024L;
+	public static final long DEFAULT_WRITE_TIMEOUT_MILLIS = 30 * 1000L;
+
+	private static final byte[] NEW_LINE = {'\n'};
+	private static final byte[] SSE_HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+	@Getter
+	private final StreamFormat streamFormat;
+
+	@Getter
+	private final long maxBufferedBytes;
+
+	@Getter
+	private final long writeTimeoutMillis;
+
+	@Getter
+	private final boolean nonBlocking;
+
+	private final ServletOutputStream outputStream;
+	private final Gson gson = JsonHandler.getGson();
+
+	private final ArrayDeque<byte[]> chunkQueue = new ArrayDeque<>();
+	private long bufferedBytes = 0;
+	private boolean flushPending = false;
+	private boolean closed = false;
+	private IOException failure = null;
+
+	private ResponseStream(ServletOutputStream outputStream, StreamFormat streamFormat, long maxBufferedBytes, long writeTimeoutMillis, boolean nonBlocking)
+	{
+		this.outputStream = outputStream;
+		this.streamFormat = streamFormat;
+		this.maxBufferedBytes = maxBufferedBytes;
+		this.writeTimeoutMillis = writeTimeoutMillis;
+		this.nonBlocking = nonBlocking;
+	}
+
+	/**
+	 * Commits the response headers and switches the output stream to non-blocking mode when the request is in async mode
+	 */
+	public static ResponseStream open(HttpServletRequest request, HttpServletResponse response, StreamFormat streamFormat,
+									  long maxBufferedBytes, long writeTimeoutMillis) throws IOException
+	{
+		JValidator.throwWhenNull(streamFormat, "streamFormat cannot be null");
+		JValidator.throwWhenTrue(response.isCommitted(), "response is already committed");
+
+		response.setContentType(streamFormat.getContentType());
+		response.setCharacterEncoding(ContentType.UTF_8);
+		response.setHeader(HttpUtils.Header.CACHE_CONTROL, "no-cache");
+		// nginx buffers proxied responses by default, which would hold the stream back
+		response.setHeader("X-Accel-Buffering", "no");
+
+		boolean nonBlocking = request.isAsyncStarted();
+		if (nonBlocking)
+		{
+			// a stream lasts as long as it produces, slow clients are caught by the write timeout instead
+			request.getAsyncContext().setTimeout(0);
+		}
+
+		// headers go out before the first item, the write listener takes over the stream afterwards
+		response.flushBuffer();
+
+		ResponseStream responseStream = new ResponseStream(response.getOutputStream(), streamFormat, maxBufferedBytes, writeTimeoutMillis, nonBlocking);
+		if (nonBlocking)
+		{
+			responseStream.outputStream.setWriteListener(responseStream.new QueueWriteListener());
+		}
+		return responseStream;
+	}
+
+	public void send(Object data) throws IOException
+	{
+		send(null, data);
+	}
+
+	/**
+	 * @param event name of the server-sent event, with {@link StreamFormat#NDJSON} the data is sent as it is.
+	 *              A line break would end the field and let the name inject fields or events of its own, so it is refused
+	 */
+	public void send(String event, Object data) throws IOException
+	{
+		JValidator.throwWhenTrue(event != null && (event.indexOf('\n') != -1 || event.indexOf('\r') != -1),
+				() -> new IllegalArgumentException("event name cannot contain line breaks"));
+
+		String json = gson.toJson(data);
+
+		if (streamFormat == StreamFormat.NDJSON)
+		{
+			write((json + "\n").getBytes(StandardCharsets.UTF_8));
+			return;
+		}
+
+		StringBuilder stringBuilder = new StringBuilder(json.length() + 32);
+		if (JValidator.isNotBlank(event))
+		{
+			stringBuilder.append("event: ").append(event).append('\n');
+		}
+		stringBuilder.append("data: ").append(json).append("\n\n");
+		write(stringBuilder.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Keeps idle connections open through proxies, an SSE comment or an empty line
+	 */
+	public void heartbeat() throws IOException
+	{
+		write(streamFormat == StreamFormat.SSE ? SSE_HEARTBEAT : NEW_LINE);
+	}
+
+	/**
+	 * Waits until everything sent is written, the response itself is completed by the controller
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (!nonBlocking)
+		{
+			closed = true;
+			outputStream.flush();
+			return;
+		}
+
+		synchronized (this)
+		{
+			closed = true;
+			drain();
+
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(writeTimeoutMillis);
+			while (failure == null && (!chunkQueue.isEmpty() || flushPending))
+			{
+				await(deadline);
+			}
+
+			throwWhenFailed();
+		}
+	}
+
+	private void write(byte[] chunk) throws IOException
+	{
+		if (!nonBlocking)
+		{
+			throwWhenClosed();
+			outputStream.write(chunk);
+			outputStream.flush();
+			return;
+		}
+
+		synchronized (this)
+		{
+			throwWhenClosed();
+			throwWhenFailed();
+
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(writeTimeoutMillis);
+			while (bufferedBytes > 0 && bufferedBytes + chunk.length > maxBufferedBytes)
+			{
+				await(deadline);
+				throwWhenFailed();
+			}
+
+			chunkQueue.add(chunk);
+			bufferedBytes += chunk.length;
+
+			drain();
+			throwWhenFailed();
+		}
+	}
+
+	/**
+	 * Writes queued chunks for as long as the container accepts them without blocking,
+	 * when it stops accepting {@link WriteListener#onWritePossible()} resumes the draining
+	 */
+	private void drain()
+	{
+		try
+		{
+			while (failure == null && outputStream.isReady())
+			{
+				byte[] chunk = chunkQueue.poll();
+				if (chunk != null)
+				{
+					outputStream.write(chunk);
+					bufferedBytes -= chunk.length;
+					flushPending = true;
+				} else if (flushPending)
+				{
+					outputStream.flush();
+					flushPending = false;
+				} else
+				{
+					break;
+				}
+
+				notifyAll();
+			}
+		} catch (IOException exception)
+		{
+			fail(exception);
+		}
+	}
+
+	private void await(long deadline) throws IOException
+	{
+		long remaining = deadline - System.nanoTime();
+		if (remaining <= 0)
+		{
+			fail(new IOException("Client did not read the stream for " + writeTimeoutMillis + " ms"));
+			throw failure;
+		}
+
+		try
+		{
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+		} catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the client");
+		}
+	}
+
+	private void fail(Throwable throwable)
+	{
+		if (failure == null)
+		{
+			failure = throwable instanceof IOException ? (IOException) throwable : new IOException(throwable);
+			log.debug("response stream failed", throwable);
+		}
+
+		chunkQueue.clear();
+		bufferedBytes = 0;
+		flushPending = false;
+		notifyAll();
+	}
+
+	private void throwWhenFailed() throws IOException
+	{
+		if (failure != null)
+		{
+			throw failure;
+		}
+	}
+
+	private void throwWhenClosed() throws IOException
+	{
+		if (closed)
+		{
+			throw new IOException("Response stream is closed");
+		}
+	}
+
+	private class QueueWriteListener implements WriteListener
+	{
+		@Override
+		public void onWritePossible()
+		{
+			synchronized (ResponseStream.this)
+			{
+				drain();
+			}
+		}
+
+		@Override
+		public void onError(Throwable throwable)
+		{
+			synchronized (ResponseStream.this)
+			{
+				fail(throwable);
+			}
+		}
+	}
+}
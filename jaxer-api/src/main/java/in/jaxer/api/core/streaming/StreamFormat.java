@@ -0,0 +1,42 @@
+package in.jaxer.api.core.streaming;
+
+import in.jaxer.core.HttpUtils;
+import lombok.Getter;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Framing of a {@link ResponseStream}
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public enum StreamFormat
+{
+	/**
+	 * One json document per line
+	 */
+	NDJSON("application/x-ndjson"),
+
+	/**
+	 * Server-sent events, json documents as <code>data</code> of the events
+	 */
+	SSE("text/event-stream");
+
+	@Getter
+	private final String contentType;
+
+	StreamFormat(String contentType)
+	{
+		this.contentType = contentType;
+	}
+
+	/**
+	 * {@link #SSE} when the client accepts <code>text/event-stream</code>, {@link #NDJSON} otherwise
+	 */
+	public static StreamFormat of(HttpServletRequest request)
+	{
+		String accept = request.getHeader(HttpUtils.Header.ACCEPT);
+		return accept != null && accept.contains(SSE.contentType) ? SSE : NDJSON;
+	}
+}
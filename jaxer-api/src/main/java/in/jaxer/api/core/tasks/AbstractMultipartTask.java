@@ -1,6 +1,12 @@
 package in.jaxer.api.core.tasks;
 
+import in.jaxer.api.core.multipart.ContentStore;
+import in.jaxer.api.core.multipart.MultipartUploadPipeline;
+import in.jaxer.api.dtos.UploadedMediaDto;
+import in.jaxer.api.exceptions.JaxerApiException;
 import in.jaxer.core.utilities.JValidator;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
 
 import javax.servlet.http.Part;
@@ -20,6 +26,10 @@ public abstract class AbstractMultipartTask extends AbstractTask
 
 	protected int duplicateMediaCount = 0;
 
+	@Getter
+	@Setter
+	private ContentStore contentStore = null;
+
 	public abstract void doMultipartTask(Connection connection) throws Exception;
 
 	@Override
@@ -57,6 +67,41 @@ public abstract class AbstractMultipartTask extends AbstractTask
 		return parts.get(0);
 	}
 
+	/**
+	 * Streams every file part once into the {@link ContentStore}, hashing and deduplicating on the way,
+	 * {@link #uniqueMediaCount} and {@link #duplicateMediaCount} are updated accordingly
+	 *
+	 * @since 2.0.0
+	 */
+	protected List<UploadedMediaDto> storeParts() throws Exception
+	{
+		if (contentStore == null)
+		{
+			throw new JaxerApiException("ContentStore is not configured, override AbstractMultipartController.createContentStore()");
+		}
+
+		MultipartUploadPipeline multipartUploadPipeline = new MultipartUploadPipeline(contentStore);
+		List<Part> partList = getPartList();
+		List<UploadedMediaDto> uploadedMediaList = new ArrayList<>(partList.size());
+
+		for (Part part : partList)
+		{
+			UploadedMediaDto uploadedMediaDto = multipartUploadPipeline.store(part);
+
+			if (uploadedMediaDto.duplicate)
+			{
+				duplicateMediaCount++;
+			} else
+			{
+				uniqueMediaCount++;
+			}
+
+			uploadedMediaList.add(uploadedMediaDto);
+		}
+
+		return uploadedMediaList;
+	}
+
 	private List<Part> getPartList() throws Exception
 	{
 		List<Part> partList = new ArrayList<>();
@@ -77,25 +122,4 @@ public abstract class AbstractMultipartTask extends AbstractTask
 
 		return partList;
 	}
-
-//	@Deprecated
-//	private String getPartChecksum(Part part) throws Exception
-//	{
-//		InputStream inputStream = new BufferedInputStream(part.getInputStream());
-//		inputStream.mark((int) part.getSize());
-//		return HashH.getFileChecksum(inputStream);
-//	}
-//	@Deprecated
-//	private Dimension getImageDimension(Part part) throws Exception
-//	{
-//		InputStream inputStream = new BufferedInputStream(part.getInputStream());
-//
-//		Dimension dimension = Utilities.getImageDimension(inputStream);
-//		if (dimension == null)
-//		{
-//			dimension = new Dimension(0, 0);
-//		}
-//
-//		return dimension;
-//	}
 }
@@ -0,0 +1,86 @@
+package in.jaxer.api.core.tasks;
+
+import in.jaxer.api.core.streaming.ResponseStream;
+import in.jaxer.api.core.streaming.StreamFormat;
+import in.jaxer.api.dtos.ApiResponseDto;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.IOException;
+import java.sql.Connection;
+
+/**
+ * Task that sends its result incrementally instead of one {@link ApiResponseDto} at the end,
+ * as json lines or as server-sent events when the client accepts <code>text/event-stream</code>
+ * <pre>
+ * &#64;RestTask
+ * public class ReportTask extends AbstractStreamingTask
+ * {
+ *     public void doStreamingTask(Connection connection, ResponseStream responseStream) throws Exception
+ *     {
+ *         for (ReportRowDto reportRowDto : reportDao.getRows(connection))
+ *         {
+ *             responseStream.send("row", reportRowDto);
+ *         }
+ *     }
+ * }
+ * </pre>
+ * Sends only apply backpressure when the controller runs in async mode, see {@link ResponseStream}.
+ * A failing task ends the stream with an <code>error</code> event carrying the {@link ApiResponseDto} of the failure.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Log4j2
+public abstract class AbstractStreamingTask extends AbstractTask
+{
+	public static final String ERROR_EVENT = "error";
+
+	public abstract void doStreamingTask(Connection connection, ResponseStream responseStream) throws Exception;
+
+	protected StreamFormat getStreamFormat()
+	{
+		return StreamFormat.of(getHttpServletRequest());
+	}
+
+	protected long getMaxBufferedBytes()
+	{
+		return ResponseStream.DEFAULT_MAX_BUFFERED_BYTES;
+	}
+
+	protected long getWriteTimeoutMillis()
+	{
+		return ResponseStream.DEFAULT_WRITE_TIMEOUT_MILLIS;
+	}
+
+	@Override
+	public void doTask(Connection connection) throws Exception
+	{
+		// a failure to close is added as suppressed to the failure of the task instead of replacing it
+		try (ResponseStream responseStream = ResponseStream.open(getHttpServletRequest(), getRequestResponseDto().getHttpServletResponse(),
+				getStreamFormat(), getMaxBufferedBytes(), getWriteTimeoutMillis()))
+		{
+			try
+			{
+				doStreamingTask(connection, responseStream);
+			} catch (Exception exception)
+			{
+				sendError(responseStream, exception);
+				throw exception;
+			}
+		}
+	}
+
+	private void sendError(ResponseStream responseStream, Exception exception)
+	{
+		ApiResponseDto apiResponseDto = new ApiResponseDto();
+		apiResponseDto.addErrorDto(exception);
+
+		try
+		{
+			responseStream.send(ERROR_EVENT, apiResponseDto);
+		} catch (IOException ioException)
+		{
+			log.debug("unable to send error event, client is gone", ioException);
+		}
+	}
+}
@@ -1,7 +1,14 @@
 package in.jaxer.api.core.tasks;
 
+import com.google.common.util.concurrent.MoreExecutors;
 import in.jaxer.api.constants.RequestConstant;
+import in.jaxer.api.core.background.BackgroundTask;
+import in.jaxer.api.core.background.BackgroundTaskExecutor;
+import in.jaxer.api.core.database.TaskDataSource;
+import in.jaxer.api.core.metrics.ApiPhase;
+import in.jaxer.api.core.metrics.RequestMetrics;
 import in.jaxer.api.dtos.RequestResponseDto;
+import in.jaxer.api.exceptions.JaxerApiException;
 import in.jaxer.core.utilities.JValidator;
 import in.jaxer.core.utilities.JsonHandler;
 import lombok.Getter;
@@ -12,6 +19,8 @@ import javax.servlet.http.HttpServletRequest;
 import java.sql.Connection;
 import java.sql.Timestamp;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 /**
  * @author Shakir
@@ -24,17 +33,80 @@ public abstract class AbstractTask
 	@Setter
 	private RequestResponseDto requestResponseDto = null;
 
+	@Getter
+	@Setter
+	private BackgroundTaskExecutor backgroundTaskExecutor = null;
+
+	/**
+	 * Executor of {@link #fork(Callable)}, forked operations run on the calling thread when not set
+	 *
+	 * @since 2.0.0
+	 */
+	@Getter
+	@Setter
+	private ExecutorService forkExecutor = null;
+
+	/**
+	 * Pool the connections of {@link #forkWithConnection(boolean, TaskScope.ConnectionCallable)} are borrowed from
+	 *
+	 * @since 2.0.0
+	 */
+	@Getter
+	@Setter
+	private TaskDataSource taskDataSource = null;
+
+	private TaskScope taskScope = null;
+
 	public abstract void doTask(Connection connection) throws Exception;
 
 	public void processAbstractTask(Connection connection) throws Exception
 	{
-		doBeforeTask(connection);
+		RequestMetrics requestMetrics = requestResponseDto == null ? null : requestResponseDto.getRequestMetrics();
 
-		doTask(connection);
+		try
+		{
+			long startedAt = System.nanoTime();
+			doBeforeTask(connection);
+			startedAt = record(requestMetrics, ApiPhase.BEFORE_TASK, startedAt);
 
-		doAfterTask(connection);
+			doTask(connection);
+			startedAt = record(requestMetrics, ApiPhase.TASK, startedAt);
 
-		addBgTask(connection);
+			doAfterTask(connection);
+			record(requestMetrics, ApiPhase.AFTER_TASK, startedAt);
+		} finally
+		{
+			// forked operations never outlive the task
+			if (taskScope != null)
+			{
+				taskScope.close();
+				taskScope = null;
+			}
+		}
+
+		if (backgroundTaskExecutor == null)
+		{
+			addBgTask(connection);
+			return;
+		}
+
+		try
+		{
+			backgroundTaskExecutor.submit(this::addBgTask);
+		} catch (JaxerApiException exception)
+		{
+			// the task is done, a full queue must not turn its response into an error, the executor counts the rejection
+			log.warn("background task of {} dropped: {}", getClass().getSimpleName(), exception.getMessage());
+		}
+	}
+
+	private long record(RequestMetrics requestMetrics, ApiPhase apiPhase, long startedAt)
+	{
+		if (requestMetrics != null)
+		{
+			requestMetrics.record(apiPhase, startedAt);
+		}
+		return System.nanoTime();
 	}
 
 	protected void doBeforeTask(Connection connection) throws Exception
@@ -45,10 +117,89 @@ public abstract class AbstractTask
 	{
 	}
 
+	/**
+	 * Executed after {@link #doAfterTask(Connection)}
+	 * <br>
+	 * When a {@link BackgroundTaskExecutor} is configured this method is queued once the task completes and runs
+	 * on a background worker with its own connection, possibly while the response is still being written,
+	 * so it must not use the {@link HttpServletRequest}. It is dropped with a warning when the queue is full,
+	 * see {@link BackgroundTaskExecutor#getRejectedCount()}.
+	 */
 	protected void addBgTask(Connection connection) throws Exception
 	{
 	}
 
+	/**
+	 * Queues additional work on the configured {@link BackgroundTaskExecutor},
+	 * runs it immediately with the given connection when no executor is configured
+	 */
+	protected void submitBgTask(Connection connection, BackgroundTask backgroundTask) throws Exception
+	{
+		if (backgroundTaskExecutor == null)
+		{
+			backgroundTask.run(connection);
+		} else
+		{
+			backgroundTaskExecutor.submit(backgroundTask);
+		}
+	}
+
+	/**
+	 * Runs an independent sub-operation concurrently with the task, see {@link TaskScope}.
+	 * Every fork of the task shares the deadline of {@link #getForkTimeoutMillis()}, counted from the first fork.
+	 *
+	 * @since 2.0.0
+	 */
+	protected <T> TaskScope.Subtask<T> fork(Callable<T> callable)
+	{
+		return getTaskScope().fork(callable);
+	}
+
+	/**
+	 * Runs an independent database sub-operation concurrently with the task on a connection of its own,
+	 * the connection of the task is not thread-safe and must not be used by it
+	 *
+	 * @since 2.0.0
+	 */
+	protected <T> TaskScope.Subtask<T> forkWithConnection(boolean readOnly, TaskScope.ConnectionCallable<T> connectionCallable)
+	{
+		return getTaskScope().forkWithConnection(readOnly, connectionCallable);
+	}
+
+	/**
+	 * Waits for the forked operations, the failures are thrown and end up in the {@link in.jaxer.api.dtos.ApiResponseDto}
+	 *
+	 * @since 2.0.0
+	 */
+	protected void joinAll() throws Exception
+	{
+		if (taskScope != null)
+		{
+			taskScope.joinAll();
+		}
+	}
+
+	/**
+	 * @since 2.0.0
+	 */
+	protected long getForkTimeoutMillis()
+	{
+		return TaskScope.DEFAULT_TIMEOUT_MILLIS;
+	}
+
+	private TaskScope getTaskScope()
+	{
+		if (taskScope == null)
+		{
+			taskScope = TaskScope.builder()
+					.withExecutorService(forkExecutor == null ? MoreExecutors.newDirectExecutorService() : forkExecutor)
+					.withTaskDataSource(taskDataSource)
+					.withTimeoutMillis(getForkTimeoutMillis())
+					.build();
+		}
+		return taskScope;
+	}
+
 	public HttpServletRequest getHttpServletRequest()
 	{
 		return getRequestResponseDto().getHttpServletRequest();
@@ -0,0 +1,295 @@
+package in.jaxer.api.core.tasks;
+
+import in.jaxer.api.constants.ApiStatus;
+import in.jaxer.api.core.database.TaskDataSource;
+import in.jaxer.api.exceptions.ApiException;
+import in.jaxer.api.exceptions.JaxerApiException;
+import in.jaxer.core.utilities.JValidator;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs independent sub-operations of a task concurrently and joins them under one deadline
+ * <pre>
+ * try (TaskScope taskScope = TaskScope.builder().withExecutorService(executorService).withTaskDataSource(taskDataSource).build())
+ * {
+ *     Subtask&lt;List&lt;OrderDto&gt;&gt; orders = taskScope.forkWithConnection(true, connection -&gt; orderDao.getOrders(connection));
+ *     Subtask&lt;WeatherDto&gt; weather = taskScope.fork(() -&gt; weatherClient.getWeather());
+ *     taskScope.joinAll();
+ *
+ *     setParameter("orders", orders.get());
+ *     setParameter("weather", weather.get());
+ * }
+ * </pre>
+ * <ul>
+ *     <li>the deadline counts from the creation of the scope, {@link ApiStatus#TASK_TIMEOUT} once it passes</li>
+ *     <li>the first failure cancels the sub-operations still running, every failure is reported by {@link #joinAll()}</li>
+ *     <li>closing the scope, or interrupting the joining thread, cancels whatever is still running</li>
+ *     <li>sub-operations needing the database borrow a connection of their own from the {@link TaskDataSource},
+ *     the request connection is not thread-safe and must not be used by them</li>
+ * </ul>
+ * Sub-operations run on other threads, they must not touch the request or the response,
+ * results are read from their {@link Subtask} after {@link #joinAll()}.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class TaskScope implements AutoCloseable
+{
+	public static final long DEFAULT_TIMEOUT_MILLIS = 30 * 1000L;
+
+	@Getter
+	private final ExecutorService executorService;
+
+	@Getter
+	private final TaskDataSource taskDataSource;
+
+	@Getter
+	private final long timeoutMillis;
+
+	private final long deadline;
+	private final List<Subtask<?>> subtaskList = new ArrayList<>();
+
+	@Builder(setterPrefix = "with")
+	private TaskScope(ExecutorService executorService, TaskDataSource taskDataSource, Long timeoutMillis)
+	{
+		JValidator.throwWhenNull(executorService, "executorService cannot be null");
+
+		this.executorService = executorService;
+		this.taskDataSource = taskDataSource;
+		this.timeoutMillis = timeoutMillis == null ? DEFAULT_TIMEOUT_MILLIS : timeoutMillis;
+		this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.timeoutMillis);
+	}
+
+	public <T> Subtask<T> fork(Callable<T> callable)
+	{
+		JValidator.throwWhenNull(callable, "callable cannot be null");
+
+		Subtask<T> subtask = new Subtask<>(callable);
+		synchronized (this)
+		{
+			subtaskList.add(subtask);
+		}
+
+		try
+		{
+			executorService.execute(subtask);
+		} catch (RejectedExecutionException exception)
+		{
+			synchronized (this)
+			{
+				subtaskList.remove(subtask);
+			}
+			throw new JaxerApiException("Forked operation rejected", exception);
+		}
+		return subtask;
+	}
+
+	public <T> Subtask<T> forkWithConnection(ConnectionCallable<T> connectionCallable)
+	{
+		return forkWithConnection(false, connectionCallable);
+	}
+
+	/**
+	 * Forks a sub-operation with a connection borrowed for it alone, committed when it completes
+	 *
+	 * @param readOnly routes to the replica of the {@link TaskDataSource} when configured
+	 */
+	public <T> Subtask<T> forkWithConnection(boolean readOnly, ConnectionCallable<T> connectionCallable)
+	{
+		JValidator.throwWhenNull(taskDataSource, () -> new JaxerApiException("TaskDataSource is not configured, forked operations cannot borrow a connection"));
+		JValidator.throwWhenNull(connectionCallable, "connectionCallable cannot be null");
+
+		return fork(() ->
+		{
+			try (TaskDataSource.Lease lease = taskDataSource.borrow(readOnly))
+			{
+				T result = connectionCallable.call(lease.getConnection());
+				lease.commit();
+				return result;
+			}
+		});
+	}
+
+	/**
+	 * Waits for every forked sub-operation, returns once all completed successfully
+	 *
+	 * @throws Exception the failure of the sub-operation when only one failed, otherwise an {@link ApiException}
+	 *                   listing every failure with each of them suppressed
+	 */
+	public synchronized void joinAll() throws Exception
+	{
+		while (true)
+		{
+			boolean pending = false;
+			boolean failed = false;
+			for (Subtask<?> subtask : subtaskList)
+			{
+				if (!subtask.isDone())
+				{
+					pending = true;
+				} else if (subtask.getException() != null)
+				{
+					failed = true;
+				}
+			}
+
+			if (!pending || failed)
+			{
+				break;
+			}
+
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0)
+			{
+				cancelAll();
+				throw new ApiException(ApiStatus.TASK_TIMEOUT);
+			}
+
+			try
+			{
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			} catch (InterruptedException exception)
+			{
+				cancelAll();
+				Thread.currentThread().interrupt();
+				throw new ApiException(ApiStatus.TASK_TIMEOUT);
+			}
+		}
+
+		cancelAll();
+		throwFailures();
+	}
+
+	/**
+	 * Cancels every sub-operation still running
+	 */
+	@Override
+	public synchronized void close()
+	{
+		cancelAll();
+	}
+
+	private void cancelAll()
+	{
+		for (Subtask<?> subtask : subtaskList)
+		{
+			subtask.cancel(true);
+		}
+	}
+
+	private void throwFailures() throws Exception
+	{
+		List<Exception> failureList = new ArrayList<>();
+		for (Subtask<?> subtask : subtaskList)
+		{
+			Exception exception = subtask.getException();
+			if (exception != null)
+			{
+				failureList.add(exception);
+			}
+		}
+
+		if (failureList.isEmpty())
+		{
+			return;
+		}
+
+		if (failureList.size() == 1)
+		{
+			throw failureList.get(0);
+		}
+
+		StringBuilder message = new StringBuilder()
+				.append(failureList.size()).append(" of ").append(subtaskList.size()).append(" forked operations failed");
+		for (Exception exception : failureList)
+		{
+			message.append("; ").append(exception.getMessage());
+		}
+
+		ApiException apiException = new ApiException(message.toString(), failureList.get(0));
+		for (int i = 1; i < failureList.size(); i++)
+		{
+			apiException.addSuppressed(failureList.get(i));
+		}
+		throw apiException;
+	}
+
+	@FunctionalInterface
+	public interface ConnectionCallable<T>
+	{
+		T call(Connection connection) throws Exception;
+	}
+
+	/**
+	 * Forked sub-operation, its result is available once {@link TaskScope#joinAll()} returned
+	 */
+	public class Subtask<T> extends FutureTask<T>
+	{
+		private Subtask(Callable<T> callable)
+		{
+			super(callable);
+		}
+
+		/**
+		 * @throws IllegalStateException when the sub-operation has not completed successfully
+		 */
+		@Override
+		public T get()
+		{
+			JValidator.throwWhenFalse(isDone(), () -> new IllegalStateException("Subtask is not completed, call joinAll() first"));
+
+			try
+			{
+				return super.get();
+			} catch (InterruptedException | ExecutionException | CancellationException exception)
+			{
+				throw new IllegalStateException("Subtask did not complete successfully", exception);
+			}
+		}
+
+		/**
+		 * @return failure of the sub-operation, <code>null</code> while running, when successful or cancelled
+		 */
+		public Exception getException()
+		{
+			if (!isDone() || isCancelled())
+			{
+				return null;
+			}
+
+			try
+			{
+				super.get();
+				return null;
+			} catch (ExecutionException exception)
+			{
+				Throwable cause = exception.getCause();
+				return cause instanceof Exception ? (Exception) cause : new JaxerApiException(cause);
+			} catch (InterruptedException | CancellationException exception)
+			{
+				return null;
+			}
+		}
+
+		@Override
+		protected void done()
+		{
+			synchronized (TaskScope.this)
+			{
+				TaskScope.this.notifyAll();
+			}
+		}
+	}
+}
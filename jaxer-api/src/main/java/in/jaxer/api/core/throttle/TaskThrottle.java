@@ -0,0 +1,171 @@
+package in.jaxer.api.core.throttle;
+
+import in.jaxer.api.annotations.MultipartTask;
+import in.jaxer.api.annotations.RestTask;
+import in.jaxer.api.annotations.ThrottleKey;
+import in.jaxer.api.constants.ApiStatus;
+import in.jaxer.api.exceptions.ApiException;
+import lombok.Getter;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rate and concurrency limits of one task, declared with {@link RestTask#rateLimit()}, {@link RestTask#maxConcurrency()}
+ * and {@link RestTask#throttleKey()} (same attributes on {@link MultipartTask})
+ * <br>
+ * Limits are kept per key, the number of tracked keys is capped by {@link #MAX_KEYS},
+ * idle keys are swept when the cap is reached and the remaining overflow shares a single limit.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class TaskThrottle
+{
+	public static final int MAX_KEYS = 10_000;
+
+	static final String OVERFLOW_KEY = "\u0000OVERFLOW";
+
+	private static final TaskThrottle UNLIMITED = new TaskThrottle(0, 0, 0, ThrottleKey.GLOBAL);
+
+	private static final ConcurrentHashMap<Class<?>, TaskThrottle> taskThrottleMap = new ConcurrentHashMap<>();
+
+	private final double rateLimit;
+	private final int rateLimitBurst;
+	private final int maxConcurrency;
+
+	@Getter
+	private final ThrottleKey throttleKey;
+
+	private final ConcurrentHashMap<String, TokenBucket> tokenBucketMap = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, AtomicInteger> inFlightMap = new ConcurrentHashMap<>();
+
+	TaskThrottle(double rateLimit, int rateLimitBurst, int maxConcurrency, ThrottleKey throttleKey)
+	{
+		this.rateLimit = rateLimit;
+		this.rateLimitBurst = rateLimitBurst > 0 ? rateLimitBurst : (int) Math.max(1, Math.ceil(rateLimit));
+		this.maxConcurrency = maxConcurrency;
+		this.throttleKey = throttleKey;
+	}
+
+	/**
+	 * Throttle of the task class, built once from its annotation
+	 */
+	public static TaskThrottle of(Class<?> taskClass)
+	{
+		return taskThrottleMap.computeIfAbsent(taskClass, TaskThrottle::create);
+	}
+
+	private static TaskThrottle create(Class<?> taskClass)
+	{
+		RestTask restTask = taskClass.getAnnotation(RestTask.class);
+		if (restTask != null)
+		{
+			return create(restTask.rateLimit(), restTask.rateLimitBurst(), restTask.maxConcurrency(), restTask.throttleKey());
+		}
+
+		MultipartTask multipartTask = taskClass.getAnnotation(MultipartTask.class);
+		if (multipartTask != null)
+		{
+			return create(multipartTask.rateLimit(), multipartTask.rateLimitBurst(), multipartTask.maxConcurrency(), multipartTask.throttleKey());
+		}
+
+		return UNLIMITED;
+	}
+
+	private static TaskThrottle create(double rateLimit, int rateLimitBurst, int maxConcurrency, ThrottleKey throttleKey)
+	{
+		if (rateLimit <= 0 && maxConcurrency <= 0)
+		{
+			return UNLIMITED;
+		}
+
+		return new TaskThrottle(rateLimit, rateLimitBurst, maxConcurrency, throttleKey);
+	}
+
+	public boolean isUnlimited()
+	{
+		return rateLimit <= 0 && maxConcurrency <= 0;
+	}
+
+	/**
+	 * Fails fast with {@link ApiStatus#TOO_MANY_REQUESTS} or {@link ApiStatus#TOO_MANY_CONCURRENT_REQUESTS}
+	 *
+	 * @return permit to hand over to {@link #release(String)} once the task is finished
+	 */
+	public String acquire(String key)
+	{
+		if (rateLimit > 0 && !getTokenBucket(key).tryAcquire())
+		{
+			throw new ApiException(ApiStatus.TOO_MANY_REQUESTS);
+		}
+
+		if (maxConcurrency <= 0)
+		{
+			return key;
+		}
+
+		String permit = toTrackedKey(key, inFlightMap);
+		if (!tryAcquireConcurrency(permit))
+		{
+			throw new ApiException(ApiStatus.TOO_MANY_CONCURRENT_REQUESTS);
+		}
+
+		return permit;
+	}
+
+	public void release(String permit)
+	{
+		if (maxConcurrency <= 0)
+		{
+			return;
+		}
+
+		// entry is dropped once nothing is in flight, keeps the map as small as the active key set
+		inFlightMap.computeIfPresent(permit, (k, inFlight) -> inFlight.decrementAndGet() <= 0 ? null : inFlight);
+	}
+
+	private boolean tryAcquireConcurrency(String permit)
+	{
+		boolean[] acquired = {false};
+
+		inFlightMap.compute(permit, (k, inFlight) ->
+		{
+			if (inFlight == null)
+			{
+				inFlight = new AtomicInteger();
+			}
+
+			if (inFlight.get() < maxConcurrency)
+			{
+				inFlight.incrementAndGet();
+				acquired[0] = true;
+			}
+
+			return inFlight.get() == 0 ? null : inFlight;
+		});
+
+		return acquired[0];
+	}
+
+	private TokenBucket getTokenBucket(String key)
+	{
+		TokenBucket tokenBucket = tokenBucketMap.get(key);
+		if (tokenBucket != null)
+		{
+			return tokenBucket;
+		}
+
+		if (tokenBucketMap.size() >= MAX_KEYS)
+		{
+			tokenBucketMap.entrySet().removeIf(entry -> entry.getValue().isIdle());
+		}
+
+		return tokenBucketMap.computeIfAbsent(toTrackedKey(key, tokenBucketMap), k -> new TokenBucket(rateLimit, rateLimitBurst));
+	}
+
+	private String toTrackedKey(String key, ConcurrentHashMap<String, ?> map)
+	{
+		return map.size() < MAX_KEYS || map.containsKey(key) ? key : OVERFLOW_KEY;
+	}
+}
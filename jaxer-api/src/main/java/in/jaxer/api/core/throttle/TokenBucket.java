@@ -0,0 +1,65 @@
+package in.jaxer.api.core.throttle;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock free token bucket, implemented as a virtual scheduling (GCRA) clock in a single {@link AtomicLong}
+ * <br>
+ * Every permit pushes the theoretical arrival time by one emission interval,
+ * a permit is refused when that time runs more than the burst ahead of now.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class TokenBucket
+{
+	private final long emissionIntervalNanos;
+	private final long burstToleranceNanos;
+	private final AtomicLong theoreticalArrivalTime;
+
+	/**
+	 * @param permitsPerSecond sustained rate
+	 * @param burst            maximum permits granted at once when the bucket is full
+	 */
+	public TokenBucket(double permitsPerSecond, int burst)
+	{
+		if (permitsPerSecond <= 0 || burst < 1)
+		{
+			throw new IllegalArgumentException("permitsPerSecond and burst must be greater than zero");
+		}
+
+		this.emissionIntervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+		this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+		this.theoreticalArrivalTime = new AtomicLong(System.nanoTime());
+	}
+
+	public boolean tryAcquire()
+	{
+		long now = System.nanoTime();
+
+		while (true)
+		{
+			long tat = theoreticalArrivalTime.get();
+			long start = tat - now > 0 ? tat : now;
+
+			if (start - now > burstToleranceNanos)
+			{
+				return false;
+			}
+
+			if (theoreticalArrivalTime.compareAndSet(tat, start + emissionIntervalNanos))
+			{
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * @return true when the bucket is full again, such a bucket can be discarded without changing the outcome
+	 */
+	public boolean isIdle()
+	{
+		return theoreticalArrivalTime.get() - System.nanoTime() <= 0;
+	}
+}
@@ -21,6 +21,15 @@ import java.util.Map;
 @ToString
 public class ApiResponseDto
 {
+	/**
+	 * @since 2.0.0
+	 */
+	public static final String STACK_TRACE_PROPERTY = "jaxer.api.stacktrace";
+
+	private static final String DEFAULT_ERROR_MESSAGE = "Something went wrong";
+
+	private static volatile boolean stackTraceEnabled = Boolean.getBoolean(STACK_TRACE_PROPERTY);
+
 	public Map<String, Object> taskResponseValue = null;
 
 	public List<String> userMessageList = null;
@@ -53,6 +62,25 @@ public class ApiResponseDto
 		userMessageList.add(msg);
 	}
 
+	/**
+	 * Stack traces are added to the {@link ErrorDto} only when enabled,
+	 * either with system property {@value #STACK_TRACE_PROPERTY}=true or {@link #setStackTraceEnabled(boolean)}
+	 *
+	 * @since 2.0.0
+	 */
+	public static boolean isStackTraceEnabled()
+	{
+		return stackTraceEnabled;
+	}
+
+	/**
+	 * @since 2.0.0
+	 */
+	public static void setStackTraceEnabled(boolean stackTraceEnabled)
+	{
+		ApiResponseDto.stackTraceEnabled = stackTraceEnabled;
+	}
+
 	public void addErrorDto(Exception exception)
 	{
 		JValidator.throwWhenNull(exception);
@@ -63,6 +91,18 @@ public class ApiResponseDto
 			return;
 		}
 
+		ApiStatus apiStatus = exception instanceof ApiException ? ((ApiException) exception).getApiStatus() : null;
+
+		if (apiStatus != null && !stackTraceEnabled)
+		{
+			errorDto = apiStatus.getErrorDto();
+			if (JValidator.isBlank(errorDto.errorMessage))
+			{
+				errorDto.errorMessage = DEFAULT_ERROR_MESSAGE;
+			}
+			return;
+		}
+
 		if (errorDto == null)
 		{
 			errorDto = new ErrorDto();
@@ -70,9 +110,6 @@ public class ApiResponseDto
 
 		if (exception instanceof ApiException)
 		{
-			ApiException apiException = (ApiException) exception;
-			ApiStatus apiStatus = apiException.getApiStatus();
-
 			if (apiStatus != null)
 			{
 				errorDto.errorCode = apiStatus.getCode();
@@ -80,20 +117,26 @@ public class ApiResponseDto
 //				errorDto.httpStatus = apiStatus.getHttpStatus();
 			} else
 			{
-				errorDto.errorMessage = apiException.getMessage();
+				errorDto.errorMessage = exception.getMessage();
 			}
 		}
 
 		if (JValidator.isBlank(errorDto.errorMessage))
 		{
-			errorDto.errorMessage = exception.getMessage();
+			// the message of an exception carrying a status is the status itself, the fast path above does not show it either
+			errorDto.errorMessage = apiStatus == null ? exception.getMessage() : null;
 
 			if (JValidator.isBlank(errorDto.errorMessage))
 			{
-				errorDto.errorMessage = "Something went wrong";
+				errorDto.errorMessage = DEFAULT_ERROR_MESSAGE;
 			}
 		}
 
+		if (!stackTraceEnabled)
+		{
+			return;
+		}
+
 		errorDto.stacktraceList = Strings.getListOfStackTraces(exception, null);
 
 		if (JValidator.isNotBlank(errorDto.stacktraceList))
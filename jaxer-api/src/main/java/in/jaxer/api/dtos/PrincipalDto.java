@@ -0,0 +1,46 @@
+package in.jaxer.api.dtos;
+
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Result of a successful {@link in.jaxer.api.listners.Authentication#doAuthentication},
+ * set on the {@link RequestResponseDto} by the authentication and cached by
+ * {@link in.jaxer.api.listners.CachingAuthentication}
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@ToString
+public class PrincipalDto
+{
+	public static final PrincipalDto ANONYMOUS = new PrincipalDto(null, Collections.emptySet());
+
+	/**
+	 * Application specific identity, e.g. the user id
+	 */
+	public final Object principal;
+
+	public final Set<String> roles;
+
+	public PrincipalDto(Object principal, Set<String> roles)
+	{
+		this.principal = principal;
+		this.roles = roles == null || roles.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(new HashSet<>(roles));
+	}
+
+	public boolean hasAnyRole(String... allowedRoles)
+	{
+		for (String allowedRole : allowedRoles)
+		{
+			if (roles.contains(allowedRole))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -1,11 +1,16 @@
 package in.jaxer.api.dtos;
 
+import in.jaxer.api.constants.ApiStatus;
 import in.jaxer.api.constants.RequestConstant;
+import in.jaxer.api.core.metrics.RequestMetrics;
+import in.jaxer.api.exceptions.ApiException;
 import in.jaxer.core.utilities.JValidator;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 
 /**
  * @author Shakir
@@ -19,6 +24,8 @@ public class RequestResponseDto
 	private final HttpServletRequest httpServletRequest;
 	private final HttpServletResponse httpServletResponse;
 	private final boolean isMultipartRequest;
+	private RequestMetrics requestMetrics = null;
+	private PrincipalDto principalDto = null;
 
 	public RequestResponseDto(HashMap<String, Object> requestMap, HttpServletRequest request, HttpServletResponse response, boolean isMultipartRequest)
 	{
@@ -70,7 +77,7 @@ public class RequestResponseDto
 
 	private Object getRequestParameter(String paramName)
 	{
-		return (isMultipartRequest ? httpServletRequest.getParameter(paramName) : requestMap.get(paramName));
+		return (isMultipartRequest ? getHttpServletRequest().getParameter(paramName) : requestMap.get(paramName));
 	}
 
 	public Object getRequestObject(String paramName)
@@ -83,6 +90,16 @@ public class RequestResponseDto
 		return (String) getRequestParameter(paramName);
 	}
 
+	/**
+	 * Parameters parsed from the request body, empty for multipart requests
+	 *
+	 * @since 2.0.0
+	 */
+	public Map<String, Object> getRequestMap()
+	{
+		return Collections.unmodifiableMap(requestMap);
+	}
+
 	public String getTaskName()
 	{
 		return getParameter(isMultipartRequest ? RequestConstant.MULTIPART_TASK_NAME : RequestConstant.API_TASK_NAME);
@@ -118,16 +135,34 @@ public class RequestResponseDto
 		apiResponseDto.addUserMessage(userMessage);
 	}
 
+	/**
+	 * @throws ApiException {@link ApiStatus#TASK_TIMEOUT} when the request was already answered, e.g. by the async timeout,
+	 *                      the container may have recycled it
+	 */
 	public HttpServletRequest getHttpServletRequest()
 	{
+		checkNotResponded();
 		return httpServletRequest;
 	}
 
+	/**
+	 * @throws ApiException {@link ApiStatus#TASK_TIMEOUT} when the request was already answered, e.g. by the async timeout,
+	 *                      the container may have recycled it
+	 */
 	public HttpServletResponse getHttpServletResponse()
 	{
+		checkNotResponded();
 		return httpServletResponse;
 	}
 
+	private void checkNotResponded()
+	{
+		if (requestMetrics != null && requestMetrics.isResponded())
+		{
+			throw new ApiException(ApiStatus.TASK_TIMEOUT);
+		}
+	}
+
 	public boolean isIsMultipartRequest()
 	{
 		return isMultipartRequest;
@@ -142,4 +177,24 @@ public class RequestResponseDto
 	{
 		this.apiResponseDto = apiResponseDto;
 	}
+
+	public RequestMetrics getRequestMetrics()
+	{
+		return requestMetrics;
+	}
+
+	public void setRequestMetrics(RequestMetrics requestMetrics)
+	{
+		this.requestMetrics = requestMetrics;
+	}
+
+	public PrincipalDto getPrincipalDto()
+	{
+		return principalDto;
+	}
+
+	public void setPrincipalDto(PrincipalDto principalDto)
+	{
+		this.principalDto = principalDto;
+	}
 }
@@ -0,0 +1,27 @@
+package in.jaxer.api.dtos;
+
+import lombok.ToString;
+
+/**
+ * One file part of a multipart request, after it was stored in the {@link in.jaxer.api.core.multipart.ContentStore}
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@ToString
+public class UploadedMediaDto
+{
+	public String fieldName;
+	public String fileName;
+	public String contentType;
+	public long size;
+	public String contentHash;
+	public String path;
+	public boolean duplicate;
+
+	/**
+	 * Read from the image header, 0 when the part is not an image or the header is not recognized
+	 */
+	public int width;
+	public int height;
+}
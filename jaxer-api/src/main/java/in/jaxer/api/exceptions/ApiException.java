@@ -42,4 +42,15 @@ public class ApiException extends JaxerApiException
 		super(apiStatus.toString());
 		this.apiStatus = apiStatus;
 	}
+
+	/**
+	 * Expected failures do not capture the stack trace
+	 *
+	 * @since 2.0.0
+	 */
+	@Override
+	public synchronized Throwable fillInStackTrace()
+	{
+		return this;
+	}
 }
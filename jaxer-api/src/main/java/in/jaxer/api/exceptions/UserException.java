@@ -36,4 +36,15 @@ public class UserException extends JaxerApiException
 	{
 		super(message, cause, enableSuppression, writableStackTrace);
 	}
+
+	/**
+	 * Expected failures do not capture the stack trace
+	 *
+	 * @since 2.0.0
+	 */
+	@Override
+	public synchronized Throwable fillInStackTrace()
+	{
+		return this;
+	}
 }
@@ -3,6 +3,7 @@ package in.jaxer.api.listners;
 import in.jaxer.api.dtos.RequestResponseDto;
 
 import java.sql.Connection;
+import java.sql.SQLException;
 
 /**
  * @author Shakir
@@ -10,4 +11,28 @@ import java.sql.Connection;
 public interface Authentication
 {
 	void doAuthentication(Connection connection, RequestResponseDto requestResponseDto) throws Exception;
+
+	/**
+	 * Called by the request handlers when the connection would have to be borrowed for the authentication,
+	 * the default gets it and calls {@link #doAuthentication(Connection, RequestResponseDto)}.
+	 * <br>
+	 * Override it to answer without a database round trip, nothing is borrowed when the supplier is not called.
+	 *
+	 * @since 2.0.0
+	 */
+	default void doAuthenticationLazily(ConnectionSupplier connectionSupplier, RequestResponseDto requestResponseDto) throws Exception
+	{
+		doAuthentication(connectionSupplier.get(), requestResponseDto);
+	}
+
+	/**
+	 * Borrows the connection on the first call and returns the same one after that
+	 *
+	 * @since 2.0.0
+	 */
+	@FunctionalInterface
+	interface ConnectionSupplier
+	{
+		Connection get() throws SQLException;
+	}
 }
@@ -0,0 +1,116 @@
+package in.jaxer.api.listners;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import in.jaxer.api.dtos.PrincipalDto;
+import in.jaxer.api.dtos.RequestResponseDto;
+import in.jaxer.core.utilities.JValidator;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers successful authentications by access token, so the wrapped {@link Authentication}
+ * (typically a database lookup) runs once per token and TTL instead of once per request.
+ * <br>
+ * The wrapped authentication may set a {@link PrincipalDto} with the roles of the caller on the
+ * {@link RequestResponseDto}, it is cached as well and restored on every hit,
+ * {@link PrincipalDto#ANONYMOUS} is cached when it does not.
+ * <br>
+ * Failed authentications and requests without an access token are never cached.
+ * Call {@link #revoke(String)} on logout or when the roles of a token change.
+ * <br>
+ * The request handlers call {@link #doAuthenticationLazily}, a hit borrows no connection.
+ *
+ * <pre>
+ * private final Authentication authentication = CachingAuthentication.builder()
+ *     .withDelegate(new DatabaseAuthentication())
+ *     .withTtlMillis(60_000L)
+ *     .build();
+ * </pre>
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Log4j2
+public class CachingAuthentication implements Authentication
+{
+	public static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000L;
+	public static final long DEFAULT_MAXIMUM_SIZE = 10_000L;
+
+	@Getter
+	private final Authentication delegate;
+
+	private final Cache<String, PrincipalDto> principalCache;
+
+	@Builder(setterPrefix = "with")
+	private CachingAuthentication(Authentication delegate, Long ttlMillis, Long maximumSize)
+	{
+		JValidator.throwWhenNull(delegate, "delegate cannot be null");
+
+		this.delegate = delegate;
+		this.principalCache = CacheBuilder.newBuilder()
+				.expireAfterWrite(ttlMillis == null ? DEFAULT_TTL_MILLIS : ttlMillis, TimeUnit.MILLISECONDS)
+				.maximumSize(maximumSize == null ? DEFAULT_MAXIMUM_SIZE : maximumSize)
+				.build();
+	}
+
+	@Override
+	public void doAuthentication(Connection connection, RequestResponseDto requestResponseDto) throws Exception
+	{
+		doAuthenticationLazily(() -> connection, requestResponseDto);
+	}
+
+	/**
+	 * A hit is answered without calling the supplier, the connection is only borrowed for the wrapped authentication
+	 */
+	@Override
+	public void doAuthenticationLazily(ConnectionSupplier connectionSupplier, RequestResponseDto requestResponseDto) throws Exception
+	{
+		String accessToken = requestResponseDto.getAccessToken();
+		if (JValidator.isBlank(accessToken))
+		{
+			delegate.doAuthenticationLazily(connectionSupplier, requestResponseDto);
+			return;
+		}
+
+		PrincipalDto principalDto = principalCache.getIfPresent(accessToken);
+		if (principalDto != null)
+		{
+			requestResponseDto.setPrincipalDto(principalDto);
+			return;
+		}
+
+		delegate.doAuthenticationLazily(connectionSupplier, requestResponseDto);
+
+		principalDto = requestResponseDto.getPrincipalDto();
+		if (principalDto == null)
+		{
+			principalDto = PrincipalDto.ANONYMOUS;
+			requestResponseDto.setPrincipalDto(principalDto);
+		}
+
+		principalCache.put(accessToken, principalDto);
+	}
+
+	public void revoke(String accessToken)
+	{
+		if (JValidator.isNotBlank(accessToken))
+		{
+			principalCache.invalidate(accessToken);
+		}
+	}
+
+	public void revokeAll()
+	{
+		principalCache.invalidateAll();
+	}
+
+	public long size()
+	{
+		return principalCache.size();
+	}
+}
@@ -1,10 +1,9 @@
 package in.jaxer.api.tasks;
 
 import in.jaxer.api.core.controllers.AbstractRestController;
-import in.jaxer.api.dtos.ApiResponseDto;
 import in.jaxer.api.dtos.RequestResponseDto;
 import in.jaxer.api.listners.Authentication;
-import in.jaxer.core.net.Servlets;
+import in.jaxer.api.listners.CachingAuthentication;
 import lombok.extern.log4j.Log4j2;
 
 import javax.servlet.ServletException;
@@ -18,11 +17,15 @@ import java.sql.Connection;
  * @author Shakir
  */
 @Log4j2
-@WebServlet(urlPatterns = "/jaxerRestController")
+@WebServlet(urlPatterns = {"/jaxerRestController", "/jaxerRestController/batch"}, asyncSupported = true)
 public class RestController extends AbstractRestController
 {
 	private static final long serialVersionUID = 1L;
 
+	private final transient Authentication authentication = CachingAuthentication.builder()
+			.withDelegate(new AuthenticationImpl())
+			.build();
+
 	@Override
 	protected String getBasePackage()
 	{
@@ -32,14 +35,22 @@ public class RestController extends AbstractRestController
 	@Override
 	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
 	{
-		ApiResponseDto apiResponseDto = doProcess(request, response, null, new AuthenticationImpl());
+		if (request.getServletPath().endsWith("/batch"))
+		{
+			doProcessBatch(request, response, null, authentication);
+			return;
+		}
 
-		log.debug("apiResponseDto: {}", apiResponseDto);
+		doProcessAndRespond(request, response, null, authentication);
+	}
 
-		Servlets.printJsonResponse(request, response, apiResponseDto);
+	@Override
+	protected boolean isAsyncEnabled()
+	{
+		return true;
 	}
 
-	private class AuthenticationImpl implements Authentication
+	private static class AuthenticationImpl implements Authentication
 	{
 		@Override
 		public void doAuthentication(Connection connection, RequestResponseDto requestResponseObject)
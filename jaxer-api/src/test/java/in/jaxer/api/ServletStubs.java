@@ -0,0 +1,234 @@
+package in.jaxer.api;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Minimal servlet request and response for the tests, recording the threads calling them
+ */
+public final class ServletStubs
+{
+	private ServletStubs()
+	{
+	}
+
+	public static class Request
+	{
+		public final Map<String, String> headerMap = new LinkedHashMap<>();
+		public final Map<String, Object> attributeMap = new ConcurrentHashMap<>();
+		public final Map<String, String> parameterMap = new LinkedHashMap<>();
+		public final Set<Thread> callerSet = ConcurrentHashMap.newKeySet();
+		public String method = "POST";
+		public String remoteAddr = "10.0.0.1";
+		public String body = "";
+
+		public Request header(String name, String value)
+		{
+			headerMap.put(name, value);
+			return this;
+		}
+
+		public Request parameter(String name, String value)
+		{
+			parameterMap.put(name, value);
+			return this;
+		}
+
+		public Request body(String body)
+		{
+			this.body = body;
+			return this;
+		}
+
+		public HttpServletRequest build()
+		{
+			return (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+				callerSet.add(Thread.currentThread());
+				switch (method.getName())
+				{
+					case "getHeader":
+						return getHeader((String) args[0]);
+					case "getHeaders":
+						String value = getHeader((String) args[0]);
+						return Collections.enumeration(value == null ? Collections.<String>emptyList() : Collections.singletonList(value));
+					case "getHeaderNames":
+						return Collections.enumeration(headerMap.keySet());
+					case "getAttribute":
+						return attributeMap.get((String) args[0]);
+					case "getAttributeNames":
+						return Collections.enumeration(attributeMap.keySet());
+					case "setAttribute":
+						attributeMap.put((String) args[0], args[1]);
+						return null;
+					case "getParameter":
+						return parameterMap.get((String) args[0]);
+					case "getParameterMap":
+						return Collections.emptyMap();
+					case "getParameterNames":
+						return Collections.emptyEnumeration();
+					case "getLocales":
+						return Collections.emptyEnumeration();
+					case "getMethod":
+						return Request.this.method;
+					case "getRemoteAddr":
+						return remoteAddr;
+					case "getContentType":
+						return getHeader("Content-Type");
+					case "getReader":
+						return new BufferedReader(new StringReader(body));
+					case "getProtocol":
+						return "HTTP/1.1";
+					case "isAsyncSupported":
+						return false;
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					case "toString":
+						return "Request" + headerMap;
+					default:
+						return defaultValue(method.getReturnType());
+				}
+			});
+		}
+
+		private String getHeader(String name)
+		{
+			for (Map.Entry<String, String> entry : headerMap.entrySet())
+			{
+				if (entry.getKey().equalsIgnoreCase(name))
+				{
+					return entry.getValue();
+				}
+			}
+			return null;
+		}
+	}
+
+	public static class Response
+	{
+		public final Map<String, String> headerMap = new LinkedHashMap<>();
+		public final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		public final Set<Thread> callerSet = ConcurrentHashMap.newKeySet();
+		public int status = 200;
+		public String contentType = null;
+		private PrintWriter printWriter = null;
+		private boolean committed = false;
+
+		public String getBody()
+		{
+			if (printWriter != null)
+			{
+				printWriter.flush();
+			}
+			return new String(body.toByteArray(), StandardCharsets.UTF_8);
+		}
+
+		public HttpServletResponse build()
+		{
+			return (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> {
+				callerSet.add(Thread.currentThread());
+				switch (method.getName())
+				{
+					case "setHeader":
+					case "addHeader":
+						headerMap.put((String) args[0], (String) args[1]);
+						return null;
+					case "setIntHeader":
+					case "addIntHeader":
+						headerMap.put((String) args[0], String.valueOf(args[1]));
+						return null;
+					case "getHeader":
+						return headerMap.get((String) args[0]);
+					case "containsHeader":
+						return headerMap.containsKey((String) args[0]);
+					case "setStatus":
+					case "sendError":
+						status = (Integer) args[0];
+						return null;
+					case "getStatus":
+						return status;
+					case "setContentType":
+						contentType = (String) args[0];
+						return null;
+					case "getContentType":
+						return contentType;
+					case "getCharacterEncoding":
+						return "UTF-8";
+					case "isCommitted":
+						return committed;
+					case "flushBuffer":
+						committed = true;
+						return null;
+					case "getWriter":
+						committed = true;
+						if (printWriter == null)
+						{
+							printWriter = new PrintWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8));
+						}
+						return printWriter;
+					case "getOutputStream":
+						committed = true;
+						return new ServletOutputStream()
+						{
+							@Override
+							public boolean isReady()
+							{
+								return true;
+							}
+
+							@Override
+							public void setWriteListener(WriteListener writeListener)
+							{
+							}
+
+							@Override
+							public void write(int b)
+							{
+								body.write(b);
+							}
+						};
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					case "toString":
+						return "Response" + headerMap;
+					default:
+						return defaultValue(method.getReturnType());
+				}
+			});
+		}
+	}
+
+	private static Object defaultValue(Class<?> type)
+	{
+		if (type == boolean.class)
+		{
+			return false;
+		}
+		if (type == int.class)
+		{
+			return 0;
+		}
+		if (type == long.class)
+		{
+			return 0L;
+		}
+		return null;
+	}
+}
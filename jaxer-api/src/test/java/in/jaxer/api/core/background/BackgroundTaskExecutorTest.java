@@ -0,0 +1,115 @@
+package in.jaxer.api.core.background;
+
+import in.jaxer.api.core.tasks.AbstractTask;
+import in.jaxer.api.exceptions.JaxerApiException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class BackgroundTaskExecutorTest
+{
+	@Test
+	void executesSubmittedTasks() throws Exception
+	{
+		BackgroundTaskExecutor backgroundTaskExecutor = BackgroundTaskExecutor.builder().build();
+		CountDownLatch executed = new CountDownLatch(3);
+		for (int i = 0; i < 3; i++)
+		{
+			backgroundTaskExecutor.submit(connection -> executed.countDown());
+		}
+
+		Assertions.assertTrue(executed.await(5, TimeUnit.SECONDS));
+		backgroundTaskExecutor.shutdown();
+		Assertions.assertEquals(3, backgroundTaskExecutor.getSubmittedCount());
+		Assertions.assertEquals(3, backgroundTaskExecutor.getCompletedCount());
+	}
+
+	@Test
+	void abortsWhenQueueIsFull() throws Exception
+	{
+		CountDownLatch release = new CountDownLatch(1);
+		BackgroundTaskExecutor backgroundTaskExecutor = fullExecutor(release);
+		try
+		{
+			Assertions.assertThrows(JaxerApiException.class, () -> backgroundTaskExecutor.submit(connection -> {
+			}));
+			Assertions.assertEquals(1, backgroundTaskExecutor.getRejectedCount());
+		} finally
+		{
+			release.countDown();
+			backgroundTaskExecutor.shutdown();
+		}
+	}
+
+	@Test
+	void completedTaskSurvivesFullQueue() throws Exception
+	{
+		CountDownLatch release = new CountDownLatch(1);
+		BackgroundTaskExecutor backgroundTaskExecutor = fullExecutor(release);
+		AtomicInteger executed = new AtomicInteger();
+		AbstractTask abstractTask = new AbstractTask()
+		{
+			@Override
+			public void doTask(Connection connection)
+			{
+				executed.incrementAndGet();
+			}
+
+			@Override
+			protected void addBgTask(Connection connection)
+			{
+				executed.incrementAndGet();
+			}
+		};
+		abstractTask.setBackgroundTaskExecutor(backgroundTaskExecutor);
+
+		try
+		{
+			abstractTask.processAbstractTask(null);
+			Assertions.assertEquals(1, executed.get());
+			Assertions.assertEquals(1, backgroundTaskExecutor.getRejectedCount());
+		} finally
+		{
+			release.countDown();
+			backgroundTaskExecutor.shutdown();
+		}
+	}
+
+	@Test
+	void interruptsTasksOverTheTimeout() throws Exception
+	{
+		BackgroundTaskExecutor backgroundTaskExecutor = BackgroundTaskExecutor.builder()
+				.withTaskTimeoutMillis(50L)
+				.build();
+		backgroundTaskExecutor.submit(connection -> TimeUnit.SECONDS.sleep(10));
+		backgroundTaskExecutor.shutdown();
+
+		Assertions.assertEquals(1, backgroundTaskExecutor.getTimedOutCount());
+		Assertions.assertEquals(1, backgroundTaskExecutor.getFailedCount());
+	}
+
+	/**
+	 * One worker blocked until released and a queue of one already taken
+	 */
+	private static BackgroundTaskExecutor fullExecutor(CountDownLatch release) throws InterruptedException
+	{
+		BackgroundTaskExecutor backgroundTaskExecutor = BackgroundTaskExecutor.builder()
+				.withPoolSize(1)
+				.withQueueCapacity(1)
+				.withTaskTimeoutMillis(0L)
+				.build();
+
+		CountDownLatch started = new CountDownLatch(1);
+		backgroundTaskExecutor.submit(connection -> {
+			started.countDown();
+			release.await();
+		});
+		Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+		backgroundTaskExecutor.submit(connection -> release.await());
+		return backgroundTaskExecutor;
+	}
+}
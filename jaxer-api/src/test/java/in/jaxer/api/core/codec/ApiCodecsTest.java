@@ -0,0 +1,52 @@
+package in.jaxer.api.core.codec;
+
+import in.jaxer.api.ServletStubs;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServletRequest;
+
+class ApiCodecsTest
+{
+	private static HttpServletRequest request(String contentType, String accept)
+	{
+		ServletStubs.Request request = new ServletStubs.Request();
+		if (contentType != null)
+		{
+			request.header("Content-Type", contentType);
+		}
+		if (accept != null)
+		{
+			request.header("Accept", accept);
+		}
+		return request.build();
+	}
+
+	@Test
+	void picksTheRequestCodecByContentType()
+	{
+		Assertions.assertTrue(ApiCodecs.forRequest(request("application/cbor", null)) instanceof CborApiCodec);
+		Assertions.assertSame(ApiCodecs.getDefault(), ApiCodecs.forRequest(request("application/json; charset=UTF-8", null)));
+		Assertions.assertSame(ApiCodecs.getDefault(), ApiCodecs.forRequest(request("text/unknown", null)));
+		Assertions.assertSame(ApiCodecs.getDefault(), ApiCodecs.forRequest(request(null, null)));
+	}
+
+	@Test
+	void picksTheResponseCodecByAccept()
+	{
+		Assertions.assertTrue(ApiCodecs.forResponse(request("application/json", "application/cbor")) instanceof CborApiCodec);
+		Assertions.assertSame(ApiCodecs.getDefault(), ApiCodecs.forResponse(request("application/cbor", "application/cbor;q=0.5, application/json")));
+		Assertions.assertTrue(ApiCodecs.forResponse(request("application/cbor", "text/html, */*")) instanceof CborApiCodec);
+		Assertions.assertTrue(ApiCodecs.forResponse(request("application/cbor", null)) instanceof CborApiCodec);
+	}
+
+	@Test
+	void registeringReplacesTheCodecOfTheSameType()
+	{
+		CborApiCodec replacement = new CborApiCodec();
+		ApiCodecs.register(replacement);
+
+		Assertions.assertSame(replacement, ApiCodecs.find("Application/CBOR"));
+		Assertions.assertNull(ApiCodecs.find("application/xml"));
+	}
+}
@@ -0,0 +1,160 @@
+package in.jaxer.api.core.codec;
+
+import com.google.gson.JsonParser;
+import com.google.gson.annotations.SerializedName;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class CborCodecTest
+{
+	private final CborEncoder cborEncoder = new CborEncoder();
+	private final CborDecoder cborDecoder = new CborDecoder();
+
+	static class UserDto
+	{
+		private static final String IGNORED = "static";
+
+		long userId = 7;
+
+		@SerializedName("name")
+		String userName = "shakir";
+
+		String email = null;
+
+		transient String password = "secret";
+
+		List<String> roles = Arrays.asList("admin", "user");
+	}
+
+	private static byte[] bytes(int... values)
+	{
+		byte[] bytes = new byte[values.length];
+		for (int i = 0; i < values.length; i++)
+		{
+			bytes[i] = (byte) values[i];
+		}
+		return bytes;
+	}
+
+	private Object roundTrip(Object value) throws IOException
+	{
+		return cborDecoder.decode(cborEncoder.encode(value));
+	}
+
+	@Test
+	void encodesTheRfcExamples() throws IOException
+	{
+		// RFC 8949 appendix A
+		Assertions.assertArrayEquals(bytes(0x00), cborEncoder.encode(0));
+		Assertions.assertArrayEquals(bytes(0x18, 0x64), cborEncoder.encode(100));
+		Assertions.assertArrayEquals(bytes(0x39, 0x03, 0xe7), cborEncoder.encode(-1000));
+		Assertions.assertArrayEquals(bytes(0x1b, 0x00, 0x00, 0x00, 0xe8, 0xd4, 0xa5, 0x10, 0x00), cborEncoder.encode(1000000000000L));
+		Assertions.assertArrayEquals(bytes(0x64, 0x49, 0x45, 0x54, 0x46), cborEncoder.encode("IETF"));
+		Assertions.assertArrayEquals(bytes(0x62, 0xc3, 0xbc), cborEncoder.encode("ü"));
+		Assertions.assertArrayEquals(bytes(0x83, 0x01, 0x02, 0x03), cborEncoder.encode(Arrays.asList(1, 2, 3)));
+		Assertions.assertArrayEquals(bytes(0xf5, 0xf6), concat(cborEncoder.encode(true), cborEncoder.encode(null)));
+		Assertions.assertArrayEquals(bytes(0xfa, 0x47, 0xc3, 0x50, 0x00), cborEncoder.encode(100000.0));
+		Assertions.assertArrayEquals(bytes(0xfb, 0x3f, 0xf1, 0x99, 0x99, 0x99, 0x99, 0x99, 0x9a), cborEncoder.encode(1.1));
+	}
+
+	private static byte[] concat(byte[] first, byte[] second)
+	{
+		byte[] bytes = Arrays.copyOf(first, first.length + second.length);
+		System.arraycopy(second, 0, bytes, first.length, second.length);
+		return bytes;
+	}
+
+	@Test
+	void decodesTheRfcExamples() throws IOException
+	{
+		Assertions.assertEquals(Long.valueOf(-1000), cborDecoder.decode(bytes(0x39, 0x03, 0xe7)));
+		Assertions.assertEquals(new BigInteger("18446744073709551615"), cborDecoder.decode(bytes(0x1b, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff, 0xff)));
+		Assertions.assertEquals(Double.valueOf(1.5), cborDecoder.decode(bytes(0xf9, 0x3e, 0x00)));
+		Assertions.assertEquals(Double.valueOf(65504.0), cborDecoder.decode(bytes(0xf9, 0x7b, 0xff)));
+
+		// indefinite length string, array and map
+		Assertions.assertEquals("streaming", cborDecoder.decode(bytes(0x7f, 0x65, 0x73, 0x74, 0x72, 0x65, 0x61, 0x64, 0x6d, 0x69, 0x6e, 0x67, 0xff)));
+		Assertions.assertEquals(Arrays.asList(1L, Arrays.asList(2L, 3L)), cborDecoder.decode(bytes(0x9f, 0x01, 0x82, 0x02, 0x03, 0xff)));
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("Fun", true);
+		map.put("Amt", -2L);
+		Assertions.assertEquals(map, cborDecoder.decode(bytes(0xbf, 0x63, 0x46, 0x75, 0x6e, 0xf5, 0x63, 0x41, 0x6d, 0x74, 0x21, 0xff)));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void roundTripsDtosLikeGson() throws IOException
+	{
+		Map<String, Object> user = (Map<String, Object>) roundTrip(new UserDto());
+
+		Assertions.assertEquals(Long.valueOf(7), user.get("userId"));
+		Assertions.assertEquals("shakir", user.get("name"));
+		Assertions.assertEquals(Arrays.asList("admin", "user"), user.get("roles"));
+		Assertions.assertFalse(user.containsKey("email"));
+		Assertions.assertFalse(user.containsKey("password"));
+		Assertions.assertFalse(user.containsKey("IGNORED"));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void roundTripsValues() throws IOException
+	{
+		String text = "héllo 😀 " + String.join("", Collections.nCopies(10_000, "x"));
+		Assertions.assertEquals(text, roundTrip(text));
+		Assertions.assertEquals(Long.valueOf(Long.MIN_VALUE), roundTrip(Long.MIN_VALUE));
+		Assertions.assertEquals(Long.valueOf(Long.MAX_VALUE), roundTrip(Long.MAX_VALUE));
+		Assertions.assertEquals(Double.valueOf(0.1), roundTrip(0.1));
+		Assertions.assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) roundTrip(new byte[]{1, 2, 3}));
+		byte[] large = new byte[200_000];
+		Arrays.fill(large, (byte) 7);
+		Assertions.assertArrayEquals(large, (byte[]) roundTrip(large));
+		Assertions.assertEquals(new Date(1_500_000_000_000L), roundTrip(new Date(1_500_000_000_000L)));
+		Assertions.assertEquals("SECONDS", roundTrip(java.util.concurrent.TimeUnit.SECONDS));
+
+		Map<String, Object> map = (Map<String, Object>) roundTrip(JsonParser.parseString("{\"a\":[1,2.5,\"b\",null,true]}"));
+		Assertions.assertEquals(Arrays.asList(1L, 2.5, "b", null, true), map.get("a"));
+	}
+
+	@Test
+	void capsNestingAndLengths()
+	{
+		byte[] deep = new byte[200];
+		Arrays.fill(deep, (byte) 0x81);
+		IOException exception = Assertions.assertThrows(IOException.class, () -> cborDecoder.decode(deep));
+		Assertions.assertTrue(exception.getMessage().contains("nested deeper"));
+
+		// a 4 GiB string is refused before anything is allocated
+		exception = Assertions.assertThrows(IOException.class, () -> cborDecoder.decode(bytes(0x5a, 0xff, 0xff, 0xff, 0xff)));
+		Assertions.assertTrue(exception.getMessage().contains("exceeds"));
+
+		CborDecoder smallDecoder = new CborDecoder(4, 8);
+		Assertions.assertThrows(IOException.class, () -> smallDecoder.decode(cborEncoder.encode("123456789")));
+		Assertions.assertThrows(IOException.class, () -> smallDecoder.decode(bytes(0x7f, 0x65, 0x31, 0x32, 0x33, 0x34, 0x35, 0x65, 0x31, 0x32, 0x33, 0x34, 0x35, 0xff)));
+		Assertions.assertThrows(IOException.class, () -> smallDecoder.decode(bytes(0x99, 0x01, 0x00)));
+	}
+
+	@Test
+	void rejectsMalformedData() throws IOException
+	{
+		Assertions.assertNull(cborDecoder.decode(new byte[0]));
+		Assertions.assertThrows(EOFException.class, () -> cborDecoder.decode(bytes(0x83, 0x01, 0x02)));
+		Assertions.assertThrows(EOFException.class, () -> cborDecoder.decode(bytes(0x64, 0x49, 0x45)));
+		Assertions.assertThrows(IOException.class, () -> cborDecoder.decode(bytes(0xff)));
+		Assertions.assertThrows(IOException.class, () -> cborDecoder.decode(bytes(0x82, 0x01, 0xff)));
+		Assertions.assertThrows(IOException.class, () -> cborDecoder.decode(bytes(0x1c)));
+		Assertions.assertThrows(IOException.class, () -> cborDecoder.decode(bytes(0x7f, 0x41, 0x00, 0xff)));
+
+		// a length just under the cap followed by a few bytes fails on the missing data, not on a 16 MB allocation
+		Assertions.assertThrows(EOFException.class, () -> cborDecoder.decode(bytes(0x5a, 0x00, 0xff, 0xff, 0xff, 0x01, 0x02)));
+	}
+}
@@ -0,0 +1,83 @@
+package in.jaxer.api.core.database;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link DataSource} handing out fake connections which record the calls made on them
+ */
+public class RecordingDataSource
+{
+	public final String name;
+	public final List<List<String>> connectionCallList = Collections.synchronizedList(new ArrayList<>());
+	public volatile boolean failSetAutoCommit = false;
+
+	public RecordingDataSource(String name)
+	{
+		this.name = name;
+	}
+
+	public List<String> lastCalls()
+	{
+		return connectionCallList.get(connectionCallList.size() - 1);
+	}
+
+	public DataSource build()
+	{
+		return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+			if (method.getName().equals("getConnection"))
+			{
+				return connection();
+			}
+			if (method.getName().equals("toString"))
+			{
+				return name;
+			}
+			return null;
+		});
+	}
+
+	private Connection connection()
+	{
+		List<String> callList = Collections.synchronizedList(new ArrayList<>());
+		connectionCallList.add(callList);
+
+		boolean[] autoCommit = {true};
+		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+			switch (method.getName())
+			{
+				case "getAutoCommit":
+					return autoCommit[0];
+				case "setAutoCommit":
+					callList.add("setAutoCommit(" + args[0] + ")");
+					if (failSetAutoCommit)
+					{
+						throw new SQLException("connection is broken");
+					}
+					autoCommit[0] = (Boolean) args[0];
+					return null;
+				case "setReadOnly":
+					callList.add("setReadOnly(" + args[0] + ")");
+					return null;
+				case "commit":
+				case "rollback":
+				case "close":
+					callList.add(method.getName());
+					return null;
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "equals":
+					return proxy == args[0];
+				case "toString":
+					return name + "#" + connectionCallList.indexOf(callList);
+				default:
+					return null;
+			}
+		});
+	}
+}
@@ -0,0 +1,105 @@
+package in.jaxer.api.core.database;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+
+class TaskDataSourceTest
+{
+	private final RecordingDataSource primary = new RecordingDataSource("primary");
+	private final RecordingDataSource replica = new RecordingDataSource("replica");
+
+	@Test
+	void requiresTheDataSource()
+	{
+		Assertions.assertThrows(NullPointerException.class, () -> TaskDataSource.builder().withReadOnlyDataSource(replica.build()).build());
+	}
+
+	@Test
+	void routesReadOnlyLeasesToTheReplica() throws Exception
+	{
+		TaskDataSource taskDataSource = TaskDataSource.builder().withDataSource(primary.build()).withReadOnlyDataSource(replica.build()).build();
+
+		try (TaskDataSource.Lease lease = taskDataSource.borrow(false))
+		{
+			Assertions.assertFalse(lease.isReadOnly());
+			Assertions.assertTrue(lease.getConnection().toString().startsWith("primary"));
+		}
+
+		try (TaskDataSource.Lease lease = taskDataSource.borrow(true))
+		{
+			Assertions.assertTrue(lease.isReadOnly());
+			Assertions.assertTrue(lease.getConnection().toString().startsWith("replica"));
+		}
+
+		Assertions.assertEquals(1, primary.connectionCallList.size());
+		Assertions.assertEquals(1, replica.connectionCallList.size());
+	}
+
+	@Test
+	void readOnlyLeasesUseThePrimaryWithoutReplica() throws Exception
+	{
+		TaskDataSource taskDataSource = TaskDataSource.builder().withDataSource(primary.build()).build();
+
+		try (TaskDataSource.Lease lease = taskDataSource.borrow(true))
+		{
+			Assertions.assertTrue(lease.getConnection().toString().startsWith("primary"));
+		}
+
+		Assertions.assertEquals(Arrays.asList("setReadOnly(true)", "setAutoCommit(false)", "rollback", "setAutoCommit(true)", "setReadOnly(false)", "close"),
+				primary.lastCalls());
+	}
+
+	@Test
+	void committedLeaseIsNotRolledBack() throws Exception
+	{
+		TaskDataSource taskDataSource = TaskDataSource.builder().withDataSource(primary.build()).build();
+
+		try (TaskDataSource.Lease lease = taskDataSource.borrow(false))
+		{
+			Assertions.assertFalse(lease.getConnection().getAutoCommit());
+			lease.commit();
+			lease.commit();
+		}
+
+		Assertions.assertEquals(Arrays.asList("setAutoCommit(false)", "commit", "setAutoCommit(true)", "close"), primary.lastCalls());
+	}
+
+	@Test
+	void closingWithoutCommitRollsBack() throws Exception
+	{
+		TaskDataSource taskDataSource = TaskDataSource.builder().withDataSource(primary.build()).build();
+
+		TaskDataSource.Lease lease = taskDataSource.borrow(false);
+		lease.close();
+
+		Assertions.assertEquals(Arrays.asList("setAutoCommit(false)", "rollback", "setAutoCommit(true)", "close"), primary.lastCalls());
+		Assertions.assertTrue(lease.getConnection().getAutoCommit());
+	}
+
+	@Test
+	void closesTheConnectionWhenTheTransactionCannotStart()
+	{
+		primary.failSetAutoCommit = true;
+		TaskDataSource taskDataSource = TaskDataSource.builder().withDataSource(primary.build()).build();
+
+		Assertions.assertThrows(SQLException.class, () -> taskDataSource.borrow(false));
+		Assertions.assertEquals(Arrays.asList("setAutoCommit(false)", "close"), primary.lastCalls());
+	}
+
+	@Test
+	void closesTheConnectionWhenTheSettingsCannotBeRestored() throws Exception
+	{
+		TaskDataSource taskDataSource = TaskDataSource.builder().withDataSource(primary.build()).build();
+
+		TaskDataSource.Lease lease = taskDataSource.borrow(false);
+		lease.commit();
+		primary.failSetAutoCommit = true;
+		lease.close();
+
+		Assertions.assertEquals("close", primary.lastCalls().get(primary.lastCalls().size() - 1));
+		Assertions.assertFalse(primary.lastCalls().contains("rollback"));
+	}
+}
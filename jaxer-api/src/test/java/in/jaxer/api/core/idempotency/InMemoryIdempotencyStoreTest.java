@@ -0,0 +1,126 @@
+package in.jaxer.api.core.idempotency;
+
+import in.jaxer.api.dtos.ApiResponseDto;
+import in.jaxer.api.exceptions.ApiException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+class InMemoryIdempotencyStoreTest
+{
+	private static int statusOf(Throwable throwable)
+	{
+		while (!(throwable instanceof ApiException) && throwable.getCause() != null)
+		{
+			throwable = throwable.getCause();
+		}
+		Assertions.assertTrue(throwable instanceof ApiException, "unexpected " + throwable);
+		return ((ApiException) throwable).getApiStatus().getCode();
+	}
+
+	private static CompletableFuture<ApiResponseDto> acquireAsync(IdempotencyStore idempotencyStore, String key, String fingerprint)
+	{
+		return CompletableFuture.supplyAsync(() -> {
+			try
+			{
+				return idempotencyStore.acquire(key, fingerprint);
+			} catch (Exception exception)
+			{
+				throw new IllegalStateException(exception);
+			}
+		});
+	}
+
+	@Test
+	void replaysTheStoredResponse() throws Exception
+	{
+		InMemoryIdempotencyStore idempotencyStore = InMemoryIdempotencyStore.builder().build();
+		ApiResponseDto apiResponseDto = new ApiResponseDto();
+
+		Assertions.assertNull(idempotencyStore.acquire("k", "f"));
+		idempotencyStore.complete("k", "f", apiResponseDto);
+
+		ApiResponseDto replayed = idempotencyStore.acquire("k", "f");
+		Assertions.assertNotSame(apiResponseDto, replayed);
+		Assertions.assertEquals(1, idempotencyStore.size());
+
+		// a caller adding to its replay does not change the next one
+		replayed.addUserMessage("changed by the caller");
+		apiResponseDto.addUserMessage("changed after completion");
+		Assertions.assertNull(idempotencyStore.acquire("k", "f").userMessageList);
+	}
+
+	@Test
+	void refusesAKeyReusedForAnotherRequest() throws Exception
+	{
+		InMemoryIdempotencyStore idempotencyStore = InMemoryIdempotencyStore.builder().build();
+
+		Assertions.assertNull(idempotencyStore.acquire("k", "f"));
+		Assertions.assertEquals(422, statusOf(Assertions.assertThrows(ApiException.class, () -> idempotencyStore.acquire("k", "other"))));
+
+		idempotencyStore.complete("k", "f", new ApiResponseDto());
+		Assertions.assertEquals(422, statusOf(Assertions.assertThrows(ApiException.class, () -> idempotencyStore.acquire("k", "other"))));
+	}
+
+	@Test
+	void duplicatesWaitForTheInFlightExecution() throws Exception
+	{
+		InMemoryIdempotencyStore idempotencyStore = InMemoryIdempotencyStore.builder().build();
+		ApiResponseDto apiResponseDto = new ApiResponseDto();
+		apiResponseDto.addTaskResponseValue("orderId", "o-1");
+
+		Assertions.assertNull(idempotencyStore.acquire("k", "f"));
+		CompletableFuture<ApiResponseDto> duplicate = acquireAsync(idempotencyStore, "k", "f");
+		TimeUnit.MILLISECONDS.sleep(50);
+		Assertions.assertFalse(duplicate.isDone());
+
+		idempotencyStore.complete("k", "f", apiResponseDto);
+		Assertions.assertEquals("o-1", duplicate.get(5, TimeUnit.SECONDS).taskResponseValue.get("orderId"));
+	}
+
+	@Test
+	void releasedKeysAreExecutedAgain() throws Exception
+	{
+		InMemoryIdempotencyStore idempotencyStore = InMemoryIdempotencyStore.builder().build();
+
+		Assertions.assertNull(idempotencyStore.acquire("k", "f"));
+		CompletableFuture<ApiResponseDto> duplicate = acquireAsync(idempotencyStore, "k", "f");
+		TimeUnit.MILLISECONDS.sleep(50);
+
+		// the waiting duplicate takes over the key
+		idempotencyStore.release("k");
+		Assertions.assertNull(duplicate.get(5, TimeUnit.SECONDS));
+		Assertions.assertEquals(1, idempotencyStore.size());
+	}
+
+	@Test
+	void duplicatesGiveUpAfterTheWait() throws Exception
+	{
+		InMemoryIdempotencyStore idempotencyStore = InMemoryIdempotencyStore.builder().withWaitMillis(50L).build();
+
+		Assertions.assertNull(idempotencyStore.acquire("k", "f"));
+		Assertions.assertEquals(409, statusOf(Assertions.assertThrows(ApiException.class, () -> idempotencyStore.acquire("k", "f"))));
+	}
+
+	@Test
+	void evictedReservationsFailTheirWaiters() throws Exception
+	{
+		InMemoryIdempotencyStore idempotencyStore = InMemoryIdempotencyStore.builder().withMaximumSize(1L).withWaitMillis(10_000L).build();
+
+		Assertions.assertNull(idempotencyStore.acquire("first", "f"));
+		CompletableFuture<ApiResponseDto> duplicate = acquireAsync(idempotencyStore, "first", "f");
+		TimeUnit.MILLISECONDS.sleep(50);
+
+		Assertions.assertNull(idempotencyStore.acquire("second", "f"));
+		Throwable throwable = Assertions.assertThrows(Exception.class, () -> duplicate.get(1, TimeUnit.SECONDS));
+		Assertions.assertEquals(409, statusOf(throwable));
+
+		// the execution finishing late still leaves its response for the retries
+		ApiResponseDto apiResponseDto = new ApiResponseDto();
+		apiResponseDto.addTaskResponseValue("orderId", "o-1");
+		idempotencyStore.complete("first", "f", apiResponseDto);
+		Assertions.assertEquals("o-1", idempotencyStore.acquire("first", "f").taskResponseValue.get("orderId"));
+	}
+}
@@ -0,0 +1,229 @@
+package in.jaxer.api.core.idempotency;
+
+import in.jaxer.api.dtos.ApiResponseDto;
+import in.jaxer.api.exceptions.ApiException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+class JdbcIdempotencyStoreTest
+{
+	/**
+	 * jaxer_idempotency rows by key: request_hash, response_json, expires_at
+	 */
+	private final Map<String, Object[]> rowMap = new HashMap<>();
+
+	/**
+	 * Auto-commit mode of the connections handed out, commits and rollbacks they received
+	 */
+	private volatile boolean autoCommit = true;
+	private final List<String> transactionCallList = Collections.synchronizedList(new ArrayList<>());
+
+	private static <T> T proxy(Class<T> type, InvocationHandler invocationHandler)
+	{
+		return type.cast(Proxy.newProxyInstance(JdbcIdempotencyStoreTest.class.getClassLoader(), new Class<?>[]{type}, invocationHandler));
+	}
+
+	/**
+	 * Understands the statements of the store and nothing else
+	 */
+	private DataSource dataSource()
+	{
+		return proxy(DataSource.class, (dataSource, dataSourceMethod, dataSourceArgs) -> proxy(Connection.class, (connection, method, args) -> {
+			switch (method.getName())
+			{
+				case "getAutoCommit":
+					return autoCommit;
+				case "commit":
+				case "rollback":
+					transactionCallList.add(method.getName());
+					return null;
+				case "prepareStatement":
+					break;
+				default:
+					return null;
+			}
+
+			String sql = (String) args[0];
+			Object[] parameters = new Object[5];
+			return proxy(PreparedStatement.class, (preparedStatement, statementMethod, statementArgs) -> {
+				switch (statementMethod.getName())
+				{
+					case "setString":
+					case "setLong":
+						parameters[(Integer) statementArgs[0]] = statementArgs[1];
+						return null;
+					case "executeUpdate":
+						return executeUpdate(sql, parameters);
+					case "executeQuery":
+						return executeQuery(parameters);
+					default:
+						return null;
+				}
+			});
+		}));
+	}
+
+	private synchronized int executeUpdate(String sql, Object[] parameters) throws SQLException
+	{
+		if (sql.contains("expires_at <= ?"))
+		{
+			int count = 0;
+			for (Iterator<Object[]> iterator = rowMap.values().iterator(); iterator.hasNext(); )
+			{
+				if ((Long) iterator.next()[2] <= (Long) parameters[1])
+				{
+					iterator.remove();
+					count++;
+				}
+			}
+			return count;
+		}
+
+		Object[] row = rowMap.get((String) (sql.startsWith("UPDATE") ? parameters[3] : parameters[1]));
+		if (sql.startsWith("INSERT"))
+		{
+			if (row != null)
+			{
+				throw new SQLException("duplicate key", "23505");
+			}
+			rowMap.put((String) parameters[1], new Object[]{parameters[2], null, parameters[3]});
+			return 1;
+		}
+		if (sql.startsWith("UPDATE"))
+		{
+			if (row == null || !row[0].equals(parameters[4]))
+			{
+				return 0;
+			}
+			row[1] = parameters[1];
+			row[2] = parameters[2];
+			return 1;
+		}
+		if (row != null && (sql.contains("response_json IS NULL") ? row[1] == null : row[2].equals(parameters[2])))
+		{
+			rowMap.remove((String) parameters[1]);
+			return 1;
+		}
+		return 0;
+	}
+
+	private synchronized ResultSet executeQuery(Object[] parameters)
+	{
+		Object[] row = rowMap.get((String) parameters[1]);
+		Object[] snapshot = row == null ? null : row.clone();
+		boolean[] read = {false};
+		return proxy(ResultSet.class, (resultSet, method, args) -> {
+			switch (method.getName())
+			{
+				case "next":
+					boolean next = snapshot != null && !read[0];
+					read[0] = true;
+					return next;
+				case "getString":
+					return (Integer) args[0] == 1 ? snapshot[1] : snapshot[0];
+				case "getLong":
+					return snapshot[2];
+				default:
+					return null;
+			}
+		});
+	}
+
+	@Test
+	void replaysTheStoredResponse() throws Exception
+	{
+		JdbcIdempotencyStore idempotencyStore = JdbcIdempotencyStore.builder().withDataSource(dataSource()).build();
+
+		ApiResponseDto apiResponseDto = new ApiResponseDto();
+		apiResponseDto.addTaskResponseValue("orderId", "o-1");
+
+		Assertions.assertNull(idempotencyStore.acquire("k", "f"));
+		idempotencyStore.complete("k", "f", apiResponseDto);
+
+		ApiResponseDto replayed = idempotencyStore.acquire("k", "f");
+		Assertions.assertNotNull(replayed);
+		Assertions.assertEquals("o-1", replayed.taskResponseValue.get("orderId"));
+	}
+
+	@Test
+	void refusesAKeyReusedForAnotherRequest() throws Exception
+	{
+		JdbcIdempotencyStore idempotencyStore = JdbcIdempotencyStore.builder().withDataSource(dataSource()).build();
+
+		Assertions.assertNull(idempotencyStore.acquire("k", "f"));
+		ApiException apiException = Assertions.assertThrows(ApiException.class, () -> idempotencyStore.acquire("k", "other"));
+		Assertions.assertEquals(422, apiException.getApiStatus().getCode());
+	}
+
+	@Test
+	void duplicatesGiveUpAfterTheWaitAndReleasedKeysExecuteAgain() throws Exception
+	{
+		JdbcIdempotencyStore idempotencyStore = JdbcIdempotencyStore.builder().withDataSource(dataSource()).withWaitMillis(100L).build();
+
+		Assertions.assertNull(idempotencyStore.acquire("k", "f"));
+		ApiException apiException = Assertions.assertThrows(ApiException.class, () -> idempotencyStore.acquire("k", "f"));
+		Assertions.assertEquals(409, apiException.getApiStatus().getCode());
+
+		idempotencyStore.release("k");
+		Assertions.assertNull(idempotencyStore.acquire("k", "f"));
+	}
+
+	@Test
+	void expiredReservationsAreTakenOver() throws Exception
+	{
+		JdbcIdempotencyStore idempotencyStore = JdbcIdempotencyStore.builder().withDataSource(dataSource()).withInFlightTtlMillis(20L).build();
+
+		Assertions.assertNull(idempotencyStore.acquire("k", "f"));
+		TimeUnit.MILLISECONDS.sleep(40);
+		Assertions.assertNull(idempotencyStore.acquire("k", "f"));
+
+		Assertions.assertNull(idempotencyStore.acquire("other", "f"));
+		TimeUnit.MILLISECONDS.sleep(40);
+		Assertions.assertEquals(2, idempotencyStore.purgeExpired());
+	}
+
+	@Test
+	void commitsEveryWriteWhenPooledConnectionsDoNotAutoCommit() throws Exception
+	{
+		autoCommit = false;
+		JdbcIdempotencyStore idempotencyStore = JdbcIdempotencyStore.builder().withDataSource(dataSource()).withWaitMillis(0L).build();
+
+		Assertions.assertNull(idempotencyStore.acquire("k", "f"));
+		Assertions.assertEquals(Collections.singletonList("commit"), transactionCallList);
+
+		// the duplicate insert is rolled back before the row is read
+		Assertions.assertThrows(ApiException.class, () -> idempotencyStore.acquire("k", "f"));
+		Assertions.assertEquals(Arrays.asList("commit", "rollback"), transactionCallList);
+
+		idempotencyStore.complete("k", "f", new ApiResponseDto());
+		idempotencyStore.release("other");
+		Assertions.assertEquals(Arrays.asList("commit", "rollback", "commit", "commit"), transactionCallList);
+	}
+
+	@Test
+	void leavesAutoCommitConnectionsAlone() throws Exception
+	{
+		JdbcIdempotencyStore idempotencyStore = JdbcIdempotencyStore.builder().withDataSource(dataSource()).build();
+
+		Assertions.assertNull(idempotencyStore.acquire("k", "f"));
+		idempotencyStore.complete("k", "f", new ApiResponseDto());
+
+		Assertions.assertTrue(transactionCallList.isEmpty());
+	}
+}
@@ -0,0 +1,127 @@
+package in.jaxer.api.core.metrics;
+
+import in.jaxer.api.dtos.ErrorDto;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+class InMemoryApiMetricsRegistryTest
+{
+	private static RequestMetrics requestMetrics(String taskName, long taskMillis, Integer errorCode, InMemoryApiMetricsRegistry registry)
+	{
+		RequestMetrics requestMetrics = new RequestMetrics();
+		requestMetrics.setTaskName(taskName);
+		requestMetrics.setApiVersion("1");
+		requestMetrics.record(ApiPhase.TASK, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(taskMillis));
+
+		ErrorDto errorDto = null;
+		if (errorCode != null)
+		{
+			errorDto = new ErrorDto();
+			errorDto.errorCode = errorCode;
+		}
+		requestMetrics.finish(errorDto, registry);
+		return requestMetrics;
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void countsRequestsErrorsAndPhasesPerTask()
+	{
+		InMemoryApiMetricsRegistry registry = new InMemoryApiMetricsRegistry();
+		requestMetrics("Profile", 3, null, registry);
+		requestMetrics("Profile", 3, null, registry);
+		requestMetrics("Profile", 40, 429, registry);
+		requestMetrics("Orders", 1, null, registry);
+
+		Assertions.assertEquals(2, registry.getTaskMetricsList().size());
+
+		InMemoryApiMetricsRegistry.TaskMetrics profile = null;
+		for (InMemoryApiMetricsRegistry.TaskMetrics taskMetrics : registry.getTaskMetricsList())
+		{
+			if (taskMetrics.getTaskName().equals("Profile"))
+			{
+				profile = taskMetrics;
+			}
+		}
+		Assertions.assertNotNull(profile);
+		Assertions.assertEquals(3, profile.getRequestCount());
+		Assertions.assertEquals(1, profile.getErrorCount());
+		Assertions.assertEquals(3, profile.getTotalLatency().getCount());
+		Assertions.assertEquals(3, profile.getPhaseLatency(ApiPhase.TASK).getCount());
+		Assertions.assertEquals(0, profile.getPhaseLatency(ApiPhase.PARSE).getCount());
+		Assertions.assertTrue(profile.getPhaseLatency(ApiPhase.TASK).getMaxMillis() >= 40);
+
+		for (Map<String, Object> task : registry.getSnapshot())
+		{
+			if (task.get("task").equals("Profile"))
+			{
+				Assertions.assertEquals(Long.valueOf(1), ((Map<String, Long>) task.get("errorsByCode")).get("429"));
+				Map<String, Object> latency = (Map<String, Object>) task.get("latency");
+				Assertions.assertTrue(latency.containsKey("TOTAL"));
+				Assertions.assertTrue(latency.containsKey("TASK"));
+				Assertions.assertFalse(latency.containsKey("PARSE"));
+			}
+		}
+	}
+
+	@Test
+	void capsTheNumberOfSeries()
+	{
+		InMemoryApiMetricsRegistry registry = new InMemoryApiMetricsRegistry(2);
+		requestMetrics("A", 1, null, registry);
+		requestMetrics("B", 1, null, registry);
+		requestMetrics("C", 1, null, registry);
+		requestMetrics("D", 1, null, registry);
+
+		List<InMemoryApiMetricsRegistry.TaskMetrics> taskMetricsList = registry.getTaskMetricsList();
+		Assertions.assertEquals(3, taskMetricsList.size());
+
+		long overflow = 0;
+		for (InMemoryApiMetricsRegistry.TaskMetrics taskMetrics : taskMetricsList)
+		{
+			if (taskMetrics.getTaskName().equals(InMemoryApiMetricsRegistry.OVERFLOW))
+			{
+				overflow = taskMetrics.getRequestCount();
+			}
+		}
+		Assertions.assertEquals(2, overflow);
+
+		registry.reset();
+		Assertions.assertTrue(registry.getTaskMetricsList().isEmpty());
+	}
+
+	@Test
+	void writesCumulativePrometheusHistograms() throws Exception
+	{
+		InMemoryApiMetricsRegistry registry = new InMemoryApiMetricsRegistry();
+		requestMetrics("Say \"hi\"", 2, null, registry);
+		requestMetrics("Say \"hi\"", 30, 500, registry);
+
+		StringWriter stringWriter = new StringWriter();
+		registry.writePrometheus(stringWriter);
+		String text = stringWriter.toString();
+
+		Assertions.assertTrue(text.contains("jaxer_api_requests_total{task=\"Say \\\"hi\\\"\",version=\"1\"} 2\n"));
+		Assertions.assertTrue(text.contains("jaxer_api_errors_total{task=\"Say \\\"hi\\\"\",version=\"1\",code=\"500\"} 1\n"));
+		Assertions.assertTrue(text.contains("jaxer_api_request_seconds_bucket{task=\"Say \\\"hi\\\"\",version=\"1\",le=\"+Inf\"} 2\n"));
+		Assertions.assertTrue(text.contains("jaxer_api_request_seconds_count{task=\"Say \\\"hi\\\"\",version=\"1\"} 2\n"));
+
+		// buckets are cumulative, never decreasing
+		long previous = 0;
+		for (String line : text.split("\n"))
+		{
+			if (line.startsWith("jaxer_api_phase_seconds_bucket") && line.contains("phase=\"TASK\""))
+			{
+				long cumulative = Long.parseLong(line.substring(line.lastIndexOf(' ') + 1));
+				Assertions.assertTrue(cumulative >= previous);
+				previous = cumulative;
+			}
+		}
+		Assertions.assertEquals(2, previous);
+	}
+}
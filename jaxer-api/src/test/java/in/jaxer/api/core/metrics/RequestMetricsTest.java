@@ -0,0 +1,98 @@
+package in.jaxer.api.core.metrics;
+
+import in.jaxer.api.dtos.RequestResponseDto;
+import in.jaxer.api.exceptions.ApiException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class RequestMetricsTest
+{
+	@Test
+	void onlyFirstCallerResponds()
+	{
+		RequestMetrics requestMetrics = new RequestMetrics();
+
+		Assertions.assertFalse(requestMetrics.isResponded());
+		Assertions.assertTrue(requestMetrics.markResponded());
+		Assertions.assertFalse(requestMetrics.markResponded());
+		Assertions.assertTrue(requestMetrics.isResponded());
+	}
+
+	@Test
+	void publishesOnceAndIgnoresLaterPhases()
+	{
+		List<RequestMetrics> recordedList = new ArrayList<>();
+		RequestMetrics requestMetrics = new RequestMetrics();
+
+		requestMetrics.record(ApiPhase.TASK, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5));
+		long taskNanos = requestMetrics.getPhaseNanos(ApiPhase.TASK);
+		Assertions.assertTrue(taskNanos >= TimeUnit.MILLISECONDS.toNanos(5));
+
+		requestMetrics.finish(null, recordedList::add);
+		long totalNanos = requestMetrics.getTotalNanos();
+
+		// the worker of a timed out request keeps going
+		requestMetrics.record(ApiPhase.TASK, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5));
+		requestMetrics.finish(null, recordedList::add);
+
+		Assertions.assertEquals(1, recordedList.size());
+		Assertions.assertEquals(taskNanos, requestMetrics.getPhaseNanos(ApiPhase.TASK));
+		Assertions.assertEquals(totalNanos, requestMetrics.getTotalNanos());
+	}
+
+	@Test
+	void finishRacingWithWorkerPublishesOnce() throws Exception
+	{
+		for (int round = 0; round < 50; round++)
+		{
+			List<RequestMetrics> recordedList = new ArrayList<>();
+			RequestMetrics requestMetrics = new RequestMetrics();
+			CountDownLatch start = new CountDownLatch(1);
+
+			Thread worker = new Thread(() -> {
+				try
+				{
+					start.await();
+				} catch (InterruptedException exception)
+				{
+					Thread.currentThread().interrupt();
+				}
+				for (int i = 0; i < 1000; i++)
+				{
+					requestMetrics.record(ApiPhase.TASK, System.nanoTime());
+				}
+				requestMetrics.finish(null, recordedList::add);
+			});
+			worker.start();
+
+			start.countDown();
+			requestMetrics.finish(null, recordedList::add);
+			worker.join();
+
+			Assertions.assertEquals(1, recordedList.size());
+		}
+	}
+
+	@Test
+	void requestIsNotHandedOutOnceResponded()
+	{
+		RequestMetrics requestMetrics = new RequestMetrics();
+		RequestResponseDto requestResponseDto = new RequestResponseDto(new HashMap<>(), null, null, false);
+		requestResponseDto.setRequestMetrics(requestMetrics);
+
+		Assertions.assertNull(requestResponseDto.getHttpServletRequest());
+		Assertions.assertNull(requestResponseDto.getHttpServletResponse());
+
+		requestMetrics.markResponded();
+
+		ApiException apiException = Assertions.assertThrows(ApiException.class, requestResponseDto::getHttpServletRequest);
+		Assertions.assertEquals(504, apiException.getApiStatus().getCode());
+		Assertions.assertThrows(ApiException.class, requestResponseDto::getHttpServletResponse);
+	}
+}
@@ -0,0 +1,97 @@
+package in.jaxer.api.core.multipart;
+
+import com.google.common.hash.Hashing;
+import in.jaxer.api.dtos.UploadedMediaDto;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import javax.servlet.http.Part;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+class MultipartUploadPipelineTest
+{
+	private final AtomicInteger deletedParts = new AtomicInteger();
+
+	private Part part(String contentType, byte[] content)
+	{
+		return (Part) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Part.class}, (proxy, method, args) -> {
+			switch (method.getName())
+			{
+				case "getName":
+					return "file";
+				case "getSubmittedFileName":
+					return "upload.bin";
+				case "getContentType":
+					return contentType;
+				case "getSize":
+					return (long) content.length;
+				case "getInputStream":
+					return new ByteArrayInputStream(content);
+				case "delete":
+					deletedParts.incrementAndGet();
+					return null;
+				default:
+					return null;
+			}
+		});
+	}
+
+	@Test
+	void storesContentOnceUnderItsHash(@TempDir Path tempDir) throws Exception
+	{
+		FileSystemContentStore contentStore = new FileSystemContentStore(tempDir);
+		MultipartUploadPipeline multipartUploadPipeline = new MultipartUploadPipeline(contentStore);
+		byte[] content = "hello multipart".getBytes(StandardCharsets.UTF_8);
+
+		UploadedMediaDto first = multipartUploadPipeline.store(part("text/plain", content));
+		UploadedMediaDto second = multipartUploadPipeline.store(part("text/plain", content));
+
+		String sha256 = Hashing.sha256().hashBytes(content).toString();
+		Assertions.assertEquals(sha256, first.contentHash);
+		Assertions.assertEquals(content.length, first.size);
+		Assertions.assertFalse(first.duplicate);
+		Assertions.assertTrue(second.duplicate);
+		Assertions.assertEquals(first.path, second.path);
+		Assertions.assertArrayEquals(content, Files.readAllBytes(contentStore.getPath(sha256)));
+		Assertions.assertEquals(2, deletedParts.get());
+
+		// no staging file is left behind
+		try (Stream<Path> staging = Files.list(tempDir.resolve(".staging")))
+		{
+			Assertions.assertEquals(0, staging.count());
+		}
+	}
+
+	@Test
+	void readsImageDimensionsFromTheCapturedHeader(@TempDir Path tempDir) throws Exception
+	{
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(7, 3, BufferedImage.TYPE_INT_RGB), "png", png);
+
+		UploadedMediaDto uploadedMediaDto = new MultipartUploadPipeline(new FileSystemContentStore(tempDir))
+				.store(part("image/png", png.toByteArray()));
+
+		Assertions.assertEquals(7, uploadedMediaDto.width);
+		Assertions.assertEquals(3, uploadedMediaDto.height);
+	}
+
+	@Test
+	void rejectsInvalidHashes(@TempDir Path tempDir) throws Exception
+	{
+		FileSystemContentStore contentStore = new FileSystemContentStore(tempDir);
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> contentStore.getPath("../../etc/passwd"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> contentStore.getPath("ab"));
+		Assertions.assertEquals(tempDir.resolve("ab").resolve("cd").resolve("abcdef"), contentStore.getPath("abcdef"));
+	}
+}
@@ -0,0 +1,223 @@
+package in.jaxer.api.core.request;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import in.jaxer.api.ServletStubs;
+import in.jaxer.api.core.database.RecordingDataSource;
+import in.jaxer.api.core.database.TaskDataSource;
+import in.jaxer.api.core.request.batch.BatchEcho;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class BatchRequestHandlerTest
+{
+	private static final String BASE_PACKAGE = "in.jaxer.api.core.request.batch";
+
+	private final Gson gson = new Gson();
+
+	private String envelope(String batchMode, Map<?, ?>... invocations)
+	{
+		Map<String, Object> envelope = new HashMap<>();
+		envelope.put("API_REQUEST_SOURCE", "WEB");
+		envelope.put("API_VERSION", "1");
+		if (batchMode != null)
+		{
+			envelope.put("API_BATCH_MODE", batchMode);
+		}
+		List<Map<?, ?>> batch = new ArrayList<>();
+		Collections.addAll(batch, invocations);
+		envelope.put("API_BATCH", batch);
+		return gson.toJson(envelope);
+	}
+
+	private static Map<String, String> invocation(String taskName, String... keyValues)
+	{
+		Map<String, String> invocation = new HashMap<>();
+		invocation.put("API_TASK_NAME", taskName);
+		for (int i = 0; i < keyValues.length; i += 2)
+		{
+			invocation.put(keyValues[i], keyValues[i + 1]);
+		}
+		return invocation;
+	}
+
+	private List<Map<String, Object>> parse(ServletStubs.Response response)
+	{
+		return gson.fromJson(response.getBody(), new TypeToken<List<Map<String, Object>>>()
+		{
+		}.getType());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Object value(Map<String, Object> apiResponse, String key)
+	{
+		Map<String, Object> taskResponseValue = (Map<String, Object>) apiResponse.get("taskResponseValue");
+		return taskResponseValue == null ? null : taskResponseValue.get(key);
+	}
+
+	@Test
+	void sequentialWithoutConnectionRunsEveryInvocation() throws Exception
+	{
+		ServletStubs.Request request = new ServletStubs.Request().header("X-Trace", "t-1")
+				.body(envelope(null, invocation("BatchEcho", "value", "a"), invocation("BatchFail"), invocation("BatchEcho", "value", "b")));
+		ServletStubs.Response response = new ServletStubs.Response();
+
+		new BatchRequestHandler(BASE_PACKAGE, null).processRequest(null, request.build(), response.build(), null);
+
+		List<Map<String, Object>> responseList = parse(response);
+		Assertions.assertEquals(3, responseList.size());
+		Assertions.assertEquals("a", value(responseList.get(0), "value"));
+		Assertions.assertEquals("t-1", value(responseList.get(0), "trace"));
+		Assertions.assertNotNull(responseList.get(1).get("errorDto"));
+		Assertions.assertEquals("b", value(responseList.get(2), "value"));
+	}
+
+	@Test
+	void sequentialFailureRollsBackTheBatch() throws Exception
+	{
+		AtomicInteger commits = new AtomicInteger();
+		AtomicInteger rollbacks = new AtomicInteger();
+		Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+			switch (method.getName())
+			{
+				case "commit":
+					commits.incrementAndGet();
+					return null;
+				case "rollback":
+					rollbacks.incrementAndGet();
+					return null;
+				case "getAutoCommit":
+					return true;
+				default:
+					return null;
+			}
+		});
+
+		ServletStubs.Request request = new ServletStubs.Request()
+				.body(envelope("SEQUENTIAL", invocation("BatchEcho", "value", "a"), invocation("BatchFail"), invocation("BatchEcho", "value", "b")));
+		ServletStubs.Response response = new ServletStubs.Response();
+
+		new BatchRequestHandler(BASE_PACKAGE, null).processRequest(connection, request.build(), response.build(), null);
+
+		List<Map<String, Object>> responseList = parse(response);
+		Assertions.assertEquals(3, responseList.size());
+		for (Map<String, Object> apiResponse : responseList)
+		{
+			Assertions.assertNotNull(apiResponse.get("errorDto"));
+		}
+		Assertions.assertEquals(0, commits.get());
+		Assertions.assertEquals(1, rollbacks.get());
+	}
+
+	@Test
+	void sequentialBorrowsOneConnectionForTheBatch() throws Exception
+	{
+		RecordingDataSource recordingDataSource = new RecordingDataSource("primary");
+		BatchRequestHandler batchRequestHandler = new BatchRequestHandler(BASE_PACKAGE, null);
+		batchRequestHandler.setTaskDataSource(TaskDataSource.builder().withDataSource(recordingDataSource.build()).build());
+
+		ServletStubs.Request request = new ServletStubs.Request()
+				.body(envelope(null, invocation("BatchEcho", "value", "a"), invocation("BatchEcho", "value", "b")));
+		ServletStubs.Response response = new ServletStubs.Response();
+		batchRequestHandler.processRequest(null, request.build(), response.build(), null);
+
+		List<Map<String, Object>> responseList = parse(response);
+		Assertions.assertEquals("a", value(responseList.get(0), "value"));
+		Assertions.assertEquals("b", value(responseList.get(1), "value"));
+
+		Assertions.assertEquals(1, recordingDataSource.connectionCallList.size());
+		Assertions.assertEquals(Arrays.asList("setAutoCommit(false)", "commit", "setAutoCommit(true)", "close"), recordingDataSource.lastCalls());
+	}
+
+	@Test
+	void sequentialFailureRollsBackTheBorrowedConnection() throws Exception
+	{
+		RecordingDataSource recordingDataSource = new RecordingDataSource("primary");
+		BatchRequestHandler batchRequestHandler = new BatchRequestHandler(BASE_PACKAGE, null);
+		batchRequestHandler.setTaskDataSource(TaskDataSource.builder().withDataSource(recordingDataSource.build()).build());
+
+		ServletStubs.Request request = new ServletStubs.Request()
+				.body(envelope(null, invocation("BatchEcho", "value", "a"), invocation("BatchFail"), invocation("BatchEcho", "value", "b")));
+		ServletStubs.Response response = new ServletStubs.Response();
+		batchRequestHandler.processRequest(null, request.build(), response.build(), null);
+
+		List<Map<String, Object>> responseList = parse(response);
+		Assertions.assertEquals(3, responseList.size());
+		for (Map<String, Object> apiResponse : responseList)
+		{
+			Assertions.assertNotNull(apiResponse.get("errorDto"));
+		}
+
+		Assertions.assertEquals(1, recordingDataSource.connectionCallList.size());
+		Assertions.assertEquals(Arrays.asList("setAutoCommit(false)", "rollback", "setAutoCommit(true)", "close"), recordingDataSource.lastCalls());
+	}
+
+	@Test
+	void parallelKeepsOrderAndStaysOffTheContainerObjects() throws Exception
+	{
+		ExecutorService executorService = Executors.newFixedThreadPool(4);
+		BatchEcho.MAX_ACTIVE.set(0);
+
+		ServletStubs.Request request = new ServletStubs.Request().header("X-Trace", "t-2")
+				.body(envelope("PARALLEL",
+						invocation("BatchEcho", "value", "slow", "sleepMillis", "200"),
+						invocation("BatchEcho", "value", "b", "sleepMillis", "50"),
+						invocation("BatchFail"),
+						invocation("BatchEcho", "value", "d", "sleepMillis", "50")));
+		ServletStubs.Response response = new ServletStubs.Response();
+
+		try
+		{
+			new BatchRequestHandler(BASE_PACKAGE, executorService).processRequest(null, request.build(), response.build(), null);
+		} finally
+		{
+			executorService.shutdown();
+		}
+
+		List<Map<String, Object>> responseList = parse(response);
+		Assertions.assertEquals(4, responseList.size());
+		Assertions.assertEquals("slow", value(responseList.get(0), "value"));
+		Assertions.assertEquals("b", value(responseList.get(1), "value"));
+		Assertions.assertNotNull(responseList.get(2).get("errorDto"));
+		Assertions.assertEquals("d", value(responseList.get(3), "value"));
+
+		// every invocation sees the request headers and attributes of its own
+		Assertions.assertEquals("t-2", value(responseList.get(1), "trace"));
+		Assertions.assertEquals("b", value(responseList.get(1), "attribute"));
+		Assertions.assertTrue(BatchEcho.MAX_ACTIVE.get() > 1);
+
+		// only the container thread touched the servlet request and response
+		Assertions.assertEquals(Collections.singleton(Thread.currentThread()), request.callerSet);
+		Assertions.assertEquals(Collections.singleton(Thread.currentThread()), response.callerSet);
+		Assertions.assertFalse(response.headerMap.containsKey("X-Echo"));
+		Assertions.assertTrue(request.attributeMap.isEmpty());
+	}
+
+	@Test
+	void rejectsBatchesOverTheLimit() throws Exception
+	{
+		BatchRequestHandler batchRequestHandler = new BatchRequestHandler(BASE_PACKAGE, null);
+		batchRequestHandler.setMaxBatchSize(1);
+
+		ServletStubs.Request request = new ServletStubs.Request()
+				.body(envelope(null, invocation("BatchEcho", "value", "a"), invocation("BatchEcho", "value", "b")));
+		ServletStubs.Response response = new ServletStubs.Response();
+		batchRequestHandler.processRequest(null, request.build(), response.build(), null);
+
+		List<Map<String, Object>> responseList = parse(response);
+		Assertions.assertEquals(1, responseList.size());
+		Assertions.assertNotNull(responseList.get(0).get("errorDto"));
+	}
+}
@@ -0,0 +1,104 @@
+package in.jaxer.api.core.request;
+
+import com.google.gson.Gson;
+import in.jaxer.api.ServletStubs;
+import in.jaxer.api.annotations.MultipartTask;
+import in.jaxer.api.annotations.RestTask;
+import in.jaxer.api.dtos.PrincipalDto;
+import in.jaxer.api.exceptions.ApiException;
+import in.jaxer.api.listners.Authentication;
+import in.jaxer.api.listners.CachingAuthentication;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class RestRequestHandlerAuthorizationTest
+{
+	private static final String BASE_PACKAGE = "in.jaxer.api.core.request.roles";
+
+	private final AtomicInteger lookups = new AtomicInteger();
+
+	/**
+	 * The token is the comma separated roles of the caller
+	 */
+	private final Authentication authentication = CachingAuthentication.builder()
+			.withDelegate((connection, requestResponseDto) -> {
+				lookups.incrementAndGet();
+				String accessToken = requestResponseDto.getAccessToken();
+				requestResponseDto.setPrincipalDto(new PrincipalDto(accessToken, new HashSet<>(Arrays.asList(accessToken.split(",")))));
+			})
+			.build();
+
+	private Exception process(String accessToken)
+	{
+		Map<String, String> body = new HashMap<>();
+		body.put("API_REQUEST_SOURCE", "WEB");
+		body.put("API_VERSION", "1");
+		body.put("API_TASK_NAME", "AdminOnly");
+		body.put("API_ACCESS_TOKEN", accessToken);
+
+		try
+		{
+			new RestRequestHandler(BASE_PACKAGE, RestTask.class).processRequest(null, new ServletStubs.Request().body(new Gson().toJson(body)).build(), new ServletStubs.Response().build(), authentication);
+			return null;
+		} catch (Exception exception)
+		{
+			return exception;
+		}
+	}
+
+	private Exception processMultipart(String accessToken)
+	{
+		ServletStubs.Request request = new ServletStubs.Request()
+				.header("Content-Type", "multipart/form-data; boundary=b")
+				.parameter("API_REQUEST_SOURCE", "WEB")
+				.parameter("API_VERSION", "1")
+				.parameter("MULTIPART_TASK_NAME", "AdminUpload")
+				.parameter("API_ACCESS_TOKEN", accessToken);
+
+		try
+		{
+			new MultipartRequestHandler(BASE_PACKAGE, MultipartTask.class).processRequest(null, request.build(), new ServletStubs.Response().build(), authentication);
+			return null;
+		} catch (Exception exception)
+		{
+			return exception;
+		}
+	}
+
+	@Test
+	void allowsAnyOfTheRoles()
+	{
+		Assertions.assertNull(process("admin"));
+		Assertions.assertNull(process("guest,support"));
+	}
+
+	@Test
+	void forbidsCallersWithoutTheRoles()
+	{
+		for (int i = 0; i < 2; i++)
+		{
+			Exception exception = process("user,guest");
+			Assertions.assertTrue(exception instanceof ApiException);
+			Assertions.assertEquals(403, ((ApiException) exception).getApiStatus().getCode());
+		}
+
+		// the cached principal is authorized without another lookup
+		Assertions.assertEquals(1, lookups.get());
+	}
+
+	@Test
+	void authorizesMultipartTasksToo()
+	{
+		Assertions.assertNull(processMultipart("support"));
+
+		Exception exception = processMultipart("guest");
+		Assertions.assertTrue(exception instanceof ApiException);
+		Assertions.assertEquals(403, ((ApiException) exception).getApiStatus().getCode());
+	}
+}
@@ -0,0 +1,139 @@
+package in.jaxer.api.core.request;
+
+import com.google.gson.Gson;
+import in.jaxer.api.ServletStubs;
+import in.jaxer.api.annotations.RestTask;
+import in.jaxer.api.core.database.RecordingDataSource;
+import in.jaxer.api.core.database.TaskDataSource;
+import in.jaxer.api.core.request.pooled.PooledRead;
+import in.jaxer.api.core.request.pooled.PooledWrite;
+import in.jaxer.api.core.request.pooled.Unpooled;
+import in.jaxer.api.listners.Authentication;
+import in.jaxer.api.listners.CachingAuthentication;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+class RestRequestHandlerConnectionTest
+{
+	private static final String BASE_PACKAGE = "in.jaxer.api.core.request.pooled";
+
+	private final RecordingDataSource primary = new RecordingDataSource("primary");
+	private final RecordingDataSource replica = new RecordingDataSource("replica");
+	private final AtomicReference<Connection> authenticationConnection = new AtomicReference<>();
+	private final Authentication authentication = (connection, requestResponseDto) -> authenticationConnection.set(connection);
+
+	@BeforeEach
+	void reset()
+	{
+		PooledWrite.lastConnection = null;
+		PooledRead.lastConnection = null;
+		Unpooled.lastConnection = null;
+		Unpooled.executed = false;
+	}
+
+	private void process(Connection connection, String taskName, String... keyValues) throws Exception
+	{
+		process(connection, authentication, taskName, keyValues);
+	}
+
+	private void process(Connection connection, Authentication authentication, String taskName, String... keyValues) throws Exception
+	{
+		Map<String, String> body = new HashMap<>();
+		body.put("API_REQUEST_SOURCE", "WEB");
+		body.put("API_VERSION", "1");
+		body.put("API_TASK_NAME", taskName);
+		body.put("API_ACCESS_TOKEN", "token");
+		for (int i = 0; i < keyValues.length; i += 2)
+		{
+			body.put(keyValues[i], keyValues[i + 1]);
+		}
+
+		RestRequestHandler requestHandler = new RestRequestHandler(BASE_PACKAGE, RestTask.class);
+		requestHandler.setTaskDataSource(TaskDataSource.builder().withDataSource(primary.build()).withReadOnlyDataSource(replica.build()).build());
+		requestHandler.processRequest(connection, new ServletStubs.Request().body(new Gson().toJson(body)).build(), new ServletStubs.Response().build(), authentication);
+	}
+
+	@Test
+	void taskRunsInACommittedTransactionOfItsOwn() throws Exception
+	{
+		process(null, "PooledWrite");
+
+		// one short lease for the authentication, one for the task
+		Assertions.assertEquals(2, primary.connectionCallList.size());
+		List<String> authenticationCalls = primary.connectionCallList.get(0);
+		List<String> taskCalls = primary.connectionCallList.get(1);
+		Assertions.assertEquals(Arrays.asList("setAutoCommit(false)", "commit", "setAutoCommit(true)", "close"), authenticationCalls);
+		Assertions.assertEquals(Arrays.asList("setAutoCommit(false)", "commit", "setAutoCommit(true)", "close"), taskCalls);
+
+		Assertions.assertNotNull(PooledWrite.lastConnection);
+		Assertions.assertNotSame(authenticationConnection.get(), PooledWrite.lastConnection);
+		Assertions.assertTrue(replica.connectionCallList.isEmpty());
+	}
+
+	@Test
+	void failedTaskIsRolledBackAndReturned()
+	{
+		Assertions.assertThrows(IllegalStateException.class, () -> process(null, "PooledWrite", "fail", "true"));
+
+		Assertions.assertEquals(Arrays.asList("setAutoCommit(false)", "rollback", "setAutoCommit(true)", "close"), primary.lastCalls());
+	}
+
+	@Test
+	void readOnlyTaskBorrowsFromTheReplica() throws Exception
+	{
+		process(null, "PooledRead");
+
+		Assertions.assertEquals(1, primary.connectionCallList.size());
+		Assertions.assertEquals(1, replica.connectionCallList.size());
+		Assertions.assertTrue(PooledRead.lastConnection.toString().startsWith("replica"));
+		Assertions.assertEquals(Arrays.asList("setReadOnly(true)", "setAutoCommit(false)", "commit", "setAutoCommit(true)", "setReadOnly(false)", "close"),
+				replica.lastCalls());
+	}
+
+	@Test
+	void taskWithoutConnectionBorrowsNothing() throws Exception
+	{
+		process(null, "Unpooled");
+
+		Assertions.assertTrue(Unpooled.executed);
+		Assertions.assertNull(Unpooled.lastConnection);
+		// only the authentication lease
+		Assertions.assertEquals(1, primary.connectionCallList.size());
+	}
+
+	@Test
+	void connectionOfTheCallerIsNeverReplaced() throws Exception
+	{
+		Connection connection = new RecordingDataSource("caller").build().getConnection();
+
+		process(connection, "PooledWrite");
+
+		Assertions.assertSame(connection, PooledWrite.lastConnection);
+		Assertions.assertSame(connection, authenticationConnection.get());
+		Assertions.assertTrue(primary.connectionCallList.isEmpty());
+	}
+
+	@Test
+	void cachedAuthenticationBorrowsNoConnection() throws Exception
+	{
+		Authentication cachingAuthentication = CachingAuthentication.builder().withDelegate(authentication).build();
+
+		process(null, cachingAuthentication, "PooledWrite");
+		Assertions.assertEquals(2, primary.connectionCallList.size());
+
+		authenticationConnection.set(null);
+		process(null, cachingAuthentication, "PooledWrite");
+
+		// the hit is answered from the cache, only the task borrows
+		Assertions.assertNull(authenticationConnection.get());
+		Assertions.assertEquals(3, primary.connectionCallList.size());
+	}
+}
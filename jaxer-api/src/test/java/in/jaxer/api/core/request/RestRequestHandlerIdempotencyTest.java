@@ -0,0 +1,165 @@
+package in.jaxer.api.core.request;
+
+import com.google.gson.Gson;
+import in.jaxer.api.ServletStubs;
+import in.jaxer.api.annotations.RestTask;
+import in.jaxer.api.core.idempotency.InMemoryIdempotencyStore;
+import in.jaxer.api.core.request.idempotent.CreateOrder;
+import in.jaxer.api.dtos.ApiResponseDto;
+import in.jaxer.api.dtos.PrincipalDto;
+import in.jaxer.api.exceptions.ApiException;
+import in.jaxer.api.listners.Authentication;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+class RestRequestHandlerIdempotencyTest
+{
+	private static final String BASE_PACKAGE = "in.jaxer.api.core.request.idempotent";
+
+	/**
+	 * Tokens of the form user-x:... belong to user x, the "-" user sets no principal
+	 */
+	private static final Authentication AUTHENTICATION = (connection, requestResponseDto) -> {
+		String accessToken = requestResponseDto.getAccessToken();
+		String user = accessToken.substring(0, accessToken.indexOf(':'));
+		if (!user.equals("-"))
+		{
+			requestResponseDto.setPrincipalDto(new PrincipalDto(user, Collections.emptySet()));
+		}
+	};
+
+	private final InMemoryIdempotencyStore idempotencyStore = InMemoryIdempotencyStore.builder().withWaitMillis(50L).build();
+
+	private RestRequestHandler requestHandler;
+	private ServletStubs.Response response;
+
+	@BeforeEach
+	void reset()
+	{
+		CreateOrder.EXECUTIONS.set(0);
+	}
+
+	private ServletStubs.Request request(String accessToken, String item)
+	{
+		Map<String, String> body = new HashMap<>();
+		body.put("API_REQUEST_SOURCE", "WEB");
+		body.put("API_VERSION", "1");
+		body.put("API_TASK_NAME", "CreateOrder");
+		body.put("API_ACCESS_TOKEN", accessToken);
+		body.put("item", item);
+		if (item.equals("fail"))
+		{
+			body.put("fail", "true");
+		}
+
+		return new ServletStubs.Request().header("Idempotency-Key", "key-1").body(new Gson().toJson(body));
+	}
+
+	private Object process(ServletStubs.Request request, Connection connection)
+	{
+		requestHandler = new RestRequestHandler(BASE_PACKAGE, RestTask.class);
+		requestHandler.setIdempotencyStore(idempotencyStore);
+		response = new ServletStubs.Response();
+
+		try
+		{
+			ApiResponseDto apiResponseDto = requestHandler.processRequest(connection, request.build(), response.build(), AUTHENTICATION);
+			return apiResponseDto.taskResponseValue.get("orderId");
+		} catch (Exception exception)
+		{
+			return exception;
+		}
+	}
+
+	private Object process(ServletStubs.Request request)
+	{
+		return process(request, null);
+	}
+
+	private static int statusOf(Object result)
+	{
+		Assertions.assertTrue(result instanceof ApiException, "unexpected " + result);
+		return ((ApiException) result).getApiStatus().getCode();
+	}
+
+	@Test
+	void replaysTheFirstResponseToRetries()
+	{
+		Assertions.assertEquals("o-1", process(request("user-1:token-a", "book")));
+		Assertions.assertNull(response.headerMap.get("Idempotent-Replayed"));
+
+		// a refreshed token is the same caller and the same request
+		Assertions.assertEquals("o-1", process(request("user-1:token-b", "book")));
+		Assertions.assertEquals("true", response.headerMap.get("Idempotent-Replayed"));
+		Assertions.assertEquals(1, CreateOrder.EXECUTIONS.get());
+	}
+
+	@Test
+	void refusesTheKeyForADifferentPayload()
+	{
+		Assertions.assertEquals("o-1", process(request("user-1:token-a", "book")));
+		Assertions.assertEquals(422, statusOf(process(request("user-1:token-a", "pen"))));
+		Assertions.assertEquals(1, CreateOrder.EXECUTIONS.get());
+	}
+
+	@Test
+	void scopesTheKeyToTheCaller()
+	{
+		Assertions.assertEquals("o-1", process(request("user-1:token-a", "book")));
+		Assertions.assertEquals("o-2", process(request("user-2:token-a", "book")));
+
+		// without a principal the remote address is the caller, forwarded headers are ignored
+		Assertions.assertEquals("o-3", process(request("-:token", "book").header("X-Forwarded-For", "1.1.1.1")));
+		Assertions.assertEquals("o-3", process(request("-:token", "book").header("X-Forwarded-For", "2.2.2.2")));
+
+		ServletStubs.Request otherAddress = request("-:token", "book");
+		otherAddress.remoteAddr = "10.0.0.2";
+		Assertions.assertEquals("o-4", process(otherAddress));
+	}
+
+	@Test
+	void failedExecutionsAreRetried()
+	{
+		Assertions.assertTrue(process(request("user-1:token-a", "fail")) instanceof IllegalStateException);
+		Assertions.assertTrue(process(request("user-1:token-a", "fail")) instanceof IllegalStateException);
+		Assertions.assertEquals(2, CreateOrder.EXECUTIONS.get());
+	}
+
+	@Test
+	void storesTheResponseOnlyOnceTheCallerCommits()
+	{
+		Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+				(proxy, method, args) -> method.getName().equals("getAutoCommit") ? false : null);
+
+		Assertions.assertEquals("o-1", process(request("user-1:token-a", "book"), connection));
+		RestRequestHandler firstRequestHandler = requestHandler;
+		Assertions.assertTrue(firstRequestHandler.isIdempotencyPending());
+
+		// not committed yet, the retry waits and gives up
+		Assertions.assertEquals(409, statusOf(process(request("user-1:token-a", "book"), connection)));
+
+		firstRequestHandler.completeIdempotency();
+		Assertions.assertFalse(firstRequestHandler.isIdempotencyPending());
+		Assertions.assertEquals("o-1", process(request("user-1:token-a", "book"), connection));
+		Assertions.assertEquals(1, CreateOrder.EXECUTIONS.get());
+	}
+
+	@Test
+	void rolledBackExecutionsAreRetried()
+	{
+		Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+				(proxy, method, args) -> method.getName().equals("getAutoCommit") ? false : null);
+
+		Assertions.assertEquals("o-1", process(request("user-1:token-a", "book"), connection));
+		requestHandler.releaseIdempotency();
+
+		Assertions.assertEquals("o-2", process(request("user-1:token-a", "book"), connection));
+	}
+}
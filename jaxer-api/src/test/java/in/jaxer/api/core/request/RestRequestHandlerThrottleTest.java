@@ -0,0 +1,73 @@
+package in.jaxer.api.core.request;
+
+import com.google.gson.Gson;
+import in.jaxer.api.ServletStubs;
+import in.jaxer.api.annotations.RestTask;
+import in.jaxer.api.dtos.PrincipalDto;
+import in.jaxer.api.exceptions.ApiException;
+import in.jaxer.api.listners.Authentication;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+class RestRequestHandlerThrottleTest
+{
+	private static final String BASE_PACKAGE = "in.jaxer.api.core.request.throttled";
+
+	/**
+	 * Every token of the form user-x:... belongs to user x
+	 */
+	private static final Authentication AUTHENTICATION = (connection, requestResponseDto) -> {
+		String accessToken = requestResponseDto.getAccessToken();
+		requestResponseDto.setPrincipalDto(new PrincipalDto(accessToken.substring(0, accessToken.indexOf(':')), Collections.emptySet()));
+	};
+
+	private static Exception process(String taskName, String accessToken, String remoteAddr, String forwardedFor)
+	{
+		Map<String, String> body = new HashMap<>();
+		body.put("API_REQUEST_SOURCE", "WEB");
+		body.put("API_VERSION", "1");
+		body.put("API_TASK_NAME", taskName);
+		body.put("API_ACCESS_TOKEN", accessToken);
+
+		ServletStubs.Request request = new ServletStubs.Request().header("X-Forwarded-For", forwardedFor).body(new Gson().toJson(body));
+		request.remoteAddr = remoteAddr;
+
+		try
+		{
+			new RestRequestHandler(BASE_PACKAGE, RestTask.class).processRequest(null, request.build(), new ServletStubs.Response().build(), AUTHENTICATION);
+			return null;
+		} catch (Exception exception)
+		{
+			return exception;
+		}
+	}
+
+	@Test
+	void callerLimitsCountTheAuthenticatedPrincipal()
+	{
+		Assertions.assertNull(process("CallerLimited", "user-1:token-a", "10.0.0.1", "1.1.1.1"));
+
+		// a new token and a spoofed address do not reset the limit of the same user
+		Exception exception = process("CallerLimited", "user-1:token-b", "10.0.0.2", "2.2.2.2");
+		Assertions.assertTrue(exception instanceof ApiException);
+		Assertions.assertEquals(429, ((ApiException) exception).getApiStatus().getCode());
+
+		Assertions.assertNull(process("CallerLimited", "user-2:token-c", "10.0.0.1", "1.1.1.1"));
+	}
+
+	@Test
+	void addressLimitsIgnoreForwardedHeaders()
+	{
+		Assertions.assertNull(process("AddressLimited", "-:x", "10.0.0.7", "3.3.3.3"));
+
+		Exception exception = process("AddressLimited", "-:x", "10.0.0.7", "4.4.4.4");
+		Assertions.assertTrue(exception instanceof ApiException);
+		Assertions.assertEquals(429, ((ApiException) exception).getApiStatus().getCode());
+
+		Assertions.assertNull(process("AddressLimited", "-:x", "10.0.0.8", "3.3.3.3"));
+	}
+}
@@ -0,0 +1,58 @@
+package in.jaxer.api.core.request;
+
+import in.jaxer.api.annotations.RestTask;
+import in.jaxer.api.core.request.registry.FailingConstructor;
+import in.jaxer.api.core.request.registry.WithoutNoArgConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TaskRegistryTest
+{
+	private static final String BASE_PACKAGE = "in.jaxer.api.core.request.registry";
+
+	@AfterEach
+	void clear()
+	{
+		TaskRegistry.clear();
+	}
+
+	@Test
+	void scansAPackageOnce()
+	{
+		TaskRegistry taskRegistry = TaskRegistry.of(BASE_PACKAGE, RestTask.class);
+
+		Assertions.assertSame(taskRegistry, TaskRegistry.of(BASE_PACKAGE, RestTask.class));
+		Assertions.assertEquals(4, taskRegistry.getTaskList().size());
+
+		TaskRegistry.clear();
+		Assertions.assertNotSame(taskRegistry, TaskRegistry.of(BASE_PACKAGE, RestTask.class));
+	}
+
+	@Test
+	void resolvesTasksBySimpleName() throws Exception
+	{
+		TaskRegistry taskRegistry = TaskRegistry.of(BASE_PACKAGE, RestTask.class);
+
+		// of two tasks with the same simple name one is kept
+		Class<?> clazz = taskRegistry.getTask("RegistryTask");
+		Assertions.assertNotNull(clazz);
+		Assertions.assertEquals("RegistryTask", clazz.getSimpleName());
+		Assertions.assertNull(taskRegistry.getTask("Missing"));
+
+		Object first = taskRegistry.newInstance(clazz);
+		Object second = taskRegistry.newInstance(clazz);
+		Assertions.assertSame(clazz, first.getClass());
+		Assertions.assertNotSame(first, second);
+	}
+
+	@Test
+	void reportsTasksThatCannotBeCreated()
+	{
+		TaskRegistry taskRegistry = TaskRegistry.of(BASE_PACKAGE, RestTask.class);
+
+		Assertions.assertThrows(InstantiationException.class, () -> taskRegistry.newInstance(WithoutNoArgConstructor.class));
+		IllegalStateException exception = Assertions.assertThrows(IllegalStateException.class, () -> taskRegistry.newInstance(FailingConstructor.class));
+		Assertions.assertEquals("not configured", exception.getMessage());
+	}
+}
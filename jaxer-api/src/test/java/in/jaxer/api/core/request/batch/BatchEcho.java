@@ -0,0 +1,39 @@
+package in.jaxer.api.core.request.batch;
+
+import in.jaxer.api.annotations.RestTask;
+import in.jaxer.api.core.tasks.AbstractApiTask;
+
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RestTask(isPublicApi = true)
+public class BatchEcho extends AbstractApiTask
+{
+	public static final AtomicInteger ACTIVE = new AtomicInteger();
+	public static final AtomicInteger MAX_ACTIVE = new AtomicInteger();
+
+	@Override
+	public void doApiTask(Connection connection) throws Exception
+	{
+		MAX_ACTIVE.accumulateAndGet(ACTIVE.incrementAndGet(), Math::max);
+		try
+		{
+			String sleepMillis = getParameter("sleepMillis");
+			if (sleepMillis != null)
+			{
+				TimeUnit.MILLISECONDS.sleep(Long.parseLong(sleepMillis));
+			}
+
+			getRequestResponseDto().getHttpServletResponse().setHeader("X-Echo", getParameter("value"));
+			getHttpServletRequest().setAttribute("echo", getParameter("value"));
+
+			setParameter("value", getParameter("value"));
+			setParameter("trace", getHttpServletRequest().getHeader("X-Trace"));
+			setParameter("attribute", String.valueOf(getHttpServletRequest().getAttribute("echo")));
+		} finally
+		{
+			ACTIVE.decrementAndGet();
+		}
+	}
+}
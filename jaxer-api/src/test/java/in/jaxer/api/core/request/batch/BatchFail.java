@@ -0,0 +1,17 @@
+package in.jaxer.api.core.request.batch;
+
+import in.jaxer.api.annotations.RestTask;
+import in.jaxer.api.core.tasks.AbstractApiTask;
+import in.jaxer.api.exceptions.ApiException;
+
+import java.sql.Connection;
+
+@RestTask(isPublicApi = true)
+public class BatchFail extends AbstractApiTask
+{
+	@Override
+	public void doApiTask(Connection connection)
+	{
+		throw new ApiException("failed on purpose");
+	}
+}
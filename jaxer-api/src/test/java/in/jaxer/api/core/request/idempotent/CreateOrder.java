@@ -0,0 +1,25 @@
+package in.jaxer.api.core.request.idempotent;
+
+import in.jaxer.api.annotations.RestTask;
+import in.jaxer.api.core.tasks.AbstractApiTask;
+
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RestTask
+public class CreateOrder extends AbstractApiTask
+{
+	public static final AtomicInteger EXECUTIONS = new AtomicInteger();
+
+	@Override
+	public void doApiTask(Connection connection)
+	{
+		if ("true".equals(getParameter("fail")))
+		{
+			EXECUTIONS.incrementAndGet();
+			throw new IllegalStateException("out of stock");
+		}
+
+		setParameter("orderId", "o-" + EXECUTIONS.incrementAndGet());
+	}
+}
@@ -0,0 +1,18 @@
+package in.jaxer.api.core.request.pooled;
+
+import in.jaxer.api.annotations.RestTask;
+import in.jaxer.api.core.tasks.AbstractApiTask;
+
+import java.sql.Connection;
+
+@RestTask(requiresConnection = true, readOnly = true)
+public class PooledRead extends AbstractApiTask
+{
+	public static volatile Connection lastConnection = null;
+
+	@Override
+	public void doApiTask(Connection connection)
+	{
+		lastConnection = connection;
+	}
+}
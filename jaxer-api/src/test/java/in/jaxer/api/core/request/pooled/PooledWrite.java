@@ -0,0 +1,22 @@
+package in.jaxer.api.core.request.pooled;
+
+import in.jaxer.api.annotations.RestTask;
+import in.jaxer.api.core.tasks.AbstractApiTask;
+
+import java.sql.Connection;
+
+@RestTask(requiresConnection = true)
+public class PooledWrite extends AbstractApiTask
+{
+	public static volatile Connection lastConnection = null;
+
+	@Override
+	public void doApiTask(Connection connection)
+	{
+		lastConnection = connection;
+		if ("true".equals(getParameter("fail")))
+		{
+			throw new IllegalStateException("constraint violated");
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package in.jaxer.api.core.request.pooled;
+
+import in.jaxer.api.annotations.RestTask;
+import in.jaxer.api.core.tasks.AbstractApiTask;
+
+import java.sql.Connection;
+
+@RestTask
+public class Unpooled extends AbstractApiTask
+{
+	public static volatile boolean executed = false;
+	public static volatile Connection lastConnection = null;
+
+	@Override
+	public void doApiTask(Connection connection)
+	{
+		executed = true;
+		lastConnection = connection;
+	}
+}
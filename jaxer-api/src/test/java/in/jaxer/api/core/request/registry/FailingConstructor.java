@@ -0,0 +1,20 @@
+package in.jaxer.api.core.request.registry;
+
+import in.jaxer.api.annotations.RestTask;
+import in.jaxer.api.core.tasks.AbstractApiTask;
+
+import java.sql.Connection;
+
+@RestTask(isPublicApi = true)
+public class FailingConstructor extends AbstractApiTask
+{
+	public FailingConstructor()
+	{
+		throw new IllegalStateException("not configured");
+	}
+
+	@Override
+	public void doApiTask(Connection connection)
+	{
+	}
+}
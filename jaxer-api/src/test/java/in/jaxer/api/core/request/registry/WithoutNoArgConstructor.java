@@ -0,0 +1,19 @@
+package in.jaxer.api.core.request.registry;
+
+import in.jaxer.api.annotations.RestTask;
+import in.jaxer.api.core.tasks.AbstractApiTask;
+
+import java.sql.Connection;
+
+@RestTask(isPublicApi = true)
+public class WithoutNoArgConstructor extends AbstractApiTask
+{
+	public WithoutNoArgConstructor(String name)
+	{
+	}
+
+	@Override
+	public void doApiTask(Connection connection)
+	{
+	}
+}
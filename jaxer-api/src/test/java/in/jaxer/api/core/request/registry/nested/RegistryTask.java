@@ -0,0 +1,15 @@
+package in.jaxer.api.core.request.registry.nested;
+
+import in.jaxer.api.annotations.RestTask;
+import in.jaxer.api.core.tasks.AbstractApiTask;
+
+import java.sql.Connection;
+
+@RestTask(isPublicApi = true)
+public class RegistryTask extends AbstractApiTask
+{
+	@Override
+	public void doApiTask(Connection connection)
+	{
+	}
+}
@@ -0,0 +1,16 @@
+package in.jaxer.api.core.request.roles;
+
+import in.jaxer.api.annotations.RestTask;
+import in.jaxer.api.core.tasks.AbstractApiTask;
+
+import java.sql.Connection;
+
+@RestTask(allowedRole = {"admin", "support"})
+public class AdminOnly extends AbstractApiTask
+{
+	@Override
+	public void doApiTask(Connection connection)
+	{
+		setParameter("done", "true");
+	}
+}
@@ -0,0 +1,16 @@
+package in.jaxer.api.core.request.roles;
+
+import in.jaxer.api.annotations.MultipartTask;
+import in.jaxer.api.core.tasks.AbstractMultipartTask;
+
+import java.sql.Connection;
+
+@MultipartTask(allowedRole = {"admin", "support"})
+public class AdminUpload extends AbstractMultipartTask
+{
+	@Override
+	public void doMultipartTask(Connection connection)
+	{
+		setParameter("done", "true");
+	}
+}
@@ -0,0 +1,17 @@
+package in.jaxer.api.core.request.throttled;
+
+import in.jaxer.api.annotations.RestTask;
+import in.jaxer.api.annotations.ThrottleKey;
+import in.jaxer.api.core.tasks.AbstractApiTask;
+
+import java.sql.Connection;
+
+@RestTask(rateLimit = 0.001, rateLimitBurst = 1, throttleKey = ThrottleKey.ACCESS_TOKEN)
+public class CallerLimited extends AbstractApiTask
+{
+	@Override
+	public void doApiTask(Connection connection)
+	{
+		setParameter("done", "true");
+	}
+}
@@ -0,0 +1,195 @@
+package in.jaxer.api.core.streaming;
+
+import in.jaxer.api.ServletStubs;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+class ResponseStreamTest
+{
+	/**
+	 * Output stream of an async request, not ready until the test says so
+	 */
+	static class AsyncOutputStream extends ServletOutputStream
+	{
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		volatile boolean ready = false;
+		WriteListener writeListener;
+
+		@Override
+		public boolean isReady()
+		{
+			return ready;
+		}
+
+		@Override
+		public void setWriteListener(WriteListener writeListener)
+		{
+			this.writeListener = writeListener;
+		}
+
+		@Override
+		public void write(int b)
+		{
+			body.write(b);
+		}
+
+		String getBody()
+		{
+			return new String(body.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+
+	private static ResponseStream open(ServletStubs.Response response, StreamFormat streamFormat) throws IOException
+	{
+		return ResponseStream.open(new ServletStubs.Request().build(), response.build(), streamFormat, 1024, 1000);
+	}
+
+	private static ResponseStream openAsync(AsyncOutputStream asyncOutputStream, long maxBufferedBytes, long writeTimeoutMillis) throws IOException
+	{
+		AsyncContext asyncContext = (AsyncContext) Proxy.newProxyInstance(ResponseStreamTest.class.getClassLoader(), new Class<?>[]{AsyncContext.class}, (proxy, method, args) -> null);
+		HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(ResponseStreamTest.class.getClassLoader(), new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+			switch (method.getName())
+			{
+				case "isAsyncStarted":
+					return true;
+				case "getAsyncContext":
+					return asyncContext;
+				default:
+					return null;
+			}
+		});
+		HttpServletResponse response = (HttpServletResponse) Proxy.newProxyInstance(ResponseStreamTest.class.getClassLoader(), new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> {
+			switch (method.getName())
+			{
+				case "getOutputStream":
+					return asyncOutputStream;
+				case "isCommitted":
+					return false;
+				default:
+					return null;
+			}
+		});
+		return ResponseStream.open(request, response, StreamFormat.NDJSON, maxBufferedBytes, writeTimeoutMillis);
+	}
+
+	@Test
+	void writesOneJsonDocumentPerLine() throws IOException
+	{
+		ServletStubs.Response response = new ServletStubs.Response();
+		try (ResponseStream responseStream = open(response, StreamFormat.NDJSON))
+		{
+			responseStream.send(Collections.singletonMap("id", 1));
+			responseStream.send("ignored", "two\nlines");
+			responseStream.heartbeat();
+		}
+
+		Assertions.assertEquals("application/x-ndjson", response.contentType);
+		Assertions.assertEquals("no-cache", response.headerMap.get("Cache-Control"));
+		Assertions.assertEquals("no", response.headerMap.get("X-Accel-Buffering"));
+		Assertions.assertEquals("{\"id\":1}\n\"two\\nlines\"\n\n", new String(response.body.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void framesServerSentEvents() throws IOException
+	{
+		ServletStubs.Response response = new ServletStubs.Response();
+		try (ResponseStream responseStream = open(response, StreamFormat.SSE))
+		{
+			responseStream.send("row", Collections.singletonMap("id", 1));
+			responseStream.send("line\nbreak");
+			responseStream.heartbeat();
+		}
+
+		Assertions.assertEquals("text/event-stream", response.contentType);
+		Assertions.assertEquals("event: row\ndata: {\"id\":1}\n\ndata: \"line\\nbreak\"\n\n:\n\n", new String(response.body.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void refusesEventNamesWithLineBreaks() throws IOException
+	{
+		ServletStubs.Response response = new ServletStubs.Response();
+		try (ResponseStream responseStream = open(response, StreamFormat.SSE))
+		{
+			Assertions.assertThrows(IllegalArgumentException.class, () -> responseStream.send("row\ndata: injected", 1));
+			Assertions.assertThrows(IllegalArgumentException.class, () -> responseStream.send("row\revent: other", 1));
+		}
+
+		Assertions.assertEquals(0, response.body.size());
+	}
+
+	@Test
+	void picksTheFormatFromAccept()
+	{
+		Assertions.assertSame(StreamFormat.SSE, StreamFormat.of(new ServletStubs.Request().header("Accept", "text/event-stream").build()));
+		Assertions.assertSame(StreamFormat.NDJSON, StreamFormat.of(new ServletStubs.Request().header("Accept", "application/json").build()));
+		Assertions.assertSame(StreamFormat.NDJSON, StreamFormat.of(new ServletStubs.Request().build()));
+	}
+
+	@Test
+	void refusesSendsAfterClose() throws IOException
+	{
+		ResponseStream responseStream = open(new ServletStubs.Response(), StreamFormat.NDJSON);
+		responseStream.close();
+
+		Assertions.assertThrows(IOException.class, () -> responseStream.send(1));
+	}
+
+	@Test
+	void holdsTheTaskUntilTheClientCatchesUp() throws Exception
+	{
+		AsyncOutputStream asyncOutputStream = new AsyncOutputStream();
+		ResponseStream responseStream = openAsync(asyncOutputStream, 8, 5000);
+		Assertions.assertTrue(responseStream.isNonBlocking());
+		Assertions.assertNotNull(asyncOutputStream.writeListener);
+
+		// queued while the container is not ready
+		responseStream.send("first");
+		Assertions.assertEquals("", asyncOutputStream.getBody());
+
+		CompletableFuture<Void> second = CompletableFuture.runAsync(() -> {
+			try
+			{
+				responseStream.send("second");
+			} catch (IOException exception)
+			{
+				throw new IllegalStateException(exception);
+			}
+		});
+		TimeUnit.MILLISECONDS.sleep(100);
+		Assertions.assertFalse(second.isDone());
+
+		asyncOutputStream.ready = true;
+		asyncOutputStream.writeListener.onWritePossible();
+		second.get(5, TimeUnit.SECONDS);
+
+		responseStream.close();
+		Assertions.assertEquals("\"first\"\n\"second\"\n", asyncOutputStream.getBody());
+	}
+
+	@Test
+	void failsWhenTheClientStopsReading() throws Exception
+	{
+		AsyncOutputStream asyncOutputStream = new AsyncOutputStream();
+		ResponseStream responseStream = openAsync(asyncOutputStream, 8, 50);
+
+		responseStream.send("first");
+		IOException exception = Assertions.assertThrows(IOException.class, () -> responseStream.send("second"));
+		Assertions.assertTrue(exception.getMessage().contains("did not read"));
+
+		// the stream stays failed
+		Assertions.assertThrows(IOException.class, () -> responseStream.send("third"));
+	}
+}
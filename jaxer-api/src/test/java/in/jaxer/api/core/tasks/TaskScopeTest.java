@@ -0,0 +1,243 @@
+package in.jaxer.api.core.tasks;
+
+import in.jaxer.api.core.database.RecordingDataSource;
+import in.jaxer.api.core.database.TaskDataSource;
+import in.jaxer.api.exceptions.ApiException;
+import in.jaxer.api.exceptions.JaxerApiException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+class TaskScopeTest
+{
+	private final ExecutorService executorService = Executors.newCachedThreadPool();
+
+	@AfterEach
+	void shutdown()
+	{
+		executorService.shutdownNow();
+	}
+
+	/**
+	 * Blocks until interrupted, counting down the latches once started and once interrupted
+	 */
+	private static String blockUntilInterrupted(CountDownLatch started, CountDownLatch interrupted) throws InterruptedException
+	{
+		started.countDown();
+		try
+		{
+			Thread.sleep(60 * 1000L);
+			return "not interrupted";
+		} catch (InterruptedException exception)
+		{
+			interrupted.countDown();
+			throw exception;
+		}
+	}
+
+	@Test
+	void joinsEveryForkedOperation() throws Exception
+	{
+		try (TaskScope taskScope = TaskScope.builder().withExecutorService(executorService).build())
+		{
+			TaskScope.Subtask<String> slow = taskScope.fork(() -> {
+				Thread.sleep(100);
+				return "slow";
+			});
+			TaskScope.Subtask<Integer> fast = taskScope.fork(() -> 42);
+
+			Assertions.assertThrows(IllegalStateException.class, slow::get);
+
+			taskScope.joinAll();
+
+			Assertions.assertEquals("slow", slow.get());
+			Assertions.assertEquals(Integer.valueOf(42), fast.get());
+			Assertions.assertNull(slow.getException());
+		}
+	}
+
+	@Test
+	void firstFailureCancelsTheOthers() throws Exception
+	{
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch interrupted = new CountDownLatch(1);
+
+		try (TaskScope taskScope = TaskScope.builder().withExecutorService(executorService).build())
+		{
+			TaskScope.Subtask<String> blocked = taskScope.fork(() -> blockUntilInterrupted(started, interrupted));
+			started.await();
+			taskScope.fork(() -> {
+				throw new IllegalArgumentException("bad input");
+			});
+
+			IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class, taskScope::joinAll);
+			Assertions.assertEquals("bad input", exception.getMessage());
+			Assertions.assertTrue(blocked.isCancelled());
+			Assertions.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+			Assertions.assertThrows(IllegalStateException.class, blocked::get);
+		}
+	}
+
+	@Test
+	void reportsEveryFailure() throws Exception
+	{
+		CountDownLatch started = new CountDownLatch(2);
+
+		try (TaskScope taskScope = TaskScope.builder().withExecutorService(executorService).build())
+		{
+			for (String message : Arrays.asList("first", "second"))
+			{
+				taskScope.fork(() -> {
+					started.countDown();
+					started.await();
+					throw new IllegalStateException(message);
+				});
+			}
+
+			// both failures have happened before the scope is joined
+			started.await();
+			Thread.sleep(100);
+
+			ApiException exception = Assertions.assertThrows(ApiException.class, taskScope::joinAll);
+			Assertions.assertTrue(exception.getMessage().startsWith("2 of 2 forked operations failed"));
+			Assertions.assertTrue(exception.getMessage().contains("first"));
+			Assertions.assertTrue(exception.getMessage().contains("second"));
+			Assertions.assertEquals(1, exception.getSuppressed().length);
+		}
+	}
+
+	@Test
+	void deadlineCancelsWhatIsStillRunning() throws Exception
+	{
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch interrupted = new CountDownLatch(1);
+
+		try (TaskScope taskScope = TaskScope.builder().withExecutorService(executorService).withTimeoutMillis(100L).build())
+		{
+			TaskScope.Subtask<String> blocked = taskScope.fork(() -> blockUntilInterrupted(started, interrupted));
+			started.await();
+
+			long startedAt = System.nanoTime();
+			ApiException exception = Assertions.assertThrows(ApiException.class, taskScope::joinAll);
+			Assertions.assertEquals(504, exception.getApiStatus().getCode());
+			Assertions.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) < 5000);
+			Assertions.assertTrue(blocked.isCancelled());
+			Assertions.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	void closeCancelsWhatIsStillRunning() throws Exception
+	{
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch interrupted = new CountDownLatch(1);
+		TaskScope.Subtask<String> blocked;
+
+		try (TaskScope taskScope = TaskScope.builder().withExecutorService(executorService).build())
+		{
+			blocked = taskScope.fork(() -> blockUntilInterrupted(started, interrupted));
+			started.await();
+		}
+
+		Assertions.assertTrue(blocked.isCancelled());
+		Assertions.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+		Assertions.assertNull(blocked.getException());
+	}
+
+	@Test
+	void interruptingTheJoiningThreadCancelsTheScope() throws Exception
+	{
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch interrupted = new CountDownLatch(1);
+		AtomicReference<Exception> joinFailure = new AtomicReference<>();
+		AtomicReference<Boolean> interruptFlag = new AtomicReference<>();
+
+		TaskScope taskScope = TaskScope.builder().withExecutorService(executorService).build();
+		TaskScope.Subtask<String> blocked = taskScope.fork(() -> blockUntilInterrupted(started, interrupted));
+
+		Thread joiner = new Thread(() -> {
+			try
+			{
+				taskScope.joinAll();
+			} catch (Exception exception)
+			{
+				joinFailure.set(exception);
+			}
+			interruptFlag.set(Thread.currentThread().isInterrupted());
+		});
+		joiner.start();
+		started.await();
+		Thread.sleep(100);
+		joiner.interrupt();
+		joiner.join(5000);
+
+		Assertions.assertTrue(joinFailure.get() instanceof ApiException);
+		Assertions.assertEquals(504, ((ApiException) joinFailure.get()).getApiStatus().getCode());
+		Assertions.assertEquals(Boolean.TRUE, interruptFlag.get());
+		Assertions.assertTrue(blocked.isCancelled());
+		Assertions.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void forkedOperationsBorrowAConnectionOfTheirOwn() throws Exception
+	{
+		RecordingDataSource primary = new RecordingDataSource("primary");
+		RecordingDataSource replica = new RecordingDataSource("replica");
+		TaskDataSource taskDataSource = TaskDataSource.builder().withDataSource(primary.build()).withReadOnlyDataSource(replica.build()).build();
+
+		try (TaskScope taskScope = TaskScope.builder().withExecutorService(executorService).withTaskDataSource(taskDataSource).build())
+		{
+			TaskScope.Subtask<String> write = taskScope.forkWithConnection(connection -> connection.toString());
+			TaskScope.Subtask<String> read = taskScope.forkWithConnection(true, connection -> connection.toString());
+			taskScope.forkWithConnection(connection -> {
+				throw new IllegalStateException("deadlock");
+			});
+
+			Assertions.assertThrows(IllegalStateException.class, taskScope::joinAll);
+			// the failure may cancel the others before they complete
+			Assertions.assertTrue(write.isCancelled() || write.get().startsWith("primary"));
+			Assertions.assertTrue(read.isCancelled() || read.get().startsWith("replica"));
+		}
+
+		// every lease is returned, the failed one rolled back
+		Thread.sleep(100);
+		for (RecordingDataSource recordingDataSource : Arrays.asList(primary, replica))
+		{
+			for (List<String> callList : recordingDataSource.connectionCallList)
+			{
+				Assertions.assertEquals("close", callList.get(callList.size() - 1));
+			}
+		}
+		Assertions.assertEquals(1, primary.connectionCallList.stream().filter(callList -> callList.contains("rollback")).count());
+	}
+
+	@Test
+	void forkWithConnectionRequiresTheDataSource()
+	{
+		try (TaskScope taskScope = TaskScope.builder().withExecutorService(executorService).build())
+		{
+			Assertions.assertThrows(JaxerApiException.class, () -> taskScope.forkWithConnection(connection -> null));
+		}
+	}
+
+	@Test
+	void rejectedForkIsNotJoined() throws Exception
+	{
+		ExecutorService stopped = Executors.newSingleThreadExecutor();
+		stopped.shutdown();
+
+		try (TaskScope taskScope = TaskScope.builder().withExecutorService(stopped).build())
+		{
+			Assertions.assertThrows(JaxerApiException.class, () -> taskScope.fork(() -> "never"));
+			taskScope.joinAll();
+		}
+	}
+}
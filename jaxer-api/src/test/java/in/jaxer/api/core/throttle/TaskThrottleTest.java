@@ -0,0 +1,57 @@
+package in.jaxer.api.core.throttle;
+
+import in.jaxer.api.annotations.ThrottleKey;
+import in.jaxer.api.exceptions.ApiException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TaskThrottleTest
+{
+	@Test
+	void limitsRequestsPerKey()
+	{
+		TaskThrottle taskThrottle = new TaskThrottle(0.001, 2, 0, ThrottleKey.IP_ADDRESS);
+
+		taskThrottle.acquire("a");
+		taskThrottle.acquire("a");
+		ApiException apiException = Assertions.assertThrows(ApiException.class, () -> taskThrottle.acquire("a"));
+		Assertions.assertEquals(429, apiException.getApiStatus().getCode());
+
+		// other keys have their own bucket
+		taskThrottle.acquire("b");
+	}
+
+	@Test
+	void limitsConcurrencyUntilReleased()
+	{
+		TaskThrottle taskThrottle = new TaskThrottle(0, 0, 1, ThrottleKey.GLOBAL);
+
+		String permit = taskThrottle.acquire("");
+		Assertions.assertThrows(ApiException.class, () -> taskThrottle.acquire(""));
+
+		taskThrottle.release(permit);
+		taskThrottle.release(taskThrottle.acquire(""));
+	}
+
+	@Test
+	void keysBeyondTheCapShareOneLimit()
+	{
+		TaskThrottle taskThrottle = new TaskThrottle(0, 0, 1, ThrottleKey.IP_ADDRESS);
+		for (int i = 0; i < TaskThrottle.MAX_KEYS; i++)
+		{
+			taskThrottle.acquire("key-" + i);
+		}
+
+		Assertions.assertEquals(TaskThrottle.OVERFLOW_KEY, taskThrottle.acquire("new-1"));
+		Assertions.assertThrows(ApiException.class, () -> taskThrottle.acquire("new-2"));
+
+		// tracked keys keep their own limit
+		Assertions.assertThrows(ApiException.class, () -> taskThrottle.acquire("key-0"));
+	}
+
+	@Test
+	void tasksWithoutLimitsAreUnlimited()
+	{
+		Assertions.assertTrue(TaskThrottle.of(Object.class).isUnlimited());
+	}
+}
@@ -0,0 +1,43 @@
+package in.jaxer.api.core.throttle;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+class TokenBucketTest
+{
+	@Test
+	void grantsTheBurstThenRefuses()
+	{
+		TokenBucket tokenBucket = new TokenBucket(1, 3);
+
+		Assertions.assertTrue(tokenBucket.tryAcquire());
+		Assertions.assertTrue(tokenBucket.tryAcquire());
+		Assertions.assertTrue(tokenBucket.tryAcquire());
+		Assertions.assertFalse(tokenBucket.tryAcquire());
+		Assertions.assertFalse(tokenBucket.isIdle());
+	}
+
+	@Test
+	void refillsAtTheSustainedRate() throws Exception
+	{
+		TokenBucket tokenBucket = new TokenBucket(50, 1);
+
+		Assertions.assertTrue(tokenBucket.tryAcquire());
+		Assertions.assertFalse(tokenBucket.tryAcquire());
+
+		// one permit every 20 ms
+		TimeUnit.MILLISECONDS.sleep(30);
+		Assertions.assertTrue(tokenBucket.isIdle());
+		Assertions.assertTrue(tokenBucket.tryAcquire());
+		Assertions.assertFalse(tokenBucket.tryAcquire());
+	}
+
+	@Test
+	void rejectsInvalidLimits()
+	{
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0));
+	}
+}
@@ -0,0 +1,106 @@
+package in.jaxer.api.dtos;
+
+import in.jaxer.api.constants.ApiStatus;
+import in.jaxer.api.exceptions.ApiException;
+import in.jaxer.api.exceptions.UserException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ApiResponseDtoTest
+{
+	@Test
+	void expectedErrorsCaptureNoStackTrace()
+	{
+		Assertions.assertEquals(0, new ApiException("invalid").getStackTrace().length);
+		Assertions.assertEquals(0, new ApiException(ApiStatus.FORBIDDEN).getStackTrace().length);
+		Assertions.assertEquals(0, new UserException("try again").getStackTrace().length);
+	}
+
+	@Test
+	void statusErrorsRenderAnErrorDtoOfTheirOwn()
+	{
+		ApiResponseDto first = new ApiResponseDto();
+		first.addErrorDto(new ApiException(ApiStatus.FORBIDDEN));
+		ApiResponseDto second = new ApiResponseDto();
+		second.addErrorDto(new ApiException(ApiStatus.FORBIDDEN));
+
+		Assertions.assertNotSame(first.errorDto, second.errorDto);
+		Assertions.assertEquals(403, first.errorDto.errorCode);
+		Assertions.assertNull(first.errorDto.stacktraceList);
+
+		// changing the error of one response does not reach the others
+		first.errorDto.errorMessage = "changed";
+		Assertions.assertEquals(ApiStatus.FORBIDDEN.getMessage(), second.errorDto.errorMessage);
+		Assertions.assertEquals(ApiStatus.FORBIDDEN.getMessage(), ApiStatus.FORBIDDEN.getErrorDto().errorMessage);
+	}
+
+	@Test
+	void statusConstantsCannotBeChanged()
+	{
+		Assertions.assertThrows(UnsupportedOperationException.class, () -> ApiStatus.FORBIDDEN.setMessage("open to all"));
+		Assertions.assertThrows(UnsupportedOperationException.class, () -> ApiStatus.FORBIDDEN.setCode(200));
+		Assertions.assertEquals(403, ApiStatus.FORBIDDEN.getCode());
+
+		ApiStatus apiStatus = new ApiStatus(418, "teapot");
+		apiStatus.setMessage("still a teapot");
+		Assertions.assertEquals("still a teapot", apiStatus.getErrorDto().errorMessage);
+	}
+
+	@Test
+	void statusWithoutMessageRendersTheSameWithAndWithoutStackTraces()
+	{
+		ApiResponseDto fast = new ApiResponseDto();
+		fast.addErrorDto(new ApiException(new ApiStatus(404)));
+
+		boolean stackTraceEnabled = ApiResponseDto.isStackTraceEnabled();
+		ApiResponseDto.setStackTraceEnabled(true);
+		try
+		{
+			ApiResponseDto slow = new ApiResponseDto();
+			slow.addErrorDto(new ApiException(new ApiStatus(404)));
+
+			Assertions.assertEquals(404, slow.errorDto.errorCode);
+			Assertions.assertEquals(fast.errorDto.errorMessage, slow.errorDto.errorMessage);
+			Assertions.assertEquals("Something went wrong", fast.errorDto.errorMessage);
+		} finally
+		{
+			ApiResponseDto.setStackTraceEnabled(stackTraceEnabled);
+		}
+	}
+
+	@Test
+	void rendersStackTraceOnlyWhenEnabled()
+	{
+		ApiResponseDto disabled = new ApiResponseDto();
+		disabled.addErrorDto(new IllegalStateException("boom"));
+		Assertions.assertEquals("boom", disabled.errorDto.errorMessage);
+		Assertions.assertNull(disabled.errorDto.stacktraceList);
+
+		boolean stackTraceEnabled = ApiResponseDto.isStackTraceEnabled();
+		ApiResponseDto.setStackTraceEnabled(true);
+		try
+		{
+			ApiResponseDto enabled = new ApiResponseDto();
+			enabled.addErrorDto(new ApiException(ApiStatus.FORBIDDEN));
+			Assertions.assertEquals(403, enabled.errorDto.errorCode);
+
+			ApiResponseDto unexpected = new ApiResponseDto();
+			unexpected.addErrorDto(new IllegalStateException("boom"));
+			Assertions.assertNotNull(unexpected.errorDto.stacktraceList);
+			Assertions.assertFalse(unexpected.errorDto.stacktraceList.isEmpty());
+		} finally
+		{
+			ApiResponseDto.setStackTraceEnabled(stackTraceEnabled);
+		}
+	}
+
+	@Test
+	void userErrorsBecomeUserMessages()
+	{
+		ApiResponseDto apiResponseDto = new ApiResponseDto();
+		apiResponseDto.addErrorDto(new UserException("Please verify your email"));
+
+		Assertions.assertNull(apiResponseDto.errorDto);
+		Assertions.assertEquals("Please verify your email", apiResponseDto.userMessageList.get(0));
+	}
+}
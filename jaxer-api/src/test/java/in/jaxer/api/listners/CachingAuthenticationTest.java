@@ -0,0 +1,111 @@
+package in.jaxer.api.listners;
+
+import in.jaxer.api.constants.ApiStatus;
+import in.jaxer.api.constants.RequestConstant;
+import in.jaxer.api.dtos.PrincipalDto;
+import in.jaxer.api.dtos.RequestResponseDto;
+import in.jaxer.api.exceptions.ApiException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class CachingAuthenticationTest
+{
+	private final AtomicInteger lookups = new AtomicInteger();
+
+	/**
+	 * Accepts every token except "bad", user tokens carry the user role
+	 */
+	private final Authentication delegate = (connection, requestResponseDto) -> {
+		lookups.incrementAndGet();
+		String accessToken = requestResponseDto.getAccessToken();
+		if ("bad".equals(accessToken))
+		{
+			throw new ApiException(ApiStatus.FORBIDDEN);
+		}
+		if (accessToken != null && accessToken.startsWith("user"))
+		{
+			requestResponseDto.setPrincipalDto(new PrincipalDto(accessToken, Collections.singleton("user")));
+		}
+	};
+
+	private static RequestResponseDto requestResponseDto(String accessToken)
+	{
+		HashMap<String, Object> requestMap = new HashMap<>();
+		if (accessToken != null)
+		{
+			requestMap.put(RequestConstant.API_ACCESS_TOKEN, accessToken);
+		}
+		return new RequestResponseDto(requestMap, null, null, false);
+	}
+
+	@Test
+	void looksUpATokenOncePerTtl() throws Exception
+	{
+		CachingAuthentication cachingAuthentication = CachingAuthentication.builder().withDelegate(delegate).build();
+
+		RequestResponseDto first = requestResponseDto("user-1");
+		cachingAuthentication.doAuthentication(null, first);
+		RequestResponseDto second = requestResponseDto("user-1");
+		cachingAuthentication.doAuthentication(null, second);
+
+		Assertions.assertEquals(1, lookups.get());
+		Assertions.assertSame(first.getPrincipalDto(), second.getPrincipalDto());
+		Assertions.assertTrue(second.getPrincipalDto().hasAnyRole("admin", "user"));
+	}
+
+	@Test
+	void cachesAnonymousWhenTheDelegateSetsNoPrincipal() throws Exception
+	{
+		CachingAuthentication cachingAuthentication = CachingAuthentication.builder().withDelegate(delegate).build();
+
+		RequestResponseDto requestResponseDto = requestResponseDto("service");
+		cachingAuthentication.doAuthentication(null, requestResponseDto);
+
+		Assertions.assertSame(PrincipalDto.ANONYMOUS, requestResponseDto.getPrincipalDto());
+		Assertions.assertEquals(1, cachingAuthentication.size());
+	}
+
+	@Test
+	void neverCachesFailuresOrMissingTokens() throws Exception
+	{
+		CachingAuthentication cachingAuthentication = CachingAuthentication.builder().withDelegate(delegate).build();
+
+		for (int i = 0; i < 2; i++)
+		{
+			Assertions.assertThrows(ApiException.class, () -> cachingAuthentication.doAuthentication(null, requestResponseDto("bad")));
+			cachingAuthentication.doAuthentication(null, requestResponseDto(null));
+		}
+
+		Assertions.assertEquals(4, lookups.get());
+		Assertions.assertEquals(0, cachingAuthentication.size());
+	}
+
+	@Test
+	void revokedAndExpiredTokensAreLookedUpAgain() throws Exception
+	{
+		CachingAuthentication cachingAuthentication = CachingAuthentication.builder().withDelegate(delegate).withTtlMillis(50L).build();
+
+		cachingAuthentication.doAuthentication(null, requestResponseDto("user-1"));
+		cachingAuthentication.revoke("user-1");
+		cachingAuthentication.doAuthentication(null, requestResponseDto("user-1"));
+		Assertions.assertEquals(2, lookups.get());
+
+		TimeUnit.MILLISECONDS.sleep(80);
+		cachingAuthentication.doAuthentication(null, requestResponseDto("user-1"));
+		Assertions.assertEquals(3, lookups.get());
+
+		cachingAuthentication.revokeAll();
+		Assertions.assertEquals(0, cachingAuthentication.size());
+	}
+
+	@Test
+	void requiresADelegate()
+	{
+		Assertions.assertThrows(RuntimeException.class, () -> CachingAuthentication.builder().build());
+	}
+}
@@ -0,0 +1,73 @@
+package in.jaxer.core;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Log4j2
+public class ExecutorUtils
+{
+	/**
+	 * @since 2.0.0
+	 */
+	public static ThreadFactory newThreadFactory(String prefix, boolean daemon)
+	{
+		final AtomicInteger sequence = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, prefix + "-" + sequence.incrementAndGet());
+			thread.setDaemon(daemon);
+			return thread;
+		};
+	}
+
+	/**
+	 * @return true when running on a JVM with virtual threads (JDK 21+)
+	 * @since 2.0.0
+	 */
+	public static boolean isVirtualThreadSupported()
+	{
+		return getVirtualThreadFactoryMethod() != null;
+	}
+
+	/**
+	 * Creates <code>Executors.newVirtualThreadPerTaskExecutor()</code> on JDK 21+,
+	 * otherwise a fixed pool of <code>fallbackPoolSize</code> daemon threads
+	 *
+	 * @since 2.0.0
+	 */
+	public static ExecutorService newVirtualThreadExecutor(String fallbackPrefix, int fallbackPoolSize)
+	{
+		Method method = getVirtualThreadFactoryMethod();
+		if (method != null)
+		{
+			try
+			{
+				return (ExecutorService) method.invoke(null);
+			} catch (Exception exception)
+			{
+				log.warn("Unable to create virtual thread executor, falling back to platform threads", exception);
+			}
+		}
+
+		return Executors.newFixedThreadPool(fallbackPoolSize, newThreadFactory(fallbackPrefix, true));
+	}
+
+	private static Method getVirtualThreadFactoryMethod()
+	{
+		try
+		{
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException exception)
+		{
+			return null;
+		}
+	}
+}
@@ -22,12 +22,27 @@ public class HttpUtils
 	public static class Header
 	{
 		public static final String ACCEPT = "Accept";
+		public static final String ACCEPT_ENCODING = "Accept-Encoding";
 		public static final String ACCESS_CONTROL_ALLOW_HEADERS = "Access-Control-Allow-Headers";
 		public static final String ACCESS_CONTROL_ALLOW_ORIGIN = "Access-Control-Allow-Origin";
 		public static final String ACCESS_CONTROL_ALLOW_METHODS = "Access-Control-Allow-Methods";
 		public static final String CONTENT_TYPE = "Content-type";
+		public static final String CONTENT_ENCODING = "Content-Encoding";
 		public static final String CACHE_CONTROL = "Cache-Control";
 		public static final String EXPIRES = "Expires";
+		public static final String VARY = "Vary";
+		public static final String CONTENT_LENGTH = "Content-Length";
+		public static final String ACCEPT_RANGES = "Accept-Ranges";
+		public static final String RANGE = "Range";
+		public static final String CONTENT_RANGE = "Content-Range";
+		public static final String IF_RANGE = "If-Range";
+		public static final String ETAG = "ETag";
+		public static final String LAST_MODIFIED = "Last-Modified";
+		public static final String IF_MATCH = "If-Match";
+		public static final String IF_NONE_MATCH = "If-None-Match";
+		public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+		public static final String IF_UNMODIFIED_SINCE = "If-Unmodified-Since";
+		public static final String CONTENT_DISPOSITION = "Content-Disposition";
 	}
 
 	/**
@@ -269,6 +284,14 @@ public class HttpUtils
 		 */
 		public static final int UNSUPPORTED_TYPE = 415;
 
+		/**
+		 * 4XX: client error
+		 * HTTP Status-Code 416: Range Not Satisfiable.
+		 *
+		 * @since 2.0.0
+		 */
+		public static final int RANGE_NOT_SATISFIABLE = 416;
+
 		/**
 		 * 5XX: server error
 		 * HTTP Status-Code 500: Internal Server Error.
@@ -0,0 +1,23 @@
+package in.jaxer.core.exceptions;
+
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * Outbound call refused without being attempted, the circuit of its host is open or its bulkhead is full
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class CallNotPermittedException extends IOException
+{
+	@Getter
+	private final String host;
+
+	public CallNotPermittedException(String host, String message)
+	{
+		super(message);
+		this.host = host;
+	}
+}
@@ -1,6 +1,8 @@
 package in.jaxer.core.exceptions;
 
 /**
+ * Expected failure of an input validation, does not capture the stack trace
+ *
  * @author Shakir
  */
 public class ValidationException extends JaxerCoreException
@@ -29,4 +31,13 @@ public class ValidationException extends JaxerCoreException
 	{
 		super(message, cause, enableSuppression, writableStackTrace);
 	}
+
+	/**
+	 * @since 2.0.0
+	 */
+	@Override
+	public synchronized Throwable fillInStackTrace()
+	{
+		return this;
+	}
 }
@@ -1,8 +1,8 @@
 package in.jaxer.core.net;
 
+import in.jaxer.core.FileUtils;
 import in.jaxer.core.HttpUtils;
 import in.jaxer.core.constants.ContentType;
-import in.jaxer.core.utilities.Files;
 import in.jaxer.core.utilities.JUtilities;
 import in.jaxer.core.utilities.JValidator;
 import in.jaxer.core.utilities.JsonHandler;
@@ -176,18 +176,41 @@ public class AbstractServlet extends GenericServlet
 		writeResponse(httpServletResponse, data);
 	}
 
+	/**
+	 * Sends the whole file, see {@link #printFile(HttpServletRequest, HttpServletResponse, File)} for range and conditional requests
+	 */
 	protected void printFile(HttpServletResponse httpServletResponse, File file, String mimeType) throws IOException
 	{
 		httpServletResponse.setContentType(mimeType);
-		System.out.println("AbstractServlet.printFile() - mimeType: [" + mimeType + "]");
+		httpServletResponse.setContentLengthLong(file.length());
 
 		try (FileInputStream fileInputStream = new FileInputStream(file);
-			 OutputStream outputStream = new BufferedOutputStream(httpServletResponse.getOutputStream()))
+			 OutputStream outputStream = httpServletResponse.getOutputStream())
 		{
-			Files.copyBytes(fileInputStream, outputStream);
+			FileUtils.copyBytes(FileResponseWriter.DEFAULT_BUFFER_SIZE, fileInputStream, outputStream);
 		}
 	}
 
+	/**
+	 * Serves the file with range and conditional request support, see {@link FileResponseWriter}
+	 *
+	 * @since 2.0.0
+	 */
+	protected void printFile(HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse, File file) throws IOException
+	{
+		FileResponseWriter.getDefault().write(httpServletRequest, httpServletResponse, file.toPath());
+	}
+
+	/**
+	 * Serves the file as an attachment with range and conditional request support, see {@link FileResponseWriter}
+	 *
+	 * @since 2.0.0
+	 */
+	protected void downloadFile(HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse, File file) throws IOException
+	{
+		FileResponseWriter.getDefault().download(httpServletRequest, httpServletResponse, file.toPath(), file.getName());
+	}
+
 	protected void printFile(HttpServletResponse httpServletResponse, File file) throws IOException
 	{
 		String mimeType = getServletContext().getMimeType(file.getName());
@@ -213,8 +236,6 @@ public class AbstractServlet extends GenericServlet
 			mimeType = ContentType.APPLICATION_OCTET_STREAM;
 		}
 
-		System.out.println("AbstractServlet.downloadFile() - mimeType: [" + mimeType + "], filename: [" + filename + "]");
-
 		if (renameWithTimeStamp)
 		{
 			String ext = JUtilities.getExtensionWithDot(filename);
@@ -222,13 +243,13 @@ public class AbstractServlet extends GenericServlet
 		}
 
 		httpServletResponse.setContentType(mimeType);
-		httpServletResponse.setHeader("Content-Disposition", "attachment; filename=\"" + filename + "\"");
+		httpServletResponse.setHeader(HttpUtils.Header.CONTENT_DISPOSITION, FileResponseWriter.getContentDisposition("attachment", filename));
 		httpServletResponse.setContentLengthLong(file.length());
 
 		try (OutputStream outputStream = httpServletResponse.getOutputStream();
 			 FileInputStream fileInputStream = new FileInputStream(file))
 		{
-			Files.copyBytes(fileInputStream, outputStream);
+			FileUtils.copyBytes(FileResponseWriter.DEFAULT_BUFFER_SIZE, fileInputStream, outputStream);
 		}
 	}
 
@@ -1,5 +1,8 @@
 package in.jaxer.core.net;
 
+import in.jaxer.core.utilities.JsonHandler;
+
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
@@ -39,12 +42,23 @@ public class Ajaxer
 	}
 
 	//-- Outputs
+	/**
+	 * Compressed with gzip or deflate when the request accepts it, see {@link CompressingResponseWriter},
+	 * the outputs without the request cannot negotiate an encoding and are never compressed
+	 */
+	public static void sendJsonOutput(HttpServletRequest req, HttpServletResponse res, Object obj) throws IOException
+	{
+		res.setContentType("application/json");
+		res.setCharacterEncoding("UTF-8");
+		CompressingResponseWriter.getDefault().writeJson(req, res, obj, JsonHandler.getGson());
+	}
+
 	public static void sendJsonOutput(HttpServletResponse res, com.google.gson.JsonArray jsonArray) throws IOException
 	{
 		res.setContentType("application/json");
 		res.setCharacterEncoding("UTF-8");
 		java.io.PrintWriter out = res.getWriter();
-		out.write(new com.google.gson.Gson().toJson(jsonArray));
+		JsonHandler.getGson().toJson(jsonArray, out);
 		out.flush();
 		out.close();
 	}
@@ -54,7 +68,7 @@ public class Ajaxer
 		res.setContentType("application/json");
 		res.setCharacterEncoding("UTF-8");
 		java.io.PrintWriter out = res.getWriter();
-		out.write(new com.google.gson.Gson().toJson(obj));
+		JsonHandler.getGson().toJson(obj, out);
 		out.flush();
 		out.close();
 	}
@@ -64,7 +78,7 @@ public class Ajaxer
 		res.setContentType("application/json");
 		res.setCharacterEncoding("UTF-8");
 		java.io.PrintWriter out = res.getWriter();
-		out.write(new com.google.gson.Gson().toJson(map));
+		JsonHandler.getGson().toJson(map, out);
 		out.flush();
 		out.close();
 	}
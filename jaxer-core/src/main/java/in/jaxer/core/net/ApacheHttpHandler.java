@@ -3,19 +3,29 @@ package in.jaxer.core.net;
 import in.jaxer.core.constants.ContentType;
 import in.jaxer.core.constants.HttpConstants;
 import in.jaxer.core.utilities.JValidator;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.util.EntityUtils;
 
-import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.List;
 
 /**
@@ -25,15 +35,44 @@ public class ApacheHttpHandler
 {
 	private final HttpClient httpClient;
 
+	private final HttpResponseCache httpResponseCache;
+
+	private final HttpCircuitBreaker httpCircuitBreaker;
+
 	public ApacheHttpHandler(HttpClient httpClient)
+	{
+		this(httpClient, null, null);
+	}
+
+	/**
+	 * @param httpResponseCache {@link #doGet(String)} calls are served from and revalidated against it
+	 * @since 2.0.0
+	 */
+	public ApacheHttpHandler(HttpClient httpClient, HttpResponseCache httpResponseCache)
+	{
+		this(httpClient, httpResponseCache, null);
+	}
+
+	/**
+	 * @param httpCircuitBreaker the calls returning a body go through it, the streaming {@link #doGet(String, OutputStream)},
+	 *                           {@link #doGet(String, Path)} and {@link #open(HttpUriRequest)} do not
+	 * @since 2.0.0
+	 */
+	public ApacheHttpHandler(HttpClient httpClient, HttpResponseCache httpResponseCache, HttpCircuitBreaker httpCircuitBreaker)
 	{
 		this.httpClient = httpClient;
+		this.httpResponseCache = httpResponseCache;
+		this.httpCircuitBreaker = httpCircuitBreaker;
 	}
 
 	public String doGet(String url) throws IOException
 	{
 		HttpGet httpGet = new HttpGet(url);
-		return getResponse(httpClient.execute(httpGet));
+		if (httpResponseCache != null)
+		{
+			return httpResponseCache.execute(httpGet, this::executeGuarded).getBodyAsString();
+		}
+		return execute(httpGet);
 	}
 
 	public String doPost(String url, List nameValuePairs) throws IOException
@@ -45,8 +84,7 @@ public class ApacheHttpHandler
 			httpPost.setEntity(new UrlEncodedFormEntity(nameValuePairs));
 		}
 
-		HttpResponse httpResponse = httpClient.execute(httpPost);
-		return getResponse(httpResponse);
+		return execute(httpPost);
 	}
 
 	public String doPost(String url, String jsonString) throws IOException
@@ -62,8 +100,7 @@ public class ApacheHttpHandler
 			httpPost.setHeader(HttpConstants.Content_Type, ContentType.APPLICATION_JSON);
 		}
 
-		HttpResponse httpResponse = httpClient.execute(httpPost);
-		return getResponse(httpResponse);
+		return execute(httpPost);
 	}
 
 	public String doPut(String url, String jsonString) throws IOException
@@ -79,8 +116,7 @@ public class ApacheHttpHandler
 			httpPut.setHeader(HttpConstants.Content_Type, ContentType.APPLICATION_JSON);
 		}
 
-		HttpResponse httpResponse = httpClient.execute(httpPut);
-		return getResponse(httpResponse);
+		return execute(httpPut);
 	}
 
 	public String doDelete(String url) throws IOException
@@ -88,9 +124,150 @@ public class ApacheHttpHandler
 		HttpDelete httpDelete = new HttpDelete(url);
 
 //		httpDelete.setHeader(HttpConstants.Content_Type, "application/json");
-		HttpResponse httpResponse = httpClient.execute(httpDelete);
+		return execute(httpDelete);
+	}
+
+	/**
+	 * Streams the response body to the output stream, the output stream is left open
+	 *
+	 * @return number of bytes copied
+	 * @throws HttpResponseException when the response is not successful
+	 * @since 2.0.0
+	 */
+	public long doGet(String url, OutputStream outputStream) throws IOException
+	{
+		try (HttpResponseStream httpResponseStream = openSuccessful(new HttpGet(url)))
+		{
+			return httpResponseStream.transferTo(outputStream);
+		}
+	}
+
+	/**
+	 * Streams the response body to the file, replacing it when it exists
+	 *
+	 * @return number of bytes written
+	 * @throws HttpResponseException when the response is not successful, the file is left untouched
+	 * @since 2.0.0
+	 */
+	public long doGet(String url, Path path) throws IOException
+	{
+		try (HttpResponseStream httpResponseStream = openSuccessful(new HttpGet(url)))
+		{
+			return httpResponseStream.transferTo(path);
+		}
+	}
+
+	/**
+	 * Sends the stream as the request body as it is read
+	 *
+	 * @param contentLength length of the stream, -1 sends it chunked
+	 * @since 2.0.0
+	 */
+	public String doPost(String url, InputStream inputStream, long contentLength, String contentType) throws IOException
+	{
+		HttpPost httpPost = new HttpPost(url);
+		httpPost.setEntity(createEntity(new InputStreamEntity(inputStream, contentLength), contentType));
+		return execute(httpPost);
+	}
+
+	/**
+	 * @since 2.0.0
+	 */
+	public String doPost(String url, File file, String contentType) throws IOException
+	{
+		HttpPost httpPost = new HttpPost(url);
+		httpPost.setEntity(createEntity(new FileEntity(file), contentType));
+		return execute(httpPost);
+	}
+
+	/**
+	 * @since 2.0.0
+	 */
+	public String doPut(String url, File file, String contentType) throws IOException
+	{
+		HttpPut httpPut = new HttpPut(url);
+		httpPut.setEntity(createEntity(new FileEntity(file), contentType));
+		return execute(httpPut);
+	}
+
+	/**
+	 * Executes the request without reading the response body, the returned stream must be closed
+	 *
+	 * @since 2.0.0
+	 */
+	public HttpResponseStream open(HttpUriRequest httpUriRequest) throws IOException
+	{
+		HttpResponse httpResponse = httpClient.execute(httpUriRequest);
+		try
+		{
+			return new HttpResponseStream(httpResponse);
+		} catch (IOException | RuntimeException exception)
+		{
+			release(httpResponse);
+			throw exception;
+		}
+	}
+
+	private HttpResponseStream openSuccessful(HttpUriRequest httpUriRequest) throws IOException
+	{
+		HttpResponseStream httpResponseStream = open(httpUriRequest);
+		if (!httpResponseStream.isSuccessful())
+		{
+			httpResponseStream.close();
+			throw new HttpResponseException(httpResponseStream.getStatusCode(), "Unexpected response status: " + httpResponseStream.getStatusCode());
+		}
+		return httpResponseStream;
+	}
 
-		return getResponse(httpResponse);
+	private String execute(HttpUriRequest httpUriRequest) throws IOException
+	{
+		if (httpCircuitBreaker != null)
+		{
+			return executeGuarded(httpUriRequest).getBodyAsString();
+		}
+
+		HttpResponse httpResponse = httpClient.execute(httpUriRequest);
+		try
+		{
+			return getResponse(httpResponse);
+		} finally
+		{
+			release(httpResponse);
+		}
+	}
+
+	private HttpResult executeGuarded(HttpUriRequest httpUriRequest) throws IOException
+	{
+		if (httpCircuitBreaker == null)
+		{
+			return executeToResult(httpUriRequest);
+		}
+		return httpCircuitBreaker.execute(httpUriRequest, this::executeToResult);
+	}
+
+	private HttpResult executeToResult(HttpUriRequest httpUriRequest) throws IOException
+	{
+		try (HttpResponseStream httpResponseStream = open(httpUriRequest))
+		{
+			return httpResponseStream.toHttpResult();
+		}
+	}
+
+	private static AbstractHttpEntity createEntity(AbstractHttpEntity httpEntity, String contentType)
+	{
+		httpEntity.setContentType(contentType == null ? ContentType.APPLICATION_OCTET_STREAM : contentType);
+		return httpEntity;
+	}
+
+	private static void release(HttpResponse httpResponse) throws IOException
+	{
+		if (httpResponse instanceof Closeable)
+		{
+			((Closeable) httpResponse).close();
+		} else
+		{
+			EntityUtils.consumeQuietly(httpResponse.getEntity());
+		}
 	}
 
 	public String toString(HttpResponse response) throws IOException
@@ -98,20 +275,24 @@ public class ApacheHttpHandler
 		return EntityUtils.toString(response.getEntity());
 	}
 
+	/**
+	 * Reads the body as it was sent, decoded with the charset of its Content-Type (UTF-8 when missing),
+	 * the entity is consumed even when reading fails
+	 */
 	public String getResponse(HttpResponse response) throws IOException
 	{
-		try (InputStreamReader inputStreamReader = new InputStreamReader(response.getEntity().getContent());
-			 BufferedReader rd = new BufferedReader(inputStreamReader))
+		HttpEntity httpEntity = response.getEntity();
+		if (httpEntity == null)
 		{
-			String line = null;
-			StringBuilder builder = new StringBuilder();
-
-			while ((line = rd.readLine()) != null)
-			{
-				builder.append(line).append(System.lineSeparator());
-			}
+			return "";
+		}
 
-			return builder.toString();
+		try
+		{
+			return EntityUtils.toString(httpEntity, StandardCharsets.UTF_8);
+		} finally
+		{
+			EntityUtils.consumeQuietly(httpEntity);
 		}
 	}
 }
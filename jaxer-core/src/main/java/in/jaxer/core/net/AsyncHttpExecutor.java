@@ -0,0 +1,509 @@
+package in.jaxer.core.net;
+
+import in.jaxer.core.ExecutorUtils;
+import in.jaxer.core.HttpUtils;
+import in.jaxer.core.exceptions.CallNotPermittedException;
+import in.jaxer.core.utilities.JValidator;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.client.methods.HttpUriRequest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes outbound http calls asynchronously on a {@link PooledHttpClient}
+ * <pre>
+ * AsyncHttpExecutor asyncHttpExecutor = AsyncHttpExecutor.builder()
+ *     .withMaxInFlightPerHost(32)
+ *     .build();
+ *
+ * asyncHttpExecutor.submit(httpHandler)
+ *     .thenAccept(httpResult -&gt; log.info("status: {}", httpResult.getStatusCode()));
+ * </pre>
+ * <ul>
+ *     <li>at most {@link #getMaxInFlightPerHost()} calls run against the same host, the rest wait in a per-host queue,
+ *     a full queue rejects new calls right away so callers feel the backpressure instead of piling up</li>
+ *     <li>idempotent methods are retried on I/O failures and on 502, 503 and 504, up to {@link #getMaxRetries()} times
+ *     with full-jitter exponential backoff, the host slot is given up while waiting</li>
+ *     <li>cancelling the returned future aborts the call in flight</li>
+ *     <li>calls of a {@link HttpHandler} go through its {@link HttpResponseCache} and {@link HttpCircuitBreaker} as with
+ *     {@link HttpHandler#execute()}, a call refused by the circuit breaker is not retried</li>
+ *     <li>the queue of a host is dropped once it has nothing in flight, queued or waiting for a retry</li>
+ * </ul>
+ * Calls block on virtual threads when the JVM supports them (JDK 21+), so thousands of them in flight
+ * do not need thousands of platform threads, otherwise on a bounded pool of platform threads.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Log4j2
+public class AsyncHttpExecutor implements Closeable
+{
+	public static final int DEFAULT_MAX_IN_FLIGHT_PER_HOST = PooledHttpClient.DEFAULT_MAX_PER_ROUTE;
+	public static final int DEFAULT_MAX_QUEUED_PER_HOST = 1000;
+	public static final int DEFAULT_MAX_RETRIES = 2;
+	public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 100;
+	public static final long DEFAULT_MAX_BACKOFF_MILLIS = 5 * 1000L;
+
+	private static final int FALLBACK_POOL_SIZE = 64;
+
+	@Getter
+	private final PooledHttpClient pooledHttpClient;
+
+	@Getter
+	private final int maxInFlightPerHost;
+
+	@Getter
+	private final int maxQueuedPerHost;
+
+	@Getter
+	private final int maxRetries;
+
+	@Getter
+	private final long initialBackoffMillis;
+
+	@Getter
+	private final long maxBackoffMillis;
+
+	private final ExecutorService executorService;
+	private final boolean ownedExecutorService;
+	private final ScheduledExecutorService retryScheduler;
+
+	private final ConcurrentHashMap<String, HostQueue> hostQueueMap = new ConcurrentHashMap<>();
+
+	// calls waiting for their backoff, failed on close as the scheduler drops them
+	private final Set<Call> retryingCallSet = ConcurrentHashMap.newKeySet();
+
+	@Builder(setterPrefix = "with")
+	private AsyncHttpExecutor(PooledHttpClient pooledHttpClient, ExecutorService executorService, Integer maxInFlightPerHost,
+							  Integer maxQueuedPerHost, Integer maxRetries, Long initialBackoffMillis, Long maxBackoffMillis)
+	{
+		this.pooledHttpClient = pooledHttpClient == null ? PooledHttpClient.getDefault() : pooledHttpClient;
+		this.maxInFlightPerHost = maxInFlightPerHost == null ? DEFAULT_MAX_IN_FLIGHT_PER_HOST : maxInFlightPerHost;
+		this.maxQueuedPerHost = maxQueuedPerHost == null ? DEFAULT_MAX_QUEUED_PER_HOST : maxQueuedPerHost;
+		this.maxRetries = maxRetries == null ? DEFAULT_MAX_RETRIES : maxRetries;
+		this.initialBackoffMillis = initialBackoffMillis == null ? DEFAULT_INITIAL_BACKOFF_MILLIS : initialBackoffMillis;
+		this.maxBackoffMillis = maxBackoffMillis == null ? DEFAULT_MAX_BACKOFF_MILLIS : maxBackoffMillis;
+
+		JValidator.throwWhenTrue(this.maxInFlightPerHost < 1, "maxInFlightPerHost must be greater than zero");
+		JValidator.throwWhenTrue(this.maxQueuedPerHost < 0, "maxQueuedPerHost cannot be negative");
+
+		this.ownedExecutorService = executorService == null;
+		this.executorService = executorService == null
+				? ExecutorUtils.newVirtualThreadExecutor("jaxer-http", FALLBACK_POOL_SIZE)
+				: executorService;
+		this.retryScheduler = Executors.newSingleThreadScheduledExecutor(ExecutorUtils.newThreadFactory("jaxer-http-retry", true));
+	}
+
+	/**
+	 * Executes the call of the handler, its {@link HttpHandler.CallbackListener} is notified once the call is done
+	 *
+	 * @return future of the response of the last attempt, whatever its status, or of the failure of the last attempt
+	 */
+	public CompletableFuture<HttpResult> submit(HttpHandler httpHandler)
+	{
+		JValidator.throwWhenNull(httpHandler, "httpHandler cannot be null");
+
+		long startMilliSeconds = System.currentTimeMillis();
+		CompletableFuture<HttpResult> future = submit(URI.create(httpHandler.getUrlString()), httpHandler.getHttpMethod(),
+				httpHandler::createRequest, httpHandler.transport(pooledHttpClient));
+		future.whenComplete((httpResult, throwable) -> httpHandler.notifyCallbackListener(httpResult, throwable, startMilliSeconds));
+		return future;
+	}
+
+	/**
+	 * Retries execute the same request again, its entity must be repeatable for them to succeed
+	 */
+	public CompletableFuture<HttpResult> submit(HttpUriRequest httpUriRequest)
+	{
+		JValidator.throwWhenNull(httpUriRequest, "httpUriRequest cannot be null");
+
+		return submit(httpUriRequest.getURI(), httpUriRequest.getMethod(), () -> httpUriRequest, pooledHttpClient::execute);
+	}
+
+	private CompletableFuture<HttpResult> submit(URI uri, String method, RequestFactory requestFactory, HttpTransport transport)
+	{
+		String hostKey = getHostKey(uri);
+		Call call = new Call(hostKey, requestFactory, transport, isIdempotent(method));
+
+		if (!offer(hostKey, call, false))
+		{
+			call.future.completeExceptionally(new RejectedExecutionException("Too many queued calls to " + hostKey));
+		}
+		return call.future;
+	}
+
+	/**
+	 * A queue found dropped in between hands the call back here, to the queue replacing it
+	 */
+	private boolean offer(String hostKey, Call call, boolean force)
+	{
+		return hostQueueMap.computeIfAbsent(hostKey, HostQueue::new).offer(call, force);
+	}
+
+	/**
+	 * @return hosts with a queue, the ones with calls in flight, queued or waiting for a retry
+	 */
+	int getHostCount()
+	{
+		return hostQueueMap.size();
+	}
+
+	/**
+	 * @return calls executing against the host of the url
+	 */
+	public int getInFlight(String url)
+	{
+		HostQueue hostQueue = hostQueueMap.get(getHostKey(URI.create(url)));
+		return hostQueue == null ? 0 : hostQueue.getInFlight();
+	}
+
+	/**
+	 * @return calls waiting for a slot of the host of the url
+	 */
+	public int getQueued(String url)
+	{
+		HostQueue hostQueue = hostQueueMap.get(getHostKey(URI.create(url)));
+		return hostQueue == null ? 0 : hostQueue.getQueued();
+	}
+
+	/**
+	 * Stops the retries and, when created by this executor, the threads executing the calls,
+	 * the {@link PooledHttpClient} is left open.
+	 * <br>
+	 * Calls waiting to be retried complete exceptionally with a {@link RejectedExecutionException}.
+	 */
+	@Override
+	public void close()
+	{
+		retryScheduler.shutdownNow();
+		for (Call call : retryingCallSet)
+		{
+			if (retryingCallSet.remove(call))
+			{
+				call.hostQueue.retryDropped();
+				call.future.completeExceptionally(new RejectedExecutionException("AsyncHttpExecutor is closed, retry dropped"));
+			}
+		}
+
+		if (ownedExecutorService)
+		{
+			executorService.shutdown();
+		}
+	}
+
+	long getBackoffMillis(int attempt)
+	{
+		// full jitter, retries of many callers hitting the same host do not line up
+		long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt, 30));
+		return ThreadLocalRandom.current().nextLong(ceiling + 1);
+	}
+
+	private static boolean isIdempotent(String method)
+	{
+		switch (method.toUpperCase(Locale.ROOT))
+		{
+			case HttpUtils.Method.GET:
+			case HttpUtils.Method.HEAD:
+			case HttpUtils.Method.OPTIONS:
+			case HttpUtils.Method.PUT:
+			case HttpUtils.Method.DELETE:
+			case HttpUtils.Method.TRACE:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private static boolean isRetryableStatus(int statusCode)
+	{
+		return statusCode == HttpUtils.StatusCode.BAD_GATEWAY
+				|| statusCode == HttpUtils.StatusCode.UNAVAILABLE
+				|| statusCode == HttpUtils.StatusCode.GATEWAY_TIMEOUT;
+	}
+
+	static String getHostKey(URI uri)
+	{
+		JValidator.throwWhenNull(uri.getHost(), "url has no host: " + uri);
+
+		// http://host and http://host:80 share the same connections and limit
+		int port = uri.getPort();
+		if (port == -1)
+		{
+			port = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+		}
+		return (uri.getScheme() + "://" + uri.getHost() + ":" + port).toLowerCase(Locale.ROOT);
+	}
+
+	@FunctionalInterface
+	private interface RequestFactory
+	{
+		HttpUriRequest create() throws IOException;
+	}
+
+	/**
+	 * Calls of one host, at most {@link #maxInFlightPerHost} executing and the rest waiting in order,
+	 * removed from {@link #hostQueueMap} once idle and never used again after that
+	 */
+	private class HostQueue
+	{
+		private final String hostKey;
+		private final ArrayDeque<Call> callQueue = new ArrayDeque<>();
+		private int inFlight = 0;
+		private int retrying = 0;
+		private boolean retired = false;
+
+		private HostQueue(String hostKey)
+		{
+			this.hostKey = hostKey;
+		}
+
+		/**
+		 * @param force retries are queued even when the queue is full, they were accepted already
+		 */
+		private boolean offer(Call call, boolean force)
+		{
+			synchronized (this)
+			{
+				if (!retired)
+				{
+					call.hostQueue = this;
+					if (inFlight >= maxInFlightPerHost)
+					{
+						if (!force && callQueue.size() >= maxQueuedPerHost)
+						{
+							return false;
+						}
+
+						callQueue.add(call);
+						return true;
+					}
+
+					inFlight++;
+				}
+			}
+
+			if (call.hostQueue != this)
+			{
+				// dropped in between, the queue replacing it takes the call
+				return AsyncHttpExecutor.this.offer(hostKey, call, force);
+			}
+
+			dispatch(call);
+			return true;
+		}
+
+		private void release()
+		{
+			Call next;
+			boolean idle;
+			synchronized (this)
+			{
+				next = callQueue.poll();
+				if (next == null)
+				{
+					inFlight--;
+				}
+				idle = retireWhenIdle();
+			}
+
+			if (idle)
+			{
+				hostQueueMap.remove(hostKey, this);
+			}
+
+			if (next != null)
+			{
+				// the slot passes on to the next call
+				dispatch(next);
+			}
+		}
+
+		/**
+		 * Called by a call giving up its slot for a backoff, before it is released
+		 */
+		private synchronized void retryScheduled()
+		{
+			retrying++;
+		}
+
+		/**
+		 * Called once the call waiting for its backoff is queued again, to this queue as it was not idle, or dropped
+		 */
+		private void retryDropped()
+		{
+			boolean idle;
+			synchronized (this)
+			{
+				retrying--;
+				idle = retireWhenIdle();
+			}
+
+			if (idle)
+			{
+				hostQueueMap.remove(hostKey, this);
+			}
+		}
+
+		private boolean retireWhenIdle()
+		{
+			if (inFlight == 0 && retrying == 0 && callQueue.isEmpty())
+			{
+				retired = true;
+			}
+			return retired;
+		}
+
+		private void dispatch(Call call)
+		{
+			try
+			{
+				executorService.execute(call);
+			} catch (RejectedExecutionException exception)
+			{
+				call.future.completeExceptionally(exception);
+				release();
+			}
+		}
+
+		private synchronized int getInFlight()
+		{
+			return inFlight;
+		}
+
+		private synchronized int getQueued()
+		{
+			return callQueue.size();
+		}
+	}
+
+	private class Call implements Runnable
+	{
+		private final CompletableFuture<HttpResult> future = new CompletableFuture<>();
+		private final String hostKey;
+		private final RequestFactory requestFactory;
+		private final HttpTransport transport;
+		private final boolean idempotent;
+
+		// queue the call was accepted by, set under the lock of that queue
+		private volatile HostQueue hostQueue;
+		private volatile HttpUriRequest httpUriRequest;
+		private int attempt = 0;
+
+		private Call(String hostKey, RequestFactory requestFactory, HttpTransport transport, boolean idempotent)
+		{
+			this.hostKey = hostKey;
+			this.requestFactory = requestFactory;
+			this.transport = transport;
+			this.idempotent = idempotent;
+
+			future.whenComplete((httpResult, throwable) ->
+			{
+				HttpUriRequest current = this.httpUriRequest;
+				if (future.isCancelled() && current != null)
+				{
+					current.abort();
+				}
+			});
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				// cancelled while waiting for a slot
+				if (future.isDone())
+				{
+					return;
+				}
+
+				httpUriRequest = requestFactory.create();
+				HttpResult httpResult = transport.execute(httpUriRequest);
+
+				if (isRetryable() && isRetryableStatus(httpResult.getStatusCode()))
+				{
+					retry("status " + httpResult.getStatusCode());
+					return;
+				}
+
+				future.complete(httpResult);
+			} catch (Exception exception)
+			{
+				// the circuit breaker refusing the call is not a failure of the host to retry
+				if (exception instanceof IOException && !(exception instanceof CallNotPermittedException) && isRetryable() && !future.isDone())
+				{
+					retry(exception.toString());
+					return;
+				}
+
+				future.completeExceptionally(exception);
+			} finally
+			{
+				hostQueue.release();
+			}
+		}
+
+		/**
+		 * Streamed payloads are consumed by the first attempt and cannot be sent again
+		 */
+		private boolean isRetryable()
+		{
+			if (!idempotent || attempt >= maxRetries || httpUriRequest == null)
+			{
+				return false;
+			}
+
+			if (httpUriRequest instanceof HttpEntityEnclosingRequest)
+			{
+				HttpEntity httpEntity = ((HttpEntityEnclosingRequest) httpUriRequest).getEntity();
+				return httpEntity == null || httpEntity.isRepeatable();
+			}
+			return true;
+		}
+
+		private void retry(String reason)
+		{
+			long backoffMillis = getBackoffMillis(attempt++);
+			log.debug("retrying {} after {} ms, attempt: {}, reason: {}", httpUriRequest.getURI(), backoffMillis, attempt, reason);
+
+			HostQueue retryingHostQueue = hostQueue;
+			retryingHostQueue.retryScheduled();
+			retryingCallSet.add(this);
+			try
+			{
+				retryScheduler.schedule(() ->
+				{
+					if (retryingCallSet.remove(this))
+					{
+						offer(hostKey, this, true);
+						retryingHostQueue.retryDropped();
+					}
+				}, backoffMillis, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException exception)
+			{
+				if (retryingCallSet.remove(this))
+				{
+					retryingHostQueue.retryDropped();
+					future.completeExceptionally(exception);
+				}
+			}
+		}
+	}
+}
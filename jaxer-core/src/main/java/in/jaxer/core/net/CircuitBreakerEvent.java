@@ -0,0 +1,55 @@
+package in.jaxer.core.net;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Something that happened to the circuit of a host, see {@link HttpCircuitBreaker}
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@ToString
+public class CircuitBreakerEvent
+{
+	public enum Type
+	{
+		/**
+		 * The circuit changed state, {@link #getFromState()} and {@link #getToState()} are set
+		 */
+		STATE_TRANSITION,
+
+		/**
+		 * A call was refused because the circuit is open, or half-open with every probe taken
+		 */
+		CALL_NOT_PERMITTED,
+
+		/**
+		 * A call was refused because the host already has the maximum number of calls in flight
+		 */
+		BULKHEAD_FULL
+	}
+
+	@Getter
+	private final String host;
+
+	@Getter
+	private final Type type;
+
+	@Getter
+	private final HttpCircuitBreaker.State fromState;
+
+	@Getter
+	private final HttpCircuitBreaker.State toState;
+
+	@Getter
+	private final long timestampMillis = System.currentTimeMillis();
+
+	CircuitBreakerEvent(String host, Type type, HttpCircuitBreaker.State fromState, HttpCircuitBreaker.State toState)
+	{
+		this.host = host;
+		this.type = type;
+		this.fromState = fromState;
+		this.toState = toState;
+	}
+}
@@ -0,0 +1,65 @@
+package in.jaxer.core.net;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Snapshot of the circuit and the bulkhead of one host
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Getter
+@ToString
+public class CircuitBreakerMetrics
+{
+	private final String host;
+	private final HttpCircuitBreaker.State state;
+
+	/**
+	 * Calls recorded in the sliding window
+	 */
+	private final int bufferedCalls;
+	private final int failedCalls;
+	private final int slowCalls;
+
+	/**
+	 * Percentage of failed calls in the window, -1 until the minimum number of calls is recorded
+	 */
+	private final float failureRate;
+
+	/**
+	 * Percentage of slow calls in the window, -1 until the minimum number of calls is recorded
+	 */
+	private final float slowCallRate;
+
+	/**
+	 * Calls refused by the circuit since the host was first called
+	 */
+	private final long notPermittedCalls;
+
+	/**
+	 * Calls refused by the bulkhead since the host was first called
+	 */
+	private final long bulkheadRejectedCalls;
+
+	private final int concurrentCalls;
+	private final int maxConcurrentCalls;
+
+	CircuitBreakerMetrics(String host, HttpCircuitBreaker.State state, int bufferedCalls, int failedCalls, int slowCalls,
+						  float failureRate, float slowCallRate, long notPermittedCalls, long bulkheadRejectedCalls,
+						  int concurrentCalls, int maxConcurrentCalls)
+	{
+		this.host = host;
+		this.state = state;
+		this.bufferedCalls = bufferedCalls;
+		this.failedCalls = failedCalls;
+		this.slowCalls = slowCalls;
+		this.failureRate = failureRate;
+		this.slowCallRate = slowCallRate;
+		this.notPermittedCalls = notPermittedCalls;
+		this.bulkheadRejectedCalls = bulkheadRejectedCalls;
+		this.concurrentCalls = concurrentCalls;
+		this.maxConcurrentCalls = maxConcurrentCalls;
+	}
+}
@@ -0,0 +1,363 @@
+package in.jaxer.core.net;
+
+import com.google.gson.Gson;
+import in.jaxer.core.HttpUtils;
+import in.jaxer.core.utilities.JValidator;
+import lombok.Builder;
+import lombok.Getter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes response bodies compressed with the encoding negotiated from the {@code Accept-Encoding} request header
+ * (gzip or deflate), bodies up to {@link #getMinCompressionSize()} bytes are sent as they are with a Content-Length.
+ * <br>
+ * The body is streamed, the first {@link #getMinCompressionSize()} bytes are held back until it is known whether
+ * the body is big enough to be compressed, everything after that goes straight into the compressing stream.
+ * {@link Deflater} instances are borrowed from a {@link DeflaterPool} and returned when the stream is closed.
+ *
+ * <pre>
+ * CompressingResponseWriter.getDefault().writeJson(request, response, apiResponseDto, JsonHandler.getGson());
+ * </pre>
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class CompressingResponseWriter
+{
+	public static final String GZIP = "gzip";
+	public static final String DEFLATE = "deflate";
+
+	public static final int DEFAULT_MIN_COMPRESSION_SIZE = 1024;
+
+	// level 6 of zlib, the usual trade off between ratio and cpu for text
+	public static final int DEFAULT_COMPRESSION_LEVEL = Deflater.DEFAULT_COMPRESSION;
+
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	private static final CompressingResponseWriter DEFAULT = CompressingResponseWriter.builder().build();
+
+	@Getter
+	private final int minCompressionSize;
+
+	@Getter
+	private final int compressionLevel;
+
+	private final DeflaterPool gzipDeflaterPool;
+	private final DeflaterPool deflateDeflaterPool;
+
+	@Builder(setterPrefix = "with")
+	private CompressingResponseWriter(Integer minCompressionSize, Integer compressionLevel, Integer poolSize)
+	{
+		this.minCompressionSize = minCompressionSize == null ? DEFAULT_MIN_COMPRESSION_SIZE : minCompressionSize;
+		this.compressionLevel = compressionLevel == null ? DEFAULT_COMPRESSION_LEVEL : compressionLevel;
+
+		JValidator.throwWhenTrue(this.minCompressionSize < 0, "minCompressionSize cannot be negative");
+
+		int capacity = poolSize == null ? Runtime.getRuntime().availableProcessors() * 2 : poolSize;
+		this.gzipDeflaterPool = new DeflaterPool(this.compressionLevel, true, capacity);
+		this.deflateDeflaterPool = new DeflaterPool(this.compressionLevel, false, capacity);
+	}
+
+	public static CompressingResponseWriter getDefault()
+	{
+		return DEFAULT;
+	}
+
+	/**
+	 * Serializes the object with the gson straight into the (compressed) response body, content type is not touched
+	 */
+	public void writeJson(HttpServletRequest request, HttpServletResponse response, Object object, Gson gson) throws IOException
+	{
+		try (Writer writer = new OutputStreamWriter(openStream(request, response), StandardCharsets.UTF_8))
+		{
+			gson.toJson(object, writer);
+		}
+	}
+
+	/**
+	 * Response body stream, has to be closed to finish the compression and release its {@link Deflater}
+	 */
+	public OutputStream openStream(HttpServletRequest request, HttpServletResponse response)
+	{
+		String encoding = null;
+		if (!response.containsHeader(HttpUtils.Header.CONTENT_ENCODING))
+		{
+			response.addHeader(HttpUtils.Header.VARY, HttpUtils.Header.ACCEPT_ENCODING);
+			encoding = negotiate(request.getHeader(HttpUtils.Header.ACCEPT_ENCODING));
+		}
+
+		return new ThresholdOutputStream(response, encoding);
+	}
+
+	/**
+	 * Picks the encoding with the highest q-value, gzip wins a tie
+	 *
+	 * @return {@link #GZIP}, {@link #DEFLATE} or null when neither is acceptable
+	 */
+	public static String negotiate(String acceptEncoding)
+	{
+		if (JValidator.isBlank(acceptEncoding))
+		{
+			return null;
+		}
+
+		double gzipQuality = -1;
+		double deflateQuality = -1;
+		double wildcardQuality = -1;
+
+		for (String token : acceptEncoding.split(","))
+		{
+			String coding = token;
+			double quality = 1;
+
+			int semicolon = token.indexOf(';');
+			if (semicolon != -1)
+			{
+				coding = token.substring(0, semicolon);
+				quality = parseQuality(token.substring(semicolon + 1));
+			}
+
+			coding = coding.trim();
+			if (GZIP.equalsIgnoreCase(coding) || "x-gzip".equalsIgnoreCase(coding))
+			{
+				gzipQuality = quality;
+			} else if (DEFLATE.equalsIgnoreCase(coding))
+			{
+				deflateQuality = quality;
+			} else if ("*".equals(coding))
+			{
+				wildcardQuality = quality;
+			}
+		}
+
+		if (gzipQuality < 0)
+		{
+			gzipQuality = wildcardQuality;
+		}
+
+		if (deflateQuality < 0)
+		{
+			deflateQuality = wildcardQuality;
+		}
+
+		if (gzipQuality > 0 && gzipQuality >= deflateQuality)
+		{
+			return GZIP;
+		}
+
+		return deflateQuality > 0 ? DEFLATE : null;
+	}
+
+	private static double parseQuality(String parameters)
+	{
+		for (String parameter : parameters.split(";"))
+		{
+			parameter = parameter.trim();
+			if (parameter.startsWith("q=") || parameter.startsWith("Q="))
+			{
+				try
+				{
+					return Double.parseDouble(parameter.substring(2).trim());
+				} catch (NumberFormatException exception)
+				{
+					return 0;
+				}
+			}
+		}
+		return 1;
+	}
+
+	/**
+	 * Holds back the head of the body, switches to the response stream once the body outgrows it
+	 */
+	private class ThresholdOutputStream extends OutputStream
+	{
+		private final HttpServletResponse response;
+		private final String encoding;
+
+		private byte[] buffer;
+		private int count;
+
+		private OutputStream target;
+		private boolean closed;
+
+		private ThresholdOutputStream(HttpServletResponse response, String encoding)
+		{
+			this.response = response;
+			this.encoding = encoding;
+			this.buffer = new byte[encoding == null ? Math.min(minCompressionSize, BUFFER_SIZE) : minCompressionSize];
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			if (target == null && count < buffer.length)
+			{
+				buffer[count++] = (byte) b;
+				return;
+			}
+
+			getTarget().write(b);
+		}
+
+		@Override
+		public void write(byte[] bytes, int off, int len) throws IOException
+		{
+			if (target == null && count + len <= buffer.length)
+			{
+				System.arraycopy(bytes, off, buffer, count, len);
+				count += len;
+				return;
+			}
+
+			getTarget().write(bytes, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException
+		{
+			if (target != null)
+			{
+				target.flush();
+			}
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			if (closed)
+			{
+				return;
+			}
+			closed = true;
+
+			if (target != null)
+			{
+				target.close();
+				return;
+			}
+
+			response.setContentLength(count);
+			try (OutputStream outputStream = response.getOutputStream())
+			{
+				outputStream.write(buffer, 0, count);
+			}
+		}
+
+		private OutputStream getTarget() throws IOException
+		{
+			if (target != null)
+			{
+				return target;
+			}
+
+			OutputStream outputStream = response.getOutputStream();
+			if (GZIP.equals(encoding))
+			{
+				response.setHeader(HttpUtils.Header.CONTENT_ENCODING, GZIP);
+				outputStream = new PooledGzipOutputStream(outputStream, gzipDeflaterPool);
+			} else if (DEFLATE.equals(encoding))
+			{
+				response.setHeader(HttpUtils.Header.CONTENT_ENCODING, DEFLATE);
+				outputStream = new PooledDeflaterOutputStream(outputStream, deflateDeflaterPool);
+			}
+
+			target = outputStream;
+			target.write(buffer, 0, count);
+			buffer = null;
+			return target;
+		}
+	}
+
+	/**
+	 * Deflate stream on a pooled {@link Deflater}, zlib format when the pool is not {@link DeflaterPool#isNowrap()}
+	 */
+	static class PooledDeflaterOutputStream extends DeflaterOutputStream
+	{
+		private final DeflaterPool deflaterPool;
+		private boolean released;
+
+		PooledDeflaterOutputStream(OutputStream outputStream, DeflaterPool deflaterPool)
+		{
+			super(outputStream, deflaterPool.borrow(), BUFFER_SIZE);
+			this.deflaterPool = deflaterPool;
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			if (released)
+			{
+				return;
+			}
+
+			try
+			{
+				super.close();
+			} finally
+			{
+				released = true;
+				deflaterPool.release(def);
+			}
+		}
+	}
+
+	/**
+	 * {@link java.util.zip.GZIPOutputStream} always creates its own {@link Deflater}, this one writes the same
+	 * header and trailer around a pooled raw deflater
+	 */
+	static class PooledGzipOutputStream extends PooledDeflaterOutputStream
+	{
+		private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+		private final CRC32 crc32 = new CRC32();
+		private boolean finished;
+
+		PooledGzipOutputStream(OutputStream outputStream, DeflaterPool deflaterPool) throws IOException
+		{
+			super(outputStream, deflaterPool);
+			JValidator.throwWhenFalse(deflaterPool.isNowrap(), "gzip requires a nowrap deflater pool");
+
+			out.write(HEADER);
+		}
+
+		@Override
+		public void write(byte[] bytes, int off, int len) throws IOException
+		{
+			super.write(bytes, off, len);
+			crc32.update(bytes, off, len);
+		}
+
+		@Override
+		public void finish() throws IOException
+		{
+			if (finished)
+			{
+				return;
+			}
+
+			super.finish();
+			writeIntLE((int) crc32.getValue());
+			writeIntLE((int) def.getBytesRead());
+			finished = true;
+		}
+
+		private void writeIntLE(int value) throws IOException
+		{
+			out.write(value & 0xff);
+			out.write((value >> 8) & 0xff);
+			out.write((value >> 16) & 0xff);
+			out.write((value >> 24) & 0xff);
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package in.jaxer.core.net;
+
+import lombok.Getter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Bounded pool of {@link Deflater}, each one holds native zlib memory which is only released by {@link Deflater#end()}
+ * so they are reset and handed out again instead of being left to the finalizer.
+ * <br>
+ * Deflaters borrowed beyond the capacity are created on demand and ended on release.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class DeflaterPool
+{
+	@Getter
+	private final int level;
+
+	@Getter
+	private final boolean nowrap;
+
+	private final ArrayBlockingQueue<Deflater> deflaterQueue;
+
+	/**
+	 * @param nowrap true for raw deflate data (gzip), false for the zlib wrapped format of the http deflate encoding
+	 */
+	public DeflaterPool(int level, boolean nowrap, int capacity)
+	{
+		this.level = level;
+		this.nowrap = nowrap;
+		this.deflaterQueue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+	}
+
+	public Deflater borrow()
+	{
+		Deflater deflater = deflaterQueue.poll();
+		return deflater == null ? new Deflater(level, nowrap) : deflater;
+	}
+
+	public void release(Deflater deflater)
+	{
+		if (deflater == null)
+		{
+			return;
+		}
+
+		deflater.reset();
+		if (!deflaterQueue.offer(deflater))
+		{
+			deflater.end();
+		}
+	}
+
+	public int size()
+	{
+		return deflaterQueue.size();
+	}
+}
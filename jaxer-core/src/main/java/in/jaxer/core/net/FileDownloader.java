@@ -1,48 +1,433 @@
 package in.jaxer.core.net;
 
-import in.jaxer.core.FileUtils;
-import in.jaxer.core.utilities.Files;
+import in.jaxer.core.ExecutorUtils;
+import in.jaxer.core.HttpUtils;
+import in.jaxer.core.utilities.HashHandler;
+import in.jaxer.core.utilities.JValidator;
 import in.jaxer.core.utilities.Systems;
+import lombok.Builder;
+import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
 
-import java.io.BufferedInputStream;
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLConnection;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
+ * Downloads a file in byte-range segments fetched in parallel, each segment written in place in the target file
+ * <pre>
+ * FileDownloader fileDownloader = FileDownloader.builder()
+ *     .withSegmentCount(8)
+ *     .build();
+ *
+ * fileDownloader.download("https://downloads.example.com/dump.tar", Paths.get("/data/dump.tar"), Constants.SHA_256, expectedSha256);
+ * </pre>
+ * <ul>
+ *     <li>the file is written to <code>&lt;target&gt;.part</code> and moved to the target once complete and verified</li>
+ *     <li>progress is recorded in <code>&lt;target&gt;.part.journal</code>, a download interrupted for any reason
+ *     resumes from there as long as the server still reports the same length and validator (ETag or Last-Modified)</li>
+ *     <li>servers not supporting ranges, or files smaller than two segments, are downloaded in a single request</li>
+ *     <li>a range answered with the whole file, the server ignoring ranges or the file changing meanwhile,
+ *     drops the segments and downloads the file again in a single request</li>
+ * </ul>
+ *
  * @author Shakir Ansari
  */
 @Log4j2
 public class FileDownloader
 {
+	public static final int DEFAULT_SEGMENT_COUNT = 4;
+	public static final long DEFAULT_MIN_SEGMENT_SIZE = 1024 * 1024L;
+	public static final int DEFAULT_MAX_RETRIES = 3;
+
+	static final String PART_SUFFIX = ".part";
+	static final String JOURNAL_SUFFIX = ".part.journal";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	// the journal is rewritten after this much progress, it is all a crash can lose
+	private static final long CHECKPOINT_BYTES = 8 * 1024 * 1024L;
+
+	private static final long RETRY_BACKOFF_MILLIS = 500;
+
+	@Getter
+	private final PooledHttpClient pooledHttpClient;
+
+	/**
+	 * Runs the segments, a pool created per download when not set
+	 */
+	@Getter
+	private final ExecutorService executorService;
+
+	@Getter
+	private final int segmentCount;
+
+	@Getter
+	private final long minSegmentSize;
+
+	@Getter
+	private final int maxRetries;
+
+	@Builder(setterPrefix = "with")
+	private FileDownloader(PooledHttpClient pooledHttpClient, ExecutorService executorService, Integer segmentCount, Long minSegmentSize, Integer maxRetries)
+	{
+		JValidator.throwWhenTrue(segmentCount != null && segmentCount < 1, "segmentCount must be greater than zero");
+		JValidator.throwWhenTrue(minSegmentSize != null && minSegmentSize < 1, "minSegmentSize must be greater than zero");
+
+		this.pooledHttpClient = pooledHttpClient == null ? PooledHttpClient.getDefault() : pooledHttpClient;
+		this.executorService = executorService;
+		this.segmentCount = segmentCount == null ? DEFAULT_SEGMENT_COUNT : segmentCount;
+		this.minSegmentSize = minSegmentSize == null ? DEFAULT_MIN_SEGMENT_SIZE : minSegmentSize;
+		this.maxRetries = maxRetries == null ? DEFAULT_MAX_RETRIES : maxRetries;
+	}
+
+	/**
+	 * Downloads the file into the user home directory, under the last path segment of the url
+	 */
 	public static void download(final String url)
 	{
-		String filePath = Systems.getUserHomeDirectory() + File.separator + getFileName(url);
+		Path target = Paths.get(Systems.getUserHomeDirectory(), getFileName(url));
 
-		try (InputStream inputStream = new BufferedInputStream(new URL(url).openStream());
-			 FileOutputStream fileOutputStream = new FileOutputStream(filePath))
+		try
+		{
+			FileDownloader.builder().build().download(url, target);
+		} catch (IOException ex)
 		{
-			String length = Files.getFileSize(getLength(url));
+			throw new RuntimeException(ex);
+		}
+	}
+
+	/**
+	 * @return size of the downloaded file
+	 * @since 2.0.0
+	 */
+	public long download(String url, Path target) throws IOException
+	{
+		return download(url, target, null, null);
+	}
+
+	/**
+	 * Downloads the file and verifies it against the checksum, a file not matching is deleted
+	 *
+	 * @param checksumAlgorithm digest algorithm of the checksum, e.g. {@link in.jaxer.core.constants.Constants#SHA_256}
+	 * @param expectedChecksum  hex checksum, the file is not verified when null
+	 * @return size of the downloaded file
+	 * @since 2.0.0
+	 */
+	public long download(String url, Path target, String checksumAlgorithm, String expectedChecksum) throws IOException
+	{
+		JValidator.throwWhenBlank(url, "url cannot be null or empty");
+		JValidator.throwWhenNull(target, "target cannot be null");
+		JValidator.throwWhenTrue(expectedChecksum != null && JValidator.isBlank(checksumAlgorithm), "checksumAlgorithm is required to verify a checksum");
+
+		Path partPath = target.resolveSibling(target.getFileName() + PART_SUFFIX);
+		Path journalPath = target.resolveSibling(target.getFileName() + JOURNAL_SUFFIX);
 
-			long total = 0l;
-			int n = 0;
-			final byte[] bytes = new byte[FileUtils.BUFFER_SIZE];
-			while (-1 != (n = inputStream.read(bytes)))
+		RemoteFile remoteFile = head(url);
+		if (remoteFile.acceptsRanges && remoteFile.length >= 2 * minSegmentSize)
+		{
+			try
+			{
+				downloadSegments(url, remoteFile, partPath, journalPath);
+			} catch (RangeIgnoredException exception)
 			{
-				fileOutputStream.write(bytes, 0, n);
-				total += n;
-				log.debug("Completed: {} out of {}", Files.getFileSize(total), length);
+				log.debug("{}, downloading it again in a single request", exception.getMessage());
+				Files.deleteIfExists(journalPath);
+				downloadWhole(url, partPath);
+			}
+		} else
+		{
+			Files.deleteIfExists(journalPath);
+			downloadWhole(url, partPath);
+		}
 
-				fileOutputStream.flush();
+		if (expectedChecksum != null)
+		{
+			String checksum = HashHandler.getFileChecksum(checksumAlgorithm, partPath.toFile());
+			if (!isSameChecksum(expectedChecksum, checksum))
+			{
+				Files.deleteIfExists(partPath);
+				Files.deleteIfExists(journalPath);
+				throw new IOException(checksumAlgorithm + " mismatch for " + url + ", expected " + expectedChecksum + " but was " + checksum);
 			}
-		} catch (IOException ex)
+		}
+
+		move(partPath, target);
+		Files.deleteIfExists(journalPath);
+		return Files.size(target);
+	}
+
+	private RemoteFile head(String url) throws IOException
+	{
+		HttpHead httpHead = new HttpHead(url);
+		httpHead.setHeader(HttpUtils.Header.ACCEPT_ENCODING, "identity");
+
+		HttpResult httpResult = pooledHttpClient.execute(httpHead);
+		if (!httpResult.isSuccessful())
 		{
-			throw new RuntimeException(ex);
+			log.debug("HEAD {} answered {}, downloading in a single request", url, httpResult.getStatusCode());
+			return new RemoteFile(-1, false, null);
+		}
+
+		String contentLength = httpResult.getHeader(HttpUtils.Header.CONTENT_LENGTH);
+		String contentEncoding = httpResult.getHeader(HttpUtils.Header.CONTENT_ENCODING);
+		String etag = httpResult.getHeader(HttpUtils.Header.ETAG);
+
+		// If-Range only accepts a strong ETag
+		String validator = etag != null && !etag.startsWith("W/") ? etag : httpResult.getHeader(HttpUtils.Header.LAST_MODIFIED);
+
+		long length = -1;
+		try
+		{
+			length = contentLength == null ? -1 : Long.parseLong(contentLength.trim());
+		} catch (NumberFormatException exception)
+		{
+			log.debug("Invalid Content-Length {} for {}", contentLength, url);
+		}
+
+		boolean acceptsRanges = "bytes".equalsIgnoreCase(httpResult.getHeader(HttpUtils.Header.ACCEPT_RANGES))
+				&& (contentEncoding == null || "identity".equalsIgnoreCase(contentEncoding));
+		return new RemoteFile(length, acceptsRanges, validator);
+	}
+
+	private void downloadWhole(String url, Path partPath) throws IOException
+	{
+		HttpGet httpGet = new HttpGet(url);
+		try (HttpResponseStream httpResponseStream = pooledHttpClient.open(httpGet))
+		{
+			if (!httpResponseStream.isSuccessful())
+			{
+				throw new IOException("Server returned non-OK status: " + httpResponseStream.getStatusCode() + " for " + url);
+			}
+
+			try (OutputStream outputStream = Files.newOutputStream(partPath))
+			{
+				httpResponseStream.transferTo(outputStream);
+			}
+		}
+	}
+
+	private void downloadSegments(String url, RemoteFile remoteFile, Path partPath, Path journalPath) throws IOException
+	{
+		Journal journal = Journal.load(journalPath, partPath, url, remoteFile);
+		if (journal == null)
+		{
+			Files.deleteIfExists(partPath);
+			journal = Journal.create(journalPath, url, remoteFile, segmentCount, minSegmentSize);
+		} else
+		{
+			log.debug("Resuming {} at {} of {} bytes", url, journal.getCompleted(), remoteFile.length);
+		}
+
+		ExecutorService segmentExecutor = executorService == null
+				? ExecutorUtils.newVirtualThreadExecutor("jaxer-download", journal.size())
+				: executorService;
+
+		AtomicBoolean aborted = new AtomicBoolean();
+		try (FileChannel fileChannel = FileChannel.open(partPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE))
+		{
+			try
+			{
+				List<Future<?>> futureList = new ArrayList<>();
+				for (int i = 0; i < journal.size(); i++)
+				{
+					final int index = i;
+					final Journal segmentJournal = journal;
+					futureList.add(segmentExecutor.submit(() ->
+					{
+						fetchSegment(url, remoteFile, segmentJournal, index, fileChannel, aborted);
+						return null;
+					}));
+				}
+
+				awaitAll(futureList, aborted);
+			} finally
+			{
+				// failed or not, the journal may only record what is forced to disk
+				journal.save(fileChannel);
+			}
+		} finally
+		{
+			if (segmentExecutor != executorService)
+			{
+				segmentExecutor.shutdownNow();
+			}
+		}
+	}
+
+	private void awaitAll(List<Future<?>> futureList, AtomicBoolean aborted) throws IOException
+	{
+		IOException failure = null;
+		for (Future<?> future : futureList)
+		{
+			try
+			{
+				future.get();
+			} catch (InterruptedException exception)
+			{
+				aborted.set(true);
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Download interrupted");
+			} catch (ExecutionException exception)
+			{
+				aborted.set(true);
+
+				Throwable cause = exception.getCause();
+				IOException ioException = cause instanceof IOException ? (IOException) cause : new IOException(cause);
+				if (failure == null)
+				{
+					failure = ioException;
+				} else if (cause instanceof RangeIgnoredException && !(failure instanceof RangeIgnoredException))
+				{
+					// the segments aborted because of it come first in the list, it decides how the download goes on
+					ioException.addSuppressed(failure);
+					failure = ioException;
+				} else if (!(cause instanceof InterruptedIOException))
+				{
+					failure.addSuppressed(ioException);
+				}
+			}
+		}
+
+		if (failure != null)
+		{
+			throw failure;
+		}
+	}
+
+	private void fetchSegment(String url, RemoteFile remoteFile, Journal journal, int index, FileChannel fileChannel, AtomicBoolean aborted) throws IOException
+	{
+		int attempt = 0;
+		while (true)
+		{
+			try
+			{
+				transferSegment(url, remoteFile, journal, index, fileChannel, aborted);
+				return;
+			} catch (IOException exception)
+			{
+				if (aborted.get() || exception instanceof InterruptedIOException || exception instanceof RangeIgnoredException || ++attempt > maxRetries)
+				{
+					throw exception;
+				}
+
+				log.debug("Segment {} of {} failed, retrying from byte {}: {}", index, url, journal.getPosition(index), exception.getMessage());
+				try
+				{
+					TimeUnit.MILLISECONDS.sleep(RETRY_BACKOFF_MILLIS * attempt);
+				} catch (InterruptedException interruptedException)
+				{
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Download interrupted");
+				}
+			}
+		}
+	}
+
+	private void transferSegment(String url, RemoteFile remoteFile, Journal journal, int index, FileChannel fileChannel, AtomicBoolean aborted) throws IOException
+	{
+		long position = journal.getPosition(index);
+		long end = journal.getEnd(index);
+		if (position > end)
+		{
+			return;
+		}
+
+		HttpGet httpGet = new HttpGet(url);
+		httpGet.setHeader(HttpUtils.Header.ACCEPT_ENCODING, "identity");
+		httpGet.setHeader(HttpUtils.Header.RANGE, "bytes=" + position + "-" + end);
+		if (remoteFile.validator != null)
+		{
+			httpGet.setHeader(HttpUtils.Header.IF_RANGE, remoteFile.validator);
+		}
+
+		try (HttpResponseStream httpResponseStream = pooledHttpClient.open(httpGet))
+		{
+			String contentRange = httpResponseStream.getHeader(HttpUtils.Header.CONTENT_RANGE);
+			if (httpResponseStream.getStatusCode() == HttpUtils.StatusCode.OK)
+			{
+				// a 200 to a conditional range means the file changed since the download started, or ranges are not supported
+				aborted.set(true);
+				throw new RangeIgnoredException("Range " + position + "-" + end + " of " + url + " answered with the whole file");
+			}
+
+			if (httpResponseStream.getStatusCode() != HttpUtils.StatusCode.PARTIAL
+					|| contentRange == null || !contentRange.startsWith("bytes " + position + "-"))
+			{
+				throw new IOException("Range " + position + "-" + end + " of " + url + " answered " + httpResponseStream.getStatusCode()
+						+ ", Content-Range: " + contentRange);
+			}
+
+			InputStream inputStream = httpResponseStream.getInputStream();
+			byte[] bytes = new byte[BUFFER_SIZE];
+			while (position <= end)
+			{
+				if (aborted.get() || Thread.currentThread().isInterrupted())
+				{
+					throw new InterruptedIOException("Download aborted");
+				}
+
+				int read = inputStream.read(bytes, 0, (int) Math.min(bytes.length, end - position + 1));
+				if (read == -1)
+				{
+					throw new EOFException("Range of " + url + " ended at byte " + position + " instead of " + end);
+				}
+
+				ByteBuffer byteBuffer = ByteBuffer.wrap(bytes, 0, read);
+				while (byteBuffer.hasRemaining())
+				{
+					position += fileChannel.write(byteBuffer, position);
+				}
+				journal.advance(index, position, fileChannel);
+			}
+		}
+	}
+
+	static boolean isSameChecksum(String expected, String actual)
+	{
+		// HashHandler drops leading zeros of the hex digest
+		return stripLeadingZeros(expected.trim()).equalsIgnoreCase(stripLeadingZeros(actual.trim()));
+	}
+
+	private static String stripLeadingZeros(String hex)
+	{
+		int i = 0;
+		while (i < hex.length() - 1 && hex.charAt(i) == '0')
+		{
+			i++;
+		}
+		return hex.substring(i);
+	}
+
+	private static void move(Path source, Path target) throws IOException
+	{
+		try
+		{
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException exception)
+		{
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
 		}
 	}
 
@@ -51,27 +436,212 @@ public class FileDownloader
 		return urlString.substring(urlString.lastIndexOf('/') + 1);
 	}
 
-	private static long getLength(String url)
+	private static class RangeIgnoredException extends IOException
 	{
-		URLConnection conn = null;
-		try
+		private RangeIgnoredException(String message)
+		{
+			super(message);
+		}
+	}
+
+	private static class RemoteFile
+	{
+		private final long length;
+		private final boolean acceptsRanges;
+		private final String validator;
+
+		private RemoteFile(long length, boolean acceptsRanges, String validator)
+		{
+			this.length = length;
+			this.acceptsRanges = acceptsRanges;
+			this.validator = validator;
+		}
+	}
+
+	/**
+	 * Segment boundaries and the position up to which each segment is on disk
+	 */
+	private static class Journal
+	{
+		private final Path journalPath;
+		private final String url;
+		private final RemoteFile remoteFile;
+		private final long[] starts;
+		private final long[] ends;
+		private final long[] positions;
+
+		private long unsaved;
+
+		// checkpoints are numbered as they are taken, an older one finishing last must not overwrite a newer one
+		private long checkpoint;
+		private long savedCheckpoint;
+		private final Object saveLock = new Object();
+
+		private Journal(Path journalPath, String url, RemoteFile remoteFile, long[] starts, long[] ends, long[] positions)
+		{
+			this.journalPath = journalPath;
+			this.url = url;
+			this.remoteFile = remoteFile;
+			this.starts = starts;
+			this.ends = ends;
+			this.positions = positions;
+		}
+
+		private static Journal create(Path journalPath, String url, RemoteFile remoteFile, int segmentCount, long minSegmentSize)
 		{
-			conn = new URL(url).openConnection();
-			if (conn instanceof HttpURLConnection)
+			int count = (int) Math.max(1, Math.min(segmentCount, remoteFile.length / minSegmentSize));
+			long segmentSize = remoteFile.length / count;
+
+			long[] starts = new long[count];
+			long[] ends = new long[count];
+			for (int i = 0; i < count; i++)
 			{
-//				((HttpURLConnection) conn).setRequestMethod("HEAD");
+				starts[i] = i * segmentSize;
+				ends[i] = i == count - 1 ? remoteFile.length - 1 : (i + 1) * segmentSize - 1;
 			}
-			conn.getInputStream();
-			return conn.getContentLength();
-		} catch (IOException e)
+			return new Journal(journalPath, url, remoteFile, starts, ends, starts.clone());
+		}
+
+		/**
+		 * @return null when there is nothing to resume from, or it was recorded for another version of the file
+		 */
+		private static Journal load(Path journalPath, Path partPath, String url, RemoteFile remoteFile)
 		{
-			throw new RuntimeException(e);
-		} finally
+			if (remoteFile.validator == null || !Files.isRegularFile(journalPath) || !Files.isRegularFile(partPath))
+			{
+				return null;
+			}
+
+			Properties properties = new Properties();
+			try (InputStream inputStream = Files.newInputStream(journalPath))
+			{
+				properties.load(inputStream);
+
+				if (!url.equals(properties.getProperty("url"))
+						|| !String.valueOf(remoteFile.length).equals(properties.getProperty("length"))
+						|| !Objects.equals(remoteFile.validator, properties.getProperty("validator")))
+				{
+					return null;
+				}
+
+				int count = Integer.parseInt(properties.getProperty("segments"));
+				long[] starts = new long[count];
+				long[] ends = new long[count];
+				long[] positions = new long[count];
+				for (int i = 0; i < count; i++)
+				{
+					String[] values = properties.getProperty("segment." + i).split(",");
+					starts[i] = Long.parseLong(values[0]);
+					ends[i] = Long.parseLong(values[1]);
+					positions[i] = Long.parseLong(values[2]);
+				}
+				return new Journal(journalPath, url, remoteFile, starts, ends, positions);
+			} catch (IOException | RuntimeException exception)
+			{
+				log.debug("Ignoring unreadable journal {}", journalPath, exception);
+				return null;
+			}
+		}
+
+		private int size()
+		{
+			return starts.length;
+		}
+
+		private synchronized long getPosition(int index)
+		{
+			return positions[index];
+		}
+
+		private long getEnd(int index)
 		{
-			if (conn instanceof HttpURLConnection)
+			return ends[index];
+		}
+
+		private synchronized long getCompleted()
+		{
+			long completed = 0;
+			for (int i = 0; i < starts.length; i++)
+			{
+				completed += positions[i] - starts[i];
+			}
+			return completed;
+		}
+
+		private void advance(int index, long position, FileChannel fileChannel) throws IOException
+		{
+			long[] snapshot;
+			long snapshotCheckpoint;
+			synchronized (this)
+			{
+				unsaved += position - positions[index];
+				positions[index] = position;
+
+				if (unsaved < CHECKPOINT_BYTES)
+				{
+					return;
+				}
+
+				unsaved = 0;
+				snapshot = positions.clone();
+				snapshotCheckpoint = ++checkpoint;
+			}
+
+			// what the journal records must be on disk first, the other segments keep writing during the fsync,
+			// the snapshot only covers bytes written before it was taken
+			fileChannel.force(false);
+			save(snapshot, snapshotCheckpoint);
+			log.debug("Downloaded {} of {} bytes of {}", getCompleted(), remoteFile.length, url);
+		}
+
+		private void save(FileChannel fileChannel) throws IOException
+		{
+			long[] snapshot;
+			long snapshotCheckpoint;
+			synchronized (this)
+			{
+				unsaved = 0;
+				snapshot = positions.clone();
+				snapshotCheckpoint = ++checkpoint;
+			}
+
+			// segments of a failed download may still be finishing a write, the snapshot is taken before the fsync as in advance
+			fileChannel.force(false);
+			save(snapshot, snapshotCheckpoint);
+		}
+
+		private void save(long[] snapshot, long snapshotCheckpoint) throws IOException
+		{
+			synchronized (saveLock)
+			{
+				if (snapshotCheckpoint <= savedCheckpoint)
+				{
+					return;
+				}
+
+				write(snapshot);
+				savedCheckpoint = snapshotCheckpoint;
+			}
+		}
+
+		private void write(long[] snapshot) throws IOException
+		{
+			Properties properties = new Properties();
+			properties.setProperty("url", url);
+			properties.setProperty("length", String.valueOf(remoteFile.length));
+			properties.setProperty("validator", remoteFile.validator == null ? "" : remoteFile.validator);
+			properties.setProperty("segments", String.valueOf(starts.length));
+			for (int i = 0; i < starts.length; i++)
+			{
+				properties.setProperty("segment." + i, starts[i] + "," + ends[i] + "," + snapshot[i]);
+			}
+
+			Path tempPath = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+			try (OutputStream outputStream = Files.newOutputStream(tempPath))
 			{
-				((HttpURLConnection) conn).disconnect();
+				properties.store(outputStream, null);
 			}
+			move(tempPath, journalPath);
 		}
 	}
 }
@@ -0,0 +1,553 @@
+package in.jaxer.core.net;
+
+import in.jaxer.core.HttpUtils;
+import in.jaxer.core.constants.ContentType;
+import in.jaxer.core.utilities.JValidator;
+import lombok.Builder;
+import lombok.Getter;
+import org.apache.http.client.utils.DateUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Serves files from servlets the way a static file server does, so clients can seek in videos and resume downloads
+ * <pre>
+ * FileResponseWriter.getDefault().write(request, response, Paths.get("/data/videos/intro.mp4"));
+ * FileResponseWriter.getDefault().download(request, response, Paths.get("/data/exports/orders.csv"), "orders.csv");
+ * </pre>
+ * <ul>
+ *     <li>every response carries Content-Length, a strong ETag derived from the size and the modification time,
+ *     Last-Modified and <code>Accept-Ranges: bytes</code></li>
+ *     <li><code>If-None-Match</code> / <code>If-Modified-Since</code> answer 304 when the client copy is current,
+ *     <code>If-Match</code> / <code>If-Unmodified-Since</code> answer 412 when it is not</li>
+ *     <li>a single range is answered with a 206, several with a 206 <code>multipart/byteranges</code>,
+ *     a range beyond the end of the file with a 416. <code>If-Range</code> falls back to the whole file once the file changed</li>
+ * </ul>
+ * The body is handed to the container as a sendfile when it supports it (Tomcat with NIO / APR),
+ * otherwise it is copied straight from the file channel through a large buffer.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class FileResponseWriter
+{
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * More ranges than this are answered with the whole file, a flood of tiny ranges costs more than the file
+	 */
+	public static final int DEFAULT_MAX_RANGES = 16;
+
+	// bodies smaller than this are cheaper to copy than to hand to the container
+	public static final long DEFAULT_MIN_SENDFILE_SIZE = 48 * 1024L;
+
+	private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+	private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+	private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+	private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+	private static final String CRLF = "\r\n";
+
+	private static final FileResponseWriter DEFAULT = FileResponseWriter.builder().build();
+
+	@Getter
+	private final int bufferSize;
+
+	@Getter
+	private final int maxRanges;
+
+	@Getter
+	private final long minSendfileSize;
+
+	/**
+	 * Cache-Control sent with every response, not sent when null
+	 */
+	@Getter
+	private final String cacheControl;
+
+	@Builder(setterPrefix = "with")
+	private FileResponseWriter(Integer bufferSize, Integer maxRanges, Long minSendfileSize, Boolean sendfileEnabled, String cacheControl)
+	{
+		this.bufferSize = bufferSize == null ? DEFAULT_BUFFER_SIZE : bufferSize;
+		this.maxRanges = maxRanges == null ? DEFAULT_MAX_RANGES : maxRanges;
+		this.minSendfileSize = Boolean.FALSE.equals(sendfileEnabled) ? Long.MAX_VALUE
+				: minSendfileSize == null ? DEFAULT_MIN_SENDFILE_SIZE : minSendfileSize;
+		this.cacheControl = cacheControl;
+
+		JValidator.throwWhenTrue(this.bufferSize < 1, "bufferSize must be positive");
+		JValidator.throwWhenTrue(this.maxRanges < 1, "maxRanges must be positive");
+	}
+
+	public static FileResponseWriter getDefault()
+	{
+		return DEFAULT;
+	}
+
+	/**
+	 * Serves the file inline, with the content type the servlet context maps its name to
+	 */
+	public void write(HttpServletRequest request, HttpServletResponse response, Path path) throws IOException
+	{
+		write(request, response, path, getMimeType(request, path.getFileName().toString()), null);
+	}
+
+	/**
+	 * Serves the file as an attachment saved under the file name
+	 */
+	public void download(HttpServletRequest request, HttpServletResponse response, Path path, String fileName) throws IOException
+	{
+		write(request, response, path, getMimeType(request, fileName), getContentDisposition("attachment", fileName));
+	}
+
+	/**
+	 * Serves the file, answering 404 when it does not exist or is not a regular file
+	 *
+	 * @param contentDisposition sent as it is, not sent when null
+	 */
+	public void write(HttpServletRequest request, HttpServletResponse response, Path path, String contentType, String contentDisposition) throws IOException
+	{
+		BasicFileAttributes basicFileAttributes;
+		try
+		{
+			basicFileAttributes = Files.readAttributes(path, BasicFileAttributes.class);
+		} catch (IOException exception)
+		{
+			response.sendError(HttpUtils.StatusCode.NOT_FOUND);
+			return;
+		}
+
+		if (!basicFileAttributes.isRegularFile())
+		{
+			response.sendError(HttpUtils.StatusCode.NOT_FOUND);
+			return;
+		}
+
+		long length = basicFileAttributes.size();
+		// http dates have no milliseconds
+		long lastModified = basicFileAttributes.lastModifiedTime().toMillis() / 1000 * 1000;
+		String etag = getETag(length, basicFileAttributes.lastModifiedTime().toMillis());
+
+		response.setHeader(HttpUtils.Header.ACCEPT_RANGES, "bytes");
+		response.setHeader(HttpUtils.Header.ETAG, etag);
+		response.setDateHeader(HttpUtils.Header.LAST_MODIFIED, lastModified);
+		if (cacheControl != null)
+		{
+			response.setHeader(HttpUtils.Header.CACHE_CONTROL, cacheControl);
+		}
+
+		int preconditionStatus = checkPreconditions(request, etag, lastModified);
+		if (preconditionStatus != HttpUtils.StatusCode.OK)
+		{
+			response.setStatus(preconditionStatus);
+			return;
+		}
+
+		if (contentDisposition != null)
+		{
+			response.setHeader(HttpUtils.Header.CONTENT_DISPOSITION, contentDisposition);
+		}
+
+		List<ByteRange> rangeList = null;
+		String range = request.getHeader(HttpUtils.Header.RANGE);
+		if (range != null && HttpUtils.Method.GET.equalsIgnoreCase(request.getMethod())
+				&& isIfRangeSatisfied(request.getHeader(HttpUtils.Header.IF_RANGE), etag, lastModified))
+		{
+			rangeList = parseRange(range, length, maxRanges);
+		}
+
+		boolean head = HttpUtils.Method.HEAD.equalsIgnoreCase(request.getMethod());
+		if (rangeList == null)
+		{
+			response.setStatus(HttpUtils.StatusCode.OK);
+			response.setContentType(contentType);
+			response.setContentLengthLong(length);
+			if (!head)
+			{
+				writeBody(request, response, path, new ByteRange(0, length - 1));
+			}
+			return;
+		}
+
+		if (rangeList.isEmpty())
+		{
+			response.setHeader(HttpUtils.Header.CONTENT_RANGE, "bytes */" + length);
+			response.sendError(HttpUtils.StatusCode.RANGE_NOT_SATISFIABLE);
+			return;
+		}
+
+		response.setStatus(HttpUtils.StatusCode.PARTIAL);
+		if (rangeList.size() == 1)
+		{
+			ByteRange byteRange = rangeList.get(0);
+			response.setContentType(contentType);
+			response.setHeader(HttpUtils.Header.CONTENT_RANGE, byteRange.toContentRange(length));
+			response.setContentLengthLong(byteRange.getLength());
+			if (!head)
+			{
+				writeBody(request, response, path, byteRange);
+			}
+			return;
+		}
+
+		String boundary = UUID.randomUUID().toString().replace("-", "");
+		List<byte[]> partHeaderList = new ArrayList<>(rangeList.size());
+		long contentLength = 0;
+		for (ByteRange byteRange : rangeList)
+		{
+			byte[] partHeader = (CRLF + "--" + boundary + CRLF
+					+ HttpUtils.Header.CONTENT_TYPE + ": " + contentType + CRLF
+					+ HttpUtils.Header.CONTENT_RANGE + ": " + byteRange.toContentRange(length) + CRLF
+					+ CRLF).getBytes(StandardCharsets.ISO_8859_1);
+			partHeaderList.add(partHeader);
+			contentLength += partHeader.length + byteRange.getLength();
+		}
+		byte[] closingBoundary = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.ISO_8859_1);
+		contentLength += closingBoundary.length;
+
+		response.setContentType("multipart/byteranges; boundary=" + boundary);
+		response.setContentLengthLong(contentLength);
+		if (head)
+		{
+			return;
+		}
+
+		try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			OutputStream outputStream = response.getOutputStream();
+			byte[] buffer = new byte[bufferSize];
+			for (int i = 0; i < rangeList.size(); i++)
+			{
+				outputStream.write(partHeaderList.get(i));
+				copy(fileChannel, rangeList.get(i), outputStream, buffer);
+			}
+			outputStream.write(closingBoundary);
+			outputStream.flush();
+		}
+	}
+
+	/**
+	 * @return strong entity tag of a file of this size modified at this time
+	 */
+	public static String getETag(long length, long lastModifiedMillis)
+	{
+		return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModifiedMillis) + "\"";
+	}
+
+	/**
+	 * @return Content-Disposition with the file name quoted, and encoded as UTF-8 for clients understanding <code>filename*</code>
+	 */
+	public static String getContentDisposition(String type, String fileName)
+	{
+		String quoted = fileName.replace("\\", "_").replace("\"", "_").replace("\r", "_").replace("\n", "_");
+		try
+		{
+			return type + "; filename=\"" + quoted + "\"; filename*=UTF-8''"
+					+ URLEncoder.encode(fileName, StandardCharsets.UTF_8.name()).replace("+", "%20");
+		} catch (UnsupportedEncodingException exception)
+		{
+			throw new IllegalStateException(exception);
+		}
+	}
+
+	private static String getMimeType(HttpServletRequest request, String fileName)
+	{
+		String mimeType = request.getServletContext() == null ? null : request.getServletContext().getMimeType(fileName);
+		return JValidator.isBlank(mimeType) ? ContentType.APPLICATION_OCTET_STREAM : mimeType;
+	}
+
+	/**
+	 * @return {@link HttpUtils.StatusCode#OK} to serve the file, 304 or 412 otherwise
+	 */
+	static int checkPreconditions(HttpServletRequest request, String etag, long lastModified)
+	{
+		String ifMatch = request.getHeader(HttpUtils.Header.IF_MATCH);
+		if (ifMatch != null)
+		{
+			if (!matches(ifMatch, etag, false))
+			{
+				return HttpUtils.StatusCode.PRECON_FAILED;
+			}
+		} else
+		{
+			long ifUnmodifiedSince = getDateHeader(request, HttpUtils.Header.IF_UNMODIFIED_SINCE);
+			if (ifUnmodifiedSince != -1 && lastModified > ifUnmodifiedSince)
+			{
+				return HttpUtils.StatusCode.PRECON_FAILED;
+			}
+		}
+
+		boolean getOrHead = HttpUtils.Method.GET.equalsIgnoreCase(request.getMethod())
+				|| HttpUtils.Method.HEAD.equalsIgnoreCase(request.getMethod());
+
+		String ifNoneMatch = request.getHeader(HttpUtils.Header.IF_NONE_MATCH);
+		if (ifNoneMatch != null)
+		{
+			if (matches(ifNoneMatch, etag, true))
+			{
+				return getOrHead ? HttpUtils.StatusCode.NOT_MODIFIED : HttpUtils.StatusCode.PRECON_FAILED;
+			}
+		} else if (getOrHead)
+		{
+			long ifModifiedSince = getDateHeader(request, HttpUtils.Header.IF_MODIFIED_SINCE);
+			if (ifModifiedSince != -1 && lastModified <= ifModifiedSince)
+			{
+				return HttpUtils.StatusCode.NOT_MODIFIED;
+			}
+		}
+
+		return HttpUtils.StatusCode.OK;
+	}
+
+	/**
+	 * @return the date in milliseconds, -1 when absent or invalid, an invalid date is ignored
+	 */
+	private static long getDateHeader(HttpServletRequest request, String name)
+	{
+		String value = request.getHeader(name);
+		if (value == null)
+		{
+			return -1;
+		}
+
+		Date date = DateUtils.parseDate(value);
+		return date == null ? -1 : date.getTime();
+	}
+
+	/**
+	 * @param weak compares ignoring the <code>W/</code> prefix, as If-None-Match does
+	 */
+	static boolean matches(String headerValue, String etag, boolean weak)
+	{
+		for (String candidate : headerValue.split(","))
+		{
+			candidate = candidate.trim();
+			if ("*".equals(candidate))
+			{
+				return true;
+			}
+
+			if (candidate.startsWith("W/"))
+			{
+				if (!weak)
+				{
+					continue;
+				}
+				candidate = candidate.substring(2);
+			}
+
+			if (candidate.equals(etag))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true when the range applies, the If-Range is absent or names the current version of the file
+	 */
+	static boolean isIfRangeSatisfied(String ifRange, String etag, long lastModified)
+	{
+		if (ifRange == null)
+		{
+			return true;
+		}
+
+		ifRange = ifRange.trim();
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+		{
+			// only a strong comparison can validate a range
+			return ifRange.equals(etag);
+		}
+
+		Date date = DateUtils.parseDate(ifRange);
+		return date != null && date.getTime() == lastModified;
+	}
+
+	/**
+	 * Parses a <code>bytes=</code> Range header against a file of the given length, overlapping and adjacent ranges are merged
+	 *
+	 * @return ranges to serve in ascending order, an empty list when none is satisfiable,
+	 * null when the header is invalid or asks for more than max ranges and the whole file should be served
+	 */
+	static List<ByteRange> parseRange(String range, long length, int maxRanges)
+	{
+		String trimmed = range.trim();
+		if (!trimmed.regionMatches(true, 0, "bytes=", 0, 6))
+		{
+			return null;
+		}
+
+		String[] specs = trimmed.substring(6).split(",");
+		if (specs.length > maxRanges)
+		{
+			return null;
+		}
+
+		List<ByteRange> rangeList = new ArrayList<>(specs.length);
+		for (String spec : specs)
+		{
+			spec = spec.trim();
+			if (spec.isEmpty())
+			{
+				continue;
+			}
+
+			int dash = spec.indexOf('-');
+			if (dash == -1)
+			{
+				return null;
+			}
+
+			long start;
+			long end;
+			try
+			{
+				if (dash == 0)
+				{
+					// suffix range, the last n bytes
+					long suffixLength = Long.parseLong(spec.substring(1));
+					if (suffixLength < 0)
+					{
+						return null;
+					}
+					if (suffixLength == 0 || length == 0)
+					{
+						continue;
+					}
+					start = Math.max(0, length - suffixLength);
+					end = length - 1;
+				} else
+				{
+					start = Long.parseLong(spec.substring(0, dash));
+					end = dash == spec.length() - 1 ? Long.MAX_VALUE : Long.parseLong(spec.substring(dash + 1));
+					if (start < 0 || end < start)
+					{
+						return null;
+					}
+					if (start >= length)
+					{
+						continue;
+					}
+					end = Math.min(end, length - 1);
+				}
+			} catch (NumberFormatException exception)
+			{
+				return null;
+			}
+
+			rangeList.add(new ByteRange(start, end));
+		}
+
+		rangeList.sort((first, second) -> Long.compare(first.getStart(), second.getStart()));
+
+		List<ByteRange> mergedList = new ArrayList<>(rangeList.size());
+		for (ByteRange byteRange : rangeList)
+		{
+			ByteRange last = mergedList.isEmpty() ? null : mergedList.get(mergedList.size() - 1);
+			if (last != null && byteRange.getStart() <= last.getEnd() + 1)
+			{
+				mergedList.set(mergedList.size() - 1, new ByteRange(last.getStart(), Math.max(last.getEnd(), byteRange.getEnd())));
+			} else
+			{
+				mergedList.add(byteRange);
+			}
+		}
+		return mergedList;
+	}
+
+	private void writeBody(HttpServletRequest request, HttpServletResponse response, Path path, ByteRange byteRange) throws IOException
+	{
+		if (byteRange.getLength() <= 0)
+		{
+			return;
+		}
+
+		if (byteRange.getLength() >= minSendfileSize && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT)))
+		{
+			// the container writes the file from the kernel once the servlet returns
+			request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+			request.setAttribute(SENDFILE_START, byteRange.getStart());
+			request.setAttribute(SENDFILE_END, byteRange.getEnd() + 1);
+			return;
+		}
+
+		try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			OutputStream outputStream = response.getOutputStream();
+			copy(fileChannel, byteRange, outputStream, new byte[(int) Math.min(bufferSize, byteRange.getLength())]);
+			outputStream.flush();
+		}
+	}
+
+	/**
+	 * Positional reads, the channel position is not touched
+	 */
+	private static void copy(FileChannel fileChannel, ByteRange byteRange, OutputStream outputStream, byte[] buffer) throws IOException
+	{
+		ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+		long position = byteRange.getStart();
+		long remaining = byteRange.getLength();
+		while (remaining > 0)
+		{
+			byteBuffer.clear();
+			if (remaining < byteBuffer.capacity())
+			{
+				byteBuffer.limit((int) remaining);
+			}
+
+			int read = fileChannel.read(byteBuffer, position);
+			if (read == -1)
+			{
+				// the file was truncated while being served, the response cannot be completed
+				throw new IOException("Unexpected end of file at " + position + ", " + remaining + " bytes missing");
+			}
+
+			outputStream.write(buffer, 0, read);
+			position += read;
+			remaining -= read;
+		}
+	}
+
+	/**
+	 * Inclusive byte range of a file
+	 */
+	@Getter
+	static class ByteRange
+	{
+		private final long start;
+		private final long end;
+
+		ByteRange(long start, long end)
+		{
+			this.start = start;
+			this.end = end;
+		}
+
+		long getLength()
+		{
+			return end - start + 1;
+		}
+
+		String toContentRange(long length)
+		{
+			return "bytes " + start + "-" + end + "/" + length;
+		}
+	}
+}
@@ -0,0 +1,475 @@
+package in.jaxer.core.net;
+
+import in.jaxer.core.exceptions.CallNotPermittedException;
+import in.jaxer.core.utilities.JValidator;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.apache.http.client.methods.HttpUriRequest;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Per-host circuit breaker and bulkhead for outbound calls, so a degraded host fails fast
+ * instead of holding request threads until its sockets time out
+ * <pre>
+ * HttpCircuitBreaker httpCircuitBreaker = HttpCircuitBreaker.builder()
+ *     .withFailureRateThreshold(50)
+ *     .withSlowCallDurationMillis(2000)
+ *     .withMaxConcurrentCallsPerHost(20)
+ *     .build();
+ *
+ * httpHandler.setHttpCircuitBreaker(httpCircuitBreaker);
+ * </pre>
+ * <ul>
+ *     <li><b>CLOSED</b> calls go through, the outcome of the last calls is kept in a sliding window.
+ *     Once the window holds the minimum number of calls and the failure rate or the slow call rate reaches its threshold the circuit opens</li>
+ *     <li><b>OPEN</b> calls are refused with {@link CallNotPermittedException} without touching the network,
+ *     after the wait duration the circuit turns half-open</li>
+ *     <li><b>HALF_OPEN</b> a limited number of probe calls go through, the circuit closes when their rates are below the thresholds
+ *     and opens again otherwise</li>
+ * </ul>
+ * An {@link IOException} or a 5xx response counts as a failure, a call lasting at least the slow call duration counts as slow.
+ * The bulkhead caps the calls in flight per host, a call over the cap waits up to the max wait duration and is then refused.
+ * Thread-safe.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Log4j2
+public class HttpCircuitBreaker
+{
+	public static final float DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+	public static final float DEFAULT_SLOW_CALL_RATE_THRESHOLD = 100;
+	public static final long DEFAULT_SLOW_CALL_DURATION_MILLIS = 60 * 1000L;
+	public static final int DEFAULT_WINDOW_SIZE = 20;
+	public static final int DEFAULT_MINIMUM_CALLS = 10;
+	public static final long DEFAULT_WAIT_IN_OPEN_MILLIS = 30 * 1000L;
+	public static final int DEFAULT_HALF_OPEN_PROBES = 3;
+	public static final int DEFAULT_MAX_CONCURRENT_CALLS_PER_HOST = 25;
+
+	public enum State
+	{
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	/**
+	 * Percentage of failed calls in the window opening the circuit
+	 */
+	@Getter
+	private final float failureRateThreshold;
+
+	/**
+	 * Percentage of slow calls in the window opening the circuit
+	 */
+	@Getter
+	private final float slowCallRateThreshold;
+
+	@Getter
+	private final long slowCallDurationMillis;
+
+	/**
+	 * Number of most recent calls the rates are computed on
+	 */
+	@Getter
+	private final int windowSize;
+
+	/**
+	 * Number of calls the window must hold before the rates are computed
+	 */
+	@Getter
+	private final int minimumCalls;
+
+	@Getter
+	private final long waitInOpenMillis;
+
+	@Getter
+	private final int halfOpenProbes;
+
+	/**
+	 * Calls in flight per host, 0 disables the bulkhead
+	 */
+	@Getter
+	private final int maxConcurrentCallsPerHost;
+
+	/**
+	 * How long a call waits for the bulkhead, 0 refuses it at once
+	 */
+	@Getter
+	private final long maxWaitMillis;
+
+	private final Consumer<CircuitBreakerEvent> eventListener;
+
+	private final Map<String, HostCircuit> circuitMap = new ConcurrentHashMap<>();
+
+	/**
+	 * @param eventListener receives the events of every host, called on the thread of the call
+	 */
+	@Builder(setterPrefix = "with")
+	private HttpCircuitBreaker(Float failureRateThreshold, Float slowCallRateThreshold, Long slowCallDurationMillis,
+							   Integer windowSize, Integer minimumCalls, Long waitInOpenMillis, Integer halfOpenProbes,
+							   Integer maxConcurrentCallsPerHost, Long maxWaitMillis, Consumer<CircuitBreakerEvent> eventListener)
+	{
+		this.failureRateThreshold = failureRateThreshold == null ? DEFAULT_FAILURE_RATE_THRESHOLD : failureRateThreshold;
+		this.slowCallRateThreshold = slowCallRateThreshold == null ? DEFAULT_SLOW_CALL_RATE_THRESHOLD : slowCallRateThreshold;
+		this.slowCallDurationMillis = slowCallDurationMillis == null ? DEFAULT_SLOW_CALL_DURATION_MILLIS : slowCallDurationMillis;
+		this.windowSize = windowSize == null ? DEFAULT_WINDOW_SIZE : windowSize;
+		this.minimumCalls = minimumCalls == null ? Math.min(DEFAULT_MINIMUM_CALLS, this.windowSize) : minimumCalls;
+		this.waitInOpenMillis = waitInOpenMillis == null ? DEFAULT_WAIT_IN_OPEN_MILLIS : waitInOpenMillis;
+		this.halfOpenProbes = halfOpenProbes == null ? DEFAULT_HALF_OPEN_PROBES : halfOpenProbes;
+		this.maxConcurrentCallsPerHost = maxConcurrentCallsPerHost == null ? DEFAULT_MAX_CONCURRENT_CALLS_PER_HOST : maxConcurrentCallsPerHost;
+		this.maxWaitMillis = maxWaitMillis == null ? 0 : maxWaitMillis;
+		this.eventListener = eventListener;
+
+		JValidator.throwWhenTrue(this.failureRateThreshold <= 0 || this.failureRateThreshold > 100, "failureRateThreshold must be in (0, 100]");
+		JValidator.throwWhenTrue(this.slowCallRateThreshold <= 0 || this.slowCallRateThreshold > 100, "slowCallRateThreshold must be in (0, 100]");
+		JValidator.throwWhenTrue(this.windowSize < 1, "windowSize must be positive");
+		JValidator.throwWhenTrue(this.minimumCalls < 1 || this.minimumCalls > this.windowSize, "minimumCalls must be in [1, windowSize]");
+		JValidator.throwWhenTrue(this.halfOpenProbes < 1, "halfOpenProbes must be positive");
+		JValidator.throwWhenTrue(this.maxConcurrentCallsPerHost < 0, "maxConcurrentCallsPerHost cannot be negative");
+	}
+
+	/**
+	 * @see #execute(HttpUriRequest, HttpTransport, Consumer)
+	 */
+	public HttpResult execute(HttpUriRequest httpUriRequest, HttpTransport transport) throws IOException
+	{
+		return execute(httpUriRequest, transport, null);
+	}
+
+	/**
+	 * Executes the request when the circuit and the bulkhead of its host permit it
+	 *
+	 * @param callEventListener receives the events raised by this call, in addition to the event listener of the breaker
+	 * @throws CallNotPermittedException when the circuit is open or the bulkhead is full, the request is not executed
+	 */
+	public HttpResult execute(HttpUriRequest httpUriRequest, HttpTransport transport, Consumer<CircuitBreakerEvent> callEventListener) throws IOException
+	{
+		String host = getHost(httpUriRequest.getURI());
+		HostCircuit hostCircuit = circuitMap.computeIfAbsent(host, HostCircuit::new);
+
+		List<CircuitBreakerEvent> eventList = new ArrayList<>(2);
+		long generation = hostCircuit.tryAcquirePermission(eventList);
+		if (generation < 0)
+		{
+			publish(eventList, callEventListener);
+			throw new CallNotPermittedException(host, "Circuit of " + host + " is " + hostCircuit.getState());
+		}
+
+		boolean entered;
+		try
+		{
+			entered = hostCircuit.tryEnterBulkhead();
+		} catch (InterruptedIOException exception)
+		{
+			hostCircuit.releasePermission(generation);
+			throw exception;
+		}
+
+		if (!entered)
+		{
+			hostCircuit.releasePermission(generation);
+			hostCircuit.bulkheadRejectedCalls.incrementAndGet();
+			eventList.add(new CircuitBreakerEvent(host, CircuitBreakerEvent.Type.BULKHEAD_FULL, null, null));
+			publish(eventList, callEventListener);
+			throw new CallNotPermittedException(host, "Bulkhead of " + host + " is full, " + maxConcurrentCallsPerHost + " calls in flight");
+		}
+
+		long startNanos = System.nanoTime();
+		boolean failed = true;
+		try
+		{
+			HttpResult httpResult = transport.execute(httpUriRequest);
+			failed = httpResult.getStatusCode() >= 500;
+			return httpResult;
+		} finally
+		{
+			hostCircuit.exitBulkhead();
+
+			long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+			hostCircuit.onResult(generation, failed, durationMillis >= slowCallDurationMillis, eventList);
+			publish(eventList, callEventListener);
+		}
+	}
+
+	/**
+	 * @return state of the circuit of the host of the url, CLOSED for a host never called
+	 */
+	public State getState(String url)
+	{
+		HostCircuit hostCircuit = circuitMap.get(getHost(URI.create(url)));
+		return hostCircuit == null ? State.CLOSED : hostCircuit.getState();
+	}
+
+	/**
+	 * @return metrics of the host of the url, null for a host never called
+	 */
+	public CircuitBreakerMetrics getMetrics(String url)
+	{
+		HostCircuit hostCircuit = circuitMap.get(getHost(URI.create(url)));
+		return hostCircuit == null ? null : hostCircuit.getMetrics();
+	}
+
+	/**
+	 * @return metrics of every host called, by host
+	 */
+	public Map<String, CircuitBreakerMetrics> getMetricsMap()
+	{
+		Map<String, CircuitBreakerMetrics> metricsMap = new TreeMap<>();
+		for (HostCircuit hostCircuit : circuitMap.values())
+		{
+			metricsMap.put(hostCircuit.host, hostCircuit.getMetrics());
+		}
+		return Collections.unmodifiableMap(metricsMap);
+	}
+
+	/**
+	 * Closes every circuit and forgets the recorded calls
+	 */
+	public void reset()
+	{
+		circuitMap.clear();
+	}
+
+	private void publish(List<CircuitBreakerEvent> eventList, Consumer<CircuitBreakerEvent> callEventListener)
+	{
+		for (CircuitBreakerEvent circuitBreakerEvent : eventList)
+		{
+			if (circuitBreakerEvent.getType() == CircuitBreakerEvent.Type.STATE_TRANSITION)
+			{
+				log.info("Circuit of {} changed from {} to {}", circuitBreakerEvent.getHost(), circuitBreakerEvent.getFromState(), circuitBreakerEvent.getToState());
+			}
+
+			notify(eventListener, circuitBreakerEvent);
+			notify(callEventListener, circuitBreakerEvent);
+		}
+		eventList.clear();
+	}
+
+	private static void notify(Consumer<CircuitBreakerEvent> listener, CircuitBreakerEvent circuitBreakerEvent)
+	{
+		if (listener == null)
+		{
+			return;
+		}
+
+		try
+		{
+			listener.accept(circuitBreakerEvent);
+		} catch (RuntimeException exception)
+		{
+			log.warn("Circuit breaker event listener failed", exception);
+		}
+	}
+
+	/**
+	 * @return host and port when not the default one, in lower case
+	 */
+	static String getHost(URI uri)
+	{
+		String host = uri.getHost();
+		if (host == null)
+		{
+			return "";
+		}
+
+		host = host.toLowerCase(Locale.ROOT);
+		return uri.getPort() == -1 ? host : host + ":" + uri.getPort();
+	}
+
+	private class HostCircuit
+	{
+		private final String host;
+		private final Semaphore bulkhead = maxConcurrentCallsPerHost == 0 ? null : new Semaphore(maxConcurrentCallsPerHost);
+
+		// outcome of the last calls, a ring of windowSize slots
+		private final boolean[] failedWindow = new boolean[windowSize];
+		private final boolean[] slowWindow = new boolean[windowSize];
+		private int windowIndex;
+		private int bufferedCalls;
+		private int failedCalls;
+		private int slowCalls;
+
+		private State state = State.CLOSED;
+
+		// incremented on every transition, results of calls permitted in an earlier state are ignored
+		private long generation;
+		private long openedAtNanos;
+
+		private int probesStarted;
+		private int probesCompleted;
+		private int probesFailed;
+		private int probesSlow;
+
+		private final AtomicLong notPermittedCalls = new AtomicLong();
+		private final AtomicLong bulkheadRejectedCalls = new AtomicLong();
+
+		private HostCircuit(String host)
+		{
+			this.host = host;
+		}
+
+		/**
+		 * @return generation the call is permitted in, -1 when it is not permitted
+		 */
+		synchronized long tryAcquirePermission(List<CircuitBreakerEvent> eventList)
+		{
+			if (state == State.OPEN && System.nanoTime() - openedAtNanos >= TimeUnit.MILLISECONDS.toNanos(waitInOpenMillis))
+			{
+				transitionTo(State.HALF_OPEN, eventList);
+			}
+
+			if (state == State.CLOSED)
+			{
+				return generation;
+			}
+
+			if (state == State.HALF_OPEN && probesStarted < halfOpenProbes)
+			{
+				probesStarted++;
+				return generation;
+			}
+
+			notPermittedCalls.incrementAndGet();
+			eventList.add(new CircuitBreakerEvent(host, CircuitBreakerEvent.Type.CALL_NOT_PERMITTED, state, state));
+			return -1;
+		}
+
+		/**
+		 * Gives back the permission of a call refused by the bulkhead
+		 */
+		synchronized void releasePermission(long permittedGeneration)
+		{
+			if (permittedGeneration == generation && state == State.HALF_OPEN)
+			{
+				probesStarted--;
+			}
+		}
+
+		synchronized void onResult(long permittedGeneration, boolean failed, boolean slow, List<CircuitBreakerEvent> eventList)
+		{
+			if (permittedGeneration != generation)
+			{
+				return;
+			}
+
+			if (state == State.CLOSED)
+			{
+				record(failed, slow);
+				if (bufferedCalls >= minimumCalls && isOverThreshold(failedCalls, slowCalls, bufferedCalls))
+				{
+					transitionTo(State.OPEN, eventList);
+				}
+			} else if (state == State.HALF_OPEN)
+			{
+				probesCompleted++;
+				probesFailed += failed ? 1 : 0;
+				probesSlow += slow ? 1 : 0;
+
+				if (probesCompleted >= halfOpenProbes)
+				{
+					transitionTo(isOverThreshold(probesFailed, probesSlow, probesCompleted) ? State.OPEN : State.CLOSED, eventList);
+				}
+			}
+		}
+
+		private void record(boolean failed, boolean slow)
+		{
+			if (bufferedCalls == windowSize)
+			{
+				failedCalls -= failedWindow[windowIndex] ? 1 : 0;
+				slowCalls -= slowWindow[windowIndex] ? 1 : 0;
+			} else
+			{
+				bufferedCalls++;
+			}
+
+			failedWindow[windowIndex] = failed;
+			slowWindow[windowIndex] = slow;
+			failedCalls += failed ? 1 : 0;
+			slowCalls += slow ? 1 : 0;
+			windowIndex = (windowIndex + 1) % windowSize;
+		}
+
+		private boolean isOverThreshold(int failed, int slow, int total)
+		{
+			return failed * 100f / total >= failureRateThreshold || slow * 100f / total >= slowCallRateThreshold;
+		}
+
+		private void transitionTo(State toState, List<CircuitBreakerEvent> eventList)
+		{
+			eventList.add(new CircuitBreakerEvent(host, CircuitBreakerEvent.Type.STATE_TRANSITION, state, toState));
+
+			state = toState;
+			generation++;
+			probesStarted = probesCompleted = probesFailed = probesSlow = 0;
+
+			if (toState == State.OPEN)
+			{
+				openedAtNanos = System.nanoTime();
+			} else if (toState == State.CLOSED)
+			{
+				windowIndex = bufferedCalls = failedCalls = slowCalls = 0;
+			}
+		}
+
+		boolean tryEnterBulkhead() throws InterruptedIOException
+		{
+			if (bulkhead == null)
+			{
+				return true;
+			}
+
+			if (maxWaitMillis <= 0)
+			{
+				return bulkhead.tryAcquire();
+			}
+
+			try
+			{
+				return bulkhead.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException exception)
+			{
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the bulkhead of " + host);
+			}
+		}
+
+		void exitBulkhead()
+		{
+			if (bulkhead != null)
+			{
+				bulkhead.release();
+			}
+		}
+
+		synchronized State getState()
+		{
+			return state;
+		}
+
+		synchronized CircuitBreakerMetrics getMetrics()
+		{
+			boolean computed = bufferedCalls >= minimumCalls;
+			return new CircuitBreakerMetrics(host, state, bufferedCalls, failedCalls, slowCalls,
+					computed ? failedCalls * 100f / bufferedCalls : -1,
+					computed ? slowCalls * 100f / bufferedCalls : -1,
+					notPermittedCalls.get(), bulkheadRejectedCalls.get(),
+					bulkhead == null ? 0 : maxConcurrentCallsPerHost - bulkhead.availablePermits(),
+					maxConcurrentCallsPerHost);
+		}
+	}
+}
@@ -8,14 +8,18 @@ import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
 import lombok.extern.log4j.Log4j2;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.entity.InputStreamEntity;
 
-import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 
 /**
  * @author Shakir Ansari
@@ -32,12 +36,54 @@ public class HttpHandler implements Runnable
 
 	private String payload;
 
+	/**
+	 * Streamed payload, sent as it is read, takes precedence over {@link #payload}
+	 *
+	 * @since 2.0.0
+	 */
+	private InputStream payloadStream;
+
+	/**
+	 * Length of {@link #payloadStream}, -1 sends it chunked
+	 *
+	 * @since 2.0.0
+	 */
+	private long payloadLength = -1;
+
+	/**
+	 * File sent as the payload, takes precedence over {@link #payloadStream} and {@link #payload}
+	 *
+	 * @since 2.0.0
+	 */
+	private File payloadFile;
+
 	private String payloadCharsets = ContentType.UTF_8;
 	private String payloadContentType = ContentType.APPLICATION_JSON;
 	private String requestContentType = ContentType.APPLICATION_JSON;
 
 	private CallbackListener callbackListener;
 
+	/**
+	 * Client the call is executed with, {@link PooledHttpClient#getDefault()} when not set
+	 *
+	 * @since 2.0.0
+	 */
+	private PooledHttpClient pooledHttpClient;
+
+	/**
+	 * Cache GET calls are served from and revalidated against, not used when not set
+	 *
+	 * @since 2.0.0
+	 */
+	private HttpResponseCache httpResponseCache;
+
+	/**
+	 * Circuit breaker and bulkhead the call goes through, its events are forwarded to the {@link CallbackListener}, not used when not set
+	 *
+	 * @since 2.0.0
+	 */
+	private HttpCircuitBreaker httpCircuitBreaker;
+
 	@Override
 	public void run()
 	{
@@ -46,59 +92,162 @@ public class HttpHandler implements Runnable
 		log.debug("payload: {}", payload);
 
 		long startMilliSeconds = System.currentTimeMillis();
-		int responseCode = 0;
 
+		HttpResult httpResult = null;
+		Exception failure = null;
 		try
 		{
-			URL url = new URL(urlString);
-			HttpURLConnection httpURLConnection = (HttpURLConnection) url.openConnection();
+			httpResult = execute();
+		} catch (Exception exception)
+		{
+			failure = exception;
+		}
 
-			httpURLConnection.setRequestProperty(HttpUtils.Header.ACCEPT, requestContentType);
-			httpURLConnection.setRequestMethod(httpMethod);
+		notifyCallbackListener(httpResult, failure, startMilliSeconds);
+	}
 
-			if (payload != null)
-			{
-				httpURLConnection.setDoOutput(true);
-				httpURLConnection.setRequestProperty(HttpUtils.Header.CONTENT_TYPE, payloadContentType);
-
-				try (OutputStream outputStream = httpURLConnection.getOutputStream())
-				{
-					byte[] input = payload.getBytes(payloadCharsets);
-					outputStream.write(input, 0, input.length);
-					outputStream.flush();
-				}
-			}
+	/**
+	 * Reports the outcome of a call to the {@link CallbackListener}, with the same contract as HttpURLConnection
+	 * error statuses are reported through {@link CallbackListener#onError(int, Exception)}
+	 */
+	void notifyCallbackListener(HttpResult httpResult, Throwable failure, long startMilliSeconds)
+	{
+		if (callbackListener == null)
+		{
+			return;
+		}
 
-			responseCode = httpURLConnection.getResponseCode();
-			try (InputStream inputStream = httpURLConnection.getInputStream();
-				 InputStreamReader inputStreamReader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
-				 BufferedReader bufferedReader = new BufferedReader(inputStreamReader))
+		int responseCode = httpResult == null ? 0 : httpResult.getStatusCode();
+		try
+		{
+			if (failure != null)
 			{
-				StringBuilder response = new StringBuilder();
-				String responseLine;
-				while ((responseLine = bufferedReader.readLine()) != null)
-				{
-					response.append(responseLine).append(System.lineSeparator());
-				}
-
-				if (callbackListener != null)
-				{
-					callbackListener.onSuccess(responseCode, response.toString());
-				}
+				callbackListener.onError(responseCode, failure instanceof Exception ? (Exception) failure : new IOException(failure));
+			} else if (responseCode >= HttpUtils.StatusCode.BAD_REQUEST)
+			{
+				callbackListener.onError(responseCode, new IOException("Server returned HTTP response code: " + responseCode + " for URL: " + urlString));
+			} else
+			{
+				callbackListener.onSuccess(responseCode, httpResult.getBodyAsString());
 			}
 		} catch (Exception exception)
 		{
-			if (callbackListener != null)
-			{
-				callbackListener.onError(responseCode, exception);
-			}
+			callbackListener.onError(responseCode, exception);
 		} finally
 		{
-			if (callbackListener != null)
+			if (httpResult != null && httpResult.getTimings() != null)
 			{
-				callbackListener.onComplete(responseCode, DateTimeUtils.getDifference(startMilliSeconds, System.currentTimeMillis()));
+				callbackListener.onTimings(httpResult.getTimings());
 			}
+			callbackListener.onComplete(responseCode, DateTimeUtils.getDifference(startMilliSeconds, System.currentTimeMillis()));
+		}
+	}
+
+	/**
+	 * Executes the call on the calling thread through the pooled client, without the {@link CallbackListener}.
+	 * GET calls go through the {@link HttpResponseCache} when one is set, a response served from the cache does not reach the
+	 * {@link HttpCircuitBreaker}.
+	 *
+	 * @throws in.jaxer.core.exceptions.CallNotPermittedException when the circuit breaker refuses the call
+	 * @since 2.0.0
+	 */
+	public HttpResult execute() throws IOException
+	{
+		return transport(getClient()).execute(createRequest());
+	}
+
+	/**
+	 * Chain {@link #execute()} runs the request through, {@link HttpResponseCache} then {@link HttpCircuitBreaker} then the client,
+	 * the client of the handler is used when set, the given one otherwise
+	 */
+	HttpTransport transport(PooledHttpClient defaultClient)
+	{
+		PooledHttpClient client = pooledHttpClient == null ? defaultClient : pooledHttpClient;
+		HttpTransport transport = guard(client::execute);
+
+		HttpResponseCache cache = httpResponseCache;
+		if (cache == null)
+		{
+			return transport;
+		}
+		return request -> cache.execute(request, transport);
+	}
+
+	/**
+	 * Executes the call without reading the response body, the returned stream must be closed.
+	 * The {@link HttpCircuitBreaker} is not applied, the call is over only once the stream is consumed.
+	 *
+	 * @since 2.0.0
+	 */
+	public HttpResponseStream open() throws IOException
+	{
+		return getClient().open(createRequest());
+	}
+
+	/**
+	 * Executes the call and copies a successful response body to the output stream, see {@link PooledHttpClient#executeTo(HttpUriRequest, OutputStream)}
+	 *
+	 * @since 2.0.0
+	 */
+	public HttpResult executeTo(OutputStream outputStream) throws IOException
+	{
+		return guard(request -> getClient().executeTo(request, outputStream)).execute(createRequest());
+	}
+
+	/**
+	 * Executes the call and writes a successful response body to the file, see {@link PooledHttpClient#executeTo(HttpUriRequest, Path)}
+	 *
+	 * @since 2.0.0
+	 */
+	public HttpResult executeTo(Path path) throws IOException
+	{
+		return guard(request -> getClient().executeTo(request, path)).execute(createRequest());
+	}
+
+	/**
+	 * @since 2.0.0
+	 */
+	protected HttpUriRequest createRequest() throws IOException
+	{
+		RequestBuilder requestBuilder = RequestBuilder.create(httpMethod)
+				.setUri(urlString)
+				.addHeader(HttpUtils.Header.ACCEPT, requestContentType);
+
+		AbstractHttpEntity httpEntity = null;
+		if (payloadFile != null)
+		{
+			httpEntity = new FileEntity(payloadFile);
+		} else if (payloadStream != null)
+		{
+			httpEntity = new InputStreamEntity(payloadStream, payloadLength);
+		} else if (payload != null)
+		{
+			httpEntity = new ByteArrayEntity(payload.getBytes(payloadCharsets));
+		}
+
+		if (httpEntity != null)
+		{
+			httpEntity.setContentType(payloadContentType);
+			requestBuilder.setEntity(httpEntity);
 		}
+
+		return requestBuilder.build();
+	}
+
+	private HttpTransport guard(HttpTransport transport)
+	{
+		if (httpCircuitBreaker == null)
+		{
+			return transport;
+		}
+
+		CallbackListener listener = callbackListener;
+		return request -> httpCircuitBreaker.execute(request, transport, listener == null ? null : listener::onCircuitBreakerEvent);
+	}
+
+	private PooledHttpClient getClient()
+	{
+		return pooledHttpClient == null ? PooledHttpClient.getDefault() : pooledHttpClient;
 	}
 
 	public interface CallbackListener
@@ -108,5 +257,24 @@ public class HttpHandler implements Runnable
 		void onError(int responseCode, Exception exception);
 
 		void onComplete(int responseCode, TimeDifference timeDifference);
+
+		/**
+		 * Called before {@link #onComplete(int, TimeDifference)} with the per-phase timings of a call that received a response,
+		 * not called for a response served from the {@link HttpResponseCache}
+		 *
+		 * @since 2.0.0
+		 */
+		default void onTimings(HttpTimings httpTimings)
+		{
+		}
+
+		/**
+		 * Called on the thread of the call when the {@link HttpCircuitBreaker} changes state or refuses the call
+		 *
+		 * @since 2.0.0
+		 */
+		default void onCircuitBreakerEvent(CircuitBreakerEvent circuitBreakerEvent)
+		{
+		}
 	}
 }
@@ -1,14 +1,17 @@
 package in.jaxer.core.net;
 
-import in.jaxer.core.FileUtils;
 import in.jaxer.core.constants.ContentType;
 import in.jaxer.core.utilities.JValidator;
 
-import java.io.*;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.net.URLConnection;
-import java.util.HashMap;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -44,53 +47,11 @@ public class HttpHandlerMultipart
 //		printWriter = new PrintWriter(new OutputStreamWriter(outputStream, charset), true);
 	}
 
-	private void setParameter(PrintWriter printWriter, String name, String value)
-	{
-		printWriter.append("--" + boundary).append(System.lineSeparator());
-		printWriter.append("Content-Disposition: form-data; name=\"" + name + "\"").append(System.lineSeparator());
-		printWriter.append("Content-Type: text/plain; charset=" + charset).append(System.lineSeparator());
-		printWriter.append(System.lineSeparator());
-		printWriter.append(value).append(System.lineSeparator());
-		printWriter.flush();
-	}
-
-	private void setParameter(PrintWriter printWriter, OutputStream outputStream, String fieldName, File uploadFile) throws IOException
-	{
-		String fileName = uploadFile.getName();
-
-		printWriter.append("--" + boundary).append(System.lineSeparator());
-		printWriter.append("Content-Disposition: form-data; name=\"" + fieldName + "\"; filename=\"" + fileName + "\"").append(System.lineSeparator());
-		printWriter.append("Content-Type: " + URLConnection.guessContentTypeFromName(fileName)).append(System.lineSeparator());
-		printWriter.append("Content-Transfer-Encoding: binary").append(System.lineSeparator());
-		printWriter.append(System.lineSeparator());
-		printWriter.flush();
-
-		try (FileInputStream fileInputStream = new FileInputStream(uploadFile))
-		{
-			byte[] buffer = new byte[FileUtils.BUFFER_SIZE];
-			int bytesRead = -1;
-			while ((bytesRead = fileInputStream.read(buffer)) != -1)
-			{
-				outputStream.write(buffer, 0, bytesRead);
-			}
-			outputStream.flush();
-		}
-
-		printWriter.append(System.lineSeparator());
-		printWriter.flush();
-	}
-
-	private void setHeader(PrintWriter printWriter, String name, String value)
-	{
-		printWriter.append(name + ": " + value).append(System.lineSeparator());
-		printWriter.flush();
-	}
-
 	public void setParameter(String name, String value)
 	{
 		if (parameters == null)
 		{
-			parameters = new HashMap<>();
+			parameters = new LinkedHashMap<>();
 		}
 
 		parameters.put(name, value);
@@ -100,7 +61,7 @@ public class HttpHandlerMultipart
 	{
 		if (fileParts == null)
 		{
-			fileParts = new HashMap<>();
+			fileParts = new LinkedHashMap<>();
 		}
 
 		fileParts.put(fieldName, uploadFile);
@@ -110,7 +71,7 @@ public class HttpHandlerMultipart
 	{
 		if (headers == null)
 		{
-			headers = new HashMap<>();
+			headers = new LinkedHashMap<>();
 		}
 
 		headers.put(name, value);
@@ -148,80 +109,92 @@ public class HttpHandlerMultipart
 //		return stringBuilder.toString();
 //	}
 	// </editor-fold>
+	/**
+	 * Posts the parameters and files, the body is streamed with a fixed content length so files of any size
+	 * are sent without being buffered in memory
+	 *
+	 * @return response body, when the server answered 200
+	 */
 	public String execute()
 	{
-		StringBuilder stringBuilder = new StringBuilder();
+		MultipartEncoder multipartEncoder = new MultipartEncoder(boundary, Charset.forName(charset));
+
+		if (JValidator.isNotBlank(parameters))
+		{
+			for (Map.Entry<String, String> entry : parameters.entrySet())
+			{
+				multipartEncoder.addField(entry.getKey(), entry.getValue());
+			}
+		}
 
+		if (JValidator.isNotBlank(fileParts))
+		{
+			for (Map.Entry<String, File> entry : fileParts.entrySet())
+			{
+				multipartEncoder.addFile(entry.getKey(), entry.getValue());
+			}
+		}
+
+		HttpURLConnection httpURLConnection = null;
 		try
 		{
 			URL url = new URL(requestURL);
-			HttpURLConnection httpURLConnection = (HttpURLConnection) url.openConnection();
+			httpURLConnection = (HttpURLConnection) url.openConnection();
 			httpURLConnection.setUseCaches(false);
 			httpURLConnection.setDoOutput(true); // indicates POST method
 			httpURLConnection.setDoInput(true);
-			httpURLConnection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+			long contentLength = multipartEncoder.getContentLength();
+			if (contentLength < 0)
+			{
+				httpURLConnection.setChunkedStreamingMode(MultipartEncoder.BUFFER_SIZE);
+			} else
+			{
+				httpURLConnection.setFixedLengthStreamingMode(contentLength);
+			}
+
+			httpURLConnection.setRequestProperty("Content-Type", multipartEncoder.getContentType());
 			httpURLConnection.setRequestProperty("User-Agent", "in.jaxer-agent");
 
-			try (OutputStream outputStream = httpURLConnection.getOutputStream();
-				 PrintWriter printWriter = new PrintWriter(new OutputStreamWriter(outputStream, charset), true))
+			if (JValidator.isNotBlank(headers))
 			{
-				//Headers
-				if (JValidator.isNotNullAndNotEmpty(headers))
-				{
-					for (Map.Entry<String, String> entry : headers.entrySet())
-					{
-						setHeader(printWriter, entry.getKey(), entry.getValue());
-					}
-				}
-
-				//Parameters
-				if (JValidator.isNotNullAndNotEmpty(parameters))
+				for (Map.Entry<String, String> entry : headers.entrySet())
 				{
-					for (Map.Entry<String, String> entry : parameters.entrySet())
-					{
-						setParameter(printWriter, entry.getKey(), entry.getValue());
-					}
+					httpURLConnection.setRequestProperty(entry.getKey(), entry.getValue());
 				}
+			}
 
-				//Files
-				if (JValidator.isNotNullAndNotEmpty(fileParts))
-				{
-					for (Map.Entry<String, File> entry : fileParts.entrySet())
-					{
-						setParameter(printWriter, outputStream, entry.getKey(), entry.getValue());
-					}
-				}
+			try (OutputStream outputStream = httpURLConnection.getOutputStream())
+			{
+				multipartEncoder.writeTo(outputStream);
+			}
 
-				printWriter.append(System.lineSeparator()).flush();
-				printWriter.append("--" + boundary + "--").append(System.lineSeparator());
-				printWriter.flush();
+			// checks server's status code first
+			int status = httpURLConnection.getResponseCode();
+			if (status != HttpURLConnection.HTTP_OK)
+			{
+				throw new IOException("Server returned non-OK status: " + status);
+			}
 
-				// checks server's status code first
-				int status = httpURLConnection.getResponseCode();
-				if (status == HttpURLConnection.HTTP_OK)
-				{
-					try (InputStreamReader inputStreamReader = new InputStreamReader(httpURLConnection.getInputStream());
-						 BufferedReader reader = new BufferedReader(inputStreamReader))
-					{
-						String line = null;
-						while ((line = reader.readLine()) != null)
-						{
-							stringBuilder.append(line).append(System.lineSeparator());
-						}
-					}
-					httpURLConnection.disconnect();
-				} else
+			StringBuilder stringBuilder = new StringBuilder();
+			try (InputStreamReader inputStreamReader = new InputStreamReader(httpURLConnection.getInputStream(), charset);
+				 BufferedReader reader = new BufferedReader(inputStreamReader))
+			{
+				String line = null;
+				while ((line = reader.readLine()) != null)
 				{
-					throw new IOException("Server returned non-OK status: " + status);
+					stringBuilder.append(line).append(System.lineSeparator());
 				}
-
-				httpURLConnection.disconnect();
-
-				return stringBuilder.toString();
 			}
+			return stringBuilder.toString();
 		} catch (Exception ex)
 		{
 			throw new RuntimeException(ex);
+		} finally
+		{
+			if (httpURLConnection != null)
+			{
+				httpURLConnection.disconnect();
+			}
 		}
 	}
 }
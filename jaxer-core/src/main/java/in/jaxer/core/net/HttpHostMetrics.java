@@ -0,0 +1,105 @@
+package in.jaxer.core.net;
+
+import lombok.Getter;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms and counters of the calls to one host, see {@link HttpMetricsRegistry}
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class HttpHostMetrics
+{
+	@Getter
+	private final String host;
+
+	private final Map<HttpTimings.Phase, LatencyHistogram> histogramMap = new EnumMap<>(HttpTimings.Phase.class);
+
+	private final LongAdder callCount = new LongAdder();
+	private final LongAdder failedCount = new LongAdder();
+	private final LongAdder serverErrorCount = new LongAdder();
+	private final LongAdder newConnectionCount = new LongAdder();
+	private final LongAdder requestBytes = new LongAdder();
+	private final LongAdder responseBytes = new LongAdder();
+
+	HttpHostMetrics(String host)
+	{
+		this.host = host;
+		for (HttpTimings.Phase phase : HttpTimings.Phase.values())
+		{
+			histogramMap.put(phase, new LatencyHistogram());
+		}
+	}
+
+	void record(HttpTimings httpTimings)
+	{
+		for (HttpTimings.Phase phase : HttpTimings.Phase.values())
+		{
+			histogramMap.get(phase).record(httpTimings.getNanos(phase));
+		}
+
+		callCount.increment();
+		if (httpTimings.isFailed())
+		{
+			failedCount.increment();
+		}
+		if (httpTimings.getStatusCode() >= 500)
+		{
+			serverErrorCount.increment();
+		}
+		if (!httpTimings.isConnectionReused())
+		{
+			newConnectionCount.increment();
+		}
+		requestBytes.add(Math.max(0, httpTimings.getRequestBytes()));
+		responseBytes.add(httpTimings.getResponseBytes());
+	}
+
+	public LatencyHistogram getHistogram(HttpTimings.Phase phase)
+	{
+		return histogramMap.get(phase);
+	}
+
+	public long getCallCount()
+	{
+		return callCount.sum();
+	}
+
+	/**
+	 * @return calls ended with an exception, without a response
+	 */
+	public long getFailedCount()
+	{
+		return failedCount.sum();
+	}
+
+	/**
+	 * @return calls answered with a 5xx status
+	 */
+	public long getServerErrorCount()
+	{
+		return serverErrorCount.sum();
+	}
+
+	/**
+	 * @return calls that had to open a connection, the others reused a pooled one
+	 */
+	public long getNewConnectionCount()
+	{
+		return newConnectionCount.sum();
+	}
+
+	public long getRequestBytes()
+	{
+		return requestBytes.sum();
+	}
+
+	public long getResponseBytes()
+	{
+		return responseBytes.sum();
+	}
+}
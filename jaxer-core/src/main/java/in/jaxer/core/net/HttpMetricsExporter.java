@@ -0,0 +1,19 @@
+package in.jaxer.core.net;
+
+import java.util.Collection;
+
+/**
+ * Publishes the metrics of a {@link HttpMetricsRegistry}, e.g. to a log or a monitoring system,
+ * called periodically once registered with {@link HttpMetricsRegistry#startExporting(HttpMetricsExporter, long)}
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@FunctionalInterface
+public interface HttpMetricsExporter
+{
+	/**
+	 * @param hostMetricsCollection metrics of every host called, the counters keep growing between exports
+	 */
+	void export(Collection<HttpHostMetrics> hostMetricsCollection) throws Exception;
+}
@@ -0,0 +1,128 @@
+package in.jaxer.core.net;
+
+import in.jaxer.core.ExecutorUtils;
+import in.jaxer.core.utilities.JValidator;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-host latency histograms of the calls of the {@link PooledHttpClient}s it is given to
+ * <pre>
+ * HttpMetricsRegistry httpMetricsRegistry = new HttpMetricsRegistry();
+ * httpMetricsRegistry.startExporting(new LoggingHttpMetricsExporter(), 60 * 1000L);
+ *
+ * PooledHttpClient pooledHttpClient = PooledHttpClient.builder()
+ *     .withHttpMetricsRegistry(httpMetricsRegistry)
+ *     .build();
+ * </pre>
+ * Thread-safe, recording a call takes no lock.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Log4j2
+public class HttpMetricsRegistry implements Closeable
+{
+	private final Map<String, HttpHostMetrics> hostMetricsMap = new ConcurrentHashMap<>();
+	private final List<HttpMetricsExporter> exporterList = new CopyOnWriteArrayList<>();
+
+	private ScheduledExecutorService scheduledExecutorService;
+
+	/**
+	 * Adds the timings of a call to the metrics of its host
+	 */
+	public void record(HttpTimings httpTimings)
+	{
+		hostMetricsMap.computeIfAbsent(httpTimings.getHost(), HttpHostMetrics::new).record(httpTimings);
+	}
+
+	/**
+	 * @param host host and port when not the default one, in lower case
+	 * @return null for a host never called
+	 */
+	public HttpHostMetrics getHostMetrics(String host)
+	{
+		return hostMetricsMap.get(host);
+	}
+
+	public Collection<HttpHostMetrics> getHostMetricsCollection()
+	{
+		return Collections.unmodifiableCollection(new ArrayList<>(hostMetricsMap.values()));
+	}
+
+	/**
+	 * Forgets every host and starts counting again
+	 */
+	public void clear()
+	{
+		hostMetricsMap.clear();
+	}
+
+	/**
+	 * Calls the exporter every period on a daemon thread, until the registry is closed
+	 */
+	public synchronized void startExporting(HttpMetricsExporter httpMetricsExporter, long periodMillis)
+	{
+		JValidator.throwWhenNull(httpMetricsExporter, "httpMetricsExporter cannot be null");
+		JValidator.throwWhenTrue(periodMillis <= 0, "periodMillis must be positive");
+
+		if (scheduledExecutorService == null)
+		{
+			scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(ExecutorUtils.newThreadFactory("jaxer-http-metrics", true));
+		}
+
+		exporterList.add(httpMetricsExporter);
+		scheduledExecutorService.scheduleAtFixedRate(() -> export(httpMetricsExporter), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Exports to every registered exporter now, on the calling thread
+	 */
+	public void exportNow()
+	{
+		for (HttpMetricsExporter httpMetricsExporter : exporterList)
+		{
+			export(httpMetricsExporter);
+		}
+	}
+
+	/**
+	 * Stops the periodic exports after a last one
+	 */
+	@Override
+	public synchronized void close()
+	{
+		if (scheduledExecutorService == null)
+		{
+			return;
+		}
+
+		scheduledExecutorService.shutdownNow();
+		scheduledExecutorService = null;
+
+		exportNow();
+		exporterList.clear();
+	}
+
+	private void export(HttpMetricsExporter httpMetricsExporter)
+	{
+		try
+		{
+			httpMetricsExporter.export(getHostMetricsCollection());
+		} catch (Exception exception)
+		{
+			log.warn("Http metrics export failed: {}", httpMetricsExporter, exception);
+		}
+	}
+}
@@ -0,0 +1,925 @@
+package in.jaxer.core.net;
+
+import in.jaxer.core.HttpUtils;
+import in.jaxer.core.SystemUtils;
+import in.jaxer.core.utilities.JValidator;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.apache.http.Header;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.client.utils.DateUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Private cache of GET responses, for endpoints polled repeatedly whose content rarely changes
+ * <pre>
+ * HttpResponseCache httpResponseCache = HttpResponseCache.builder()
+ *     .withDiskEnabled(true)
+ *     .build();
+ *
+ * httpHandler.setHttpResponseCache(httpResponseCache);
+ * </pre>
+ * <ul>
+ *     <li>a response fresh according to <code>Cache-Control: max-age</code> or <code>Expires</code> is served without a call</li>
+ *     <li>a stale response, or one stored with <code>no-cache</code>, is revalidated with <code>If-None-Match</code> /
+ *     <code>If-Modified-Since</code>, a 304 serves the stored body and costs no transfer</li>
+ *     <li><code>no-store</code> responses, <code>Vary: *</code> and responses larger than the max entry size are not stored</li>
+ *     <li>requests carrying Range or conditional headers of their own bypass the cache</li>
+ *     <li>requests with different Authorization or Cookie headers never share an entry, and their responses are kept in memory only</li>
+ * </ul>
+ * Entries live in a bounded in-memory tier and, when enabled, in an on-disk tier surviving restarts,
+ * both least-recently-used and capped per host so one host cannot push out the others.
+ * The disk directory is created readable by its owner only, a directory owned by another user or open to others
+ * is not used and the cache stays in memory.
+ * Only 200 responses are stored. Thread-safe.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Log4j2
+public class HttpResponseCache
+{
+	public static final long DEFAULT_MAX_MEMORY_BYTES = 32 * 1024 * 1024L;
+	public static final long DEFAULT_MAX_DISK_BYTES = 256 * 1024 * 1024L;
+	public static final long DEFAULT_MAX_BYTES_PER_HOST = 8 * 1024 * 1024L;
+	public static final int DEFAULT_MAX_ENTRY_BYTES = 4 * 1024 * 1024;
+	public static final String DEFAULT_DISK_DIRECTORY_NAME = "jaxer-http-cache";
+
+	private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+	private static final String FILE_EXTENSION = ".cache";
+	private static final int FILE_VERSION = 1;
+
+	@Getter
+	private final long maxMemoryBytes;
+
+	@Getter
+	private final long maxDiskBytes;
+
+	@Getter
+	private final long maxBytesPerHost;
+
+	@Getter
+	private final int maxEntryBytes;
+
+	/**
+	 * Directory of the on-disk tier, null when disabled or when the directory cannot be used safely
+	 */
+	@Getter
+	private final Path diskDirectory;
+
+	private final LruIndex<Entry> memoryIndex;
+	private final LruIndex<Path> diskIndex;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong revalidatedCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * @param diskEnabled   stores entries in a directory of the current user under {@link SystemUtils#getTempDirectory()} as well,
+	 *                      unless a disk directory is given
+	 * @param diskDirectory enables the on-disk tier in this directory
+	 */
+	@Builder(setterPrefix = "with")
+	private HttpResponseCache(Long maxMemoryBytes, Boolean diskEnabled, Path diskDirectory, Long maxDiskBytes,
+							  Long maxBytesPerHost, Integer maxEntryBytes)
+	{
+		this.maxMemoryBytes = maxMemoryBytes == null ? DEFAULT_MAX_MEMORY_BYTES : maxMemoryBytes;
+		this.maxDiskBytes = maxDiskBytes == null ? DEFAULT_MAX_DISK_BYTES : maxDiskBytes;
+		this.maxBytesPerHost = maxBytesPerHost == null ? DEFAULT_MAX_BYTES_PER_HOST : maxBytesPerHost;
+		this.maxEntryBytes = maxEntryBytes == null ? DEFAULT_MAX_ENTRY_BYTES : maxEntryBytes;
+
+		this.memoryIndex = new LruIndex<>(this.maxMemoryBytes, this.maxBytesPerHost);
+		this.diskIndex = new LruIndex<>(this.maxDiskBytes, this.maxBytesPerHost);
+
+		// the temp directory is shared, every user gets a directory of their own there
+		this.diskDirectory = prepareDirectory(diskDirectory != null ? diskDirectory
+				: Boolean.TRUE.equals(diskEnabled) ? Paths.get(SystemUtils.getTempDirectory(), DEFAULT_DISK_DIRECTORY_NAME + "-" + SystemUtils.getProperty("user.name"))
+				: null);
+
+		if (this.diskDirectory != null)
+		{
+			loadDiskIndex();
+		}
+	}
+
+	/**
+	 * Serves the request from the cache when possible, otherwise executes it and stores the response.
+	 * A revalidation is executed on a copy of the request carrying the conditional headers, the request given is not modified.
+	 *
+	 * @param transport executes the request when it is not served from the cache
+	 */
+	public HttpResult execute(HttpUriRequest httpUriRequest, HttpTransport transport) throws IOException
+	{
+		if (!isCacheable(httpUriRequest))
+		{
+			return transport.execute(httpUriRequest);
+		}
+
+		long now = System.currentTimeMillis();
+		String key = toKey(httpUriRequest);
+		boolean diskAllowed = !httpUriRequest.containsHeader("Authorization") && !httpUriRequest.containsHeader("Cookie");
+		boolean forceRevalidate = parseCacheControl(getRequestHeaders(httpUriRequest, HttpUtils.Header.CACHE_CONTROL)).containsKey("no-cache");
+
+		Entry entry = get(key, diskAllowed);
+		if (entry != null && !entry.matchesVary(httpUriRequest))
+		{
+			entry = null;
+		}
+
+		if (entry != null && !forceRevalidate && entry.expiresAtMillis > now)
+		{
+			hitCount.incrementAndGet();
+			return entry.toHttpResult();
+		}
+
+		HttpUriRequest executedRequest = httpUriRequest;
+		if (entry != null)
+		{
+			String etag = entry.getHeader(HttpUtils.Header.ETAG);
+			String lastModified = entry.getHeader(HttpUtils.Header.LAST_MODIFIED);
+			if (etag != null || lastModified != null)
+			{
+				RequestBuilder requestBuilder = RequestBuilder.copy(httpUriRequest);
+				if (etag != null)
+				{
+					requestBuilder.setHeader("If-None-Match", etag);
+				}
+				if (lastModified != null)
+				{
+					requestBuilder.setHeader("If-Modified-Since", lastModified);
+				}
+				executedRequest = requestBuilder.build();
+			}
+		}
+
+		HttpResult httpResult = transport.execute(executedRequest);
+		if (entry != null && httpResult.getStatusCode() == HttpUtils.StatusCode.NOT_MODIFIED)
+		{
+			revalidatedCount.incrementAndGet();
+
+			Entry revalidated = entry.revalidate(httpResult.getHeaderMap(), System.currentTimeMillis());
+			put(revalidated, diskAllowed);
+			return revalidated.toHttpResult();
+		}
+
+		missCount.incrementAndGet();
+		if (isStorable(httpResult))
+		{
+			put(new Entry(key, getHost(httpUriRequest), httpResult.getStatusCode(), httpResult.getHeaderMap(),
+					toVaryMap(httpResult, httpUriRequest), httpResult.getBody().clone(), System.currentTimeMillis()), diskAllowed);
+		} else if (entry != null)
+		{
+			remove(key);
+		}
+		return httpResult;
+	}
+
+	/**
+	 * Drops every entry of both tiers
+	 */
+	public void clear()
+	{
+		memoryIndex.clear();
+		for (Path path : diskIndex.clear())
+		{
+			deleteQuietly(path);
+		}
+	}
+
+	public long getHitCount()
+	{
+		return hitCount.get();
+	}
+
+	/**
+	 * @return number of stale entries served after a 304
+	 */
+	public long getRevalidatedCount()
+	{
+		return revalidatedCount.get();
+	}
+
+	public long getMissCount()
+	{
+		return missCount.get();
+	}
+
+	public long getMemoryBytes()
+	{
+		return memoryIndex.getTotalBytes();
+	}
+
+	public long getDiskBytes()
+	{
+		return diskIndex.getTotalBytes();
+	}
+
+	private boolean isCacheable(HttpUriRequest httpUriRequest)
+	{
+		return HttpUtils.Method.GET.equalsIgnoreCase(httpUriRequest.getMethod())
+				&& !httpUriRequest.containsHeader(HttpUtils.Header.RANGE)
+				&& !httpUriRequest.containsHeader("If-None-Match")
+				&& !httpUriRequest.containsHeader("If-Modified-Since")
+				&& !parseCacheControl(getRequestHeaders(httpUriRequest, HttpUtils.Header.CACHE_CONTROL)).containsKey("no-store");
+	}
+
+	private boolean isStorable(HttpResult httpResult)
+	{
+		if (httpResult.getStatusCode() != HttpUtils.StatusCode.OK || httpResult.getBody().length > maxEntryBytes)
+		{
+			return false;
+		}
+
+		if (parseCacheControl(httpResult.getHeaderMap().get(HttpUtils.Header.CACHE_CONTROL)).containsKey("no-store"))
+		{
+			return false;
+		}
+
+		List<String> varyList = httpResult.getHeaderMap().get(HttpUtils.Header.VARY);
+		if (varyList != null && varyList.stream().anyMatch(vary -> vary.contains("*")))
+		{
+			return false;
+		}
+
+		// without a lifetime or a validator it could never be used
+		return getFreshnessMillis(httpResult.getHeaderMap()) > 0
+				|| httpResult.getHeader(HttpUtils.Header.ETAG) != null
+				|| httpResult.getHeader(HttpUtils.Header.LAST_MODIFIED) != null;
+	}
+
+	/**
+	 * @param diskAllowed false looks up the memory tier only
+	 */
+	private Entry get(String key, boolean diskAllowed)
+	{
+		Entry entry = memoryIndex.get(key);
+		if (entry != null || diskDirectory == null || !diskAllowed)
+		{
+			return entry;
+		}
+
+		Path path = diskIndex.get(key);
+		if (path == null)
+		{
+			return null;
+		}
+
+		try
+		{
+			entry = readEntry(path, true);
+			if (!key.equals(entry.key))
+			{
+				return null;
+			}
+
+			putInMemory(entry);
+			return entry;
+		} catch (IOException exception)
+		{
+			log.debug("Dropping unreadable cache file {}", path, exception);
+			diskIndex.remove(key);
+			deleteQuietly(path);
+			return null;
+		}
+	}
+
+	/**
+	 * @param diskAllowed false keeps the entry in memory only, e.g. a response to a request carrying credentials
+	 */
+	private void put(Entry entry, boolean diskAllowed)
+	{
+		putInMemory(entry);
+
+		if (diskDirectory == null || !diskAllowed)
+		{
+			return;
+		}
+
+		Path path = diskDirectory.resolve(sha256(entry.key) + FILE_EXTENSION);
+		try
+		{
+			writeEntry(entry, path);
+			for (Path evicted : diskIndex.put(entry.key, entry.host, Files.size(path), path))
+			{
+				deleteQuietly(evicted);
+			}
+		} catch (IOException exception)
+		{
+			log.debug("Unable to write cache file {}", path, exception);
+			diskIndex.remove(entry.key);
+			deleteQuietly(path);
+		}
+	}
+
+	private void putInMemory(Entry entry)
+	{
+		if (entry.getSize() <= maxMemoryBytes && entry.getSize() <= maxBytesPerHost)
+		{
+			memoryIndex.put(entry.key, entry.host, entry.getSize(), entry);
+		}
+	}
+
+	private void remove(String key)
+	{
+		memoryIndex.remove(key);
+		Path path = diskIndex.remove(key);
+		if (path != null)
+		{
+			deleteQuietly(path);
+		}
+	}
+
+	/**
+	 * Creates the directory readable by its owner only
+	 *
+	 * @return the directory, null when it is owned by another user or open to others
+	 */
+	private static Path prepareDirectory(Path directory)
+	{
+		if (directory == null)
+		{
+			return null;
+		}
+
+		try
+		{
+			PosixFileAttributeView posixView = Files.getFileAttributeView(directory.getParent() == null ? directory : directory.getParent(),
+					PosixFileAttributeView.class);
+			if (posixView == null)
+			{
+				Files.createDirectories(directory);
+				return directory;
+			}
+
+			if (Files.notExists(directory))
+			{
+				if (directory.getParent() != null)
+				{
+					Files.createDirectories(directory.getParent());
+				}
+				Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+			}
+
+			UserPrincipal currentUser = directory.getFileSystem().getUserPrincipalLookupService()
+					.lookupPrincipalByName(SystemUtils.getProperty("user.name"));
+			if (!Files.getOwner(directory).equals(currentUser))
+			{
+				log.warn("Not using cache directory {}, it is owned by {}", directory, Files.getOwner(directory));
+				return null;
+			}
+
+			if (!OWNER_ONLY.containsAll(Files.getPosixFilePermissions(directory)))
+			{
+				log.warn("Not using cache directory {}, it is accessible to other users", directory);
+				return null;
+			}
+			return directory;
+		} catch (IOException exception)
+		{
+			log.warn("Unable to use cache directory {}", directory, exception);
+			return null;
+		}
+	}
+
+	private void loadDiskIndex()
+	{
+		try
+		{
+			List<Path> pathList = new ArrayList<>();
+			try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(diskDirectory, "*" + FILE_EXTENSION))
+			{
+				directoryStream.forEach(pathList::add);
+			}
+
+			// oldest first, so the most recently written end up most recently used
+			pathList.sort((path0, path1) -> Long.compare(path0.toFile().lastModified(), path1.toFile().lastModified()));
+			for (Path path : pathList)
+			{
+				try
+				{
+					Entry entry = readEntry(path, false);
+					for (Path evicted : diskIndex.put(entry.key, entry.host, Files.size(path), path))
+					{
+						deleteQuietly(evicted);
+					}
+				} catch (IOException exception)
+				{
+					log.debug("Dropping unreadable cache file {}", path, exception);
+					deleteQuietly(path);
+				}
+			}
+		} catch (IOException exception)
+		{
+			log.warn("Unable to use cache directory {}", diskDirectory, exception);
+		}
+	}
+
+	private static void writeEntry(Entry entry, Path path) throws IOException
+	{
+		Path tempPath = Files.createTempFile(path.getParent(), "entry", ".tmp");
+		try
+		{
+			try (OutputStream outputStream = Files.newOutputStream(tempPath);
+				 DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(outputStream)))
+			{
+				dataOutputStream.writeInt(FILE_VERSION);
+				dataOutputStream.writeUTF(entry.key);
+				dataOutputStream.writeUTF(entry.host);
+				dataOutputStream.writeInt(entry.statusCode);
+				dataOutputStream.writeLong(entry.storedAtMillis);
+
+				dataOutputStream.writeInt(entry.headerMap.size());
+				for (Map.Entry<String, List<String>> header : entry.headerMap.entrySet())
+				{
+					dataOutputStream.writeUTF(header.getKey());
+					dataOutputStream.writeInt(header.getValue().size());
+					for (String value : header.getValue())
+					{
+						dataOutputStream.writeUTF(value);
+					}
+				}
+
+				dataOutputStream.writeInt(entry.varyMap.size());
+				for (Map.Entry<String, String> vary : entry.varyMap.entrySet())
+				{
+					dataOutputStream.writeUTF(vary.getKey());
+					dataOutputStream.writeBoolean(vary.getValue() != null);
+					dataOutputStream.writeUTF(vary.getValue() == null ? "" : vary.getValue());
+				}
+
+				dataOutputStream.writeInt(entry.body.length);
+				dataOutputStream.write(entry.body);
+			}
+
+			try
+			{
+				Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException exception)
+			{
+				Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally
+		{
+			Files.deleteIfExists(tempPath);
+		}
+	}
+
+	/**
+	 * @param withBody false reads only what the index needs, the returned entry is incomplete then
+	 */
+	private static Entry readEntry(Path path, boolean withBody) throws IOException
+	{
+		try (InputStream inputStream = Files.newInputStream(path);
+			 DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(inputStream)))
+		{
+			if (dataInputStream.readInt() != FILE_VERSION)
+			{
+				throw new IOException("Unsupported cache file version");
+			}
+
+			String key = dataInputStream.readUTF();
+			String host = dataInputStream.readUTF();
+			if (!withBody)
+			{
+				return new Entry(key, host, 0, Collections.emptyMap(), Collections.emptyMap(), new byte[0], 0);
+			}
+
+			int statusCode = dataInputStream.readInt();
+			long storedAtMillis = dataInputStream.readLong();
+
+			Map<String, List<String>> headerMap = new LinkedHashMap<>();
+			int headerCount = dataInputStream.readInt();
+			for (int i = 0; i < headerCount; i++)
+			{
+				String name = dataInputStream.readUTF();
+				int valueCount = dataInputStream.readInt();
+				List<String> valueList = new ArrayList<>(valueCount);
+				for (int j = 0; j < valueCount; j++)
+				{
+					valueList.add(dataInputStream.readUTF());
+				}
+				headerMap.put(name, valueList);
+			}
+
+			Map<String, String> varyMap = new HashMap<>();
+			int varyCount = dataInputStream.readInt();
+			for (int i = 0; i < varyCount; i++)
+			{
+				String name = dataInputStream.readUTF();
+				boolean present = dataInputStream.readBoolean();
+				String value = dataInputStream.readUTF();
+				varyMap.put(name, present ? value : null);
+			}
+
+			byte[] body = new byte[dataInputStream.readInt()];
+			dataInputStream.readFully(body);
+			return new Entry(key, host, statusCode, headerMap, varyMap, body, storedAtMillis);
+		}
+	}
+
+	private static Map<String, String> toVaryMap(HttpResult httpResult, HttpUriRequest httpUriRequest)
+	{
+		Map<String, String> varyMap = new HashMap<>();
+		List<String> varyList = httpResult.getHeaderMap().get(HttpUtils.Header.VARY);
+		if (varyList == null)
+		{
+			return varyMap;
+		}
+
+		for (String vary : varyList)
+		{
+			for (String name : vary.split(","))
+			{
+				String trimmed = name.trim().toLowerCase(Locale.ROOT);
+				if (!trimmed.isEmpty())
+				{
+					varyMap.put(trimmed, getRequestHeader(httpUriRequest, trimmed));
+				}
+			}
+		}
+		return varyMap;
+	}
+
+	private static List<String> getRequestHeaders(HttpUriRequest httpUriRequest, String name)
+	{
+		List<String> valueList = new ArrayList<>();
+		for (Header header : httpUriRequest.getHeaders(name))
+		{
+			valueList.add(header.getValue());
+		}
+		return valueList;
+	}
+
+	private static String getRequestHeader(HttpUriRequest httpUriRequest, String name)
+	{
+		Header[] headers = httpUriRequest.getHeaders(name);
+		if (headers.length == 0)
+		{
+			return null;
+		}
+
+		StringBuilder value = new StringBuilder();
+		for (Header header : headers)
+		{
+			value.append(value.length() == 0 ? "" : ",").append(header.getValue());
+		}
+		return value.toString();
+	}
+
+	private static String toKey(HttpUriRequest httpUriRequest)
+	{
+		String key = httpUriRequest.getURI().toString();
+
+		String authorization = getRequestHeader(httpUriRequest, "Authorization");
+		String cookie = getRequestHeader(httpUriRequest, "Cookie");
+		if (authorization != null || cookie != null)
+		{
+			// responses to other credentials are never served, the credentials themselves are not kept
+			key += "#" + sha256(authorization + "\n" + cookie);
+		}
+		return key;
+	}
+
+	private static String getHost(HttpUriRequest httpUriRequest)
+	{
+		String host = httpUriRequest.getURI().getHost();
+		return host == null ? "" : host.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * @return directives in lower case mapped to their unquoted value, an empty string for directives without one
+	 */
+	static Map<String, String> parseCacheControl(List<String> valueList)
+	{
+		Map<String, String> directiveMap = new HashMap<>();
+		if (valueList == null)
+		{
+			return directiveMap;
+		}
+
+		for (String value : valueList)
+		{
+			for (String directive : value.split(","))
+			{
+				String[] parts = directive.split("=", 2);
+				String name = parts[0].trim().toLowerCase(Locale.ROOT);
+				if (!name.isEmpty())
+				{
+					directiveMap.put(name, parts.length == 2 ? parts[1].trim().replace("\"", "") : "");
+				}
+			}
+		}
+		return directiveMap;
+	}
+
+	/**
+	 * Lifetime given by the response, zero when it must be revalidated before every use
+	 */
+	static long getFreshnessMillis(Map<String, List<String>> headerMap)
+	{
+		Map<String, String> cacheControl = parseCacheControl(headerMap.get(HttpUtils.Header.CACHE_CONTROL));
+		if (cacheControl.containsKey("no-cache") || cacheControl.containsKey("no-store"))
+		{
+			return 0;
+		}
+
+		long ageMillis = parseSeconds(getFirst(headerMap, "Age")) * 1000;
+
+		String maxAge = cacheControl.get("max-age");
+		if (maxAge != null)
+		{
+			return Math.max(0, parseSeconds(maxAge) * 1000 - ageMillis);
+		}
+
+		Date expires = parseDate(getFirst(headerMap, HttpUtils.Header.EXPIRES));
+		if (expires != null)
+		{
+			Date date = parseDate(getFirst(headerMap, "Date"));
+			long base = date == null ? System.currentTimeMillis() : date.getTime();
+			return Math.max(0, expires.getTime() - base - ageMillis);
+		}
+		return 0;
+	}
+
+	private static String getFirst(Map<String, List<String>> headerMap, String name)
+	{
+		List<String> valueList = headerMap.get(name);
+		return valueList == null || valueList.isEmpty() ? null : valueList.get(0);
+	}
+
+	private static long parseSeconds(String value)
+	{
+		if (value == null)
+		{
+			return 0;
+		}
+
+		try
+		{
+			return Math.max(0, Long.parseLong(value.trim()));
+		} catch (NumberFormatException exception)
+		{
+			return 0;
+		}
+	}
+
+	private static Date parseDate(String value)
+	{
+		return value == null ? null : DateUtils.parseDate(value);
+	}
+
+	private static String sha256(String value)
+	{
+		try
+		{
+			StringBuilder hex = new StringBuilder();
+			for (byte b : MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)))
+			{
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException exception)
+		{
+			throw new IllegalStateException(exception);
+		}
+	}
+
+	private static void deleteQuietly(Path path)
+	{
+		try
+		{
+			Files.deleteIfExists(path);
+		} catch (IOException exception)
+		{
+			log.debug("Unable to delete cache file {}", path, exception);
+		}
+	}
+
+	private static class Entry
+	{
+		private final String key;
+		private final String host;
+		private final int statusCode;
+		private final Map<String, List<String>> headerMap;
+		private final Map<String, String> varyMap;
+		private final byte[] body;
+		private final long storedAtMillis;
+		private final long expiresAtMillis;
+
+		private Entry(String key, String host, int statusCode, Map<String, List<String>> headerMap, Map<String, String> varyMap, byte[] body, long storedAtMillis)
+		{
+			TreeMap<String, List<String>> caseInsensitiveMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+			caseInsensitiveMap.putAll(headerMap);
+
+			this.key = key;
+			this.host = host;
+			this.statusCode = statusCode;
+			this.headerMap = caseInsensitiveMap;
+			this.varyMap = varyMap;
+			this.body = body;
+			this.storedAtMillis = storedAtMillis;
+			this.expiresAtMillis = storedAtMillis + getFreshnessMillis(caseInsensitiveMap);
+		}
+
+		private String getHeader(String name)
+		{
+			return getFirst(headerMap, name);
+		}
+
+		private boolean matchesVary(HttpUriRequest httpUriRequest)
+		{
+			for (Map.Entry<String, String> vary : varyMap.entrySet())
+			{
+				if (!Objects.equals(vary.getValue(), getRequestHeader(httpUriRequest, vary.getKey())))
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Entry with the headers of the 304 applied, the body is kept
+		 */
+		private Entry revalidate(Map<String, List<String>> notModifiedHeaderMap, long now)
+		{
+			Map<String, List<String>> mergedMap = new LinkedHashMap<>(headerMap);
+			for (Map.Entry<String, List<String>> header : notModifiedHeaderMap.entrySet())
+			{
+				String name = header.getKey();
+				if (!name.equalsIgnoreCase(HttpUtils.Header.CONTENT_LENGTH)
+						&& !name.equalsIgnoreCase(HttpUtils.Header.CONTENT_ENCODING)
+						&& !name.equalsIgnoreCase("Transfer-Encoding"))
+				{
+					mergedMap.put(name, header.getValue());
+				}
+			}
+			return new Entry(key, host, statusCode, mergedMap, varyMap, body, now);
+		}
+
+		private HttpResult toHttpResult()
+		{
+			return new HttpResult(statusCode, headerMap, body.clone());
+		}
+
+		private long getSize()
+		{
+			long size = body.length + key.length();
+			for (Map.Entry<String, List<String>> header : headerMap.entrySet())
+			{
+				for (String value : header.getValue())
+				{
+					size += header.getKey().length() + value.length();
+				}
+			}
+			return size;
+		}
+	}
+
+	/**
+	 * Least-recently-used index bounded by total bytes and bytes per host
+	 */
+	private static class LruIndex<T>
+	{
+		private final long maxBytes;
+		private final long maxBytesPerHost;
+		private final LinkedHashMap<String, Slot<T>> slotMap = new LinkedHashMap<>(16, 0.75f, true);
+		private final Map<String, Long> hostBytesMap = new HashMap<>();
+		private long totalBytes;
+
+		private LruIndex(long maxBytes, long maxBytesPerHost)
+		{
+			JValidator.throwWhenTrue(maxBytes < 0 || maxBytesPerHost < 0, "cache sizes cannot be negative");
+
+			this.maxBytes = maxBytes;
+			this.maxBytesPerHost = maxBytesPerHost;
+		}
+
+		private synchronized T get(String key)
+		{
+			Slot<T> slot = slotMap.get(key);
+			return slot == null ? null : slot.value;
+		}
+
+		/**
+		 * @return values replaced or evicted to make room, the value put is evicted itself when it cannot fit.
+		 * A replaced value equal to the value put is not returned.
+		 */
+		private synchronized List<T> put(String key, String host, long size, T value)
+		{
+			List<T> evictedList = new ArrayList<>();
+
+			T replaced = remove(key);
+			if (replaced != null && !replaced.equals(value))
+			{
+				evictedList.add(replaced);
+			}
+
+			slotMap.put(key, new Slot<>(host, size, value));
+			totalBytes += size;
+			hostBytesMap.merge(host, size, Long::sum);
+
+			Iterator<Map.Entry<String, Slot<T>>> iterator = slotMap.entrySet().iterator();
+			while (hostBytesMap.getOrDefault(host, 0L) > maxBytesPerHost && iterator.hasNext())
+			{
+				Map.Entry<String, Slot<T>> eldest = iterator.next();
+				if (eldest.getValue().host.equals(host))
+				{
+					iterator.remove();
+					evictedList.add(release(eldest.getValue()));
+				}
+			}
+
+			iterator = slotMap.entrySet().iterator();
+			while (totalBytes > maxBytes && iterator.hasNext())
+			{
+				Map.Entry<String, Slot<T>> eldest = iterator.next();
+				iterator.remove();
+				evictedList.add(release(eldest.getValue()));
+			}
+			return evictedList;
+		}
+
+		private synchronized T remove(String key)
+		{
+			Slot<T> slot = slotMap.remove(key);
+			return slot == null ? null : release(slot);
+		}
+
+		private synchronized List<T> clear()
+		{
+			List<T> valueList = new ArrayList<>();
+			for (Slot<T> slot : slotMap.values())
+			{
+				valueList.add(slot.value);
+			}
+
+			slotMap.clear();
+			hostBytesMap.clear();
+			totalBytes = 0;
+			return valueList;
+		}
+
+		private synchronized long getTotalBytes()
+		{
+			return totalBytes;
+		}
+
+		private T release(Slot<T> slot)
+		{
+			totalBytes -= slot.size;
+			hostBytesMap.computeIfPresent(slot.host, (host, bytes) -> bytes - slot.size <= 0 ? null : bytes - slot.size);
+			return slot.value;
+		}
+	}
+
+	private static class Slot<T>
+	{
+		private final String host;
+		private final long size;
+		private final T value;
+
+		private Slot(String host, long size, T value)
+		{
+			this.host = host;
+			this.size = size;
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,240 @@
+package in.jaxer.core.net;
+
+import in.jaxer.core.HttpUtils;
+import lombok.Getter;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.ConnectionReleaseTrigger;
+import org.apache.http.util.EntityUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Response of an outbound http call whose body has not been read yet, the body is read straight from the connection
+ * <pre>
+ * try (HttpResponseStream httpResponseStream = pooledHttpClient.open(new HttpGet(url)))
+ * {
+ *     httpResponseStream.transferTo(Paths.get("/data/export.csv"));
+ * }
+ * </pre>
+ * Closing it hands the connection back to the pool once the body has been read to the end,
+ * a body left unread is not drained, its connection is closed instead.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class HttpResponseStream implements Closeable
+{
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final HttpResponse httpResponse;
+	private final HttpEntity httpEntity;
+	private final InputStream content;
+	private final InputStream inputStream;
+	private final HttpTimingsRecorder recorder;
+
+	@Getter
+	private final int statusCode;
+
+	/**
+	 * Header names are case-insensitive
+	 */
+	@Getter
+	private final Map<String, List<String>> headerMap;
+
+	@Getter
+	private final long contentLength;
+
+	private volatile boolean endOfBody = false;
+
+	public HttpResponseStream(HttpResponse httpResponse) throws IOException
+	{
+		this(httpResponse, null);
+	}
+
+	HttpResponseStream(HttpResponse httpResponse, HttpTimingsRecorder recorder) throws IOException
+	{
+		HttpEntity httpEntity = httpResponse.getEntity();
+
+		TreeMap<String, List<String>> caseInsensitiveMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		caseInsensitiveMap.putAll(PooledHttpClient.toHeaderMap(httpResponse.getAllHeaders()));
+
+		this.httpResponse = httpResponse;
+		this.httpEntity = httpEntity;
+		this.recorder = recorder;
+		this.statusCode = httpResponse.getStatusLine().getStatusCode();
+		this.headerMap = Collections.unmodifiableMap(caseInsensitiveMap);
+		this.contentLength = httpEntity == null ? 0 : httpEntity.getContentLength();
+		this.content = httpEntity == null || httpEntity.getContent() == null
+				? new ByteArrayInputStream(new byte[0])
+				: httpEntity.getContent();
+		this.inputStream = new EndOfBodyInputStream(content);
+	}
+
+	/**
+	 * @return first value of the header, null when absent
+	 */
+	public String getHeader(String name)
+	{
+		List<String> valueList = headerMap.get(name);
+		return valueList == null || valueList.isEmpty() ? null : valueList.get(0);
+	}
+
+	public String getContentType()
+	{
+		return getHeader(HttpUtils.Header.CONTENT_TYPE);
+	}
+
+	public boolean isSuccessful()
+	{
+		return statusCode >= 200 && statusCode < 300;
+	}
+
+	/**
+	 * Body as it arrives, already decoded when it was sent compressed
+	 */
+	public InputStream getInputStream()
+	{
+		return inputStream;
+	}
+
+	/**
+	 * Copies the body to the output stream, the output stream is left open
+	 *
+	 * @return number of bytes copied
+	 */
+	public long transferTo(OutputStream outputStream) throws IOException
+	{
+		byte[] buffer = new byte[BUFFER_SIZE];
+		long transferred = 0;
+		int read;
+		while ((read = inputStream.read(buffer)) != -1)
+		{
+			outputStream.write(buffer, 0, read);
+			transferred += read;
+		}
+		return transferred;
+	}
+
+	/**
+	 * Writes the body to the file, replacing it when it exists
+	 *
+	 * @return number of bytes written
+	 */
+	public long transferTo(Path path) throws IOException
+	{
+		try (OutputStream outputStream = Files.newOutputStream(path))
+		{
+			return transferTo(outputStream);
+		}
+	}
+
+	/**
+	 * Reads the whole body into memory
+	 */
+	public HttpResult toHttpResult() throws IOException
+	{
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(contentLength > 0 && contentLength < Integer.MAX_VALUE ? (int) contentLength : 1024);
+		transferTo(byteArrayOutputStream);
+		return new HttpResult(statusCode, headerMap, byteArrayOutputStream.toByteArray(), getTimings());
+	}
+
+	/**
+	 * Result without its body, for bodies already sent elsewhere
+	 */
+	HttpResult toHttpResultWithoutBody()
+	{
+		return new HttpResult(statusCode, headerMap, null, getTimings());
+	}
+
+	/**
+	 * Timings of the call, complete once the body is read to the end, null when the response is not from a {@link PooledHttpClient}
+	 *
+	 * @see HttpTimings
+	 */
+	public HttpTimings getTimings()
+	{
+		return recorder == null ? null : recorder.complete(statusCode, false);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		// a body left unread ends here
+		getTimings();
+
+		try
+		{
+			if (endOfBody && httpEntity != null)
+			{
+				// a decoded body ends at the gzip trailer, before the connection has seen the end of the response,
+				// consuming the entity reads what is left of it so the connection is released for reuse
+				EntityUtils.consume(httpEntity);
+			}
+		} finally
+		{
+			release();
+		}
+	}
+
+	private void release() throws IOException
+	{
+		if (httpResponse instanceof Closeable)
+		{
+			// releases the connection when the body was read to the end, otherwise closes it
+			((Closeable) httpResponse).close();
+		} else if (content instanceof ConnectionReleaseTrigger)
+		{
+			// responses of a plain HttpClient, closing their stream would drain the rest of the body first
+			((ConnectionReleaseTrigger) content).abortConnection();
+		} else
+		{
+			content.close();
+		}
+	}
+
+	/**
+	 * Remembers whether the body was read to the end, only such a connection is kept
+	 */
+	private class EndOfBodyInputStream extends FilterInputStream
+	{
+		EndOfBodyInputStream(InputStream inputStream)
+		{
+			super(inputStream);
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			int read = super.read();
+			if (read == -1)
+			{
+				endOfBody = true;
+			}
+			return read;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException
+		{
+			int read = super.read(buffer, offset, length);
+			if (read == -1)
+			{
+				endOfBody = true;
+			}
+			return read;
+		}
+	}
+}
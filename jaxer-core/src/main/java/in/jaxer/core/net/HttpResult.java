@@ -0,0 +1,112 @@
+package in.jaxer.core.net;
+
+import in.jaxer.core.HttpUtils;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Response of an outbound http call, the body is kept as the raw bytes received (after content decoding)
+ * and only decoded to text on {@link #getBodyAsString()}
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@ToString(exclude = "body")
+public class HttpResult
+{
+	@Getter
+	private final int statusCode;
+
+	/**
+	 * Header names are case-insensitive
+	 */
+	@Getter
+	private final Map<String, List<String>> headerMap;
+
+	@Getter
+	private final byte[] body;
+
+	/**
+	 * Where the time of the call went, null for a result not received by a {@link PooledHttpClient}, e.g. served from a cache
+	 */
+	@Getter
+	private final HttpTimings timings;
+
+	public HttpResult(int statusCode, Map<String, List<String>> headerMap, byte[] body)
+	{
+		this(statusCode, headerMap, body, null);
+	}
+
+	HttpResult(int statusCode, Map<String, List<String>> headerMap, byte[] body, HttpTimings timings)
+	{
+		TreeMap<String, List<String>> caseInsensitiveMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		if (headerMap != null)
+		{
+			caseInsensitiveMap.putAll(headerMap);
+		}
+
+		this.statusCode = statusCode;
+		this.headerMap = Collections.unmodifiableMap(caseInsensitiveMap);
+		this.body = body == null ? new byte[0] : body;
+		this.timings = timings;
+	}
+
+	/**
+	 * @return first value of the header, null when absent
+	 */
+	public String getHeader(String name)
+	{
+		List<String> valueList = headerMap.get(name);
+		return valueList == null || valueList.isEmpty() ? null : valueList.get(0);
+	}
+
+	public String getContentType()
+	{
+		return getHeader(HttpUtils.Header.CONTENT_TYPE);
+	}
+
+	/**
+	 * @return charset declared by the Content-Type, UTF-8 when missing or unsupported
+	 */
+	public Charset getCharset()
+	{
+		String contentType = getContentType();
+		if (contentType == null)
+		{
+			return StandardCharsets.UTF_8;
+		}
+
+		for (String parameter : contentType.split(";"))
+		{
+			String trimmed = parameter.trim();
+			if (trimmed.regionMatches(true, 0, "charset=", 0, 8))
+			{
+				try
+				{
+					return Charset.forName(trimmed.substring(8).replace("\"", "").trim());
+				} catch (IllegalArgumentException exception)
+				{
+					return StandardCharsets.UTF_8;
+				}
+			}
+		}
+		return StandardCharsets.UTF_8;
+	}
+
+	public String getBodyAsString()
+	{
+		return new String(body, getCharset());
+	}
+
+	public boolean isSuccessful()
+	{
+		return statusCode >= 200 && statusCode < 300;
+	}
+}
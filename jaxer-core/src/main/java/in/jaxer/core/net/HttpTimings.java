@@ -0,0 +1,118 @@
+package in.jaxer.core.net;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Where the time of one outbound call went, phases that did not happen or could not be measured are -1
+ * <ul>
+ *     <li>DNS, connect and TLS are only measured when a new connection is opened, a pooled connection skips them</li>
+ *     <li>time to first byte runs from the request starting to be written until the response head is read,
+ *     the time the partner took to answer plus one round trip</li>
+ *     <li>body runs from the response head until the body is read to the end or the response is closed</li>
+ *     <li>total runs from the call until the body is read, including the wait for a pooled connection</li>
+ *     <li>a call followed through redirects or retried adds up DNS, connect, TLS, time to first byte and request bytes
+ *     of every request sent, body and response bytes are those of the response returned</li>
+ * </ul>
+ * A network problem shows in connect, TLS or body transfer, a slow partner in the time to first byte.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Getter
+@ToString
+public class HttpTimings
+{
+	public enum Phase
+	{
+		DNS, CONNECT, TLS, TIME_TO_FIRST_BYTE, BODY, TOTAL
+	}
+
+	/**
+	 * Host and port when not the default one, in lower case
+	 */
+	private final String host;
+	private final String method;
+
+	/**
+	 * 0 when no response was received
+	 */
+	private final int statusCode;
+
+	/**
+	 * True when the call ended with an exception
+	 */
+	private final boolean failed;
+
+	private final long dnsNanos;
+	private final long connectNanos;
+	private final long tlsNanos;
+	private final long timeToFirstByteNanos;
+	private final long bodyNanos;
+	private final long totalNanos;
+
+	/**
+	 * Bytes written for the request, head and body, -1 when the request was not written
+	 */
+	private final long requestBytes;
+
+	/**
+	 * Bytes of the response body as received, before decompression
+	 */
+	private final long responseBytes;
+
+	HttpTimings(String host, String method, int statusCode, boolean failed, long dnsNanos, long connectNanos, long tlsNanos,
+				long timeToFirstByteNanos, long bodyNanos, long totalNanos, long requestBytes, long responseBytes)
+	{
+		this.host = host;
+		this.method = method;
+		this.statusCode = statusCode;
+		this.failed = failed;
+		this.dnsNanos = dnsNanos;
+		this.connectNanos = connectNanos;
+		this.tlsNanos = tlsNanos;
+		this.timeToFirstByteNanos = timeToFirstByteNanos;
+		this.bodyNanos = bodyNanos;
+		this.totalNanos = totalNanos;
+		this.requestBytes = requestBytes;
+		this.responseBytes = responseBytes;
+	}
+
+	/**
+	 * @return true when the call went over a pooled connection, DNS, connect and TLS are then -1
+	 */
+	public boolean isConnectionReused()
+	{
+		return connectNanos == -1;
+	}
+
+	public long getNanos(Phase phase)
+	{
+		switch (phase)
+		{
+			case DNS:
+				return dnsNanos;
+			case CONNECT:
+				return connectNanos;
+			case TLS:
+				return tlsNanos;
+			case TIME_TO_FIRST_BYTE:
+				return timeToFirstByteNanos;
+			case BODY:
+				return bodyNanos;
+			default:
+				return totalNanos;
+		}
+	}
+
+	/**
+	 * @return duration of the phase in milliseconds, -1 when not measured
+	 */
+	public double getMillis(Phase phase)
+	{
+		long nanos = getNanos(phase);
+		return nanos == -1 ? -1 : nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+}
@@ -0,0 +1,381 @@
+package in.jaxer.core.net;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.apache.http.ssl.SSLContexts;
+import org.apache.http.util.TextUtils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.UnknownHostException;
+
+/**
+ * Collects the {@link HttpTimings} of one call of a {@link PooledHttpClient}
+ * <br>
+ * The blocking client resolves, connects and sends on the calling thread and the DNS resolver is given no context,
+ * so the hooks find the recorder of the call through a thread local set around the execution.
+ * The body is read later, possibly on another thread, through the stream the recorder wrapped.
+ * <br>
+ * A call followed through redirects or retried sends several requests, each one is a hop: DNS, connect, TLS,
+ * time to first byte and request bytes add up over the hops, body and response bytes are those of the last hop,
+ * the response handed to the caller. The bodies of the earlier hops, read by the client to free the connection, are ignored.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+class HttpTimingsRecorder
+{
+	private static final ThreadLocal<HttpTimingsRecorder> CURRENT = new ThreadLocal<>();
+
+	private final String host;
+	private final String method;
+	private final HttpMetricsRegistry httpMetricsRegistry;
+	private final long startNanos = System.nanoTime();
+
+	private long dnsNanos = -1;
+	private long connectNanos = -1;
+	private long tlsNanos = -1;
+	private long timeToFirstByteNanos = -1;
+	private long requestBytes = -1;
+	private long headNanos = -1;
+	private volatile int hop;
+	private volatile long bodyEndNanos = -1;
+	private volatile long responseBytes;
+
+	private HttpTimings httpTimings;
+
+	HttpTimingsRecorder(URI uri, String method, HttpMetricsRegistry httpMetricsRegistry)
+	{
+		this.host = HttpCircuitBreaker.getHost(uri);
+		this.method = method;
+		this.httpMetricsRegistry = httpMetricsRegistry;
+	}
+
+	void attach()
+	{
+		CURRENT.set(this);
+	}
+
+	static void detach()
+	{
+		CURRENT.remove();
+	}
+
+	/**
+	 * Builds the timings once the body is read or the response closed, and records them in the registry, only the first call counts
+	 */
+	synchronized HttpTimings complete(int statusCode, boolean failed)
+	{
+		if (httpTimings != null)
+		{
+			return httpTimings;
+		}
+
+		long endNanos = bodyEndNanos != -1 ? bodyEndNanos : System.nanoTime();
+		httpTimings = new HttpTimings(host, method, statusCode, failed, dnsNanos, connectNanos, tlsNanos, timeToFirstByteNanos,
+				headNanos == -1 ? -1 : Math.max(0, endNanos - headNanos), endNanos - startNanos, requestBytes, responseBytes);
+
+		if (httpMetricsRegistry != null)
+		{
+			httpMetricsRegistry.record(httpTimings);
+		}
+		return httpTimings;
+	}
+
+	/**
+	 * Forgets the body of the previous hop, a new request is about to be sent
+	 */
+	private void startHop()
+	{
+		hop++;
+		headNanos = -1;
+		bodyEndNanos = -1;
+		responseBytes = 0;
+	}
+
+	private void onBodyRead(int bodyHop, int read)
+	{
+		if (bodyHop == hop)
+		{
+			responseBytes += read;
+		}
+	}
+
+	private void onBodyEnd(int bodyHop)
+	{
+		if (bodyHop == hop && bodyEndNanos == -1)
+		{
+			bodyEndNanos = System.nanoTime();
+		}
+	}
+
+	private static long add(long total, long nanos)
+	{
+		// retries and redirects may resolve and connect more than once
+		return total == -1 ? nanos : total + nanos;
+	}
+
+	static class TimingDnsResolver implements DnsResolver
+	{
+		@Override
+		public InetAddress[] resolve(String host) throws UnknownHostException
+		{
+			HttpTimingsRecorder recorder = CURRENT.get();
+			long startNanos = System.nanoTime();
+			try
+			{
+				return SystemDefaultDnsResolver.INSTANCE.resolve(host);
+			} finally
+			{
+				if (recorder != null)
+				{
+					recorder.dnsNanos = add(recorder.dnsNanos, System.nanoTime() - startNanos);
+				}
+			}
+		}
+	}
+
+	static class TimingPlainSocketFactory extends PlainConnectionSocketFactory
+	{
+		@Override
+		public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress,
+									InetSocketAddress localAddress, HttpContext context) throws IOException
+		{
+			HttpTimingsRecorder recorder = CURRENT.get();
+			long startNanos = System.nanoTime();
+			try
+			{
+				return super.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+			} finally
+			{
+				if (recorder != null)
+				{
+					recorder.connectNanos = add(recorder.connectNanos, System.nanoTime() - startNanos);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Same as {@link SSLConnectionSocketFactory#getSystemSocketFactory()}, with the handshake measured apart from the connect
+	 */
+	static class TimingSslSocketFactory extends SSLConnectionSocketFactory
+	{
+		TimingSslSocketFactory()
+		{
+			super(SSLContexts.createSystemDefault(), split(System.getProperty("https.protocols")),
+					split(System.getProperty("https.cipherSuites")), getDefaultHostnameVerifier());
+		}
+
+		private static String[] split(String value)
+		{
+			return TextUtils.isBlank(value) ? null : value.split(" *, *");
+		}
+
+		@Override
+		public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress,
+									InetSocketAddress localAddress, HttpContext context) throws IOException
+		{
+			HttpTimingsRecorder recorder = CURRENT.get();
+			long tlsBefore = recorder == null || recorder.tlsNanos == -1 ? 0 : recorder.tlsNanos;
+			long startNanos = System.nanoTime();
+			try
+			{
+				// connects, then layers TLS through createLayeredSocket
+				return super.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+			} finally
+			{
+				if (recorder != null)
+				{
+					long tlsSpent = recorder.tlsNanos == -1 ? 0 : recorder.tlsNanos - tlsBefore;
+					recorder.connectNanos = add(recorder.connectNanos, System.nanoTime() - startNanos - tlsSpent);
+				}
+			}
+		}
+
+		@Override
+		public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException
+		{
+			HttpTimingsRecorder recorder = CURRENT.get();
+			long startNanos = System.nanoTime();
+			try
+			{
+				return super.createLayeredSocket(socket, target, port, context);
+			} finally
+			{
+				if (recorder != null)
+				{
+					recorder.tlsNanos = add(recorder.tlsNanos, System.nanoTime() - startNanos);
+				}
+			}
+		}
+	}
+
+	static class TimingRequestExecutor extends HttpRequestExecutor
+	{
+		@Override
+		public HttpResponse execute(HttpRequest request, HttpClientConnection connection, HttpContext context) throws IOException, HttpException
+		{
+			HttpTimingsRecorder recorder = CURRENT.get();
+			if (recorder == null)
+			{
+				return super.execute(request, connection, context);
+			}
+
+			recorder.startHop();
+			long sentBefore = connection.getMetrics().getSentBytesCount();
+			long startNanos = System.nanoTime();
+
+			// returns once the response head is read, the body is still on the connection
+			HttpResponse httpResponse = super.execute(request, connection, context);
+
+			recorder.headNanos = System.nanoTime();
+			recorder.timeToFirstByteNanos = add(recorder.timeToFirstByteNanos, recorder.headNanos - startNanos);
+			recorder.requestBytes = add(recorder.requestBytes, connection.getMetrics().getSentBytesCount() - sentBefore);
+			return httpResponse;
+		}
+	}
+
+	/**
+	 * Wraps the body before it is decompressed, so the bytes counted are the bytes received
+	 */
+	static class BodyCountingInterceptor implements HttpResponseInterceptor
+	{
+		@Override
+		public void process(HttpResponse httpResponse, HttpContext context)
+		{
+			HttpTimingsRecorder recorder = CURRENT.get();
+			if (recorder == null)
+			{
+				return;
+			}
+
+			if (httpResponse.getEntity() == null)
+			{
+				recorder.onBodyEnd(recorder.hop);
+				return;
+			}
+			httpResponse.setEntity(new CountingEntity(httpResponse.getEntity(), recorder, recorder.hop));
+		}
+	}
+
+	private static class CountingEntity extends HttpEntityWrapper
+	{
+		private final HttpTimingsRecorder recorder;
+		private final int hop;
+		private InputStream inputStream;
+
+		CountingEntity(HttpEntity httpEntity, HttpTimingsRecorder recorder, int hop)
+		{
+			super(httpEntity);
+			this.recorder = recorder;
+			this.hop = hop;
+		}
+
+		@Override
+		public synchronized InputStream getContent() throws IOException
+		{
+			if (inputStream == null)
+			{
+				InputStream content = super.getContent();
+				if (content == null)
+				{
+					recorder.onBodyEnd(hop);
+					return null;
+				}
+				inputStream = new CountingInputStream(content, recorder, hop);
+			}
+			return inputStream;
+		}
+
+		@Override
+		public void writeTo(OutputStream outputStream) throws IOException
+		{
+			try (InputStream content = getContent())
+			{
+				if (content == null)
+				{
+					return;
+				}
+
+				byte[] buffer = new byte[8 * 1024];
+				int read;
+				while ((read = content.read(buffer)) != -1)
+				{
+					outputStream.write(buffer, 0, read);
+				}
+			}
+		}
+	}
+
+	private static class CountingInputStream extends FilterInputStream
+	{
+		private final HttpTimingsRecorder recorder;
+		private final int hop;
+
+		CountingInputStream(InputStream inputStream, HttpTimingsRecorder recorder, int hop)
+		{
+			super(inputStream);
+			this.recorder = recorder;
+			this.hop = hop;
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			int read = super.read();
+			if (read == -1)
+			{
+				recorder.onBodyEnd(hop);
+			} else
+			{
+				recorder.onBodyRead(hop, 1);
+			}
+			return read;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException
+		{
+			int read = super.read(buffer, offset, length);
+			if (read == -1)
+			{
+				recorder.onBodyEnd(hop);
+			} else
+			{
+				recorder.onBodyRead(hop, read);
+			}
+			return read;
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			try
+			{
+				super.close();
+			} finally
+			{
+				recorder.onBodyEnd(hop);
+			}
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package in.jaxer.core.net;
+
+import org.apache.http.client.methods.HttpUriRequest;
+
+import java.io.IOException;
+
+/**
+ * Executes a request and reads its response, e.g. <code>pooledHttpClient::execute</code>,
+ * the layers wrapping outbound calls ({@link HttpResponseCache}, {@link HttpCircuitBreaker}) are chained through it
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@FunctionalInterface
+public interface HttpTransport
+{
+	HttpResult execute(HttpUriRequest httpUriRequest) throws IOException;
+}
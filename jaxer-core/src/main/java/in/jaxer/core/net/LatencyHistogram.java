@@ -0,0 +1,141 @@
+package in.jaxer.core.net;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies counted in fixed buckets from 100 microseconds to 60 seconds, recording takes no lock and allocates nothing
+ * <br>
+ * Percentiles are the upper bound of the bucket they fall in, precise enough to tell 5 ms from 50 ms
+ * without keeping every sample. Shared by the outbound {@link HttpHostMetrics} and the api metrics of jaxer-api.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class LatencyHistogram
+{
+	private static final long[] BUCKET_BOUNDS_MICROS = {
+			100, 250, 500,
+			1_000, 2_500, 5_000,
+			10_000, 25_000, 50_000,
+			100_000, 250_000, 500_000,
+			1_000_000, 2_500_000, 5_000_000,
+			10_000_000, 30_000_000, 60_000_000
+	};
+
+	// one more bucket for the latencies above the last bound
+	private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_BOUNDS_MICROS.length + 1);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sumMicros = new LongAdder();
+	private final AtomicLong maxMicros = new AtomicLong();
+
+	/**
+	 * @param nanos ignored when negative, the phase was not measured
+	 */
+	public void record(long nanos)
+	{
+		if (nanos < 0)
+		{
+			return;
+		}
+
+		long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+		bucketCounts.incrementAndGet(indexOf(micros));
+		count.increment();
+		sumMicros.add(micros);
+		maxMicros.accumulateAndGet(micros, Math::max);
+	}
+
+	public long getCount()
+	{
+		return count.sum();
+	}
+
+	public double getSumMillis()
+	{
+		return sumMicros.sum() / 1000d;
+	}
+
+	public double getMeanMillis()
+	{
+		long currentCount = count.sum();
+		return currentCount == 0 ? 0 : sumMicros.sum() / 1000d / currentCount;
+	}
+
+	public double getMaxMillis()
+	{
+		return maxMicros.get() / 1000d;
+	}
+
+	/**
+	 * @param percentile between 0 and 100, e.g. 99 for the p99
+	 * @return upper bound of the bucket holding the percentile, the max for the last bucket, 0 when empty
+	 */
+	public double getPercentileMillis(double percentile)
+	{
+		long[] counts = getBucketCounts();
+		long total = 0;
+		for (long bucketCount : counts)
+		{
+			total += bucketCount;
+		}
+		if (total == 0)
+		{
+			return 0;
+		}
+
+		long rank = (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100d);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++)
+		{
+			seen += counts[i];
+			if (seen >= Math.max(1, rank))
+			{
+				return i < BUCKET_BOUNDS_MICROS.length
+						? Math.min(BUCKET_BOUNDS_MICROS[i], maxMicros.get()) / 1000d
+						: getMaxMillis();
+			}
+		}
+		return getMaxMillis();
+	}
+
+	/**
+	 * @return upper bounds of the buckets in milliseconds, the last bucket has no bound
+	 */
+	public static double[] getBucketBoundsMillis()
+	{
+		double[] bounds = new double[BUCKET_BOUNDS_MICROS.length];
+		for (int i = 0; i < bounds.length; i++)
+		{
+			bounds[i] = BUCKET_BOUNDS_MICROS[i] / 1000d;
+		}
+		return bounds;
+	}
+
+	/**
+	 * @return count of each bucket, one more than the bounds
+	 */
+	public long[] getBucketCounts()
+	{
+		long[] counts = new long[bucketCounts.length()];
+		for (int i = 0; i < counts.length; i++)
+		{
+			counts[i] = bucketCounts.get(i);
+		}
+		return counts;
+	}
+
+	private static int indexOf(long micros)
+	{
+		for (int i = 0; i < BUCKET_BOUNDS_MICROS.length; i++)
+		{
+			if (micros <= BUCKET_BOUNDS_MICROS[i])
+			{
+				return i;
+			}
+		}
+		return BUCKET_BOUNDS_MICROS.length;
+	}
+}
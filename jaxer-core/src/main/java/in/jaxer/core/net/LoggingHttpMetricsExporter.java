@@ -0,0 +1,49 @@
+package in.jaxer.core.net;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Logs one line per host with the call counts and the p50 / p95 / p99 of each phase
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Log4j2
+public class LoggingHttpMetricsExporter implements HttpMetricsExporter
+{
+	@Override
+	public void export(Collection<HttpHostMetrics> hostMetricsCollection)
+	{
+		for (HttpHostMetrics httpHostMetrics : hostMetricsCollection)
+		{
+			StringBuilder line = new StringBuilder()
+					.append(httpHostMetrics.getHost())
+					.append(" calls=").append(httpHostMetrics.getCallCount())
+					.append(" failed=").append(httpHostMetrics.getFailedCount())
+					.append(" 5xx=").append(httpHostMetrics.getServerErrorCount())
+					.append(" newConnections=").append(httpHostMetrics.getNewConnectionCount())
+					.append(" sent=").append(httpHostMetrics.getRequestBytes())
+					.append(" received=").append(httpHostMetrics.getResponseBytes());
+
+			for (HttpTimings.Phase phase : HttpTimings.Phase.values())
+			{
+				LatencyHistogram latencyHistogram = httpHostMetrics.getHistogram(phase);
+				if (latencyHistogram.getCount() == 0)
+				{
+					continue;
+				}
+
+				line.append(' ').append(phase.name().toLowerCase(Locale.ROOT))
+						.append(String.format(Locale.ROOT, "=%.1f/%.1f/%.1fms",
+								latencyHistogram.getPercentileMillis(50),
+								latencyHistogram.getPercentileMillis(95),
+								latencyHistogram.getPercentileMillis(99)));
+			}
+
+			log.info(line);
+		}
+	}
+}
@@ -0,0 +1,272 @@
+package in.jaxer.core.net;
+
+import in.jaxer.core.constants.ContentType;
+import in.jaxer.core.utilities.JValidator;
+import lombok.Getter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes a multipart/form-data body straight to an output stream, file parts are streamed and never held in memory
+ * <pre>
+ * MultipartEncoder multipartEncoder = new MultipartEncoder();
+ * multipartEncoder.addField("userId", "1");
+ * multipartEncoder.addFile("document", new File("/data/report.pdf"));
+ *
+ * httpURLConnection.setRequestProperty("Content-Type", multipartEncoder.getContentType());
+ * httpURLConnection.setFixedLengthStreamingMode(multipartEncoder.getContentLength());
+ * multipartEncoder.writeTo(httpURLConnection.getOutputStream());
+ * </pre>
+ * The content length is known upfront unless a stream part of unknown length was added,
+ * {@link #getContentLength()} is -1 then and the body has to be sent chunked.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class MultipartEncoder
+{
+	public static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final byte[] CRLF = {'\r', '\n'};
+
+	@Getter
+	private final String boundary;
+
+	@Getter
+	private final Charset charset;
+
+	private final List<Part> partList = new ArrayList<>();
+
+	public MultipartEncoder()
+	{
+		this("jaxer-" + Long.toHexString(System.nanoTime()) + Long.toHexString(Double.doubleToLongBits(Math.random())), StandardCharsets.UTF_8);
+	}
+
+	public MultipartEncoder(String boundary, Charset charset)
+	{
+		JValidator.throwWhenBlank(boundary, "boundary cannot be null or empty");
+		JValidator.throwWhenNull(charset, "charset cannot be null");
+
+		this.boundary = boundary;
+		this.charset = charset;
+	}
+
+	public MultipartEncoder addField(String name, String value)
+	{
+		JValidator.throwWhenNull(value, "value cannot be null");
+
+		String partHeader = "Content-Disposition: form-data; name=\"" + escape(name) + "\"\r\n"
+				+ "Content-Type: " + ContentType.TEXT_PLAIN + "; charset=" + charset.name() + "\r\n";
+		partList.add(new Part(toHeaderBytes(partHeader), value.getBytes(charset), null, null, 0));
+		return this;
+	}
+
+	/**
+	 * Adds the file under its own name, the content type is guessed from the name
+	 */
+	public MultipartEncoder addFile(String name, File file)
+	{
+		JValidator.throwWhenNull(file, "file cannot be null");
+		JValidator.throwWhenFalse(file.isFile(), "file not found: " + file);
+
+		String partHeader = toFilePartHeader(name, file.getName(), null);
+		partList.add(new Part(toHeaderBytes(partHeader), null, file, null, file.length()));
+		return this;
+	}
+
+	/**
+	 * Adds a part read from the stream, the stream is closed once written
+	 *
+	 * @param length number of bytes the stream holds, -1 when unknown
+	 */
+	public MultipartEncoder addStream(String name, String fileName, String contentType, InputStream inputStream, long length)
+	{
+		JValidator.throwWhenNull(inputStream, "inputStream cannot be null");
+
+		String partHeader = toFilePartHeader(name, fileName, contentType);
+		partList.add(new Part(toHeaderBytes(partHeader), null, null, inputStream, length < 0 ? -1 : length));
+		return this;
+	}
+
+	public String getContentType()
+	{
+		return ContentType.MULTIPART_FORM_DATA + "; boundary=" + boundary;
+	}
+
+	/**
+	 * @return exact size of the encoded body, -1 when a stream part has an unknown length
+	 */
+	public long getContentLength()
+	{
+		long contentLength = toBytes("--" + boundary + "--\r\n").length;
+		for (Part part : partList)
+		{
+			if (part.length < 0)
+			{
+				return -1;
+			}
+			contentLength += part.header.length + part.length + CRLF.length;
+		}
+		return contentLength;
+	}
+
+	/**
+	 * Writes the encoded body, the output stream is flushed but left open.
+	 * Files are copied with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+	 * when writing to a file, through a {@value #BUFFER_SIZE} bytes buffer otherwise.
+	 */
+	public void writeTo(OutputStream outputStream) throws IOException
+	{
+		byte[] buffer = null;
+		for (Part part : partList)
+		{
+			outputStream.write(part.header);
+			if (part.value != null)
+			{
+				outputStream.write(part.value);
+			} else
+			{
+				if (buffer == null)
+				{
+					buffer = new byte[BUFFER_SIZE];
+				}
+
+				if (part.file != null)
+				{
+					writeFile(part, outputStream, buffer);
+				} else
+				{
+					writeStream(part, outputStream, buffer);
+				}
+			}
+			outputStream.write(CRLF);
+		}
+		outputStream.write(toBytes("--" + boundary + "--\r\n"));
+		outputStream.flush();
+	}
+
+	private void writeFile(Part part, OutputStream outputStream, byte[] buffer) throws IOException
+	{
+		try (FileChannel fileChannel = FileChannel.open(part.file.toPath(), StandardOpenOption.READ))
+		{
+			if (fileChannel.size() != part.length)
+			{
+				throw new IOException("file changed size since it was added: " + part.file);
+			}
+
+			if (outputStream instanceof FileOutputStream)
+			{
+				outputStream.flush();
+				FileChannel targetChannel = ((FileOutputStream) outputStream).getChannel();
+				long position = 0;
+				while (position < part.length)
+				{
+					position += fileChannel.transferTo(position, part.length - position, targetChannel);
+				}
+				return;
+			}
+
+			ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+			long remaining = part.length;
+			while (remaining > 0)
+			{
+				byteBuffer.clear();
+				if (remaining < buffer.length)
+				{
+					byteBuffer.limit((int) remaining);
+				}
+
+				int read = fileChannel.read(byteBuffer);
+				if (read < 0)
+				{
+					throw new IOException("file shrunk while being written: " + part.file);
+				}
+
+				outputStream.write(buffer, 0, read);
+				remaining -= read;
+			}
+		}
+	}
+
+	private void writeStream(Part part, OutputStream outputStream, byte[] buffer) throws IOException
+	{
+		try (InputStream inputStream = part.inputStream)
+		{
+			long written = 0;
+			int read;
+			while ((read = inputStream.read(buffer)) != -1)
+			{
+				outputStream.write(buffer, 0, read);
+				written += read;
+			}
+
+			if (part.length >= 0 && written != part.length)
+			{
+				throw new IOException("stream held " + written + " bytes, " + part.length + " were declared");
+			}
+		}
+	}
+
+	private String toFilePartHeader(String name, String fileName, String contentType)
+	{
+		JValidator.throwWhenBlank(fileName, "fileName cannot be null or empty");
+
+		if (JValidator.isBlank(contentType))
+		{
+			contentType = URLConnection.guessContentTypeFromName(fileName);
+		}
+
+		return "Content-Disposition: form-data; name=\"" + escape(name) + "\"; filename=\"" + escape(fileName) + "\"\r\n"
+				+ "Content-Type: " + (contentType == null ? ContentType.APPLICATION_OCTET_STREAM : contentType) + "\r\n";
+	}
+
+	private byte[] toHeaderBytes(String partHeader)
+	{
+		return toBytes("--" + boundary + "\r\n" + partHeader + "\r\n");
+	}
+
+	private byte[] toBytes(String value)
+	{
+		return value.getBytes(charset);
+	}
+
+	/**
+	 * Percent-encodes the characters that would break out of a quoted header parameter, as browsers do
+	 */
+	static String escape(String value)
+	{
+		JValidator.throwWhenBlank(value, "name cannot be null or empty");
+
+		return value.replace("\"", "%22").replace("\r", "%0D").replace("\n", "%0A");
+	}
+
+	private static class Part
+	{
+		private final byte[] header;
+		private final byte[] value;
+		private final File file;
+		private final InputStream inputStream;
+		private final long length;
+
+		private Part(byte[] header, byte[] value, File file, InputStream inputStream, long length)
+		{
+			this.header = header;
+			this.value = value;
+			this.file = file;
+			this.inputStream = inputStream;
+			this.length = value != null ? value.length : length;
+		}
+	}
+}
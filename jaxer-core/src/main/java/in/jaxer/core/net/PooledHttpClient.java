@@ -0,0 +1,276 @@
+package in.jaxer.core.net;
+
+import in.jaxer.core.utilities.JValidator;
+import lombok.Builder;
+import lombok.Getter;
+import org.apache.http.Header;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultRoutePlanner;
+import org.apache.http.pool.PoolStats;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reusable http client keeping connections alive in a per-host pool, so repeated calls to the same host
+ * skip the TCP and TLS handshakes.
+ * <br>
+ * Responses are read as raw bytes, gzip and deflate bodies are decoded transparently
+ * ({@code Accept-Encoding} is sent on every request). The body is always consumed,
+ * which is what hands the connection back to the pool.
+ *
+ * <pre>
+ * PooledHttpClient pooledHttpClient = PooledHttpClient.builder()
+ *     .withMaxPerRoute(100)
+ *     .withReadTimeoutMillis(5000)
+ *     .build();
+ *
+ * HttpResult httpResult = pooledHttpClient.execute(new HttpGet("https://partner.example.com/orders"));
+ * </pre>
+ * Every call is timed phase by phase, see {@link HttpTimings}, the timings come with the {@link HttpResult}
+ * and are recorded in the {@link HttpMetricsRegistry} when one is given.
+ * <br>
+ * Proxies, trust and key stores, TLS protocols and cipher suites follow the standard system properties
+ * ({@code https.proxyHost}, {@code javax.net.ssl.trustStore}, {@code https.protocols}, ...) as the JDK client does.
+ * <br>
+ * Instances are thread-safe and meant to be shared, close them on shutdown to release the pooled connections.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class PooledHttpClient implements Closeable
+{
+	public static final int DEFAULT_MAX_TOTAL = 200;
+	public static final int DEFAULT_MAX_PER_ROUTE = 50;
+	public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10 * 1000;
+	public static final int DEFAULT_READ_TIMEOUT_MILLIS = 30 * 1000;
+	public static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT_MILLIS = 10 * 1000;
+	public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 60 * 1000L;
+
+	// a pooled connection idle for longer is checked before reuse, the server may have closed it meanwhile
+	private static final int VALIDATE_AFTER_INACTIVITY_MILLIS = 2 * 1000;
+
+	@Getter
+	private final int connectTimeoutMillis;
+
+	@Getter
+	private final int readTimeoutMillis;
+
+	@Getter
+	private final long idleTimeoutMillis;
+
+	private final PoolingHttpClientConnectionManager connectionManager;
+
+	@Getter
+	private final CloseableHttpClient httpClient;
+
+	/**
+	 * Registry the timings of every call are recorded in, null when not recorded
+	 */
+	@Getter
+	private final HttpMetricsRegistry httpMetricsRegistry;
+
+	@Builder(setterPrefix = "with")
+	private PooledHttpClient(Integer maxTotal, Integer maxPerRoute, Integer connectTimeoutMillis, Integer readTimeoutMillis,
+							 Integer connectionRequestTimeoutMillis, Long idleTimeoutMillis, String userAgent,
+							 HttpMetricsRegistry httpMetricsRegistry)
+	{
+		this.connectTimeoutMillis = connectTimeoutMillis == null ? DEFAULT_CONNECT_TIMEOUT_MILLIS : connectTimeoutMillis;
+		this.readTimeoutMillis = readTimeoutMillis == null ? DEFAULT_READ_TIMEOUT_MILLIS : readTimeoutMillis;
+		this.idleTimeoutMillis = idleTimeoutMillis == null ? DEFAULT_IDLE_TIMEOUT_MILLIS : idleTimeoutMillis;
+
+		this.httpMetricsRegistry = httpMetricsRegistry;
+
+		this.connectionManager = new PoolingHttpClientConnectionManager(
+				RegistryBuilder.<ConnectionSocketFactory>create()
+						.register("http", new HttpTimingsRecorder.TimingPlainSocketFactory())
+						.register("https", new HttpTimingsRecorder.TimingSslSocketFactory())
+						.build(),
+				new HttpTimingsRecorder.TimingDnsResolver());
+		this.connectionManager.setMaxTotal(maxTotal == null ? DEFAULT_MAX_TOTAL : maxTotal);
+		this.connectionManager.setDefaultMaxPerRoute(maxPerRoute == null ? DEFAULT_MAX_PER_ROUTE : maxPerRoute);
+		this.connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLIS);
+
+		RequestConfig requestConfig = RequestConfig.custom()
+				.setConnectTimeout(this.connectTimeoutMillis)
+				.setSocketTimeout(this.readTimeoutMillis)
+				.setConnectionRequestTimeout(connectionRequestTimeoutMillis == null ? DEFAULT_CONNECTION_REQUEST_TIMEOUT_MILLIS : connectionRequestTimeoutMillis)
+				.build();
+
+		// the connection manager and route planner are custom, so they follow the system properties explicitly
+		this.httpClient = HttpClients.custom()
+				.useSystemProperties()
+				.setConnectionManager(connectionManager)
+				.setRoutePlanner(new SystemDefaultRoutePlanner(ProxySelector.getDefault()))
+				.setDefaultRequestConfig(requestConfig)
+				.setUserAgent(userAgent)
+				.setRequestExecutor(new HttpTimingsRecorder.TimingRequestExecutor())
+				.addInterceptorFirst(new HttpTimingsRecorder.BodyCountingInterceptor())
+				.evictExpiredConnections()
+				.evictIdleConnections(this.idleTimeoutMillis, TimeUnit.MILLISECONDS)
+				.build();
+	}
+
+	/**
+	 * Client shared by every {@link HttpHandler} without a client of its own
+	 */
+	public static PooledHttpClient getDefault()
+	{
+		return DefaultHolder.DEFAULT;
+	}
+
+	/**
+	 * Executes the request and reads the whole body, the connection is back in the pool when this returns
+	 */
+	public HttpResult execute(HttpUriRequest httpUriRequest) throws IOException
+	{
+		try (HttpResponseStream httpResponseStream = open(httpUriRequest))
+		{
+			return httpResponseStream.toHttpResult();
+		}
+	}
+
+	/**
+	 * Executes the request without reading the body, the returned stream must be closed
+	 *
+	 * @since 2.0.0
+	 */
+	public HttpResponseStream open(HttpUriRequest httpUriRequest) throws IOException
+	{
+		HttpTimingsRecorder recorder = new HttpTimingsRecorder(httpUriRequest.getURI(), httpUriRequest.getMethod(), httpMetricsRegistry);
+
+		CloseableHttpResponse httpResponse;
+		recorder.attach();
+		try
+		{
+			httpResponse = httpClient.execute(httpUriRequest);
+		} catch (IOException | RuntimeException exception)
+		{
+			recorder.complete(0, true);
+			throw exception;
+		} finally
+		{
+			HttpTimingsRecorder.detach();
+		}
+
+		try
+		{
+			return new HttpResponseStream(httpResponse, recorder);
+		} catch (IOException | RuntimeException exception)
+		{
+			recorder.complete(httpResponse.getStatusLine().getStatusCode(), true);
+			httpResponse.close();
+			throw exception;
+		}
+	}
+
+	/**
+	 * Executes the request and copies a successful body to the output stream without holding it in memory,
+	 * bodies of other statuses are read into the returned {@link HttpResult} instead
+	 *
+	 * @since 2.0.0
+	 */
+	public HttpResult executeTo(HttpUriRequest httpUriRequest, OutputStream outputStream) throws IOException
+	{
+		try (HttpResponseStream httpResponseStream = open(httpUriRequest))
+		{
+			if (!httpResponseStream.isSuccessful())
+			{
+				return httpResponseStream.toHttpResult();
+			}
+
+			httpResponseStream.transferTo(outputStream);
+			return httpResponseStream.toHttpResultWithoutBody();
+		}
+	}
+
+	/**
+	 * Executes the request and writes a successful body to the file, the file is left untouched for other statuses
+	 *
+	 * @since 2.0.0
+	 */
+	public HttpResult executeTo(HttpUriRequest httpUriRequest, Path path) throws IOException
+	{
+		try (HttpResponseStream httpResponseStream = open(httpUriRequest))
+		{
+			if (!httpResponseStream.isSuccessful())
+			{
+				return httpResponseStream.toHttpResult();
+			}
+
+			httpResponseStream.transferTo(path);
+			return httpResponseStream.toHttpResultWithoutBody();
+		}
+	}
+
+	/**
+	 * Overrides {@link PooledHttpClientBuilder#withMaxPerRoute(Integer)} for one host
+	 *
+	 * @param url any url of the host, only its scheme, host and port are used
+	 */
+	public void setMaxPerHost(String url, int maxPerHost)
+	{
+		JValidator.throwWhenTrue(maxPerHost < 1, "maxPerHost must be greater than zero");
+		connectionManager.setMaxPerRoute(toRoute(url), maxPerHost);
+	}
+
+	public PoolStats getTotalStats()
+	{
+		return connectionManager.getTotalStats();
+	}
+
+	public PoolStats getHostStats(String url)
+	{
+		return connectionManager.getStats(toRoute(url));
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		httpClient.close();
+	}
+
+	static Map<String, List<String>> toHeaderMap(Header[] headers)
+	{
+		Map<String, List<String>> headerMap = new LinkedHashMap<>();
+		for (Header header : headers)
+		{
+			headerMap.computeIfAbsent(header.getName(), name -> new ArrayList<>(1)).add(header.getValue());
+		}
+		return headerMap;
+	}
+
+	private static HttpRoute toRoute(String url)
+	{
+		HttpHost httpHost = URIUtils.extractHost(URI.create(url));
+		JValidator.throwWhenNull(httpHost, "url has no host: " + url);
+
+		boolean secure = "https".equalsIgnoreCase(httpHost.getSchemeName());
+		int port = httpHost.getPort() != -1 ? httpHost.getPort() : secure ? 443 : 80;
+		return new HttpRoute(new HttpHost(httpHost.getHostName(), port, httpHost.getSchemeName()), null, secure);
+	}
+
+	private static class DefaultHolder
+	{
+		private static final PooledHttpClient DEFAULT = PooledHttpClient.builder().build();
+	}
+}
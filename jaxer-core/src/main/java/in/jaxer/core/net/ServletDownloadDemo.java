@@ -1,17 +1,14 @@
 package in.jaxer.core.net;
 
-import in.jaxer.core.constants.ContentType;
-import in.jaxer.core.utilities.JValidator;
 import lombok.extern.log4j.Log4j2;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * @author Shakir Ansari
@@ -25,32 +22,17 @@ public class ServletDownloadDemo extends HttpServlet
 	{
 		String filename = request.getParameter("filename");
 		String filepath = request.getParameter("filepath");
-		String fullFile = filepath + File.separator + filename;
+		Path path = Paths.get(filepath, filename);
 
-		try (OutputStream outStream = response.getOutputStream();
-			 FileInputStream fileInputStream = new java.io.FileInputStream(fullFile))
-		{
-			String mimeType = getServletContext().getMimeType(fullFile);
-			log.debug("before mimeType: {}", mimeType);
+		log.debug("path: {}", path);
 
-			if (JValidator.isNullOrEmpty(mimeType))
-			{
-				mimeType = ContentType.APPLICATION_OCTET_STREAM;
-			}
-
-			log.debug("after mimeType: {}", mimeType);
-
-			response.setContentType(mimeType);
-			response.setHeader("Content-Disposition", "attachment; filename=\"" + filename + "\"");
-			response.setContentLength((int) new File(fullFile).length());
-
-			int i;
-			final byte[] bytes = new byte[1024];
-			while ((i = fileInputStream.read(bytes)) != -1)
-			{
-				outStream.write(bytes, 0, i);
-			}
-		}
+		// ranges, conditional requests and Content-Length are handled by the writer
+		FileResponseWriter.getDefault().download(request, response, path, filename);
 	}
 
+	@Override
+	protected void doHead(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+	{
+		doGet(request, response);
+	}
 }
@@ -1,5 +1,6 @@
 package in.jaxer.core.net;
 
+import in.jaxer.core.FileUtils;
 import in.jaxer.core.HttpUtils;
 import in.jaxer.core.constants.ContentType;
 import in.jaxer.core.utilities.Files;
@@ -193,6 +194,9 @@ public class Servlets
 	/**
 	 * If HttpServletRequest contain parameter [isPrettyPrint=true]
 	 * then it will send pretty response
+	 * <br>
+	 * Json is streamed into the response, compressed when the client accepts it,
+	 * see {@link CompressingResponseWriter}
 	 */
 	static public void printJsonResponse(HttpServletRequest request, HttpServletResponse response, Object obj) throws IOException
 	{
@@ -201,10 +205,10 @@ public class Servlets
 		String isPrettyPrint = request.getParameter("isPrettyPrint");
 		if (JValidator.isNotNullAndNotEmpty(isPrettyPrint) && isPrettyPrint.equalsIgnoreCase("true"))
 		{
-			printResponse(response, JsonHandler.getGsonPrettyPrinting().toJson(obj));
+			CompressingResponseWriter.getDefault().writeJson(request, response, obj, JsonHandler.getGsonPrettyPrinting());
 		} else
 		{
-			printResponse(response, JsonHandler.getGson().toJson(obj));
+			CompressingResponseWriter.getDefault().writeJson(request, response, obj, JsonHandler.getGson());
 		}
 	}
 
@@ -227,18 +231,27 @@ public class Servlets
 		printResponse(httpServletResponse, data);
 	}
 
+	/**
+	 * @deprecated on v2.0.0, ranges and conditional requests need the request, please use
+	 * {@link FileResponseWriter#write(HttpServletRequest, HttpServletResponse, java.nio.file.Path, String, String)}
+	 */
+	@Deprecated
 	static public void printFile(HttpServletResponse httpServletResponse, File file, String mimeType) throws IOException
 	{
 		httpServletResponse.setContentType(mimeType);
-		System.out.println("printFile() - mimeType: [" + mimeType + "]");
+		httpServletResponse.setContentLengthLong(file.length());
 
 		try (FileInputStream fileInputStream = new FileInputStream(file);
-			 OutputStream outputStream = new BufferedOutputStream(httpServletResponse.getOutputStream()))
+			 OutputStream outputStream = httpServletResponse.getOutputStream())
 		{
-			Files.copyBytes(fileInputStream, outputStream);
+			FileUtils.copyBytes(FileResponseWriter.DEFAULT_BUFFER_SIZE, fileInputStream, outputStream);
 		}
 	}
 
+	/**
+	 * @deprecated on v2.0.0, please use {@link FileResponseWriter#write(HttpServletRequest, HttpServletResponse, java.nio.file.Path)}
+	 */
+	@Deprecated
 	static public void printFile(HttpServletResponse httpServletResponse, File file) throws IOException
 	{
 		printFile(httpServletResponse, file, Files.getDefaultMimeType(file));
@@ -249,29 +262,29 @@ public class Servlets
 		printFile(httpServletResponse, imageFile, ContentType.IMAGE_JPG);
 	}
 
+	/**
+	 * @deprecated on v2.0.0, please use {@link FileResponseWriter#download(HttpServletRequest, HttpServletResponse, java.nio.file.Path, String)}
+	 */
+	@Deprecated
 	static public void downloadFile(HttpServletResponse httpServletResponse, File file, boolean renameWithTimeStamp) throws IOException
 	{
 		String filename = file.getName();
 		String mimeType = Files.getDefaultMimeType(file);
 
-		System.out.println("Servlets.downloadFile() - mimeType: [" + mimeType + "], filename: [" + filename + "]");
-
 		if (renameWithTimeStamp)
 		{
 			String ext = JUtilities.getExtensionWithDot(filename);
 			filename = filename.replace(ext, "_" + System.currentTimeMillis() + ext);
 		}
 
-		System.out.println("skr.web.Servlets.downloadFile()");
-
 		httpServletResponse.setContentType(mimeType);
-		httpServletResponse.setHeader("Content-Disposition", "attachment; filename=\"" + filename + "\"");
+		httpServletResponse.setHeader(HttpUtils.Header.CONTENT_DISPOSITION, FileResponseWriter.getContentDisposition("attachment", filename));
 		httpServletResponse.setContentLengthLong(file.length());
 
 		try (OutputStream outputStream = httpServletResponse.getOutputStream();
 			 FileInputStream fileInputStream = new FileInputStream(file))
 		{
-			Files.copyBytes(fileInputStream, outputStream);
+			FileUtils.copyBytes(FileResponseWriter.DEFAULT_BUFFER_SIZE, fileInputStream, outputStream);
 		}
 	}
 
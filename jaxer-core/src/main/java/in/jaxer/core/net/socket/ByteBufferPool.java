@@ -0,0 +1,78 @@
+package in.jaxer.core.net.socket;
+
+import in.jaxer.core.utilities.JValidator;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of direct buffers of one size, direct buffers are costly to allocate and are freed only by the garbage collector
+ * <br>
+ * Buffers are allocated on demand, at most <code>maxPooled</code> of them are kept for reuse once released.
+ * Thread-safe.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class ByteBufferPool
+{
+	@Getter
+	private final int bufferSize;
+
+	@Getter
+	private final int maxPooled;
+
+	private final Queue<ByteBuffer> bufferQueue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pooled = new AtomicInteger();
+
+	public ByteBufferPool(int bufferSize, int maxPooled)
+	{
+		JValidator.throwWhenTrue(bufferSize < 1, "bufferSize must be greater than zero");
+		JValidator.throwWhenTrue(maxPooled < 0, "maxPooled cannot be negative");
+
+		this.bufferSize = bufferSize;
+		this.maxPooled = maxPooled;
+	}
+
+	/**
+	 * @return cleared buffer of {@link #getBufferSize()} bytes
+	 */
+	public ByteBuffer acquire()
+	{
+		ByteBuffer byteBuffer = bufferQueue.poll();
+		if (byteBuffer == null)
+		{
+			return ByteBuffer.allocateDirect(bufferSize);
+		}
+
+		pooled.decrementAndGet();
+		byteBuffer.clear();
+		return byteBuffer;
+	}
+
+	/**
+	 * Hands the buffer back, it must not be used afterwards
+	 */
+	public void release(ByteBuffer byteBuffer)
+	{
+		if (byteBuffer == null || !byteBuffer.isDirect() || byteBuffer.capacity() != bufferSize)
+		{
+			return;
+		}
+
+		if (pooled.incrementAndGet() > maxPooled)
+		{
+			pooled.decrementAndGet();
+			return;
+		}
+		bufferQueue.offer(byteBuffer);
+	}
+
+	public int getPooledCount()
+	{
+		return pooled.get();
+	}
+}
@@ -11,7 +11,9 @@ import java.net.Socket;
 
 /**
  * @author Shakir Ansari
+ * @deprecated on v2.0.0, speaks to the deprecated {@link Server} only, please use {@link FrameClient} with {@link NioServer}
  */
+@Deprecated
 @Log4j2
 public class Client implements AutoCloseable
 {
@@ -0,0 +1,93 @@
+package in.jaxer.core.net.socket;
+
+import lombok.Getter;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client connected to a {@link NioServer}
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class Connection
+{
+	private static final AtomicLong SEQUENCE = new AtomicLong();
+
+	@Getter
+	private final long id = SEQUENCE.incrementAndGet();
+
+	@Getter
+	private final SocketAddress remoteAddress;
+
+	private final NioServer nioServer;
+
+	final SocketChannel socketChannel;
+	final FrameCodec frameCodec;
+
+	// frames waiting to be written, encoded and written by the selector thread only
+	final Queue<Frame> writeQueue = new ConcurrentLinkedQueue<>();
+	final AtomicInteger writeQueueSize = new AtomicInteger();
+	final AtomicBoolean flushScheduled = new AtomicBoolean();
+	ByteBuffer writeBuffer;
+	Frame pendingFrame;
+	int pendingOffset;
+
+	// callbacks run one at a time on the worker executor
+	final Queue<Runnable> callbackQueue = new ConcurrentLinkedQueue<>();
+	final AtomicInteger callbackCount = new AtomicInteger();
+	final AtomicBoolean draining = new AtomicBoolean();
+
+	SelectionKey selectionKey;
+	volatile long lastActivityNanos = System.nanoTime();
+	volatile boolean closed;
+	volatile boolean closing;
+	volatile boolean readPaused;
+	volatile boolean writePaused;
+
+	Connection(NioServer nioServer, SocketChannel socketChannel, SocketAddress remoteAddress, int maxFrameLength)
+	{
+		this.nioServer = nioServer;
+		this.socketChannel = socketChannel;
+		this.remoteAddress = remoteAddress;
+		this.frameCodec = new FrameCodec(maxFrameLength);
+	}
+
+	/**
+	 * Pushes a one-way frame to the client, returns without waiting for it to be written
+	 *
+	 * @return false when the frame is dropped, the connection is closed or the client is not reading
+	 * and {@link NioServer#getMaxQueuedWrites()} frames are already waiting to be written
+	 */
+	public boolean send(byte[] payload)
+	{
+		return nioServer.push(this, new Frame(0, payload));
+	}
+
+	/**
+	 * Closes the connection once the frames already sent are written
+	 */
+	public void close()
+	{
+		nioServer.closeGracefully(this);
+	}
+
+	public boolean isOpen()
+	{
+		return !closed;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "Connection{id=" + id + ", remoteAddress=" + remoteAddress + "}";
+	}
+}
@@ -0,0 +1,39 @@
+package in.jaxer.core.net.socket;
+
+import lombok.Getter;
+
+/**
+ * Message exchanged between {@link NioServer} and {@link FrameClient}
+ * <ul>
+ *     <li>id 0: one-way message, no response is sent back</li>
+ *     <li>positive id: request, the response carries the same id</li>
+ *     <li>negative id: failure of the request with the positive id, the payload is the UTF-8 error message</li>
+ * </ul>
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class Frame
+{
+	@Getter
+	private final int id;
+
+	@Getter
+	private final byte[] payload;
+
+	public Frame(int id, byte[] payload)
+	{
+		this.id = id;
+		this.payload = payload == null ? new byte[0] : payload;
+	}
+
+	public boolean isOneWay()
+	{
+		return id == 0;
+	}
+
+	public boolean isError()
+	{
+		return id < 0;
+	}
+}
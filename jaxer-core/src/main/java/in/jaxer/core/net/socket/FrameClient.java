@@ -0,0 +1,277 @@
+package in.jaxer.core.net.socket;
+
+import in.jaxer.core.ExecutorUtils;
+import in.jaxer.core.utilities.JUtilities;
+import in.jaxer.core.utilities.JValidator;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Client of a {@link NioServer}
+ * <pre>
+ * try (FrameClient frameClient = new FrameClient())
+ * {
+ *     frameClient.setHost("localhost");
+ *     frameClient.setPort("9090");
+ *     frameClient.start();
+ *
+ *     byte[] response = frameClient.request(payload).get(5, TimeUnit.SECONDS);
+ * }
+ * </pre>
+ * Requests are pipelined: {@link #request(byte[])} writes the request and returns at once,
+ * any number of requests can be in flight on the connection, each response completes the future of its request.
+ * One-way messages pushed by the server are read with {@link #readMessage()}.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Log4j2
+public class FrameClient implements AutoCloseable
+{
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	// marks the end of the pushed messages once the connection is closed
+	private static final Frame END_OF_STREAM = new Frame(0, null);
+
+	private DataInputStream dataInputStream;
+	private DataOutputStream dataOutputStream;
+	private Socket socket;
+	private String port;
+	private String host;
+	private int connectTimeoutMillis;
+	private int maxFrameLength = FrameCodec.DEFAULT_MAX_FRAME_LENGTH;
+
+	private final AtomicInteger sequence = new AtomicInteger();
+	private final Map<Integer, CompletableFuture<byte[]>> pendingMap = new ConcurrentHashMap<>();
+	private final BlockingQueue<Frame> messageQueue = new LinkedBlockingQueue<>();
+	private volatile IOException failure;
+
+	public Socket getSocket()
+	{
+		return socket;
+	}
+
+	public String getPort()
+	{
+		return port;
+	}
+
+	public void setPort(String port)
+	{
+		this.port = port;
+	}
+
+	public String getHost()
+	{
+		return host;
+	}
+
+	public void setHost(String host)
+	{
+		this.host = host;
+	}
+
+	public int getConnectTimeoutMillis()
+	{
+		return connectTimeoutMillis;
+	}
+
+	public void setConnectTimeoutMillis(int connectTimeoutMillis)
+	{
+		this.connectTimeoutMillis = connectTimeoutMillis;
+	}
+
+	public int getMaxFrameLength()
+	{
+		return maxFrameLength;
+	}
+
+	public void setMaxFrameLength(int maxFrameLength)
+	{
+		this.maxFrameLength = maxFrameLength;
+	}
+
+	private void close(Closeable closeable)
+	{
+		JUtilities.close(closeable);
+	}
+
+	public void start() throws IOException
+	{
+		log.info("CLIENT starting at port: {}", this::getPort);
+
+		this.socket = new Socket();
+		this.socket.setTcpNoDelay(true);
+		this.socket.connect(new InetSocketAddress(this.host, Integer.parseInt(port)), connectTimeoutMillis);
+		this.dataInputStream = new DataInputStream(new BufferedInputStream(this.socket.getInputStream(), BUFFER_SIZE));
+		this.dataOutputStream = new DataOutputStream(new BufferedOutputStream(this.socket.getOutputStream(), BUFFER_SIZE));
+
+		ExecutorUtils.newThreadFactory("jaxer-frame-client-" + port, true).newThread(this::readFrames).start();
+
+		log.info("CLIENT started at port: {}", this::getPort);
+	}
+
+	public void stop()
+	{
+		log.info("CLIENT stopping at port: {}", this::getPort);
+
+		this.close(this.dataInputStream);
+		this.close(this.dataOutputStream);
+		this.close(this.socket);
+
+		log.info("CLIENT stopped at port: {}", this::getPort);
+	}
+
+	/**
+	 * Sends a request without waiting for the responses of the requests sent before it
+	 *
+	 * @return completed with the response payload, or exceptionally with an {@link IOException}
+	 * when the server failed the request or the connection was lost
+	 */
+	public CompletableFuture<byte[]> request(byte[] payload)
+	{
+		JValidator.throwWhenNull(payload, "payload cannot be null");
+
+		int id = sequence.updateAndGet(current -> current == Integer.MAX_VALUE ? 1 : current + 1);
+		CompletableFuture<byte[]> future = new CompletableFuture<>();
+		pendingMap.put(id, future);
+
+		try
+		{
+			write(new Frame(id, payload));
+		} catch (IOException exception)
+		{
+			pendingMap.remove(id);
+			future.completeExceptionally(exception);
+		}
+		return future;
+	}
+
+	/**
+	 * Sends a one-way message, the server sends no response
+	 */
+	public void sendMessage(String msg) throws IOException
+	{
+		log.debug("Sending msg: {}", msg);
+
+		write(new Frame(0, msg.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Waits for the next one-way message pushed by the server
+	 *
+	 * @throws EOFException once the connection is closed
+	 */
+	public String readMessage() throws IOException
+	{
+		try
+		{
+			Frame frame = messageQueue.take();
+			if (frame == END_OF_STREAM)
+			{
+				messageQueue.add(END_OF_STREAM);
+				throw failure != null ? failure : new EOFException("Connection closed");
+			}
+			return new String(frame.getPayload(), StandardCharsets.UTF_8);
+		} catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for a message", exception);
+		}
+	}
+
+	/**
+	 * @return number of requests waiting for their response
+	 */
+	public int getPendingCount()
+	{
+		return pendingMap.size();
+	}
+
+	@Override
+	public void close() throws Exception
+	{
+		stop();
+	}
+
+	private void write(Frame frame) throws IOException
+	{
+		JValidator.throwWhenNull(dataOutputStream, () -> new IllegalStateException("Client is not started"));
+
+		IOException currentFailure = failure;
+		if (currentFailure != null)
+		{
+			throw currentFailure;
+		}
+
+		synchronized (dataOutputStream)
+		{
+			FrameCodec.write(frame, dataOutputStream);
+			dataOutputStream.flush();
+		}
+	}
+
+	private void readFrames()
+	{
+		try
+		{
+			while (true)
+			{
+				Frame frame = FrameCodec.read(dataInputStream, maxFrameLength);
+				if (frame.isOneWay())
+				{
+					messageQueue.add(frame);
+					continue;
+				}
+
+				CompletableFuture<byte[]> future = pendingMap.remove(Math.abs(frame.getId()));
+				if (future == null)
+				{
+					log.debug("Response {} matches no pending request", frame.getId());
+				} else if (frame.isError())
+				{
+					future.completeExceptionally(new IOException(new String(frame.getPayload(), StandardCharsets.UTF_8)));
+				} else
+				{
+					future.complete(frame.getPayload());
+				}
+			}
+		} catch (IOException exception)
+		{
+			failure = exception instanceof EOFException ? new EOFException("Connection closed") : exception;
+			log.debug("CLIENT connection ended at port: {}", port, exception);
+		} finally
+		{
+			if (failure == null)
+			{
+				failure = new EOFException("Connection closed");
+			}
+
+			for (Integer id : pendingMap.keySet())
+			{
+				CompletableFuture<byte[]> future = pendingMap.remove(id);
+				if (future != null)
+				{
+					future.completeExceptionally(failure);
+				}
+			}
+			messageQueue.add(END_OF_STREAM);
+		}
+	}
+}
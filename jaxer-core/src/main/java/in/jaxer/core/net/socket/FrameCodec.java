@@ -0,0 +1,178 @@
+package in.jaxer.core.net.socket;
+
+import in.jaxer.core.utilities.JValidator;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Length-prefixed binary framing, every frame is
+ * <pre>
+ * | payload length: int32 | id: int32 | payload |
+ * </pre>
+ * both integers big-endian. A decoder instance keeps the frame read so far, so bytes can be fed as they arrive
+ * and a frame may span any number of reads.
+ * <br>
+ * The payload buffer grows as the bytes arrive, a peer announcing a large frame gets no memory for it
+ * before actually sending it.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public class FrameCodec
+{
+	public static final int HEADER_LENGTH = 8;
+	public static final int DEFAULT_MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+	private static final int INITIAL_PAYLOAD_CAPACITY = 8 * 1024;
+
+	private final int maxFrameLength;
+	private final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+
+	private int frameId;
+	private byte[] payload;
+	private int payloadLength;
+	private int payloadOffset;
+
+	public FrameCodec()
+	{
+		this(DEFAULT_MAX_FRAME_LENGTH);
+	}
+
+	public FrameCodec(int maxFrameLength)
+	{
+		JValidator.throwWhenTrue(maxFrameLength < 0, "maxFrameLength cannot be negative");
+		this.maxFrameLength = maxFrameLength;
+	}
+
+	/**
+	 * Consumes every byte remaining in the source, adding the frames completed by them to the list
+	 *
+	 * @throws ProtocolException when a frame is longer than the maximum frame length
+	 */
+	public void decode(ByteBuffer source, List<Frame> frameList) throws ProtocolException
+	{
+		while (source.hasRemaining())
+		{
+			if (payload == null)
+			{
+				while (header.hasRemaining() && source.hasRemaining())
+				{
+					header.put(source.get());
+				}
+
+				if (header.hasRemaining())
+				{
+					return;
+				}
+
+				header.flip();
+				int length = header.getInt();
+				frameId = header.getInt();
+				header.clear();
+
+				checkLength(length, maxFrameLength);
+				payload = new byte[Math.min(length, INITIAL_PAYLOAD_CAPACITY)];
+				payloadLength = length;
+				payloadOffset = 0;
+			}
+
+			int count = Math.min(source.remaining(), payloadLength - payloadOffset);
+			if (payloadOffset + count > payload.length)
+			{
+				payload = Arrays.copyOf(payload, (int) Math.min(payloadLength, Math.max(payload.length * 2L, payloadOffset + count)));
+			}
+			source.get(payload, payloadOffset, count);
+			payloadOffset += count;
+
+			if (payloadOffset == payloadLength)
+			{
+				frameList.add(new Frame(frameId, payload));
+				payload = null;
+			}
+		}
+	}
+
+	/**
+	 * @return true when part of a frame has been decoded and the rest has not arrived yet
+	 */
+	public boolean isPartial()
+	{
+		return payload != null || header.position() > 0;
+	}
+
+	/**
+	 * Encodes the frame into the target when it fits
+	 *
+	 * @return false when the target has not enough room left, nothing is written then
+	 */
+	public static boolean encode(Frame frame, ByteBuffer target)
+	{
+		if (target.remaining() < HEADER_LENGTH + frame.getPayload().length)
+		{
+			return false;
+		}
+
+		target.putInt(frame.getPayload().length);
+		target.putInt(frame.getId());
+		target.put(frame.getPayload());
+		return true;
+	}
+
+	public static ByteBuffer encode(Frame frame)
+	{
+		ByteBuffer byteBuffer = ByteBuffer.allocate(HEADER_LENGTH + frame.getPayload().length);
+		encode(frame, byteBuffer);
+		byteBuffer.flip();
+		return byteBuffer;
+	}
+
+	public static void write(Frame frame, DataOutputStream dataOutputStream) throws IOException
+	{
+		dataOutputStream.writeInt(frame.getPayload().length);
+		dataOutputStream.writeInt(frame.getId());
+		dataOutputStream.write(frame.getPayload());
+	}
+
+	/**
+	 * Reads one frame, blocking until it fully arrived
+	 */
+	public static Frame read(DataInputStream dataInputStream, int maxFrameLength) throws IOException
+	{
+		int length = dataInputStream.readInt();
+		int id = dataInputStream.readInt();
+		checkLength(length, maxFrameLength);
+
+		byte[] payload = new byte[Math.min(length, INITIAL_PAYLOAD_CAPACITY)];
+		int offset = 0;
+		while (offset < length)
+		{
+			if (offset == payload.length)
+			{
+				payload = Arrays.copyOf(payload, (int) Math.min(length, payload.length * 2L));
+			}
+
+			int read = dataInputStream.read(payload, offset, payload.length - offset);
+			if (read == -1)
+			{
+				throw new EOFException("Frame ended at byte " + offset + " of " + length);
+			}
+			offset += read;
+		}
+		return new Frame(id, payload);
+	}
+
+	private static void checkLength(int length, int maxFrameLength) throws ProtocolException
+	{
+		if (length < 0 || length > maxFrameLength)
+		{
+			throw new ProtocolException("Frame length " + length + " exceeds the maximum of " + maxFrameLength + " bytes");
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package in.jaxer.core.net.socket;
+
+/**
+ * Application side of a {@link NioServer}
+ * <br>
+ * Callbacks run on the worker executor of the server, never on its selector thread, so they may block.
+ * Callbacks of one connection run one at a time and in the order the frames arrived,
+ * callbacks of different connections run concurrently.
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+public interface FrameHandler
+{
+	default void onOpen(Connection connection)
+	{
+	}
+
+	/**
+	 * @return response payload, ignored for one-way frames. A request answered with null gets an empty response.
+	 * @throws Exception the message of the exception is sent back as the failure of the request
+	 */
+	byte[] onFrame(Connection connection, byte[] payload) throws Exception;
+
+	/**
+	 * @param cause null when closed by either side, otherwise the failure or the idle timeout that closed it
+	 */
+	default void onClose(Connection connection, Throwable cause)
+	{
+	}
+}
@@ -0,0 +1,645 @@
+package in.jaxer.core.net.socket;
+
+import in.jaxer.core.ExecutorUtils;
+import in.jaxer.core.utilities.JValidator;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking server for any number of concurrent clients, speaking the framing of {@link FrameCodec}
+ * <pre>
+ * NioServer nioServer = NioServer.builder()
+ *     .withPort(9090)
+ *     .withFrameHandler((connection, payload) -&gt; telemetryService.save(payload))
+ *     .build();
+ * nioServer.start();
+ * </pre>
+ * <ul>
+ *     <li>one selector thread accepts, reads and writes every connection, frames are handed to the
+ *     {@link FrameHandler} on the worker executor</li>
+ *     <li>reads go through one pooled direct buffer, outgoing frames are packed into a pooled direct buffer
+ *     held only while the connection has frames to write</li>
+ *     <li>a connection with too many frames waiting for the handler is not read from until they are processed</li>
+ *     <li>a connection with too many frames waiting to be written, a client not reading its responses,
+ *     is not read from until it catches up, pushes beyond that limit are dropped</li>
+ *     <li>connections without any traffic for the idle timeout are closed</li>
+ * </ul>
+ *
+ * @author Shakir
+ * @since 2.0.0
+ */
+@Log4j2
+public class NioServer implements AutoCloseable
+{
+	public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 5 * 60 * 1000L;
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	public static final int DEFAULT_MAX_POOLED_BUFFERS = 1024;
+	public static final int DEFAULT_MAX_QUEUED_FRAMES = 1024;
+	public static final int DEFAULT_MAX_QUEUED_WRITES = 1024;
+
+	private static final long SELECT_TIMEOUT_MILLIS = 1000;
+
+	@Getter
+	private final String host;
+
+	private final int port;
+
+	@Getter
+	private final FrameHandler frameHandler;
+
+	@Getter
+	private final long idleTimeoutMillis;
+
+	@Getter
+	private final int maxFrameLength;
+
+	@Getter
+	private final int maxQueuedFrames;
+
+	/**
+	 * Frames waiting to be written to one connection before it stops being read
+	 */
+	@Getter
+	private final int maxQueuedWrites;
+
+	@Getter
+	private final ByteBufferPool byteBufferPool;
+
+	private final ExecutorService executorService;
+	private final boolean ownExecutorService;
+
+	private final Queue<Runnable> selectorTaskQueue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger connectionCount = new AtomicInteger();
+
+	private Selector selector;
+	private ServerSocketChannel serverSocketChannel;
+	private Thread selectorThread;
+	private volatile boolean running;
+
+	@Builder(setterPrefix = "with")
+	private NioServer(String host, Integer port, FrameHandler frameHandler, ExecutorService executorService, Long idleTimeoutMillis,
+					  Integer maxFrameLength, Integer bufferSize, Integer maxPooledBuffers, Integer maxQueuedFrames, Integer maxQueuedWrites)
+	{
+		JValidator.throwWhenNull(port, "port cannot be null");
+		JValidator.throwWhenNull(frameHandler, "frameHandler cannot be null");
+		JValidator.throwWhenTrue(bufferSize != null && bufferSize < FrameCodec.HEADER_LENGTH, "bufferSize must be at least " + FrameCodec.HEADER_LENGTH);
+		JValidator.throwWhenTrue(maxQueuedWrites != null && maxQueuedWrites < 1, "maxQueuedWrites must be greater than zero");
+
+		this.host = host;
+		this.port = port;
+		this.frameHandler = frameHandler;
+		this.idleTimeoutMillis = idleTimeoutMillis == null ? DEFAULT_IDLE_TIMEOUT_MILLIS : idleTimeoutMillis;
+		this.maxFrameLength = maxFrameLength == null ? FrameCodec.DEFAULT_MAX_FRAME_LENGTH : maxFrameLength;
+		this.maxQueuedFrames = maxQueuedFrames == null ? DEFAULT_MAX_QUEUED_FRAMES : maxQueuedFrames;
+		this.maxQueuedWrites = maxQueuedWrites == null ? DEFAULT_MAX_QUEUED_WRITES : maxQueuedWrites;
+		this.byteBufferPool = new ByteBufferPool(bufferSize == null ? DEFAULT_BUFFER_SIZE : bufferSize,
+				maxPooledBuffers == null ? DEFAULT_MAX_POOLED_BUFFERS : maxPooledBuffers);
+
+		this.ownExecutorService = executorService == null;
+		this.executorService = executorService == null
+				? ExecutorUtils.newVirtualThreadExecutor("jaxer-socket", Runtime.getRuntime().availableProcessors() * 2)
+				: executorService;
+	}
+
+	/**
+	 * Binds the port and starts serving, returns immediately
+	 */
+	public synchronized void start() throws IOException
+	{
+		JValidator.throwWhenTrue(running, () -> new IllegalStateException("Server is already running"));
+
+		selector = Selector.open();
+		serverSocketChannel = ServerSocketChannel.open();
+		serverSocketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+		serverSocketChannel.bind(host == null ? new InetSocketAddress(port) : new InetSocketAddress(host, port), 1024);
+		serverSocketChannel.configureBlocking(false);
+		serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+		running = true;
+		selectorThread = ExecutorUtils.newThreadFactory("jaxer-socket-selector-" + getPort(), false).newThread(this::runSelector);
+		selectorThread.start();
+
+		log.info("SERVER started at port: {}", this::getPort);
+	}
+
+	/**
+	 * Closes every connection and stops serving, waits for the selector thread to finish
+	 */
+	public synchronized void stop()
+	{
+		if (!running)
+		{
+			return;
+		}
+
+		log.info("SERVER stopping at port: {}", this::getPort);
+		running = false;
+		selector.wakeup();
+
+		try
+		{
+			selectorThread.join(TimeUnit.SECONDS.toMillis(10));
+		} catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+		}
+
+		if (ownExecutorService)
+		{
+			executorService.shutdown();
+		}
+		log.info("SERVER stopped at port: {}", this::getPort);
+	}
+
+	@Override
+	public void close()
+	{
+		stop();
+	}
+
+	public boolean isRunning()
+	{
+		return running;
+	}
+
+	/**
+	 * @return port bound, the ephemeral port chosen by the system when built with port 0
+	 */
+	public int getPort()
+	{
+		ServerSocketChannel channel = serverSocketChannel;
+		return channel != null && channel.socket().isBound() ? channel.socket().getLocalPort() : port;
+	}
+
+	public int getConnectionCount()
+	{
+		return connectionCount.get();
+	}
+
+	/**
+	 * Queues a frame pushed by the application, dropped when the write queue is full
+	 */
+	boolean push(Connection connection, Frame frame)
+	{
+		if (connection.writeQueueSize.get() >= maxQueuedWrites)
+		{
+			return false;
+		}
+		return send(connection, frame);
+	}
+
+	/**
+	 * Queues a response, responses are never dropped, their number is bounded by pausing the read of the requests
+	 */
+	private boolean send(Connection connection, Frame frame)
+	{
+		if (connection.closed || connection.closing)
+		{
+			return false;
+		}
+
+		connection.writeQueue.add(frame);
+		if (connection.writeQueueSize.incrementAndGet() >= maxQueuedWrites && !connection.writePaused)
+		{
+			// the client is not reading, stops reading its requests until the queue drains
+			connection.writePaused = true;
+		}
+		scheduleFlush(connection);
+		return true;
+	}
+
+	void closeGracefully(Connection connection)
+	{
+		connection.closing = true;
+		scheduleFlush(connection);
+	}
+
+	private void scheduleFlush(Connection connection)
+	{
+		if (connection.flushScheduled.compareAndSet(false, true))
+		{
+			runOnSelector(() ->
+			{
+				connection.flushScheduled.set(false);
+				flush(connection);
+			});
+		}
+	}
+
+	private void runOnSelector(Runnable runnable)
+	{
+		selectorTaskQueue.add(runnable);
+		selector.wakeup();
+	}
+
+	private void runSelector()
+	{
+		ByteBuffer readBuffer = byteBufferPool.acquire();
+		List<Frame> frameList = new ArrayList<>();
+		long lastCheck = System.nanoTime();
+
+		try
+		{
+			while (running)
+			{
+				try
+				{
+					selector.select(SELECT_TIMEOUT_MILLIS);
+				} catch (IOException exception)
+				{
+					log.error("Select failed at port: {}", getPort(), exception);
+					continue;
+				}
+
+				Runnable task;
+				while ((task = selectorTaskQueue.poll()) != null)
+				{
+					task.run();
+				}
+
+				Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+				while (iterator.hasNext())
+				{
+					SelectionKey selectionKey = iterator.next();
+					iterator.remove();
+
+					if (selectionKey.isValid() && selectionKey.isAcceptable())
+					{
+						accept();
+						continue;
+					}
+
+					Connection connection = (Connection) selectionKey.attachment();
+					try
+					{
+						if (selectionKey.isValid() && selectionKey.isReadable())
+						{
+							read(connection, readBuffer, frameList);
+						}
+						if (selectionKey.isValid() && selectionKey.isWritable())
+						{
+							flush(connection);
+						}
+					} catch (IOException | RuntimeException exception)
+					{
+						close(connection, exception);
+					}
+				}
+
+				if (System.nanoTime() - lastCheck >= TimeUnit.MILLISECONDS.toNanos(SELECT_TIMEOUT_MILLIS))
+				{
+					lastCheck = System.nanoTime();
+					checkConnections();
+				}
+			}
+		} finally
+		{
+			shutdown();
+			byteBufferPool.release(readBuffer);
+		}
+	}
+
+	private void accept()
+	{
+		while (true)
+		{
+			SocketChannel socketChannel = null;
+			try
+			{
+				socketChannel = serverSocketChannel.accept();
+				if (socketChannel == null)
+				{
+					return;
+				}
+
+				socketChannel.configureBlocking(false);
+				socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+				Connection connection = new Connection(this, socketChannel, socketChannel.getRemoteAddress(), maxFrameLength);
+				connection.selectionKey = socketChannel.register(selector, SelectionKey.OP_READ, connection);
+				connectionCount.incrementAndGet();
+
+				execute(connection, () -> frameHandler.onOpen(connection));
+			} catch (IOException exception)
+			{
+				log.warn("Unable to accept connection at port: {}", getPort(), exception);
+				closeQuietly(socketChannel);
+				return;
+			}
+		}
+	}
+
+	private void read(Connection connection, ByteBuffer readBuffer, List<Frame> frameList) throws IOException
+	{
+		readBuffer.clear();
+		int read = connection.socketChannel.read(readBuffer);
+		if (read == -1)
+		{
+			close(connection, null);
+			return;
+		}
+
+		connection.lastActivityNanos = System.nanoTime();
+		readBuffer.flip();
+
+		frameList.clear();
+		connection.frameCodec.decode(readBuffer, frameList);
+		for (Frame frame : frameList)
+		{
+			execute(connection, () -> handleFrame(connection, frame));
+		}
+
+		if (connection.callbackCount.get() >= maxQueuedFrames && !connection.readPaused)
+		{
+			connection.readPaused = true;
+			updateInterest(connection);
+		}
+	}
+
+	private void handleFrame(Connection connection, Frame frame)
+	{
+		if (frame.isError())
+		{
+			log.debug("Ignoring error frame {} from {}", frame.getId(), connection);
+			return;
+		}
+
+		try
+		{
+			byte[] response = frameHandler.onFrame(connection, frame.getPayload());
+			if (!frame.isOneWay())
+			{
+				send(connection, new Frame(frame.getId(), response));
+			}
+		} catch (Exception exception)
+		{
+			log.debug("Frame {} of {} failed", frame.getId(), connection, exception);
+			if (!frame.isOneWay())
+			{
+				String message = exception.getMessage() == null ? exception.getClass().getName() : exception.getMessage();
+				send(connection, new Frame(-frame.getId(), message.getBytes(StandardCharsets.UTF_8)));
+			}
+		}
+	}
+
+	private void flush(Connection connection)
+	{
+		if (connection.closed)
+		{
+			return;
+		}
+
+		try
+		{
+			while (true)
+			{
+				if (connection.writeBuffer == null || !connection.writeBuffer.hasRemaining())
+				{
+					// queued frames are packed together, small responses go out in one write
+					ByteBuffer byteBuffer = connection.writeBuffer == null ? byteBufferPool.acquire() : connection.writeBuffer;
+					byteBuffer.clear();
+					fill(connection, byteBuffer);
+					byteBuffer.flip();
+
+					if (!byteBuffer.hasRemaining())
+					{
+						byteBufferPool.release(byteBuffer);
+						connection.writeBuffer = null;
+						break;
+					}
+					connection.writeBuffer = byteBuffer;
+				}
+
+				connection.socketChannel.write(connection.writeBuffer);
+				connection.lastActivityNanos = System.nanoTime();
+				if (connection.writeBuffer.hasRemaining())
+				{
+					// socket buffer is full, continues once writable
+					break;
+				}
+			}
+
+			if (connection.closing && connection.writeBuffer == null)
+			{
+				close(connection, null);
+				return;
+			}
+			updateInterest(connection);
+		} catch (IOException exception)
+		{
+			close(connection, exception);
+		}
+	}
+
+	/**
+	 * Encodes queued frames into the buffer until it is full, a frame larger than the buffer is encoded over several calls
+	 */
+	private void fill(Connection connection, ByteBuffer byteBuffer)
+	{
+		while (byteBuffer.hasRemaining())
+		{
+			if (connection.pendingFrame == null)
+			{
+				if (byteBuffer.remaining() < FrameCodec.HEADER_LENGTH || connection.writeQueue.isEmpty())
+				{
+					return;
+				}
+
+				connection.pendingFrame = connection.writeQueue.poll();
+				if (connection.writeQueueSize.decrementAndGet() <= maxQueuedWrites / 2)
+				{
+					connection.writePaused = false;
+				}
+				byteBuffer.putInt(connection.pendingFrame.getPayload().length);
+				byteBuffer.putInt(connection.pendingFrame.getId());
+				connection.pendingOffset = 0;
+			}
+
+			byte[] payload = connection.pendingFrame.getPayload();
+			int count = Math.min(byteBuffer.remaining(), payload.length - connection.pendingOffset);
+			byteBuffer.put(payload, connection.pendingOffset, count);
+			connection.pendingOffset += count;
+
+			if (connection.pendingOffset == payload.length)
+			{
+				connection.pendingFrame = null;
+			}
+		}
+	}
+
+	private void updateInterest(Connection connection)
+	{
+		if (!connection.selectionKey.isValid())
+		{
+			return;
+		}
+
+		int interestOps = (connection.readPaused || connection.writePaused ? 0 : SelectionKey.OP_READ)
+				| (connection.writeBuffer == null ? 0 : SelectionKey.OP_WRITE);
+		connection.selectionKey.interestOps(interestOps);
+	}
+
+	private void checkConnections()
+	{
+		long idleNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+		long now = System.nanoTime();
+
+		for (SelectionKey selectionKey : new ArrayList<>(selector.keys()))
+		{
+			if (!(selectionKey.attachment() instanceof Connection))
+			{
+				continue;
+			}
+
+			Connection connection = (Connection) selectionKey.attachment();
+			if (connection.readPaused && connection.callbackCount.get() <= maxQueuedFrames / 2)
+			{
+				// the handler caught up while the read was being paused
+				connection.readPaused = false;
+				updateInterest(connection);
+			}
+
+			// a connection paused for the handler is busy, not idle
+			if (idleTimeoutMillis > 0 && !connection.readPaused && !connection.writePaused && now - connection.lastActivityNanos > idleNanos)
+			{
+				close(connection, new SocketTimeoutException("Idle for more than " + idleTimeoutMillis + " ms"));
+			}
+		}
+	}
+
+	/**
+	 * Must run on the selector thread
+	 */
+	private void close(Connection connection, Throwable cause)
+	{
+		if (connection.closed)
+		{
+			return;
+		}
+
+		connection.closed = true;
+		connection.selectionKey.cancel();
+		closeQuietly(connection.socketChannel);
+		connectionCount.decrementAndGet();
+
+		connection.writeQueue.clear();
+		connection.writeQueueSize.set(0);
+		connection.pendingFrame = null;
+		byteBufferPool.release(connection.writeBuffer);
+		connection.writeBuffer = null;
+
+		if (cause != null)
+		{
+			log.debug("Closing {}", connection, cause);
+		}
+		execute(connection, () -> frameHandler.onClose(connection, cause));
+	}
+
+	private void shutdown()
+	{
+		for (SelectionKey selectionKey : new ArrayList<>(selector.keys()))
+		{
+			if (selectionKey.attachment() instanceof Connection)
+			{
+				close((Connection) selectionKey.attachment(), null);
+			}
+		}
+
+		closeQuietly(serverSocketChannel);
+		closeQuietly(selector);
+	}
+
+	/**
+	 * Queues the callback behind the other callbacks of the connection
+	 */
+	private void execute(Connection connection, Runnable callback)
+	{
+		connection.callbackCount.incrementAndGet();
+		connection.callbackQueue.add(callback);
+		scheduleDrain(connection);
+	}
+
+	private void scheduleDrain(Connection connection)
+	{
+		if (!connection.draining.compareAndSet(false, true))
+		{
+			return;
+		}
+
+		try
+		{
+			executorService.execute(() -> drain(connection));
+		} catch (RejectedExecutionException exception)
+		{
+			connection.draining.set(false);
+			log.warn("Worker executor rejected callbacks of {}", connection);
+		}
+	}
+
+	private void drain(Connection connection)
+	{
+		Runnable callback;
+		while ((callback = connection.callbackQueue.poll()) != null)
+		{
+			try
+			{
+				callback.run();
+			} catch (RuntimeException exception)
+			{
+				log.error("Callback of {} failed", connection, exception);
+			}
+
+			if (connection.callbackCount.decrementAndGet() == maxQueuedFrames / 2 && connection.readPaused)
+			{
+				runOnSelector(() ->
+				{
+					connection.readPaused = false;
+					updateInterest(connection);
+				});
+			}
+		}
+
+		connection.draining.set(false);
+		if (!connection.callbackQueue.isEmpty())
+		{
+			scheduleDrain(connection);
+		}
+	}
+
+	private static void closeQuietly(AutoCloseable closeable)
+	{
+		if (closeable == null)
+		{
+			return;
+		}
+
+		try
+		{
+			closeable.close();
+		} catch (Exception exception)
+		{
+			log.debug("Unable to close {}", closeable, exception);
+		}
+	}
+}
@@ -12,7 +12,9 @@ import java.net.Socket;
 
 /**
  * @author Shakir Ansari
+ * @deprecated on v2.0.0, serves a single client, please use {@link NioServer}
  */
+@Deprecated
 @Log4j2
 public class Server implements AutoCloseable
 {
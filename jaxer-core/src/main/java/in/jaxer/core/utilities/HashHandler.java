@@ -92,7 +92,11 @@ public class HashHandler
 		}
 	}
 
-	private static String getFileChecksum(String encodeType, File file)
+	/**
+	 * @param encodeType digest algorithm, one of the algorithm names of {@link Constants}
+	 * @since 2.0.0
+	 */
+	public static String getFileChecksum(String encodeType, File file)
 	{
 		log.debug("encodeType: {}, file: {}", encodeType, file);
 
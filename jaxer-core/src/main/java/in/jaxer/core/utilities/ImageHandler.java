@@ -5,8 +5,10 @@ import lombok.extern.log4j.Log4j2;
 
 import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.ImageOutputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
@@ -15,7 +17,9 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Iterator;
 
 /**
  * @author Shakir Ansari
@@ -162,6 +166,43 @@ public class ImageHandler
 		resize(source, target, width, height);
 	}
 
+	/**
+	 * Reads width and height from the image header without decoding the pixels
+	 *
+	 * @return <code>null</code> when the format is not supported or the header is incomplete
+	 * @since 2.0.0
+	 */
+	public static Dimension readDimension(InputStream inputStream) throws IOException
+	{
+		try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream))
+		{
+			if (imageInputStream == null)
+			{
+				return null;
+			}
+
+			Iterator<ImageReader> imageReaders = ImageIO.getImageReaders(imageInputStream);
+			if (!imageReaders.hasNext())
+			{
+				return null;
+			}
+
+			ImageReader imageReader = imageReaders.next();
+			try
+			{
+				imageReader.setInput(imageInputStream, true, true);
+				return new Dimension(imageReader.getWidth(0), imageReader.getHeight(0));
+			} catch (IOException | IndexOutOfBoundsException exception)
+			{
+				log.debug("unable to read image header", exception);
+				return null;
+			} finally
+			{
+				imageReader.dispose();
+			}
+		}
+	}
+
 	private static String getNewName(File file, String postfix)
 	{
 		log.info("file: {}, postfix: {}", file, postfix);
@@ -4,7 +4,6 @@ import in.jaxer.core.HttpUtils;
 import in.jaxer.core.exceptions.JaxerCoreException;
 import lombok.extern.log4j.Log4j2;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
@@ -124,7 +123,7 @@ public class JUtilities
 		log.debug("inputStream: {}", inputStream);
 		try
 		{
-			return getImageDimension(ImageIO.read(inputStream));
+			return ImageHandler.readDimension(inputStream);
 		} catch (Exception e)
 		{
 			throw new JaxerCoreException(e);
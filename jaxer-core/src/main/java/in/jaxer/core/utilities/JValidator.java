@@ -5,6 +5,7 @@ import in.jaxer.core.ExceptionUtils;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Properties;
+import java.util.function.Supplier;
 
 /**
  * @author Shakir Ansari
@@ -367,6 +368,19 @@ public class JValidator
 		}
 	}
 
+	/**
+	 * Exception is created only when the validation fails
+	 *
+	 * @since 2.0.0
+	 */
+	public static void throwWhenBlank(String str, Supplier<? extends RuntimeException> exceptionSupplier)
+	{
+		if (JValidator.isBlank(str))
+		{
+			throw exceptionSupplier.get();
+		}
+	}
+
 	/**
 	 * @since 1.0.6-beta
 	 * @deprecated As of 1.0.9-beta, replaced by {@link #throwWhenBlank(Collection)}
@@ -439,6 +453,19 @@ public class JValidator
 		}
 	}
 
+	/**
+	 * Exception is created only when the validation fails
+	 *
+	 * @since 2.0.0
+	 */
+	public static void throwWhenBlank(Collection collection, Supplier<? extends RuntimeException> exceptionSupplier)
+	{
+		if (JValidator.isNullOrEmpty(collection))
+		{
+			throw exceptionSupplier.get();
+		}
+	}
+
 	/**
 	 * @since 1.0.9-beta
 	 */
@@ -472,6 +499,19 @@ public class JValidator
 		}
 	}
 
+	/**
+	 * Exception is created only when the validation fails
+	 *
+	 * @since 2.0.0
+	 */
+	public static void throwWhenBlank(Map map, Supplier<? extends RuntimeException> exceptionSupplier)
+	{
+		if (JValidator.isNullOrEmpty(map))
+		{
+			throw exceptionSupplier.get();
+		}
+	}
+
 	/**
 	 * @since 1.0.6-beta
 	 */
@@ -505,6 +545,19 @@ public class JValidator
 		}
 	}
 
+	/**
+	 * Exception is created only when the validation fails
+	 *
+	 * @since 2.0.0
+	 */
+	public static void throwWhenNull(Object object, Supplier<? extends RuntimeException> exceptionSupplier)
+	{
+		if (object == null)
+		{
+			throw exceptionSupplier.get();
+		}
+	}
+
 	/**
 	 * @since 1.0.9-beta
 	 */
@@ -538,6 +591,19 @@ public class JValidator
 		}
 	}
 
+	/**
+	 * Exception is created only when the validation fails
+	 *
+	 * @since 2.0.0
+	 */
+	public static void throwWhenTrue(boolean trueCondition, Supplier<? extends RuntimeException> exceptionSupplier)
+	{
+		if (trueCondition)
+		{
+			throw exceptionSupplier.get();
+		}
+	}
+
 	/**
 	 * @since 1.0.9-beta
 	 */
@@ -571,6 +637,19 @@ public class JValidator
 		}
 	}
 
+	/**
+	 * Exception is created only when the validation fails
+	 *
+	 * @since 2.0.0
+	 */
+	public static void throwWhenFalse(boolean trueCondition, Supplier<? extends RuntimeException> exceptionSupplier)
+	{
+		if (!trueCondition)
+		{
+			throw exceptionSupplier.get();
+		}
+	}
+
 	/**
 	 * @since 0.0.1
 	 */
@@ -18,18 +18,19 @@ import java.util.List;
 @Log4j2
 public class JsonHandler
 {
-	private static Gson gsonPretty;
+	// Gson is thread safe, building one walks the type adapter factories so both are shared
+	private static final Gson gsonPretty = new GsonBuilder().setPrettyPrinting().create();
 
-	private static Gson gson;
+	private static final Gson gson = new Gson();
 
 	public static Gson getGson()
 	{
-		return gson == null ? new Gson() : gson;
+		return gson;
 	}
 
 	public static Gson getGsonPrettyPrinting()
 	{
-		return gsonPretty == null ? new GsonBuilder().setPrettyPrinting().create() : gsonPretty;
+		return gsonPretty;
 	}
 
 	public static String getPrettyJson(String uglyJson)
@@ -0,0 +1,121 @@
+package in.jaxer.core.net;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+class AjaxerTest
+{
+	private final Map<String, String> responseHeaderMap = new HashMap<>();
+	private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+	private static HttpServletRequest request(String acceptEncoding)
+	{
+		return (HttpServletRequest) Proxy.newProxyInstance(AjaxerTest.class.getClassLoader(), new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) ->
+				method.getName().equals("getHeader") && "Accept-Encoding".equalsIgnoreCase((String) args[0]) ? acceptEncoding : null);
+	}
+
+	private HttpServletResponse response()
+	{
+		ServletOutputStream servletOutputStream = new ServletOutputStream()
+		{
+			@Override
+			public boolean isReady()
+			{
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener writeListener)
+			{
+			}
+
+			@Override
+			public void write(int b)
+			{
+				body.write(b);
+			}
+		};
+
+		return (HttpServletResponse) Proxy.newProxyInstance(AjaxerTest.class.getClassLoader(), new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> {
+			switch (method.getName())
+			{
+				case "setHeader":
+				case "addHeader":
+					responseHeaderMap.put((String) args[0], (String) args[1]);
+					return null;
+				case "setContentType":
+					responseHeaderMap.put("Content-Type", (String) args[0]);
+					return null;
+				case "setContentLength":
+					responseHeaderMap.put("Content-Length", String.valueOf(args[0]));
+					return null;
+				case "containsHeader":
+					return responseHeaderMap.containsKey((String) args[0]);
+				case "getOutputStream":
+					return servletOutputStream;
+				default:
+					return null;
+			}
+		});
+	}
+
+	private static List<Map<String, Object>> rows(int count)
+	{
+		List<Map<String, Object>> rowList = new ArrayList<>();
+		for (int i = 0; i < count; i++)
+		{
+			Map<String, Object> row = new HashMap<>();
+			row.put("userId", i);
+			row.put("userName", "user-" + i);
+			rowList.add(row);
+		}
+		return rowList;
+	}
+
+	@Test
+	void compressesWhenTheRequestAcceptsIt() throws IOException
+	{
+		Ajaxer.sendJsonOutput(request("gzip"), response(), rows(200));
+
+		Assertions.assertEquals("gzip", responseHeaderMap.get("Content-Encoding"));
+		Assertions.assertEquals("application/json", responseHeaderMap.get("Content-Type"));
+
+		ByteArrayOutputStream json = new ByteArrayOutputStream();
+		try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(body.toByteArray())))
+		{
+			byte[] buffer = new byte[1024];
+			for (int read; (read = inputStream.read(buffer)) != -1; )
+			{
+				json.write(buffer, 0, read);
+			}
+		}
+		String text = new String(json.toByteArray(), StandardCharsets.UTF_8);
+		Assertions.assertTrue(text.startsWith("[{"));
+		Assertions.assertTrue(text.contains("\"userName\":\"user-199\""));
+	}
+
+	@Test
+	void sendsBodiesAsIsWhenNotAccepted() throws IOException
+	{
+		Ajaxer.sendJsonOutput(request(null), response(), rows(200));
+
+		Assertions.assertNull(responseHeaderMap.get("Content-Encoding"));
+		Assertions.assertTrue(new String(body.toByteArray(), StandardCharsets.UTF_8).startsWith("[{"));
+	}
+}
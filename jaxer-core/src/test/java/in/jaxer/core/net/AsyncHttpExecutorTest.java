@@ -0,0 +1,176 @@
+package in.jaxer.core.net;
+
+import com.sun.net.httpserver.HttpServer;
+import in.jaxer.core.exceptions.CallNotPermittedException;
+import org.apache.http.client.methods.HttpGet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class AsyncHttpExecutorTest
+{
+	private final AtomicInteger attempts = new AtomicInteger();
+	private final CountDownLatch firstAttempt = new CountDownLatch(1);
+
+	private HttpServer httpServer;
+	private PooledHttpClient pooledHttpClient;
+
+	@BeforeEach
+	void start() throws Exception
+	{
+		httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		httpServer.createContext("/cached", httpExchange -> {
+			attempts.incrementAndGet();
+			byte[] body = "fresh".getBytes(StandardCharsets.UTF_8);
+			httpExchange.getResponseHeaders().set("Cache-Control", "max-age=60");
+			httpExchange.sendResponseHeaders(200, body.length);
+			httpExchange.getResponseBody().write(body);
+			httpExchange.close();
+		});
+		httpServer.createContext("/", httpExchange -> {
+			attempts.incrementAndGet();
+			httpExchange.sendResponseHeaders(503, -1);
+			httpExchange.close();
+			firstAttempt.countDown();
+		});
+		httpServer.start();
+
+		pooledHttpClient = PooledHttpClient.builder().build();
+	}
+
+	@AfterEach
+	void stop() throws Exception
+	{
+		pooledHttpClient.close();
+		httpServer.stop(0);
+	}
+
+	private String baseUrl()
+	{
+		return "http://127.0.0.1:" + httpServer.getAddress().getPort();
+	}
+
+	@Test
+	void retriesUnavailableResponses() throws Exception
+	{
+		try (AsyncHttpExecutor asyncHttpExecutor = AsyncHttpExecutor.builder().withPooledHttpClient(pooledHttpClient)
+				.withMaxRetries(2).withInitialBackoffMillis(1L).build())
+		{
+			HttpResult httpResult = asyncHttpExecutor.submit(new HttpGet(baseUrl() + "/busy")).get(5, TimeUnit.SECONDS);
+
+			Assertions.assertEquals(503, httpResult.getStatusCode());
+			Assertions.assertEquals(3, attempts.get());
+		}
+	}
+
+	@Test
+	void closeFailsTheCallsWaitingForARetry() throws Exception
+	{
+		AsyncHttpExecutor asyncHttpExecutor = AsyncHttpExecutor.builder().withPooledHttpClient(pooledHttpClient)
+				.withMaxRetries(3).withInitialBackoffMillis(60 * 1000L).withMaxBackoffMillis(60 * 1000L).build();
+
+		CompletableFuture<HttpResult> future = asyncHttpExecutor.submit(new HttpGet(baseUrl() + "/busy"));
+		Assertions.assertTrue(firstAttempt.await(5, TimeUnit.SECONDS));
+
+		// the backoff is drawn from [0, 60s], wait for the first attempt to be scheduled again
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (asyncHttpExecutor.getInFlight(baseUrl()) > 0 && System.nanoTime() < deadline)
+		{
+			Thread.sleep(10);
+		}
+		asyncHttpExecutor.close();
+
+		ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+		Assertions.assertTrue(exception.getCause() instanceof RejectedExecutionException);
+	}
+
+	private HttpHandler httpHandler(String path)
+	{
+		HttpHandler httpHandler = new HttpHandler();
+		httpHandler.setUrlString(baseUrl() + path);
+		httpHandler.setPooledHttpClient(pooledHttpClient);
+		return httpHandler;
+	}
+
+	@Test
+	void handlerCallsAreServedFromItsCache() throws Exception
+	{
+		HttpResponseCache httpResponseCache = HttpResponseCache.builder().build();
+		try (AsyncHttpExecutor asyncHttpExecutor = AsyncHttpExecutor.builder().withPooledHttpClient(pooledHttpClient).build())
+		{
+			for (int i = 0; i < 2; i++)
+			{
+				HttpHandler httpHandler = httpHandler("/cached");
+				httpHandler.setHttpResponseCache(httpResponseCache);
+				Assertions.assertEquals("fresh", asyncHttpExecutor.submit(httpHandler).get(5, TimeUnit.SECONDS).getBodyAsString());
+			}
+
+			Assertions.assertEquals(1, attempts.get());
+			Assertions.assertEquals(1, httpResponseCache.getHitCount());
+		}
+	}
+
+	@Test
+	void callsRefusedByTheCircuitBreakerAreNotRetried() throws Exception
+	{
+		HttpCircuitBreaker httpCircuitBreaker = HttpCircuitBreaker.builder().withWindowSize(2).withMinimumCalls(2).build();
+		try (AsyncHttpExecutor asyncHttpExecutor = AsyncHttpExecutor.builder().withPooledHttpClient(pooledHttpClient)
+				.withMaxRetries(5).withInitialBackoffMillis(1L).build())
+		{
+			HttpHandler httpHandler = httpHandler("/busy");
+			httpHandler.setHttpCircuitBreaker(httpCircuitBreaker);
+
+			// two unavailable responses open the circuit, the third attempt is refused without reaching the host
+			ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> asyncHttpExecutor.submit(httpHandler).get(5, TimeUnit.SECONDS));
+			Assertions.assertTrue(exception.getCause() instanceof CallNotPermittedException);
+			Assertions.assertEquals(2, attempts.get());
+		}
+	}
+
+	@Test
+	void dropsTheQueueOfAnIdleHost() throws Exception
+	{
+		try (AsyncHttpExecutor asyncHttpExecutor = AsyncHttpExecutor.builder().withPooledHttpClient(pooledHttpClient)
+				.withMaxRetries(1).withInitialBackoffMillis(1L).build())
+		{
+			asyncHttpExecutor.submit(new HttpGet(baseUrl() + "/busy")).get(5, TimeUnit.SECONDS);
+
+			// the queue is dropped right after the future completes, on the thread of the call
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (asyncHttpExecutor.getHostCount() > 0 && System.nanoTime() < deadline)
+			{
+				Thread.sleep(10);
+			}
+			Assertions.assertEquals(0, asyncHttpExecutor.getHostCount());
+
+			// a new queue is created for the next call
+			Assertions.assertEquals(200, asyncHttpExecutor.submit(new HttpGet(baseUrl() + "/cached")).get(5, TimeUnit.SECONDS).getStatusCode());
+			Assertions.assertEquals(3, attempts.get());
+		}
+	}
+
+	@Test
+	void defaultPortSharesTheHostKey()
+	{
+		Assertions.assertEquals(AsyncHttpExecutor.getHostKey(URI.create("http://Partner.example.com/a")),
+				AsyncHttpExecutor.getHostKey(URI.create("http://partner.example.com:80/b")));
+		Assertions.assertEquals(AsyncHttpExecutor.getHostKey(URI.create("https://partner.example.com/a")),
+				AsyncHttpExecutor.getHostKey(URI.create("https://partner.example.com:443/b")));
+		Assertions.assertNotEquals(AsyncHttpExecutor.getHostKey(URI.create("http://partner.example.com/a")),
+				AsyncHttpExecutor.getHostKey(URI.create("https://partner.example.com/a")));
+		Assertions.assertNotEquals(AsyncHttpExecutor.getHostKey(URI.create("http://partner.example.com/a")),
+				AsyncHttpExecutor.getHostKey(URI.create("http://partner.example.com:8080/a")));
+	}
+}
@@ -0,0 +1,94 @@
+package in.jaxer.core.net;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+class CompressingResponseWriterTest
+{
+	private static final String JSON = "[{\"userId\":1,\"userName\":\"shakir\"},{\"userId\":2,\"userName\":\"ansari\"}]";
+
+	@Nested
+	class Negotiate
+	{
+		@Test
+		void whenGzipAndDeflate()
+		{
+			Assertions.assertEquals(CompressingResponseWriter.GZIP, CompressingResponseWriter.negotiate("gzip, deflate, br"));
+		}
+
+		@Test
+		void whenDeflateHasHigherQuality()
+		{
+			Assertions.assertEquals(CompressingResponseWriter.DEFLATE, CompressingResponseWriter.negotiate("gzip;q=0.5, deflate"));
+		}
+
+		@Test
+		void whenWildcard()
+		{
+			Assertions.assertEquals(CompressingResponseWriter.DEFLATE, CompressingResponseWriter.negotiate("gzip;q=0, *"));
+		}
+
+		@Test
+		void whenNotAcceptable()
+		{
+			Assertions.assertNull(CompressingResponseWriter.negotiate(null));
+			Assertions.assertNull(CompressingResponseWriter.negotiate("identity"));
+			Assertions.assertNull(CompressingResponseWriter.negotiate("*;q=0"));
+		}
+	}
+
+	@Test
+	void gzipRoundTrip() throws IOException
+	{
+		DeflaterPool deflaterPool = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, true, 1);
+
+		for (int i = 0; i < 2; i++)
+		{
+			ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+			try (CompressingResponseWriter.PooledGzipOutputStream outputStream = new CompressingResponseWriter.PooledGzipOutputStream(byteArrayOutputStream, deflaterPool))
+			{
+				outputStream.write(JSON.getBytes(StandardCharsets.UTF_8));
+			}
+
+			Assertions.assertEquals(JSON, read(new GZIPInputStream(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()))));
+			Assertions.assertEquals(1, deflaterPool.size());
+		}
+	}
+
+	@Test
+	void deflateRoundTrip() throws IOException
+	{
+		DeflaterPool deflaterPool = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, false, 1);
+
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		try (CompressingResponseWriter.PooledDeflaterOutputStream outputStream = new CompressingResponseWriter.PooledDeflaterOutputStream(byteArrayOutputStream, deflaterPool))
+		{
+			outputStream.write(JSON.getBytes(StandardCharsets.UTF_8));
+		}
+
+		Assertions.assertEquals(JSON, read(new InflaterInputStream(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()))));
+		Assertions.assertEquals(1, deflaterPool.size());
+	}
+
+	private static String read(InputStream inputStream) throws IOException
+	{
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int read;
+		while ((read = inputStream.read(buffer)) != -1)
+		{
+			byteArrayOutputStream.write(buffer, 0, read);
+		}
+		return new String(byteArrayOutputStream.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
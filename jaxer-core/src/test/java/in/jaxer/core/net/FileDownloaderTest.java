@@ -0,0 +1,248 @@
+package in.jaxer.core.net;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import in.jaxer.core.constants.Constants;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+class FileDownloaderTest
+{
+	private static final int LENGTH = 40000;
+
+	@TempDir
+	Path tempDir;
+
+	private final List<String> rangeList = new CopyOnWriteArrayList<>();
+	private final AtomicLong servedBytes = new AtomicLong();
+
+	private volatile byte[] content = randomBytes(1);
+	private volatile String etag = "\"v1\"";
+	private volatile String headEtag = null;
+	private volatile boolean honourRanges = true;
+
+	// the range starting there is cut short once, the connection ends after half of it
+	private volatile long breakAt = -1;
+
+	private HttpServer httpServer;
+	private PooledHttpClient pooledHttpClient;
+
+	@BeforeEach
+	void start() throws Exception
+	{
+		httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		httpServer.createContext("/file.bin", this::handle);
+		httpServer.start();
+
+		pooledHttpClient = PooledHttpClient.builder().build();
+	}
+
+	@AfterEach
+	void stop() throws Exception
+	{
+		pooledHttpClient.close();
+		httpServer.stop(0);
+	}
+
+	private void handle(HttpExchange httpExchange) throws IOException
+	{
+		byte[] bytes = content;
+		httpExchange.getResponseHeaders().add("ETag", etag);
+		httpExchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+
+		if (httpExchange.getRequestMethod().equals("HEAD"))
+		{
+			httpExchange.getResponseHeaders().set("ETag", headEtag == null ? etag : headEtag);
+			httpExchange.getResponseHeaders().add("Content-Length", String.valueOf(bytes.length));
+			httpExchange.sendResponseHeaders(200, -1);
+			httpExchange.close();
+			return;
+		}
+
+		String range = httpExchange.getRequestHeaders().getFirst("Range");
+		String ifRange = httpExchange.getRequestHeaders().getFirst("If-Range");
+		if (range == null || !honourRanges || (ifRange != null && !ifRange.equals(etag)))
+		{
+			send(httpExchange, 200, bytes, 0, bytes.length, bytes.length);
+			return;
+		}
+
+		rangeList.add(range);
+		String[] bounds = range.substring("bytes=".length()).split("-");
+		int start = Integer.parseInt(bounds[0]);
+		int end = Integer.parseInt(bounds[1]);
+		httpExchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + bytes.length);
+
+		if (start == breakAt)
+		{
+			breakAt = -1;
+			// chunked, the body ends cleanly before the range does
+			send(httpExchange, 206, bytes, start, (end - start + 1) / 2, 0);
+			return;
+		}
+		send(httpExchange, 206, bytes, start, end - start + 1, end - start + 1);
+	}
+
+	private void send(HttpExchange httpExchange, int status, byte[] bytes, int offset, int length, long contentLength) throws IOException
+	{
+		httpExchange.sendResponseHeaders(status, contentLength);
+		try (OutputStream outputStream = httpExchange.getResponseBody())
+		{
+			outputStream.write(bytes, offset, length);
+		}
+		servedBytes.addAndGet(length);
+	}
+
+	private static byte[] randomBytes(long seed)
+	{
+		byte[] bytes = new byte[LENGTH];
+		new Random(seed).nextBytes(bytes);
+		return bytes;
+	}
+
+	private static String sha256(byte[] bytes) throws Exception
+	{
+		return new BigInteger(1, MessageDigest.getInstance(Constants.SHA_256).digest(bytes)).toString(16);
+	}
+
+	private String url()
+	{
+		return "http://127.0.0.1:" + httpServer.getAddress().getPort() + "/file.bin";
+	}
+
+	private FileDownloader fileDownloader(int maxRetries)
+	{
+		return FileDownloader.builder()
+				.withPooledHttpClient(pooledHttpClient)
+				.withSegmentCount(4)
+				.withMinSegmentSize(4096L)
+				.withMaxRetries(maxRetries)
+				.build();
+	}
+
+	private void assertDownloaded(Path target, byte[] expected) throws IOException
+	{
+		Assertions.assertArrayEquals(expected, Files.readAllBytes(target));
+		Assertions.assertFalse(Files.exists(target.resolveSibling("file.bin" + FileDownloader.PART_SUFFIX)));
+		Assertions.assertFalse(Files.exists(target.resolveSibling("file.bin" + FileDownloader.JOURNAL_SUFFIX)));
+	}
+
+	@Test
+	void downloadsInSegments() throws Exception
+	{
+		Path target = tempDir.resolve("file.bin");
+
+		long size = fileDownloader(0).download(url(), target, Constants.SHA_256, sha256(content));
+
+		Assertions.assertEquals(LENGTH, size);
+		assertDownloaded(target, content);
+		Assertions.assertEquals(4, rangeList.size());
+		Assertions.assertTrue(rangeList.contains("bytes=0-9999"));
+		Assertions.assertTrue(rangeList.contains("bytes=30000-39999"));
+		Assertions.assertEquals(LENGTH, servedBytes.get());
+	}
+
+	@Test
+	void deletesAFileNotMatchingTheChecksum() throws Exception
+	{
+		Path target = tempDir.resolve("file.bin");
+
+		Assertions.assertThrows(IOException.class, () -> fileDownloader(0).download(url(), target, Constants.SHA_256, "abc"));
+		Assertions.assertFalse(Files.exists(target));
+		Assertions.assertFalse(Files.exists(target.resolveSibling("file.bin" + FileDownloader.PART_SUFFIX)));
+	}
+
+	@Test
+	void retriesASegmentFromWhereItStopped() throws Exception
+	{
+		Path target = tempDir.resolve("file.bin");
+		breakAt = 20000;
+
+		fileDownloader(1).download(url(), target);
+
+		assertDownloaded(target, content);
+		Assertions.assertTrue(rangeList.contains("bytes=25000-29999"));
+		Assertions.assertEquals(LENGTH, servedBytes.get());
+	}
+
+	@Test
+	void resumesAnInterruptedDownload() throws Exception
+	{
+		Path target = tempDir.resolve("file.bin");
+		breakAt = 20000;
+
+		Assertions.assertThrows(IOException.class, () -> fileDownloader(0).download(url(), target));
+		Assertions.assertFalse(Files.exists(target));
+		Assertions.assertTrue(Files.exists(target.resolveSibling("file.bin" + FileDownloader.JOURNAL_SUFFIX)));
+
+		long servedBefore = servedBytes.get();
+		rangeList.clear();
+		fileDownloader(0).download(url(), target);
+
+		assertDownloaded(target, content);
+		Assertions.assertTrue(rangeList.contains("bytes=25000-29999"));
+		// the half of the broken range on disk is not downloaded again
+		Assertions.assertTrue(servedBytes.get() - servedBefore <= LENGTH - 5000);
+	}
+
+	@Test
+	void startsOverWhenTheFileChangedBetweenRuns() throws Exception
+	{
+		Path target = tempDir.resolve("file.bin");
+		breakAt = 20000;
+
+		Assertions.assertThrows(IOException.class, () -> fileDownloader(0).download(url(), target));
+
+		content = randomBytes(2);
+		etag = "\"v2\"";
+		rangeList.clear();
+		fileDownloader(0).download(url(), target);
+
+		assertDownloaded(target, content);
+		Assertions.assertTrue(rangeList.contains("bytes=0-9999"));
+		Assertions.assertTrue(rangeList.contains("bytes=20000-29999"));
+	}
+
+	@Test
+	void fallsBackWhenTheServerIgnoresRanges() throws Exception
+	{
+		Path target = tempDir.resolve("file.bin");
+		honourRanges = false;
+
+		fileDownloader(3).download(url(), target);
+
+		assertDownloaded(target, content);
+		Assertions.assertTrue(rangeList.isEmpty());
+	}
+
+	@Test
+	void fallsBackWhenTheFileChangesDuringTheDownload() throws Exception
+	{
+		Path target = tempDir.resolve("file.bin");
+
+		// HEAD still reports the old version, the conditional ranges are answered with the new one
+		headEtag = "\"v1\"";
+		content = randomBytes(3);
+		etag = "\"v3\"";
+
+		fileDownloader(3).download(url(), target);
+
+		assertDownloaded(target, content);
+	}
+}
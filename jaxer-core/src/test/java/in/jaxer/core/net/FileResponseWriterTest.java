@@ -0,0 +1,353 @@
+package in.jaxer.core.net;
+
+import in.jaxer.core.HttpUtils;
+import org.apache.http.client.utils.DateUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+class FileResponseWriterTest
+{
+	private static final long LENGTH = 1000;
+	private static final String CONTENT = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+	@TempDir
+	Path tempDir;
+
+	/**
+	 * Request and response of one call to {@link FileResponseWriter#write}, recording what the writer sent
+	 */
+	private static class Exchange
+	{
+		private final String method;
+		private final Map<String, String> requestHeaderMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		private final Map<String, Object> attributeMap = new HashMap<>();
+
+		private final Map<String, String> headerMap = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		private int status = 200;
+		private String contentType;
+		private long contentLength = -1;
+
+		private Exchange(String method, String... headers)
+		{
+			this.method = method;
+			for (int i = 0; i < headers.length; i += 2)
+			{
+				requestHeaderMap.put(headers[i], headers[i + 1]);
+			}
+		}
+
+		private Exchange write(FileResponseWriter fileResponseWriter, Path path) throws Exception
+		{
+			HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{HttpServletRequest.class}, (proxy, m, args) -> {
+				switch (m.getName())
+				{
+					case "getHeader":
+						return requestHeaderMap.get((String) args[0]);
+					case "getMethod":
+						return method;
+					case "getAttribute":
+						return attributeMap.get((String) args[0]);
+					case "setAttribute":
+						attributeMap.put((String) args[0], args[1]);
+						return null;
+					default:
+						return null;
+				}
+			});
+
+			ServletOutputStream servletOutputStream = new ServletOutputStream()
+			{
+				@Override
+				public boolean isReady()
+				{
+					return true;
+				}
+
+				@Override
+				public void setWriteListener(WriteListener writeListener)
+				{
+				}
+
+				@Override
+				public void write(int b)
+				{
+					body.write(b);
+				}
+			};
+
+			HttpServletResponse response = (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{HttpServletResponse.class}, (proxy, m, args) -> {
+				switch (m.getName())
+				{
+					case "setHeader":
+						headerMap.put((String) args[0], (String) args[1]);
+						return null;
+					case "setDateHeader":
+						headerMap.put((String) args[0], DateUtils.formatDate(new Date((Long) args[1])));
+						return null;
+					case "setStatus":
+					case "sendError":
+						status = (Integer) args[0];
+						return null;
+					case "setContentType":
+						contentType = (String) args[0];
+						return null;
+					case "setContentLengthLong":
+						contentLength = (Long) args[0];
+						return null;
+					case "getOutputStream":
+						return servletOutputStream;
+					default:
+						return null;
+				}
+			});
+
+			fileResponseWriter.write(request, response, path, "video/mp4", null);
+			return this;
+		}
+
+		private String getBody()
+		{
+			return new String(body.toByteArray(), StandardCharsets.ISO_8859_1);
+		}
+	}
+
+	private Path createFile() throws Exception
+	{
+		return Files.write(tempDir.resolve("video.mp4"), CONTENT.getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	// a small buffer so bodies are copied in several reads
+	private static FileResponseWriter writer()
+	{
+		return FileResponseWriter.builder().withBufferSize(7).build();
+	}
+
+	@Test
+	void servesTheWholeFile() throws Exception
+	{
+		Exchange exchange = new Exchange("GET").write(writer(), createFile());
+
+		Assertions.assertEquals(200, exchange.status);
+		Assertions.assertEquals(CONTENT, exchange.getBody());
+		Assertions.assertEquals(CONTENT.length(), exchange.contentLength);
+		Assertions.assertEquals("video/mp4", exchange.contentType);
+		Assertions.assertEquals("bytes", exchange.headerMap.get("Accept-Ranges"));
+		Assertions.assertNotNull(exchange.headerMap.get("ETag"));
+		Assertions.assertNotNull(exchange.headerMap.get("Last-Modified"));
+	}
+
+	@Test
+	void answersNotModifiedToACurrentCopy() throws Exception
+	{
+		Path path = createFile();
+		Exchange first = new Exchange("GET").write(writer(), path);
+
+		Exchange byEtag = new Exchange("GET", "If-None-Match", "W/" + first.headerMap.get("ETag")).write(writer(), path);
+		Assertions.assertEquals(304, byEtag.status);
+		Assertions.assertEquals(0, byEtag.body.size());
+		Assertions.assertEquals(first.headerMap.get("ETag"), byEtag.headerMap.get("ETag"));
+
+		Exchange byDate = new Exchange("GET", "If-Modified-Since", first.headerMap.get("Last-Modified")).write(writer(), path);
+		Assertions.assertEquals(304, byDate.status);
+		Assertions.assertEquals(0, byDate.body.size());
+	}
+
+	@Test
+	void answersPreconditionFailedToAnOtherVersion() throws Exception
+	{
+		Exchange exchange = new Exchange("GET", "If-Match", "\"other\"").write(writer(), createFile());
+
+		Assertions.assertEquals(412, exchange.status);
+		Assertions.assertEquals(0, exchange.body.size());
+	}
+
+	@Test
+	void servesASingleRange() throws Exception
+	{
+		Exchange exchange = new Exchange("GET", "Range", "bytes=10-15").write(writer(), createFile());
+
+		Assertions.assertEquals(206, exchange.status);
+		Assertions.assertEquals("abcdef", exchange.getBody());
+		Assertions.assertEquals(6, exchange.contentLength);
+		Assertions.assertEquals("bytes 10-15/36", exchange.headerMap.get("Content-Range"));
+		Assertions.assertEquals("video/mp4", exchange.contentType);
+	}
+
+	@Test
+	void servesTheWholeFileWhenIfRangeIsStale() throws Exception
+	{
+		Exchange exchange = new Exchange("GET", "Range", "bytes=10-15", "If-Range", "\"stale\"").write(writer(), createFile());
+
+		Assertions.assertEquals(200, exchange.status);
+		Assertions.assertEquals(CONTENT, exchange.getBody());
+		Assertions.assertNull(exchange.headerMap.get("Content-Range"));
+	}
+
+	@Test
+	void servesSeveralRangesAsMultipart() throws Exception
+	{
+		Exchange exchange = new Exchange("GET", "Range", "bytes=0-2,-3,30-32, 1-4").write(writer(), createFile());
+
+		Assertions.assertEquals(206, exchange.status);
+		Assertions.assertTrue(exchange.contentType.startsWith("multipart/byteranges; boundary="));
+
+		// the length announced is the length written
+		Assertions.assertEquals(exchange.body.size(), exchange.contentLength);
+
+		String boundary = exchange.contentType.substring(exchange.contentType.indexOf('=') + 1);
+		String partHeader = "\r\n--" + boundary + "\r\n" + HttpUtils.Header.CONTENT_TYPE + ": video/mp4\r\n" + HttpUtils.Header.CONTENT_RANGE + ": ";
+		String expected = partHeader + "bytes 0-4/36\r\n\r\n01234"
+				+ partHeader + "bytes 30-35/36\r\n\r\nuvwxyz"
+				+ "\r\n--" + boundary + "--\r\n";
+		Assertions.assertEquals(expected, exchange.getBody());
+	}
+
+	@Test
+	void answersRangeNotSatisfiable() throws Exception
+	{
+		Exchange exchange = new Exchange("GET", "Range", "bytes=100-").write(writer(), createFile());
+
+		Assertions.assertEquals(416, exchange.status);
+		Assertions.assertEquals("bytes */36", exchange.headerMap.get("Content-Range"));
+		Assertions.assertEquals(0, exchange.body.size());
+	}
+
+	@Test
+	void answersHeadWithoutBody() throws Exception
+	{
+		Path path = createFile();
+
+		Exchange whole = new Exchange("HEAD").write(writer(), path);
+		Assertions.assertEquals(200, whole.status);
+		Assertions.assertEquals(CONTENT.length(), whole.contentLength);
+		Assertions.assertEquals(0, whole.body.size());
+
+		// ranges only apply to GET
+		Exchange ranged = new Exchange("HEAD", "Range", "bytes=0-2,30-32").write(writer(), path);
+		Assertions.assertEquals(200, ranged.status);
+		Assertions.assertEquals(CONTENT.length(), ranged.contentLength);
+		Assertions.assertEquals(0, ranged.body.size());
+	}
+
+	@Test
+	void handsTheBodyToTheContainerSendfile() throws Exception
+	{
+		Path path = createFile();
+		FileResponseWriter fileResponseWriter = FileResponseWriter.builder().withMinSendfileSize(0L).build();
+
+		Exchange exchange = new Exchange("GET", "Range", "bytes=3-");
+		exchange.attributeMap.put("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+		exchange.write(fileResponseWriter, path);
+
+		Assertions.assertEquals(206, exchange.status);
+		Assertions.assertEquals(0, exchange.body.size());
+		Assertions.assertEquals(path.toAbsolutePath().toString(), exchange.attributeMap.get("org.apache.tomcat.sendfile.filename"));
+		Assertions.assertEquals(Long.valueOf(3), exchange.attributeMap.get("org.apache.tomcat.sendfile.start"));
+		Assertions.assertEquals(Long.valueOf(36), exchange.attributeMap.get("org.apache.tomcat.sendfile.end"));
+
+		// below the minimum size the body is copied
+		Exchange small = new Exchange("GET");
+		small.attributeMap.put("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+		small.write(FileResponseWriter.getDefault(), path);
+
+		Assertions.assertEquals(CONTENT, small.getBody());
+		Assertions.assertNull(small.attributeMap.get("org.apache.tomcat.sendfile.filename"));
+	}
+
+	@Test
+	void answersNotFoundForAMissingFile() throws Exception
+	{
+		Exchange exchange = new Exchange("GET").write(writer(), tempDir.resolve("missing.mp4"));
+
+		Assertions.assertEquals(404, exchange.status);
+		Assertions.assertEquals(0, exchange.body.size());
+	}
+
+	@Test
+	void parsesSingleRanges()
+	{
+		assertRanges(FileResponseWriter.parseRange("bytes=0-499", LENGTH, 16), 0, 499);
+		assertRanges(FileResponseWriter.parseRange("bytes=500-", LENGTH, 16), 500, 999);
+		assertRanges(FileResponseWriter.parseRange("bytes=-200", LENGTH, 16), 800, 999);
+		assertRanges(FileResponseWriter.parseRange("bytes=900-5000", LENGTH, 16), 900, 999);
+		assertRanges(FileResponseWriter.parseRange("bytes=-5000", LENGTH, 16), 0, 999);
+	}
+
+	@Test
+	void mergesOverlappingRangesInOrder()
+	{
+		assertRanges(FileResponseWriter.parseRange("bytes=600-699, 0-99, 50-149, 150-199", LENGTH, 16), 0, 199, 600, 699);
+	}
+
+	@Test
+	void dropsUnsatisfiableRanges()
+	{
+		assertRanges(FileResponseWriter.parseRange("bytes=1000-, 0-9", LENGTH, 16), 0, 9);
+		Assertions.assertTrue(FileResponseWriter.parseRange("bytes=1000-1999", LENGTH, 16).isEmpty());
+		Assertions.assertTrue(FileResponseWriter.parseRange("bytes=-0", LENGTH, 16).isEmpty());
+		Assertions.assertTrue(FileResponseWriter.parseRange("bytes=0-", 0, 16).isEmpty());
+	}
+
+	@Test
+	void ignoresInvalidHeaders()
+	{
+		Assertions.assertNull(FileResponseWriter.parseRange("items=0-9", LENGTH, 16));
+		Assertions.assertNull(FileResponseWriter.parseRange("bytes=9-0", LENGTH, 16));
+		Assertions.assertNull(FileResponseWriter.parseRange("bytes=a-b", LENGTH, 16));
+		Assertions.assertNull(FileResponseWriter.parseRange("bytes=10", LENGTH, 16));
+		Assertions.assertNull(FileResponseWriter.parseRange("bytes=0-0,2-2,4-4", LENGTH, 2));
+	}
+
+	@Test
+	void validatesIfRange()
+	{
+		long lastModified = 1_600_000_000_000L;
+		String etag = FileResponseWriter.getETag(LENGTH, lastModified);
+
+		Assertions.assertTrue(FileResponseWriter.isIfRangeSatisfied(null, etag, lastModified));
+		Assertions.assertTrue(FileResponseWriter.isIfRangeSatisfied(etag, etag, lastModified));
+		Assertions.assertFalse(FileResponseWriter.isIfRangeSatisfied("W/" + etag, etag, lastModified));
+		Assertions.assertFalse(FileResponseWriter.isIfRangeSatisfied(FileResponseWriter.getETag(LENGTH + 1, lastModified), etag, lastModified));
+		Assertions.assertTrue(FileResponseWriter.isIfRangeSatisfied(DateUtils.formatDate(new Date(lastModified)), etag, lastModified));
+		Assertions.assertFalse(FileResponseWriter.isIfRangeSatisfied(DateUtils.formatDate(new Date(lastModified - 1000)), etag, lastModified));
+	}
+
+	@Test
+	void matchesEntityTags()
+	{
+		String etag = FileResponseWriter.getETag(LENGTH, 1L);
+
+		Assertions.assertTrue(FileResponseWriter.matches("\"other\", " + etag, etag, false));
+		Assertions.assertTrue(FileResponseWriter.matches("*", etag, false));
+		Assertions.assertTrue(FileResponseWriter.matches("W/" + etag, etag, true));
+		Assertions.assertFalse(FileResponseWriter.matches("W/" + etag, etag, false));
+	}
+
+	private static void assertRanges(List<FileResponseWriter.ByteRange> rangeList, long... bounds)
+	{
+		Assertions.assertNotNull(rangeList);
+		Assertions.assertEquals(bounds.length / 2, rangeList.size());
+		for (int i = 0; i < rangeList.size(); i++)
+		{
+			Assertions.assertEquals(bounds[i * 2], rangeList.get(i).getStart());
+			Assertions.assertEquals(bounds[i * 2 + 1], rangeList.get(i).getEnd());
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package in.jaxer.core.net;
+
+import in.jaxer.core.exceptions.CallNotPermittedException;
+import org.apache.http.client.methods.HttpGet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class HttpCircuitBreakerTest
+{
+	private static final String URL = "http://partner.example.com/api";
+
+	private static HttpResult result(int statusCode)
+	{
+		return new HttpResult(statusCode, Collections.emptyMap(), new byte[0]);
+	}
+
+	@Test
+	void opensOnFailureRateAndRecoversThroughProbes() throws Exception
+	{
+		List<CircuitBreakerEvent> eventList = new ArrayList<>();
+		HttpCircuitBreaker httpCircuitBreaker = HttpCircuitBreaker.builder()
+				.withWindowSize(4)
+				.withMinimumCalls(4)
+				.withWaitInOpenMillis(50L)
+				.withHalfOpenProbes(2)
+				.withEventListener(eventList::add)
+				.build();
+
+		httpCircuitBreaker.execute(new HttpGet(URL), request -> result(200));
+		httpCircuitBreaker.execute(new HttpGet(URL), request -> result(200));
+		httpCircuitBreaker.execute(new HttpGet(URL), request -> result(503));
+		Assertions.assertEquals(HttpCircuitBreaker.State.CLOSED, httpCircuitBreaker.getState(URL));
+
+		Assertions.assertThrows(IOException.class, () -> httpCircuitBreaker.execute(new HttpGet(URL), request -> {
+			throw new IOException("Read timed out");
+		}));
+		Assertions.assertEquals(HttpCircuitBreaker.State.OPEN, httpCircuitBreaker.getState(URL));
+		Assertions.assertEquals(50f, httpCircuitBreaker.getMetrics(URL).getFailureRate());
+
+		Assertions.assertThrows(CallNotPermittedException.class, () -> httpCircuitBreaker.execute(new HttpGet(URL), request -> {
+			throw new AssertionError("must not be called");
+		}));
+		Assertions.assertEquals(1, httpCircuitBreaker.getMetrics(URL).getNotPermittedCalls());
+
+		// other hosts are not affected
+		Assertions.assertEquals(200, httpCircuitBreaker.execute(new HttpGet("http://other.example.com/"), request -> result(200)).getStatusCode());
+
+		TimeUnit.MILLISECONDS.sleep(60);
+		httpCircuitBreaker.execute(new HttpGet(URL), request -> result(200));
+		Assertions.assertEquals(HttpCircuitBreaker.State.HALF_OPEN, httpCircuitBreaker.getState(URL));
+		httpCircuitBreaker.execute(new HttpGet(URL), request -> result(200));
+		Assertions.assertEquals(HttpCircuitBreaker.State.CLOSED, httpCircuitBreaker.getState(URL));
+
+		List<HttpCircuitBreaker.State> toStateList = new ArrayList<>();
+		for (CircuitBreakerEvent circuitBreakerEvent : eventList)
+		{
+			if (circuitBreakerEvent.getType() == CircuitBreakerEvent.Type.STATE_TRANSITION)
+			{
+				toStateList.add(circuitBreakerEvent.getToState());
+			}
+		}
+		Assertions.assertEquals(3, toStateList.size());
+		Assertions.assertEquals(HttpCircuitBreaker.State.OPEN, toStateList.get(0));
+		Assertions.assertEquals(HttpCircuitBreaker.State.HALF_OPEN, toStateList.get(1));
+		Assertions.assertEquals(HttpCircuitBreaker.State.CLOSED, toStateList.get(2));
+	}
+
+	@Test
+	void opensOnSlowCalls() throws Exception
+	{
+		HttpCircuitBreaker httpCircuitBreaker = HttpCircuitBreaker.builder()
+				.withWindowSize(2)
+				.withMinimumCalls(2)
+				.withSlowCallDurationMillis(20L)
+				.withSlowCallRateThreshold(100f)
+				.build();
+
+		for (int i = 0; i < 2; i++)
+		{
+			httpCircuitBreaker.execute(new HttpGet(URL), request -> {
+				try
+				{
+					TimeUnit.MILLISECONDS.sleep(30);
+				} catch (InterruptedException exception)
+				{
+					Thread.currentThread().interrupt();
+				}
+				return result(200);
+			});
+		}
+
+		Assertions.assertEquals(HttpCircuitBreaker.State.OPEN, httpCircuitBreaker.getState(URL));
+		Assertions.assertEquals(2, httpCircuitBreaker.getMetrics(URL).getSlowCalls());
+	}
+
+	@Test
+	void bulkheadRejectsCallsOverTheLimit() throws Exception
+	{
+		HttpCircuitBreaker httpCircuitBreaker = HttpCircuitBreaker.builder()
+				.withMaxConcurrentCallsPerHost(1)
+				.build();
+
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Thread thread = new Thread(() -> {
+			try
+			{
+				httpCircuitBreaker.execute(new HttpGet(URL), request -> {
+					started.countDown();
+					try
+					{
+						release.await();
+					} catch (InterruptedException exception)
+					{
+						Thread.currentThread().interrupt();
+					}
+					return result(200);
+				});
+			} catch (IOException exception)
+			{
+				throw new IllegalStateException(exception);
+			}
+		});
+		thread.start();
+		Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		List<CircuitBreakerEvent> eventList = new ArrayList<>();
+		Assertions.assertThrows(CallNotPermittedException.class,
+				() -> httpCircuitBreaker.execute(new HttpGet(URL), request -> result(200), eventList::add));
+		Assertions.assertEquals(CircuitBreakerEvent.Type.BULKHEAD_FULL, eventList.get(0).getType());
+		Assertions.assertEquals(1, httpCircuitBreaker.getMetrics(URL).getConcurrentCalls());
+
+		release.countDown();
+		thread.join();
+		Assertions.assertEquals(0, httpCircuitBreaker.getMetrics(URL).getConcurrentCalls());
+		Assertions.assertEquals(1, httpCircuitBreaker.getMetrics(URL).getBulkheadRejectedCalls());
+	}
+}
@@ -0,0 +1,218 @@
+package in.jaxer.core.net;
+
+import org.apache.http.Header;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+class HttpResponseCacheTest
+{
+	/**
+	 * Transport answering from a script of results and recording the requests it received
+	 */
+	private static class ScriptedTransport implements HttpTransport
+	{
+		private final List<HttpResult> resultList = new ArrayList<>();
+		private final List<Map<String, String>> requestHeaderList = new ArrayList<>();
+
+		private ScriptedTransport then(int statusCode, String body, String... headers)
+		{
+			Map<String, List<String>> headerMap = new HashMap<>();
+			for (int i = 0; i < headers.length; i += 2)
+			{
+				headerMap.put(headers[i], Collections.singletonList(headers[i + 1]));
+			}
+			resultList.add(new HttpResult(statusCode, headerMap, body.getBytes(StandardCharsets.UTF_8)));
+			return this;
+		}
+
+		@Override
+		public HttpResult execute(HttpUriRequest httpUriRequest)
+		{
+			Map<String, String> headerMap = new HashMap<>();
+			for (Header header : httpUriRequest.getAllHeaders())
+			{
+				headerMap.put(header.getName(), header.getValue());
+			}
+			requestHeaderList.add(headerMap);
+			return resultList.remove(0);
+		}
+
+		private int getCallCount()
+		{
+			return requestHeaderList.size();
+		}
+	}
+
+	private static String body(HttpResult httpResult)
+	{
+		return new String(httpResult.getBody(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void servesFreshEntryWithoutCall() throws Exception
+	{
+		HttpResponseCache httpResponseCache = HttpResponseCache.builder().build();
+		ScriptedTransport transport = new ScriptedTransport().then(200, "v1", "Cache-Control", "max-age=60");
+
+		Assertions.assertEquals("v1", body(httpResponseCache.execute(new HttpGet("http://a.test/x"), transport)));
+		Assertions.assertEquals("v1", body(httpResponseCache.execute(new HttpGet("http://a.test/x"), transport)));
+
+		Assertions.assertEquals(1, transport.getCallCount());
+		Assertions.assertEquals(1, httpResponseCache.getHitCount());
+	}
+
+	@Test
+	void revalidatesWithoutTouchingTheCallerRequest() throws Exception
+	{
+		HttpResponseCache httpResponseCache = HttpResponseCache.builder().build();
+		ScriptedTransport transport = new ScriptedTransport()
+				.then(200, "v1", "Cache-Control", "no-cache", "ETag", "\"e1\"", "Last-Modified", "Mon, 05 Oct 2026 10:00:00 GMT")
+				.then(304, "", "ETag", "\"e1\"", "X-Checked", "yes");
+
+		httpResponseCache.execute(new HttpGet("http://a.test/x"), transport);
+
+		HttpGet httpGet = new HttpGet("http://a.test/x");
+		HttpResult httpResult = httpResponseCache.execute(httpGet, transport);
+
+		Assertions.assertEquals(200, httpResult.getStatusCode());
+		Assertions.assertEquals("v1", body(httpResult));
+		Assertions.assertEquals("yes", httpResult.getHeader("X-Checked"));
+		Assertions.assertEquals(1, httpResponseCache.getRevalidatedCount());
+
+		Assertions.assertEquals("\"e1\"", transport.requestHeaderList.get(1).get("If-None-Match"));
+		Assertions.assertEquals("Mon, 05 Oct 2026 10:00:00 GMT", transport.requestHeaderList.get(1).get("If-Modified-Since"));
+		Assertions.assertEquals(0, httpGet.getAllHeaders().length);
+	}
+
+	@Test
+	void storesOneVariantPerVaryHeaderValue() throws Exception
+	{
+		HttpResponseCache httpResponseCache = HttpResponseCache.builder().build();
+		ScriptedTransport transport = new ScriptedTransport()
+				.then(200, "english", "Cache-Control", "max-age=60", "Vary", "Accept-Language")
+				.then(200, "french", "Cache-Control", "max-age=60", "Vary", "Accept-Language");
+
+		HttpGet english = new HttpGet("http://a.test/x");
+		english.setHeader("Accept-Language", "en");
+		HttpGet french = new HttpGet("http://a.test/x");
+		french.setHeader("Accept-Language", "fr");
+
+		Assertions.assertEquals("english", body(httpResponseCache.execute(english, transport)));
+		Assertions.assertEquals("french", body(httpResponseCache.execute(french, transport)));
+		Assertions.assertEquals("french", body(httpResponseCache.execute(french, transport)));
+
+		Assertions.assertEquals(2, transport.getCallCount());
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedOfTheSameHost() throws Exception
+	{
+		HttpResponseCache httpResponseCache = HttpResponseCache.builder()
+				.withMaxBytesPerHost(300L)
+				.build();
+		ScriptedTransport transport = new ScriptedTransport();
+		String body = new String(new char[80]).replace('\0', 'x');
+		for (int i = 0; i < 5; i++)
+		{
+			transport.then(200, body, "Cache-Control", "max-age=60");
+		}
+
+		httpResponseCache.execute(new HttpGet("http://b.test/only"), transport);
+		httpResponseCache.execute(new HttpGet("http://a.test/1"), transport);
+		httpResponseCache.execute(new HttpGet("http://a.test/2"), transport);
+		httpResponseCache.execute(new HttpGet("http://a.test/1"), transport);
+		httpResponseCache.execute(new HttpGet("http://a.test/3"), transport);
+		Assertions.assertEquals(4, transport.getCallCount());
+
+		// a.test/2 was the least recently used of its host, b.test is not affected
+		httpResponseCache.execute(new HttpGet("http://a.test/1"), transport);
+		httpResponseCache.execute(new HttpGet("http://b.test/only"), transport);
+		Assertions.assertEquals(4, transport.getCallCount());
+
+		httpResponseCache.execute(new HttpGet("http://a.test/2"), transport);
+		Assertions.assertEquals(5, transport.getCallCount());
+	}
+
+	@Test
+	void reloadsEntriesFromDisk(@TempDir Path tempDir) throws Exception
+	{
+		Path diskDirectory = tempDir.resolve("cache");
+		ScriptedTransport transport = new ScriptedTransport().then(200, "stored", "Cache-Control", "max-age=60");
+
+		HttpResponseCache.builder().withDiskDirectory(diskDirectory).build()
+				.execute(new HttpGet("http://a.test/x"), transport);
+
+		HttpResponseCache restarted = HttpResponseCache.builder().withDiskDirectory(diskDirectory).build();
+		Assertions.assertTrue(restarted.getDiskBytes() > 0);
+		Assertions.assertEquals("stored", body(restarted.execute(new HttpGet("http://a.test/x"), transport)));
+		Assertions.assertEquals(1, transport.getCallCount());
+		Assertions.assertEquals(1, restarted.getHitCount());
+
+		if (Files.getFileAttributeView(diskDirectory, PosixFileAttributeView.class) != null)
+		{
+			Assertions.assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(diskDirectory));
+		}
+	}
+
+	@Test
+	void keepsResponsesToCredentialedRequestsOffDisk(@TempDir Path tempDir) throws Exception
+	{
+		Path diskDirectory = tempDir.resolve("cache");
+		HttpResponseCache httpResponseCache = HttpResponseCache.builder().withDiskDirectory(diskDirectory).build();
+		ScriptedTransport transport = new ScriptedTransport().then(200, "private", "Cache-Control", "max-age=60");
+
+		HttpGet httpGet = new HttpGet("http://a.test/me");
+		httpGet.setHeader("Authorization", "Bearer secret");
+		httpResponseCache.execute(httpGet, transport);
+
+		Assertions.assertEquals(0, httpResponseCache.getDiskBytes());
+		try (Stream<Path> stream = Files.list(diskDirectory))
+		{
+			Assertions.assertEquals(0, stream.count());
+		}
+
+		// still served from memory to the same credentials
+		Assertions.assertEquals("private", body(httpResponseCache.execute(httpGet, transport)));
+		Assertions.assertEquals(1, transport.getCallCount());
+	}
+
+	@Test
+	void refusesDirectoryOpenToOtherUsers(@TempDir Path tempDir) throws Exception
+	{
+		Path diskDirectory = tempDir.resolve("shared");
+		Files.createDirectory(diskDirectory);
+		if (Files.getFileAttributeView(diskDirectory, PosixFileAttributeView.class) == null)
+		{
+			return;
+		}
+
+		Set<PosixFilePermission> openPermissions = PosixFilePermissions.fromString("rwxrwxrwx");
+		Files.setPosixFilePermissions(diskDirectory, openPermissions);
+
+		HttpResponseCache httpResponseCache = HttpResponseCache.builder().withDiskDirectory(diskDirectory).build();
+		Assertions.assertNull(httpResponseCache.getDiskDirectory());
+
+		httpResponseCache.execute(new HttpGet("http://a.test/x"), new ScriptedTransport().then(200, "v1", "Cache-Control", "max-age=60"));
+		try (Stream<Path> stream = Files.list(diskDirectory))
+		{
+			Assertions.assertEquals(0, stream.count());
+		}
+	}
+}
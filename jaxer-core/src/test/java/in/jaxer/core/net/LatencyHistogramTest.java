@@ -0,0 +1,52 @@
+package in.jaxer.core.net;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+class LatencyHistogramTest
+{
+	@Test
+	void percentilesFallInBuckets()
+	{
+		LatencyHistogram latencyHistogram = new LatencyHistogram();
+		for (int i = 0; i < 90; i++)
+		{
+			latencyHistogram.record(TimeUnit.MILLISECONDS.toNanos(4));
+		}
+		for (int i = 0; i < 10; i++)
+		{
+			latencyHistogram.record(TimeUnit.MILLISECONDS.toNanos(80));
+		}
+
+		Assertions.assertEquals(100, latencyHistogram.getCount());
+		Assertions.assertEquals(5.0, latencyHistogram.getPercentileMillis(50));
+		Assertions.assertEquals(80.0, latencyHistogram.getPercentileMillis(99));
+		Assertions.assertEquals(80.0, latencyHistogram.getMaxMillis());
+		Assertions.assertEquals(11.6, latencyHistogram.getMeanMillis(), 0.001);
+		Assertions.assertEquals(1160.0, latencyHistogram.getSumMillis(), 0.001);
+	}
+
+	@Test
+	void ignoresUnmeasuredPhases()
+	{
+		LatencyHistogram latencyHistogram = new LatencyHistogram();
+		latencyHistogram.record(-1);
+
+		Assertions.assertEquals(0, latencyHistogram.getCount());
+		Assertions.assertEquals(0.0, latencyHistogram.getPercentileMillis(99));
+	}
+
+	@Test
+	void countsLatenciesAboveTheLastBound()
+	{
+		LatencyHistogram latencyHistogram = new LatencyHistogram();
+		latencyHistogram.record(TimeUnit.SECONDS.toNanos(90));
+
+		long[] bucketCounts = latencyHistogram.getBucketCounts();
+		Assertions.assertEquals(LatencyHistogram.getBucketBoundsMillis().length + 1, bucketCounts.length);
+		Assertions.assertEquals(1, bucketCounts[bucketCounts.length - 1]);
+		Assertions.assertEquals(90_000.0, latencyHistogram.getPercentileMillis(50));
+	}
+}
@@ -0,0 +1,81 @@
+package in.jaxer.core.net;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class MultipartEncoderTest
+{
+	@Test
+	void encodesWithCrlf() throws IOException
+	{
+		MultipartEncoder multipartEncoder = new MultipartEncoder("boundary", StandardCharsets.UTF_8)
+				.addField("userName", "shakir")
+				.addStream("document", "notes.txt", null, new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8)), 5);
+
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		multipartEncoder.writeTo(byteArrayOutputStream);
+
+		String expected = "--boundary\r\n"
+				+ "Content-Disposition: form-data; name=\"userName\"\r\n"
+				+ "Content-Type: text/plain; charset=UTF-8\r\n"
+				+ "\r\n"
+				+ "shakir\r\n"
+				+ "--boundary\r\n"
+				+ "Content-Disposition: form-data; name=\"document\"; filename=\"notes.txt\"\r\n"
+				+ "Content-Type: text/plain\r\n"
+				+ "\r\n"
+				+ "hello\r\n"
+				+ "--boundary--\r\n";
+
+		Assertions.assertEquals(expected, new String(byteArrayOutputStream.toByteArray(), StandardCharsets.UTF_8));
+		Assertions.assertEquals(expected.length(), multipartEncoder.getContentLength());
+		Assertions.assertEquals("multipart/form-data; boundary=boundary", multipartEncoder.getContentType());
+	}
+
+	@Test
+	void contentLengthMatchesFileParts(@TempDir Path tempDir) throws IOException
+	{
+		Path source = tempDir.resolve("data.bin");
+		Files.write(source, new byte[300 * 1024]);
+
+		MultipartEncoder multipartEncoder = new MultipartEncoder()
+				.addField("name", "ünïcode")
+				.addFile("data", source.toFile());
+
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		multipartEncoder.writeTo(byteArrayOutputStream);
+		Assertions.assertEquals(multipartEncoder.getContentLength(), byteArrayOutputStream.size());
+
+		File target = tempDir.resolve("body.bin").toFile();
+		try (FileOutputStream fileOutputStream = new FileOutputStream(target))
+		{
+			multipartEncoder.writeTo(fileOutputStream);
+		}
+		Assertions.assertArrayEquals(byteArrayOutputStream.toByteArray(), Files.readAllBytes(target.toPath()));
+	}
+
+	@Test
+	void unknownLength()
+	{
+		MultipartEncoder multipartEncoder = new MultipartEncoder()
+				.addStream("data", "data.bin", null, new ByteArrayInputStream(new byte[10]), -1);
+
+		Assertions.assertEquals(-1, multipartEncoder.getContentLength());
+	}
+
+	@Test
+	void escapesQuotedParameters()
+	{
+		Assertions.assertEquals("a%22b%0D%0Ac", MultipartEncoder.escape("a\"b\r\nc"));
+	}
+}
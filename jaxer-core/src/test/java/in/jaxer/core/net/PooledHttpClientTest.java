@@ -0,0 +1,175 @@
+package in.jaxer.core.net;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.client.methods.HttpGet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+class PooledHttpClientTest
+{
+	private final List<String> requestUriList = new CopyOnWriteArrayList<>();
+	private final List<Integer> remotePortList = new CopyOnWriteArrayList<>();
+
+	private HttpServer httpServer;
+	private PooledHttpClient pooledHttpClient;
+
+	@BeforeEach
+	void start() throws Exception
+	{
+		httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		httpServer.createContext("/gzip", httpExchange -> {
+			remotePortList.add(httpExchange.getRemoteAddress().getPort());
+
+			ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+			try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(byteArrayOutputStream))
+			{
+				for (int i = 0; i < 1000; i++)
+				{
+					gzipOutputStream.write(("line " + i + "\n").getBytes(StandardCharsets.UTF_8));
+				}
+			}
+
+			httpExchange.getResponseHeaders().add("Content-Encoding", "gzip");
+			httpExchange.sendResponseHeaders(200, byteArrayOutputStream.size());
+			try (OutputStream outputStream = httpExchange.getResponseBody())
+			{
+				byteArrayOutputStream.writeTo(outputStream);
+			}
+		});
+		httpServer.createContext("/redirect", httpExchange -> {
+			byte[] body = new byte[1000];
+			httpExchange.getResponseHeaders().add("Location", "/slow");
+			httpExchange.sendResponseHeaders(302, body.length);
+			try (OutputStream outputStream = httpExchange.getResponseBody())
+			{
+				outputStream.write(body);
+			}
+		});
+		httpServer.createContext("/slow", httpExchange -> {
+			httpExchange.sendResponseHeaders(200, 5);
+			try (OutputStream outputStream = httpExchange.getResponseBody())
+			{
+				outputStream.write('h');
+				outputStream.flush();
+				Thread.sleep(200);
+				outputStream.write("ello".getBytes(StandardCharsets.UTF_8));
+			} catch (InterruptedException exception)
+			{
+				Thread.currentThread().interrupt();
+			}
+		});
+		httpServer.createContext("/", httpExchange -> {
+			requestUriList.add(httpExchange.getRequestURI().toString());
+			remotePortList.add(httpExchange.getRemoteAddress().getPort());
+
+			byte[] body = "hello".getBytes(StandardCharsets.UTF_8);
+			httpExchange.sendResponseHeaders(200, body.length);
+			try (OutputStream outputStream = httpExchange.getResponseBody())
+			{
+				outputStream.write(body);
+			}
+		});
+		httpServer.start();
+
+		pooledHttpClient = PooledHttpClient.builder().build();
+	}
+
+	@AfterEach
+	void stop() throws Exception
+	{
+		pooledHttpClient.close();
+		httpServer.stop(0);
+	}
+
+	private String baseUrl()
+	{
+		return "http://127.0.0.1:" + httpServer.getAddress().getPort();
+	}
+
+	@Test
+	void connectsDirectlyWithoutProxy() throws Exception
+	{
+		HttpResult httpResult = pooledHttpClient.execute(new HttpGet(baseUrl() + "/direct"));
+
+		Assertions.assertEquals(200, httpResult.getStatusCode());
+		Assertions.assertEquals("/direct", requestUriList.get(0));
+	}
+
+	@Test
+	void reusesTheConnectionOfADecodedBody() throws Exception
+	{
+		HttpResult first = pooledHttpClient.execute(new HttpGet(baseUrl() + "/gzip"));
+		Assertions.assertTrue(first.getBodyAsString().endsWith("line 999\n"));
+		Assertions.assertEquals(1, pooledHttpClient.getTotalStats().getAvailable());
+
+		try (HttpResponseStream httpResponseStream = pooledHttpClient.open(new HttpGet(baseUrl() + "/gzip")))
+		{
+			httpResponseStream.transferTo(new ByteArrayOutputStream());
+		}
+		Assertions.assertEquals(1, pooledHttpClient.getTotalStats().getAvailable());
+
+		Assertions.assertEquals(2, remotePortList.size());
+		Assertions.assertEquals(remotePortList.get(0), remotePortList.get(1));
+	}
+
+	@Test
+	void closesTheConnectionOfABodyLeftUnread() throws Exception
+	{
+		try (HttpResponseStream httpResponseStream = pooledHttpClient.open(new HttpGet(baseUrl() + "/gzip")))
+		{
+			Assertions.assertEquals('l', httpResponseStream.getInputStream().read());
+		}
+		Assertions.assertEquals(0, pooledHttpClient.getTotalStats().getAvailable());
+		Assertions.assertEquals(0, pooledHttpClient.getTotalStats().getLeased());
+	}
+
+	@Test
+	void timesTheLastHopOfARedirect() throws Exception
+	{
+		HttpResult httpResult = pooledHttpClient.execute(new HttpGet(baseUrl() + "/redirect"));
+		HttpTimings httpTimings = httpResult.getTimings();
+
+		Assertions.assertEquals(200, httpResult.getStatusCode());
+		Assertions.assertEquals("hello", httpResult.getBodyAsString());
+
+		// the body of the 302 is not counted, nor does reading it end the body of the 200
+		Assertions.assertEquals(5, httpTimings.getResponseBytes());
+		Assertions.assertTrue(httpTimings.getBodyNanos() >= TimeUnit.MILLISECONDS.toNanos(150), httpTimings.toString());
+
+		// both requests were written and waited for
+		HttpResult direct = pooledHttpClient.execute(new HttpGet(baseUrl() + "/slow"));
+		Assertions.assertTrue(httpTimings.getRequestBytes() > direct.getTimings().getRequestBytes(), httpTimings.toString());
+		Assertions.assertTrue(httpTimings.getTotalNanos() >= httpTimings.getTimeToFirstByteNanos() + httpTimings.getBodyNanos());
+	}
+
+	@Test
+	void followsTheProxySystemProperties() throws Exception
+	{
+		System.setProperty("http.proxyHost", "127.0.0.1");
+		System.setProperty("http.proxyPort", String.valueOf(httpServer.getAddress().getPort()));
+		try
+		{
+			// the host does not exist, only the proxy can answer
+			HttpResult httpResult = pooledHttpClient.execute(new HttpGet("http://partner.invalid/orders"));
+
+			Assertions.assertEquals(200, httpResult.getStatusCode());
+			Assertions.assertEquals("http://partner.invalid/orders", requestUriList.get(0));
+		} finally
+		{
+			System.clearProperty("http.proxyHost");
+			System.clearProperty("http.proxyPort");
+		}
+	}
+}
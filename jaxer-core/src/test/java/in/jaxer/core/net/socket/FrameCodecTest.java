@@ -0,0 +1,153 @@
+package in.jaxer.core.net.socket;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class FrameCodecTest
+{
+	@Test
+	void decodesFramesSplitAcrossReads() throws ProtocolException
+	{
+		ByteBuffer encoded = ByteBuffer.allocate(64);
+		Assertions.assertTrue(FrameCodec.encode(new Frame(7, "hello".getBytes(StandardCharsets.UTF_8)), encoded));
+		Assertions.assertTrue(FrameCodec.encode(new Frame(0, new byte[0]), encoded));
+		Assertions.assertTrue(FrameCodec.encode(new Frame(-7, "failed".getBytes(StandardCharsets.UTF_8)), encoded));
+		encoded.flip();
+
+		FrameCodec frameCodec = new FrameCodec();
+		List<Frame> frameList = new ArrayList<>();
+		while (encoded.hasRemaining())
+		{
+			// one byte at a time, the worst a socket can deliver
+			frameCodec.decode(ByteBuffer.wrap(new byte[]{encoded.get()}), frameList);
+		}
+
+		Assertions.assertFalse(frameCodec.isPartial());
+		Assertions.assertEquals(3, frameList.size());
+
+		Assertions.assertEquals(7, frameList.get(0).getId());
+		Assertions.assertEquals("hello", new String(frameList.get(0).getPayload(), StandardCharsets.UTF_8));
+		Assertions.assertTrue(frameList.get(1).isOneWay());
+		Assertions.assertEquals(0, frameList.get(1).getPayload().length);
+		Assertions.assertTrue(frameList.get(2).isError());
+	}
+
+	@Test
+	void keepsPartialFrame() throws ProtocolException
+	{
+		ByteBuffer encoded = FrameCodec.encode(new Frame(1, new byte[100]));
+		encoded.limit(50);
+
+		FrameCodec frameCodec = new FrameCodec();
+		List<Frame> frameList = new ArrayList<>();
+		frameCodec.decode(encoded, frameList);
+
+		Assertions.assertTrue(frameList.isEmpty());
+		Assertions.assertTrue(frameCodec.isPartial());
+
+		encoded.limit(encoded.capacity());
+		frameCodec.decode(encoded, frameList);
+		Assertions.assertEquals(1, frameList.size());
+		Assertions.assertEquals(100, frameList.get(0).getPayload().length);
+	}
+
+	@Test
+	void rejectsOversizedFrame()
+	{
+		ByteBuffer encoded = FrameCodec.encode(new Frame(1, new byte[11]));
+		Assertions.assertThrows(ProtocolException.class, () -> new FrameCodec(10).decode(encoded, new ArrayList<>()));
+	}
+
+	@Test
+	void encodeNeedsRoom()
+	{
+		ByteBuffer target = ByteBuffer.allocate(FrameCodec.HEADER_LENGTH + 3);
+		Assertions.assertFalse(FrameCodec.encode(new Frame(1, new byte[4]), target));
+		Assertions.assertEquals(0, target.position());
+	}
+
+	@Test
+	void streamRoundTrip() throws IOException
+	{
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		FrameCodec.write(new Frame(42, "payload".getBytes(StandardCharsets.UTF_8)), new DataOutputStream(byteArrayOutputStream));
+
+		Frame frame = FrameCodec.read(new DataInputStream(new ByteArrayInputStream(byteArrayOutputStream.toByteArray())), 1024);
+		Assertions.assertEquals(42, frame.getId());
+		Assertions.assertEquals("payload", new String(frame.getPayload(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void decodesLargeFrameAcrossManyReads() throws ProtocolException
+	{
+		byte[] payload = new byte[100000];
+		new Random(7).nextBytes(payload);
+		ByteBuffer encoded = FrameCodec.encode(new Frame(3, payload));
+
+		FrameCodec frameCodec = new FrameCodec();
+		List<Frame> frameList = new ArrayList<>();
+		while (encoded.hasRemaining())
+		{
+			ByteBuffer chunk = encoded.slice();
+			chunk.limit(Math.min(1000, chunk.remaining()));
+			encoded.position(encoded.position() + chunk.limit());
+			frameCodec.decode(chunk, frameList);
+		}
+
+		Assertions.assertEquals(1, frameList.size());
+		Assertions.assertArrayEquals(payload, frameList.get(0).getPayload());
+	}
+
+	@Test
+	void announcedLengthIsNotAllocatedUpFront() throws ProtocolException
+	{
+		// a thousand peers announcing the largest frame and sending a single byte of it
+		List<FrameCodec> frameCodecList = new ArrayList<>();
+		for (int i = 0; i < 1000; i++)
+		{
+			ByteBuffer header = ByteBuffer.allocate(FrameCodec.HEADER_LENGTH + 1);
+			header.putInt(FrameCodec.DEFAULT_MAX_FRAME_LENGTH).putInt(1).put((byte) 1).flip();
+
+			FrameCodec frameCodec = new FrameCodec();
+			frameCodec.decode(header, new ArrayList<>());
+			Assertions.assertTrue(frameCodec.isPartial());
+			frameCodecList.add(frameCodec);
+		}
+		Assertions.assertEquals(1000, frameCodecList.size());
+	}
+
+	@Test
+	void streamReadOfLargeFrame() throws IOException
+	{
+		byte[] payload = new byte[100000];
+		new Random(9).nextBytes(payload);
+
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		FrameCodec.write(new Frame(5, payload), new DataOutputStream(byteArrayOutputStream));
+
+		Frame frame = FrameCodec.read(new DataInputStream(new ByteArrayInputStream(byteArrayOutputStream.toByteArray())), FrameCodec.DEFAULT_MAX_FRAME_LENGTH);
+		Assertions.assertArrayEquals(payload, frame.getPayload());
+	}
+
+	@Test
+	void streamReadOfTruncatedFrame()
+	{
+		ByteBuffer header = ByteBuffer.allocate(FrameCodec.HEADER_LENGTH + 10);
+		header.putInt(FrameCodec.DEFAULT_MAX_FRAME_LENGTH).putInt(1);
+
+		Assertions.assertThrows(EOFException.class, () -> FrameCodec.read(new DataInputStream(new ByteArrayInputStream(header.array())), FrameCodec.DEFAULT_MAX_FRAME_LENGTH));
+	}
+}
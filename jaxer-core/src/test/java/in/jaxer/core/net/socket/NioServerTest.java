@@ -0,0 +1,144 @@
+package in.jaxer.core.net.socket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class NioServerTest
+{
+	private static final byte[] LARGE_PAYLOAD = new byte[1024 * 1024];
+
+	private final AtomicInteger echoCount = new AtomicInteger();
+	private final AtomicInteger pushCount = new AtomicInteger();
+	private final CountDownLatch flooded = new CountDownLatch(1);
+
+	private NioServer nioServer;
+
+	@AfterEach
+	void stop()
+	{
+		if (nioServer != null)
+		{
+			nioServer.stop();
+		}
+	}
+
+	private void start(int maxQueuedWrites) throws IOException
+	{
+		nioServer = NioServer.builder()
+				.withHost(InetAddress.getLoopbackAddress().getHostAddress())
+				.withPort(0)
+				.withMaxQueuedWrites(maxQueuedWrites)
+				.withFrameHandler((connection, payload) ->
+				{
+					String message = new String(payload, StandardCharsets.UTF_8);
+					switch (message)
+					{
+						case "fail":
+							throw new IllegalStateException("failed on purpose");
+						case "flood":
+							// pushes until the socket buffers are full and the server keeps dropping them
+							long refusedSince = -1;
+							while (pushCount.get() < 1000)
+							{
+								if (connection.send(LARGE_PAYLOAD))
+								{
+									pushCount.incrementAndGet();
+									refusedSince = -1;
+								} else if (refusedSince == -1)
+								{
+									refusedSince = System.nanoTime();
+								} else if (System.nanoTime() - refusedSince > TimeUnit.MILLISECONDS.toNanos(500))
+								{
+									break;
+								} else
+								{
+									Thread.sleep(10);
+								}
+							}
+							flooded.countDown();
+							return payload;
+						default:
+							echoCount.incrementAndGet();
+							return payload;
+					}
+				})
+				.build();
+		nioServer.start();
+	}
+
+	@Test
+	void answersRequestsOfTheFrameClient() throws Exception
+	{
+		start(NioServer.DEFAULT_MAX_QUEUED_WRITES);
+
+		try (FrameClient frameClient = new FrameClient())
+		{
+			frameClient.setHost(InetAddress.getLoopbackAddress().getHostAddress());
+			frameClient.setPort(String.valueOf(nioServer.getPort()));
+			frameClient.start();
+
+			Assertions.assertEquals("one", new String(frameClient.request("one".getBytes(StandardCharsets.UTF_8)).get(5, TimeUnit.SECONDS), StandardCharsets.UTF_8));
+
+			ExecutionException exception = Assertions.assertThrows(ExecutionException.class,
+					() -> frameClient.request("fail".getBytes(StandardCharsets.UTF_8)).get(5, TimeUnit.SECONDS));
+			Assertions.assertEquals("failed on purpose", exception.getCause().getMessage());
+			Assertions.assertEquals(0, frameClient.getPendingCount());
+		}
+	}
+
+	@Test
+	void stopsReadingAClientNotReadingItsResponses() throws Exception
+	{
+		start(4);
+
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), nioServer.getPort()))
+		{
+			DataOutputStream dataOutputStream = new DataOutputStream(socket.getOutputStream());
+			DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+			FrameCodec.write(new Frame(1, "flood".getBytes(StandardCharsets.UTF_8)), dataOutputStream);
+			dataOutputStream.flush();
+
+			Assertions.assertTrue(flooded.await(10, TimeUnit.SECONDS));
+			Assertions.assertTrue(pushCount.get() < 1000, "pushes are dropped once the write queue is full");
+
+			// the request is not read while the responses pile up
+			Thread.sleep(200);
+			FrameCodec.write(new Frame(2, "echo".getBytes(StandardCharsets.UTF_8)), dataOutputStream);
+			dataOutputStream.flush();
+			Thread.sleep(300);
+			Assertions.assertEquals(0, echoCount.get());
+
+			// reading the responses lets the server read the request again
+			int pushed = 0;
+			while (true)
+			{
+				Frame frame = FrameCodec.read(dataInputStream, FrameCodec.DEFAULT_MAX_FRAME_LENGTH);
+				if (frame.isOneWay())
+				{
+					pushed++;
+				} else if (frame.getId() == 2)
+				{
+					Assertions.assertEquals("echo", new String(frame.getPayload(), StandardCharsets.UTF_8));
+					break;
+				}
+			}
+
+			Assertions.assertEquals(pushCount.get(), pushed);
+			Assertions.assertEquals(1, echoCount.get());
+		}
+	}
+}
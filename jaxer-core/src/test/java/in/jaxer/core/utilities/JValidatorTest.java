@@ -1,6 +1,7 @@
 package in.jaxer.core.utilities;
 
 import in.jaxer.core.exceptions.JaxerCoreException;
+import in.jaxer.core.exceptions.ValidationException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -258,4 +259,36 @@ class JValidatorTest
 			Assertions.assertThrows(JaxerCoreException.class, () -> JValidator.throwWhenFalse(false, new JaxerCoreException()));
 		}
 	}
-}
\ No newline at end of file
+
+	@Nested
+	class ThrowWhenWithSupplierTest
+	{
+		@Test
+		void whenOk()
+		{
+			JValidator.throwWhenNull("HelloWorld", () -> Assertions.fail("supplier must not be invoked"));
+			JValidator.throwWhenBlank("HelloWorld", () -> Assertions.fail("supplier must not be invoked"));
+			JValidator.throwWhenTrue(false, () -> Assertions.fail("supplier must not be invoked"));
+		}
+
+		@Test
+		void onNull()
+		{
+			Assertions.assertThrowsExactly(ValidationException.class, () -> JValidator.throwWhenNull(null, () -> new ValidationException("null")));
+		}
+
+		@Test
+		void onBlank()
+		{
+			Assertions.assertThrowsExactly(ValidationException.class, () -> JValidator.throwWhenBlank("", () -> new ValidationException("blank")));
+			Assertions.assertThrowsExactly(ValidationException.class, () -> JValidator.throwWhenBlank(new ArrayList<>(), () -> new ValidationException("blank")));
+			Assertions.assertThrowsExactly(ValidationException.class, () -> JValidator.throwWhenBlank(new HashMap<>(), () -> new ValidationException("blank")));
+		}
+
+		@Test
+		void validationExceptionIsStackless()
+		{
+			Assertions.assertEquals(0, new ValidationException("stackless").getStackTrace().length);
+		}
+	}
+}